@@ -1,21 +1,31 @@
 package co.edu.uniajc.estudiante.opemay.IRespository;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
 import com.google.api.core.ApiFuture;
+import com.google.cloud.Timestamp;
 import com.google.cloud.firestore.DocumentReference;
 import com.google.cloud.firestore.DocumentSnapshot;
 import com.google.cloud.firestore.Firestore;
 import com.google.cloud.firestore.Query;
 import com.google.cloud.firestore.QueryDocumentSnapshot;
 import com.google.cloud.firestore.QuerySnapshot;
+import com.google.cloud.firestore.Transaction;
 import com.google.cloud.firestore.WriteResult;
-import com.google.firebase.cloud.FirestoreClient;
 
+import co.edu.uniajc.estudiante.opemay.dto.PageResponse;
 import co.edu.uniajc.estudiante.opemay.model.Cart;
 import lombok.extern.slf4j.Slf4j;
 
@@ -24,13 +34,60 @@ import lombok.extern.slf4j.Slf4j;
 public class CartRepository {
 
     private static final String COLLECTION_NAME = "carts";
+    private static final String FIELD_CREATED_AT = "createdAt";
+
+    /**
+     * Un documento por usuario (ID = userId) con el ID de su carrito activo en "cartId",
+     * o cartId null si se sabe que no tiene. Si el documento no existe, el usuario es
+     * anterior a este índice y su carrito se busca con la consulta por campos
+     */
+    private static final String ACTIVE_CARTS_COLLECTION = "activeCarts";
+    private static final String FIELD_CART_ID = "cartId";
+    private static final String STATUS_ACTIVE = "ACTIVE";
+
+    private final Firestore firestore;
+    private final int activeCartCacheSize;
+    private final long activeCartTtlNanos;
+
+    /**
+     * ID del carrito activo por usuario, recordado por poco tiempo. Siempre se verifica
+     * al leer el carrito, así que una entrada desactualizada sólo cuesta una lectura extra
+     */
+    private final Map<String, CachedCartId> activeCartIds;
+
+    private record CachedCartId(String cartId, long expiresAtNanos) {
+    }
+
+    /**
+     * Puntero al carrito activo leído de Firestore
+     *
+     * @param exists false si el usuario aún no tiene documento en activeCarts
+     */
+    private record ActiveCartPointer(boolean exists, String cartId) {
+    }
+
+    /**
+     * Recibe el cliente Firestore compartido configurado en FirebaseInitializer
+     */
+    public CartRepository(@Autowired(required = false) Firestore firestore,
+                          @Value("${app.carts.active-cache.max-size:10000}") int activeCartCacheSize,
+                          @Value("${app.carts.active-cache.ttl:60s}") Duration activeCartTtl) {
+        this.firestore = firestore;
+        this.activeCartCacheSize = activeCartCacheSize;
+        this.activeCartTtlNanos = activeCartTtl.toNanos();
+        this.activeCartIds = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedCartId> eldest) {
+                return size() > CartRepository.this.activeCartCacheSize;
+            }
+        };
+    }
 
     /**
      * Guarda un carrito en Firestore
      */
     public String save(Cart cart) throws ExecutionException, InterruptedException {
-        Firestore dbFirestore = FirestoreClient.getFirestore();
-        ApiFuture<WriteResult> collectionsApiFuture = dbFirestore.collection(COLLECTION_NAME)
+        ApiFuture<WriteResult> collectionsApiFuture = firestore.collection(COLLECTION_NAME)
                 .document(cart.getId())
                 .set(cart);
         
@@ -42,8 +99,7 @@ public class CartRepository {
      * Obtiene un carrito por su ID
      */
     public Cart getCartById(String id) throws ExecutionException, InterruptedException {
-        Firestore dbFirestore = FirestoreClient.getFirestore();
-        DocumentReference documentReference = dbFirestore.collection(COLLECTION_NAME).document(id);
+        DocumentReference documentReference = firestore.collection(COLLECTION_NAME).document(id);
         ApiFuture<DocumentSnapshot> future = documentReference.get();
         DocumentSnapshot document = future.get();
 
@@ -57,77 +113,285 @@ public class CartRepository {
     }
 
     /**
-     * Obtiene el carrito activo de un usuario
+     * Versión asíncrona de getCartById
+     */
+    public CompletableFuture<Cart> getCartByIdAsync(String id) {
+        return FirestoreFutures.toCompletableFuture(firestore.collection(COLLECTION_NAME).document(id).get())
+                .thenApply(document -> document.exists() ? document.toObject(Cart.class) : null);
+    }
+
+    /**
+     * Obtiene el carrito activo de un usuario. Con el ID en la caché local es una sola lectura
+     * por ID; si no, se lee el puntero de activeCarts. La consulta por campos sólo se usa
+     * para usuarios sin puntero o con un puntero desactualizado
      */
     public Cart getActiveCartByUserId(String userId) throws ExecutionException, InterruptedException {
-        Firestore dbFirestore = FirestoreClient.getFirestore();
-        Query query = dbFirestore.collection(COLLECTION_NAME)
+        ActiveCartPointer pointer = cachedPointer(userId);
+        if (pointer == null) {
+            pointer = toPointer(activeCartReference(userId).get().get());
+        }
+
+        if (pointer.cartId() != null) {
+            Cart cart = getCartById(pointer.cartId());
+            if (isActiveCartOf(cart, userId)) {
+                rememberActiveCart(userId, cart.getId());
+                return cart;
+            }
+            forgetActiveCart(userId);
+        } else if (pointer.exists()) {
+            log.info("No se encontró carrito activo para usuario: {}", userId);
+            return null;
+        }
+
+        Cart cart = queryActiveCart(userId).get();
+        if (cart != null) {
+            activeCartReference(userId).set(pointerData(cart.getId())).get();
+        }
+        return cart;
+    }
+
+    /**
+     * Versión asíncrona de getActiveCartByUserId
+     */
+    public CompletableFuture<Cart> getActiveCartByUserIdAsync(String userId) {
+        ActiveCartPointer cached = cachedPointer(userId);
+        CompletableFuture<ActiveCartPointer> pointerFuture = cached != null
+                ? CompletableFuture.completedFuture(cached)
+                : FirestoreFutures.toCompletableFuture(activeCartReference(userId).get()).thenApply(CartRepository::toPointer);
+
+        return pointerFuture.thenCompose(pointer -> {
+            if (pointer.cartId() != null) {
+                return getCartByIdAsync(pointer.cartId()).thenCompose(cart -> {
+                    if (isActiveCartOf(cart, userId)) {
+                        rememberActiveCart(userId, cart.getId());
+                        return CompletableFuture.completedFuture(cart);
+                    }
+                    forgetActiveCart(userId);
+                    return queryActiveCartAndBackfill(userId);
+                });
+            }
+            return pointer.exists() ? CompletableFuture.completedFuture(null) : queryActiveCartAndBackfill(userId);
+        });
+    }
+
+    /**
+     * Guarda un carrito nuevo como el activo del usuario, en una transacción con su puntero.
+     * Si mientras tanto otra petición ya creó uno, devuelve ese y no guarda el nuevo
+     */
+    public Cart createActiveCart(Cart cart) throws ExecutionException, InterruptedException {
+        String userId = cart.getUserId();
+        DocumentReference pointerReference = activeCartReference(userId);
+
+        Cart active = firestore.runTransaction(transaction -> {
+            String currentId = toPointer(transaction.get(pointerReference).get()).cartId();
+            if (currentId != null) {
+                DocumentSnapshot current = transaction.get(firestore.collection(COLLECTION_NAME).document(currentId)).get();
+                Cart existing = current.exists() ? current.toObject(Cart.class) : null;
+                if (isActiveCartOf(existing, userId)) {
+                    return existing;
+                }
+            }
+            transaction.set(firestore.collection(COLLECTION_NAME).document(cart.getId()), cart);
+            transaction.set(pointerReference, pointerData(cart.getId()));
+            return cart;
+        }).get();
+
+        rememberActiveCart(userId, active.getId());
+        log.info("Carrito activo {} para usuario: {}", active.getId(), userId);
+        return active;
+    }
+
+    /**
+     * Consulta por campos, para usuarios anteriores al índice activeCarts
+     */
+    private CompletableFuture<Cart> queryActiveCart(String userId) {
+        Query query = firestore.collection(COLLECTION_NAME)
                 .whereEqualTo("userId", userId)
-                .whereEqualTo("status", "ACTIVE")
+                .whereEqualTo("status", STATUS_ACTIVE)
                 .whereEqualTo("active", true)
                 .limit(1);
-        
-        ApiFuture<QuerySnapshot> querySnapshot = query.get();
-        List<QueryDocumentSnapshot> documents = querySnapshot.get().getDocuments();
-        
-        if (!documents.isEmpty()) {
-            log.info("Carrito activo encontrado para usuario: {}", userId);
-            return documents.get(0).toObject(Cart.class);
-        }
-        
-        log.info("No se encontró carrito activo para usuario: {}", userId);
-        return null;
+
+        return FirestoreFutures.toCompletableFuture(query.get()).thenApply(snapshot -> {
+            if (snapshot.isEmpty()) {
+                log.info("No se encontró carrito activo para usuario: {}", userId);
+                return null;
+            }
+            log.info("Carrito activo encontrado por consulta para usuario: {}", userId);
+            Cart cart = snapshot.getDocuments().get(0).toObject(Cart.class);
+            rememberActiveCart(userId, cart.getId());
+            return cart;
+        });
     }
 
     /**
-     * Obtiene todos los carritos de un usuario
+     * Consulta el carrito activo y, si existe, guarda su puntero para las próximas búsquedas.
+     * No se guarda un puntero vacío: podría pisar el de un carrito creado a la vez
      */
-    public List<Cart> getCartsByUserId(String userId) throws ExecutionException, InterruptedException {
-        Firestore dbFirestore = FirestoreClient.getFirestore();
-        Query query = dbFirestore.collection(COLLECTION_NAME)
-                .whereEqualTo("userId", userId)
-                .orderBy("createdAt", Query.Direction.DESCENDING);
-        
-        ApiFuture<QuerySnapshot> querySnapshot = query.get();
-        List<QueryDocumentSnapshot> documents = querySnapshot.get().getDocuments();
-        List<Cart> cartList = new ArrayList<>();
+    private CompletableFuture<Cart> queryActiveCartAndBackfill(String userId) {
+        return queryActiveCart(userId).thenCompose(cart -> cart == null
+                ? CompletableFuture.completedFuture(null)
+                : FirestoreFutures.toCompletableFuture(activeCartReference(userId).set(pointerData(cart.getId())))
+                        .thenApply(result -> cart));
+    }
 
-        for (QueryDocumentSnapshot doc : documents) {
-            cartList.add(doc.toObject(Cart.class));
+    private DocumentReference activeCartReference(String userId) {
+        return firestore.collection(ACTIVE_CARTS_COLLECTION).document(userId);
+    }
+
+    private static Map<String, Object> pointerData(String cartId) {
+        Map<String, Object> data = new HashMap<>();
+        data.put(FIELD_CART_ID, cartId);
+        data.put("updatedAt", Timestamp.now());
+        return data;
+    }
+
+    private static ActiveCartPointer toPointer(DocumentSnapshot snapshot) {
+        return snapshot.exists()
+                ? new ActiveCartPointer(true, snapshot.getString(FIELD_CART_ID))
+                : new ActiveCartPointer(false, null);
+    }
+
+    private static boolean isActiveCartOf(Cart cart, String userId) {
+        return cart != null
+                && userId.equals(cart.getUserId())
+                && STATUS_ACTIVE.equals(cart.getStatus())
+                && !Boolean.FALSE.equals(cart.getActive());
+    }
+
+    private ActiveCartPointer cachedPointer(String userId) {
+        synchronized (activeCartIds) {
+            CachedCartId cached = activeCartIds.get(userId);
+            if (cached == null) {
+                return null;
+            }
+            if (System.nanoTime() - cached.expiresAtNanos() >= 0) {
+                activeCartIds.remove(userId);
+                return null;
+            }
+            return new ActiveCartPointer(true, cached.cartId());
         }
+    }
 
-        log.info("Encontrados {} carritos para usuario: {}", cartList.size(), userId);
-        return cartList;
+    private void rememberActiveCart(String userId, String cartId) {
+        synchronized (activeCartIds) {
+            activeCartIds.put(userId, new CachedCartId(cartId, System.nanoTime() + activeCartTtlNanos));
+        }
+    }
+
+    private void forgetActiveCart(String userId) {
+        synchronized (activeCartIds) {
+            activeCartIds.remove(userId);
+        }
     }
 
     /**
-     * Obtiene todos los carritos
+     * Obtiene una página de carritos de un usuario, del más reciente al más antiguo
      */
-    public List<Cart> getAllCarts() throws ExecutionException, InterruptedException {
-        Firestore dbFirestore = FirestoreClient.getFirestore();
-        ApiFuture<QuerySnapshot> future = dbFirestore.collection(COLLECTION_NAME).get();
-        List<QueryDocumentSnapshot> documents = future.get().getDocuments();
-        List<Cart> cartList = new ArrayList<>();
+    public PageResponse<Cart> getCartsByUserIdPage(String userId, String cursor, Integer size)
+            throws ExecutionException, InterruptedException {
+        Query query = firestore.collection(COLLECTION_NAME)
+                .whereEqualTo("userId", userId);
 
-        for (QueryDocumentSnapshot doc : documents) {
-            cartList.add(doc.toObject(Cart.class));
+        PageResponse<Cart> page = FirestorePagination.fetchPage(query, FIELD_CREATED_AT, Query.Direction.DESCENDING,
+                cursor, size, doc -> doc.toObject(Cart.class));
+
+        log.info("Página de {} carritos para usuario: {}", page.getItems().size(), userId);
+        return page;
+    }
+
+    /**
+     * Obtiene una página de carritos, del más reciente al más antiguo
+     */
+    public PageResponse<Cart> getCartsPage(String cursor, Integer size) throws ExecutionException, InterruptedException {
+        PageResponse<Cart> page = FirestorePagination.fetchPage(firestore.collection(COLLECTION_NAME),
+                FIELD_CREATED_AT, Query.Direction.DESCENDING, cursor, size, doc -> doc.toObject(Cart.class));
+
+        log.info("Página de {} carritos", page.getItems().size());
+        return page;
+    }
+
+    /**
+     * Recorre los carritos que cumplen los filtros, del más reciente al más antiguo,
+     * sin cargar la colección completa en memoria
+     *
+     * @param status estado exacto, o null para todos
+     * @param from límite inferior exclusivo de createdAt, o null
+     * @param to límite superior exclusivo de createdAt, o null
+     * @return cantidad de carritos recorridos
+     */
+    public long streamCarts(String status, Timestamp from, Timestamp to, int chunkSize, Consumer<Cart> consumer)
+            throws ExecutionException, InterruptedException {
+        Query query = firestore.collection(COLLECTION_NAME);
+        if (status != null) {
+            query = query.whereEqualTo("status", status);
         }
+        query = OrderRepository.whereCreatedAtBetween(query, from, to);
 
-        log.info("Encontrados {} carritos en total", cartList.size());
-        return cartList;
+        return FirestorePagination.scan(query, FIELD_CREATED_AT, Query.Direction.DESCENDING, chunkSize,
+                doc -> consumer.accept(doc.toObject(Cart.class)));
     }
 
     /**
-     * Actualiza un carrito existente
+     * Actualiza un carrito existente si nadie lo modificó desde que se leyó. Si deja de estar
+     * activo (completado, abandonado o eliminado), en la misma transacción se vacía el puntero
+     * del usuario si apuntaba a él
+     *
+     * @throws ConcurrentUpdateException si la versión del carrito cambió desde la lectura
      */
     public String update(Cart cart) throws ExecutionException, InterruptedException {
-        Firestore dbFirestore = FirestoreClient.getFirestore();
-        ApiFuture<WriteResult> collectionsApiFuture = dbFirestore.collection(COLLECTION_NAME)
-                .document(cart.getId())
-                .set(cart);
-        
-        log.info("Carrito actualizado con ID: {}", cart.getId());
-        return collectionsApiFuture.get().getUpdateTime().toString();
+        return VersionedWrites.await(updateAsync(cart));
+    }
+
+    /**
+     * Cierra el carrito ya marcado como COMPLETED y, en la misma transacción, aplica las
+     * escrituras de sameTransaction (la orden del checkout). Si el carrito cambió desde que se
+     * leyó (otra pestaña agregó un producto u otro checkout ya lo cerró), no se escribe nada
+     *
+     * @param sameTransaction sólo debe escribir: las lecturas de la transacción ya se hicieron
+     * @throws ConcurrentUpdateException si la versión del carrito cambió desde la lectura
+     */
+    public void checkout(Cart cart, Consumer<Transaction> sameTransaction)
+            throws ExecutionException, InterruptedException {
+        VersionedWrites.await(deactivate(cart, sameTransaction));
+    }
+
+    private CompletableFuture<String> deactivate(Cart cart) {
+        return deactivate(cart, transaction -> {
+        });
+    }
+
+    private CompletableFuture<String> deactivate(Cart cart, Consumer<Transaction> sameTransaction) {
+        DocumentReference pointerReference = activeCartReference(cart.getUserId());
+        DocumentReference cartReference = firestore.collection(COLLECTION_NAME).document(cart.getId());
+        Long expectedVersion = cart.getVersion();
+        forgetActiveCart(cart.getUserId());
+        return FirestoreFutures.toCompletableFuture(firestore.runTransaction(transaction -> {
+            String currentId = toPointer(transaction.get(pointerReference).get()).cartId();
+            VersionedWrites.stage(transaction, transaction.get(cartReference).get(), cart, expectedVersion);
+            if (cart.getId().equals(currentId)) {
+                transaction.set(pointerReference, pointerData(null));
+            }
+            sameTransaction.accept(transaction);
+            return null;
+        })).thenApply(result -> {
+            log.info("Carrito {} actualizado con estado {}", cart.getId(), cart.getStatus());
+            return Timestamp.now().toString();
+        });
+    }
+
+    /**
+     * Versión asíncrona de update
+     */
+    public CompletableFuture<String> updateAsync(Cart cart) {
+        if (cart.getUserId() != null && !isActiveCartOf(cart, cart.getUserId())) {
+            return deactivate(cart);
+        }
+        DocumentReference cartReference = firestore.collection(COLLECTION_NAME).document(cart.getId());
+        return FirestoreFutures.toCompletableFuture(VersionedWrites.set(firestore, cartReference, cart))
+                .thenApply(result -> {
+                    log.info("Carrito actualizado con ID: {} (versión {})", cart.getId(), cart.getVersion());
+                    return Timestamp.now().toString();
+                });
     }
 
     /**
@@ -149,8 +413,7 @@ public class CartRepository {
      * Elimina un carrito permanentemente
      */
     public String delete(String id) {
-        Firestore dbFirestore = FirestoreClient.getFirestore();
-        ApiFuture<WriteResult> writeResult = dbFirestore.collection(COLLECTION_NAME).document(id).delete();
+        ApiFuture<WriteResult> writeResult = firestore.collection(COLLECTION_NAME).document(id).delete();
         
         log.warn("Carrito eliminado permanentemente con ID: {}", id);
         return "Carrito eliminado en: " + writeResult.toString();
@@ -160,8 +423,7 @@ public class CartRepository {
      * Obtiene carritos por estado
      */
     public List<Cart> getCartsByStatus(String status) throws ExecutionException, InterruptedException {
-        Firestore dbFirestore = FirestoreClient.getFirestore();
-        Query query = dbFirestore.collection(COLLECTION_NAME)
+        Query query = firestore.collection(COLLECTION_NAME)
                 .whereEqualTo("status", status)
                 .whereEqualTo("active", true);
         
@@ -1,9 +1,12 @@
 package co.edu.uniajc.estudiante.opemay.IRespository;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
 import com.google.api.core.ApiFuture;
@@ -14,7 +17,6 @@ import com.google.cloud.firestore.Query;
 import com.google.cloud.firestore.QueryDocumentSnapshot;
 import com.google.cloud.firestore.QuerySnapshot;
 import com.google.cloud.firestore.WriteResult;
-import com.google.firebase.cloud.FirestoreClient;
 
 import co.edu.uniajc.estudiante.opemay.model.Category;
 import lombok.extern.slf4j.Slf4j;
@@ -25,12 +27,27 @@ public class CategoryRepository {
 
     private static final String COLLECTION_NAME = "categories";
 
+    /**
+     * Orden de presentación: sortOrder ascendente (sin valor al final) y luego nombre
+     */
+    public static final Comparator<Category> DISPLAY_ORDER = Comparator
+            .comparingInt((Category c) -> c.getSortOrder() != null ? c.getSortOrder() : Integer.MAX_VALUE)
+            .thenComparing(c -> c.getName() != null ? c.getName() : "", String.CASE_INSENSITIVE_ORDER);
+
+    private final Firestore firestore;
+
+    /**
+     * Recibe el cliente Firestore compartido configurado en FirebaseInitializer
+     */
+    public CategoryRepository(@Autowired(required = false) Firestore firestore) {
+        this.firestore = firestore;
+    }
+
     /**
      * Guarda una categoría en Firestore
      */
     public String save(Category category) throws ExecutionException, InterruptedException {
-        Firestore dbFirestore = FirestoreClient.getFirestore();
-        ApiFuture<WriteResult> collectionsApiFuture = dbFirestore.collection(COLLECTION_NAME)
+        ApiFuture<WriteResult> collectionsApiFuture = firestore.collection(COLLECTION_NAME)
                 .document(category.getId())
                 .set(category);
         
@@ -42,8 +59,7 @@ public class CategoryRepository {
      * Obtiene una categoría por su ID
      */
     public Category getCategoryById(String id) throws ExecutionException, InterruptedException {
-        Firestore dbFirestore = FirestoreClient.getFirestore();
-        DocumentReference documentReference = dbFirestore.collection(COLLECTION_NAME).document(id);
+        DocumentReference documentReference = firestore.collection(COLLECTION_NAME).document(id);
         ApiFuture<DocumentSnapshot> future = documentReference.get();
         DocumentSnapshot document = future.get();
 
@@ -56,12 +72,19 @@ public class CategoryRepository {
         return null;
     }
 
+    /**
+     * Versión asíncrona de getCategoryById
+     */
+    public CompletableFuture<Category> getCategoryByIdAsync(String id) {
+        return FirestoreFutures.toCompletableFuture(firestore.collection(COLLECTION_NAME).document(id).get())
+                .thenApply(document -> document.exists() ? document.toObject(Category.class) : null);
+    }
+
     /**
      * Obtiene una categoría por su nombre
      */
     public Category getCategoryByName(String name) throws ExecutionException, InterruptedException {
-        Firestore dbFirestore = FirestoreClient.getFirestore();
-        Query query = dbFirestore.collection(COLLECTION_NAME)
+        Query query = firestore.collection(COLLECTION_NAME)
                 .whereEqualTo("name", name)
                 .whereEqualTo("active", true)
                 .limit(1);
@@ -82,8 +105,7 @@ public class CategoryRepository {
      * Obtiene todas las categorías activas ordenadas por sortOrder
      */
     public List<Category> getAllActiveCategories() throws ExecutionException, InterruptedException {
-        Firestore dbFirestore = FirestoreClient.getFirestore();
-        Query query = dbFirestore.collection(COLLECTION_NAME)
+        Query query = firestore.collection(COLLECTION_NAME)
                 .whereEqualTo("active", true);
         
         ApiFuture<QuerySnapshot> querySnapshot = query.get();
@@ -95,22 +117,7 @@ public class CategoryRepository {
         }
 
         // Ordenar en memoria por sortOrder y luego por name
-        categoryList.sort((c1, c2) -> {
-            // Primero ordenar por sortOrder
-            int sortOrderComparison = Integer.compare(
-                c1.getSortOrder() != null ? c1.getSortOrder() : Integer.MAX_VALUE,
-                c2.getSortOrder() != null ? c2.getSortOrder() : Integer.MAX_VALUE
-            );
-            
-            if (sortOrderComparison != 0) {
-                return sortOrderComparison;
-            }
-            
-            // Si sortOrder es igual, ordenar por name
-            String name1 = c1.getName() != null ? c1.getName() : "";
-            String name2 = c2.getName() != null ? c2.getName() : "";
-            return name1.compareToIgnoreCase(name2);
-        });
+        categoryList.sort(DISPLAY_ORDER);
 
         log.info("Encontradas {} categorías activas", categoryList.size());
         return categoryList;
@@ -120,8 +127,7 @@ public class CategoryRepository {
      * Obtiene todas las categorías (incluidas las inactivas)
      */
     public List<Category> getAllCategories() throws ExecutionException, InterruptedException {
-        Firestore dbFirestore = FirestoreClient.getFirestore();
-        Query query = dbFirestore.collection(COLLECTION_NAME);
+        Query query = firestore.collection(COLLECTION_NAME);
         
         ApiFuture<QuerySnapshot> querySnapshot = query.get();
         List<QueryDocumentSnapshot> documents = querySnapshot.get().getDocuments();
@@ -132,22 +138,7 @@ public class CategoryRepository {
         }
 
         // Ordenar en memoria por sortOrder y luego por name
-        categoryList.sort((c1, c2) -> {
-            // Primero ordenar por sortOrder
-            int sortOrderComparison = Integer.compare(
-                c1.getSortOrder() != null ? c1.getSortOrder() : Integer.MAX_VALUE,
-                c2.getSortOrder() != null ? c2.getSortOrder() : Integer.MAX_VALUE
-            );
-            
-            if (sortOrderComparison != 0) {
-                return sortOrderComparison;
-            }
-            
-            // Si sortOrder es igual, ordenar por name
-            String name1 = c1.getName() != null ? c1.getName() : "";
-            String name2 = c2.getName() != null ? c2.getName() : "";
-            return name1.compareToIgnoreCase(name2);
-        });
+        categoryList.sort(DISPLAY_ORDER);
 
         log.info("Encontradas {} categorías en total", categoryList.size());
         return categoryList;
@@ -157,8 +148,7 @@ public class CategoryRepository {
      * Actualiza una categoría existente
      */
     public String update(Category category) throws ExecutionException, InterruptedException {
-        Firestore dbFirestore = FirestoreClient.getFirestore();
-        ApiFuture<WriteResult> collectionsApiFuture = dbFirestore.collection(COLLECTION_NAME)
+        ApiFuture<WriteResult> collectionsApiFuture = firestore.collection(COLLECTION_NAME)
                 .document(category.getId())
                 .set(category);
         
@@ -184,8 +174,7 @@ public class CategoryRepository {
      * Elimina una categoría permanentemente
      */
     public String delete(String id) {
-        Firestore dbFirestore = FirestoreClient.getFirestore();
-        ApiFuture<WriteResult> writeResult = dbFirestore.collection(COLLECTION_NAME).document(id).delete();
+        ApiFuture<WriteResult> writeResult = firestore.collection(COLLECTION_NAME).document(id).delete();
         
         log.warn("Categoría eliminada permanentemente con ID: {}", id);
         return "Categoría eliminada en: " + writeResult.toString();
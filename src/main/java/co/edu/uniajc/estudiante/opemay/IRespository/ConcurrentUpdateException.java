@@ -0,0 +1,26 @@
+package co.edu.uniajc.estudiante.opemay.IRespository;
+
+/**
+ * Otra petición modificó el documento entre la lectura y la escritura. Quien lo
+ * modificaba debe volver a leerlo y reaplicar su cambio.
+ */
+public class ConcurrentUpdateException extends RuntimeException {
+
+    private final String collection;
+    private final String documentId;
+
+    public ConcurrentUpdateException(String collection, String documentId, Long expectedVersion, Long currentVersion) {
+        super("El documento " + collection + "/" + documentId + " fue modificado concurrentemente (versión leída "
+                + expectedVersion + ", actual " + currentVersion + ")");
+        this.collection = collection;
+        this.documentId = documentId;
+    }
+
+    public String getCollection() {
+        return collection;
+    }
+
+    public String getDocumentId() {
+        return documentId;
+    }
+}
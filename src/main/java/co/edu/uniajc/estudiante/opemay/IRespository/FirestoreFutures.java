@@ -0,0 +1,65 @@
+package co.edu.uniajc.estudiante.opemay.IRespository;
+
+import java.util.concurrent.CompletableFuture;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+
+/**
+ * Adapta los ApiFuture del SDK de Firestore a CompletableFuture sin bloquear hilos.
+ * El callback se ejecuta en el hilo del cliente gRPC que completa la operación.
+ */
+public final class FirestoreFutures {
+
+    private FirestoreFutures() {
+        // Constructor privado para clase utilitaria
+    }
+
+    /**
+     * Convierte un ApiFuture en CompletableFuture. Cancelar el resultado, o cualquier etapa
+     * derivada de él (thenApply, thenCompose...), cancela también la operación de Firestore.
+     */
+    public static <T> CompletableFuture<T> toCompletableFuture(ApiFuture<T> apiFuture) {
+        CompletableFuture<T> result = new CancellingFuture<>(apiFuture);
+
+        ApiFutures.addCallback(apiFuture, new ApiFutureCallback<T>() {
+            @Override
+            public void onSuccess(T value) {
+                result.complete(value);
+            }
+
+            @Override
+            public void onFailure(Throwable error) {
+                result.completeExceptionally(error);
+            }
+        }, Runnable::run);
+
+        return result;
+    }
+
+    /**
+     * CompletableFuture que cancela el ApiFuture de origen. CompletableFuture crea las etapas
+     * dependientes con newIncompleteFuture, así que los repositorios pueden devolver
+     * toCompletableFuture(...).thenApply(...) y la cancelación sigue llegando al RPC
+     */
+    private static final class CancellingFuture<T> extends CompletableFuture<T> {
+
+        private final ApiFuture<?> apiFuture;
+
+        private CancellingFuture(ApiFuture<?> apiFuture) {
+            this.apiFuture = apiFuture;
+        }
+
+        @Override
+        public <U> CompletableFuture<U> newIncompleteFuture() {
+            return new CancellingFuture<>(apiFuture);
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            apiFuture.cancel(mayInterruptIfRunning);
+            return super.cancel(mayInterruptIfRunning);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package co.edu.uniajc.estudiante.opemay.IRespository;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Firestore;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Idempotency-Keys en la colección idempotencyKeys, compartidas entre instancias. Los
+ * registros vencidos se ignoran al leer; para borrarlos hay que configurar en Firestore
+ * una política de TTL sobre el campo expiresAt, que es lo que acota el tamaño de la colección
+ */
+@Repository
+@ConditionalOnProperty(name = "app.idempotency.store", havingValue = "firestore")
+@Slf4j
+public class FirestoreIdempotencyStore implements IdempotencyStore {
+
+    private static final String COLLECTION_NAME = "idempotencyKeys";
+    private static final String FIELD_FINGERPRINT = "fingerprint";
+    private static final String FIELD_STATUS = "status";
+    private static final String FIELD_BODY = "body";
+    private static final String FIELD_EXPIRES_AT = "expiresAt";
+
+    private final Firestore firestore;
+
+    public FirestoreIdempotencyStore(Firestore firestore) {
+        this.firestore = firestore;
+    }
+
+    @Override
+    public Optional<IdempotencyRecord> reserve(String key, IdempotencyRecord inProgress)
+            throws ExecutionException, InterruptedException {
+        DocumentReference reference = document(key);
+        return firestore.runTransaction(transaction -> {
+            DocumentSnapshot current = transaction.get(reference).get();
+            if (current.exists()) {
+                IdempotencyRecord stored = toRecord(current);
+                if (!stored.expired(System.currentTimeMillis())) {
+                    return Optional.of(stored);
+                }
+            }
+            transaction.set(reference, toDocument(inProgress));
+            return Optional.<IdempotencyRecord>empty();
+        }).get();
+    }
+
+    @Override
+    public void complete(String key, IdempotencyRecord record) throws ExecutionException, InterruptedException {
+        document(key).set(toDocument(record)).get();
+    }
+
+    @Override
+    public void release(String key) throws ExecutionException, InterruptedException {
+        document(key).delete().get();
+        log.debug("Idempotency-Key liberada: {}", key);
+    }
+
+    private DocumentReference document(String key) {
+        return firestore.collection(COLLECTION_NAME).document(key);
+    }
+
+    private static Map<String, Object> toDocument(IdempotencyRecord record) {
+        Map<String, Object> document = new HashMap<>();
+        document.put(FIELD_FINGERPRINT, record.fingerprint());
+        document.put(FIELD_STATUS, record.status());
+        document.put(FIELD_BODY, record.body());
+        document.put(FIELD_EXPIRES_AT, Timestamp.ofTimeMicroseconds(record.expiresAtMillis() * 1000));
+        return document;
+    }
+
+    private static IdempotencyRecord toRecord(DocumentSnapshot document) {
+        Long status = document.getLong(FIELD_STATUS);
+        Timestamp expiresAt = document.getTimestamp(FIELD_EXPIRES_AT);
+        return new IdempotencyRecord(
+                document.getString(FIELD_FINGERPRINT),
+                status == null ? 0 : status.intValue(),
+                document.getString(FIELD_BODY),
+                expiresAt == null ? 0 : expiresAt.toDate().getTime());
+    }
+}
@@ -0,0 +1,152 @@
+package co.edu.uniajc.estudiante.opemay.IRespository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.FieldPath;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+
+import co.edu.uniajc.estudiante.opemay.dto.PageResponse;
+
+/**
+ * Paginación por cursor sobre consultas de Firestore (orderBy + startAfter + limit).
+ * El cursor codifica el último documento devuelto, así cada página cuesta
+ * exactamente {@code size + 1} lecturas sin importar la profundidad.
+ */
+public final class FirestorePagination {
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private static final String SEPARATOR = "|";
+
+    private FirestorePagination() {
+    }
+
+    /**
+     * Ajusta el tamaño solicitado al rango [1, MAX_PAGE_SIZE]
+     */
+    public static int clampPageSize(Integer size) {
+        if (size == null || size <= 0) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.min(size, MAX_PAGE_SIZE);
+    }
+
+    /**
+     * Ejecuta una página ordenada por un campo Timestamp y el ID del documento como desempate
+     *
+     * @param orderField campo Timestamp de ordenamiento, o null para ordenar sólo por ID
+     */
+    public static <T> PageResponse<T> fetchPage(Query base, String orderField, Query.Direction direction,
+                                                String cursor, Integer size,
+                                                Function<QueryDocumentSnapshot, T> mapper)
+            throws ExecutionException, InterruptedException {
+        int pageSize = clampPageSize(size);
+
+        Query query = base;
+        if (orderField != null) {
+            query = query.orderBy(orderField, direction);
+        }
+        query = query.orderBy(FieldPath.documentId(), direction);
+
+        if (cursor != null && !cursor.isBlank()) {
+            query = query.startAfter(decodeCursor(cursor, orderField != null));
+        }
+
+        List<QueryDocumentSnapshot> documents = query.limit(pageSize + 1).get().get().getDocuments();
+        boolean hasMore = documents.size() > pageSize;
+        List<QueryDocumentSnapshot> pageDocuments = hasMore ? documents.subList(0, pageSize) : documents;
+
+        List<T> items = new ArrayList<>(pageDocuments.size());
+        for (QueryDocumentSnapshot doc : pageDocuments) {
+            T item = mapper.apply(doc);
+            if (item != null) {
+                items.add(item);
+            }
+        }
+
+        String nextCursor = null;
+        if (hasMore && !pageDocuments.isEmpty()) {
+            nextCursor = encodeCursor(pageDocuments.get(pageDocuments.size() - 1), orderField);
+        }
+
+        return PageResponse.<T>builder()
+                .items(items)
+                .size(pageSize)
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    /**
+     * Recorre todos los documentos de la consulta en bloques de {@code chunkSize},
+     * entregándolos uno a uno al consumidor. Sólo un bloque vive en memoria a la vez.
+     *
+     * @param orderField campo de ordenamiento, o null para ordenar sólo por ID
+     * @return cantidad de documentos recorridos
+     */
+    public static long scan(Query base, String orderField, Query.Direction direction, int chunkSize,
+                            Consumer<QueryDocumentSnapshot> consumer)
+            throws ExecutionException, InterruptedException {
+        Query ordered = base;
+        if (orderField != null) {
+            ordered = ordered.orderBy(orderField, direction);
+        }
+        ordered = ordered.orderBy(FieldPath.documentId(), direction);
+
+        long count = 0;
+        QueryDocumentSnapshot last = null;
+        while (true) {
+            Query chunkQuery = last == null ? ordered : ordered.startAfter(last);
+            List<QueryDocumentSnapshot> documents = chunkQuery.limit(chunkSize).get().get().getDocuments();
+
+            for (QueryDocumentSnapshot doc : documents) {
+                consumer.accept(doc);
+            }
+            count += documents.size();
+
+            if (documents.size() < chunkSize) {
+                return count;
+            }
+            last = documents.get(documents.size() - 1);
+        }
+    }
+
+    static String encodeCursor(QueryDocumentSnapshot last, String orderField) {
+        String position = "";
+        if (orderField != null) {
+            Timestamp value = last.getTimestamp(orderField);
+            position = value == null ? "" : value.getSeconds() + ":" + value.getNanos();
+        }
+        String raw = position + SEPARATOR + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Object[] decodeCursor(String cursor, boolean withOrderField) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            String documentId = raw.substring(separator + 1);
+            if (separator < 0 || documentId.isEmpty()) {
+                throw new IllegalArgumentException("Cursor de paginación inválido");
+            }
+            if (!withOrderField) {
+                return new Object[] {documentId};
+            }
+
+            String[] parts = raw.substring(0, separator).split(":");
+            Timestamp position = Timestamp.ofTimeSecondsAndNanos(Long.parseLong(parts[0]), Integer.parseInt(parts[1]));
+            return new Object[] {position, documentId};
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Cursor de paginación inválido", e);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package co.edu.uniajc.estudiante.opemay.IRespository;
+
+/**
+ * Respuesta guardada para una Idempotency-Key, o la reserva de una petición que aún se está atendiendo
+ *
+ * @param fingerprint hash del cuerpo de la petición original, para detectar la clave reutilizada con otro cuerpo
+ * @param status código HTTP de la respuesta, o 0 mientras la petición está en curso
+ * @param body respuesta serializada en JSON, o null mientras la petición está en curso
+ * @param expiresAtMillis momento (epoch en milisegundos) desde el que el registro se ignora
+ */
+public record IdempotencyRecord(String fingerprint, int status, String body, long expiresAtMillis) {
+
+    public static IdempotencyRecord inProgress(String fingerprint, long expiresAtMillis) {
+        return new IdempotencyRecord(fingerprint, 0, null, expiresAtMillis);
+    }
+
+    public boolean completed() {
+        return status > 0;
+    }
+
+    public boolean expired(long nowMillis) {
+        return nowMillis >= expiresAtMillis;
+    }
+}
@@ -0,0 +1,30 @@
+package co.edu.uniajc.estudiante.opemay.IRespository;
+
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Almacén de Idempotency-Keys. El backend se elige con app.idempotency.store:
+ * memory (por defecto, sólo esta instancia) o firestore (compartido entre instancias)
+ */
+public interface IdempotencyStore {
+
+    /**
+     * Reserva la clave de forma atómica si no tiene un registro vigente
+     *
+     * @param inProgress reserva a guardar, con su propio vencimiento
+     * @return el registro vigente si la clave ya estaba tomada, o vacío si quedó reservada
+     */
+    Optional<IdempotencyRecord> reserve(String key, IdempotencyRecord inProgress)
+            throws ExecutionException, InterruptedException;
+
+    /**
+     * Reemplaza la reserva por la respuesta final
+     */
+    void complete(String key, IdempotencyRecord record) throws ExecutionException, InterruptedException;
+
+    /**
+     * Libera la reserva para que un reintento vuelva a ejecutar la petición
+     */
+    void release(String key) throws ExecutionException, InterruptedException;
+}
@@ -0,0 +1,67 @@
+package co.edu.uniajc.estudiante.opemay.IRespository;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Idempotency-Keys en memoria, acotadas a app.idempotency.max-entries: al llenarse se
+ * descarta la clave más antigua. Sólo protege los reintentos que llegan a esta instancia
+ */
+@Repository
+@ConditionalOnProperty(name = "app.idempotency.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+
+    private final int maxEntries;
+
+    /** En orden de escritura; como el TTL es el mismo para todas, la más antigua es la que vence primero */
+    private final Map<String, IdempotencyRecord> records;
+
+    public InMemoryIdempotencyStore(@Value("${app.idempotency.max-entries:10000}") int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.records = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, IdempotencyRecord> eldest) {
+                return size() > InMemoryIdempotencyStore.this.maxEntries;
+            }
+        };
+    }
+
+    @Override
+    public Optional<IdempotencyRecord> reserve(String key, IdempotencyRecord inProgress) {
+        synchronized (records) {
+            IdempotencyRecord current = records.get(key);
+            if (current != null && !current.expired(System.currentTimeMillis())) {
+                return Optional.of(current);
+            }
+            records.remove(key);
+            records.put(key, inProgress);
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void complete(String key, IdempotencyRecord record) {
+        synchronized (records) {
+            records.remove(key);
+            records.put(key, record);
+        }
+    }
+
+    @Override
+    public void release(String key) {
+        synchronized (records) {
+            records.remove(key);
+        }
+    }
+
+    int size() {
+        synchronized (records) {
+            return records.size();
+        }
+    }
+}
@@ -1,22 +1,34 @@
 package co.edu.uniajc.estudiante.opemay.IRespository;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
 import com.google.api.core.ApiFuture;
+import com.google.cloud.Timestamp;
 import com.google.cloud.firestore.DocumentReference;
 import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldValue;
 import com.google.cloud.firestore.Firestore;
 import com.google.cloud.firestore.Query;
 import com.google.cloud.firestore.QueryDocumentSnapshot;
 import com.google.cloud.firestore.QuerySnapshot;
+import com.google.cloud.firestore.SetOptions;
+import com.google.cloud.firestore.UpdateBuilder;
+import com.google.cloud.firestore.WriteBatch;
 import com.google.cloud.firestore.WriteResult;
-import com.google.firebase.cloud.FirestoreClient;
 
+import co.edu.uniajc.estudiante.opemay.dto.PageResponse;
 import co.edu.uniajc.estudiante.opemay.model.Order;
+import co.edu.uniajc.estudiante.opemay.model.OrderStatistics;
 import co.edu.uniajc.estudiante.opemay.model.OrderStatus;
 import lombok.extern.slf4j.Slf4j;
 
@@ -25,26 +37,54 @@ import lombok.extern.slf4j.Slf4j;
 public class OrderRepository {
 
     private static final String COLLECTION_NAME = "orders";
+    private static final String FIELD_CREATED_AT = "createdAt";
+    private static final String STATS_COLLECTION = "stats";
+    private static final String ORDER_STATS_DOCUMENT = "orders";
+    private static final int REBUILD_CHUNK_SIZE = 500;
+    private static final int MAX_REBUILD_ATTEMPTS = 3;
+
+    private final Firestore firestore;
+    private final OrderRollupRepository rollupRepository;
+
+    /**
+     * Recibe el cliente Firestore compartido configurado en FirebaseInitializer
+     * y los agregados por intervalo que se actualizan junto con cada orden
+     */
+    public OrderRepository(@Autowired(required = false) Firestore firestore,
+                           @Autowired(required = false) OrderRollupRepository rollupRepository) {
+        this.firestore = firestore;
+        this.rollupRepository = rollupRepository;
+    }
 
     /**
-     * Guarda una orden en Firestore
+     * Guarda una orden nueva en Firestore y contabiliza su estado inicial en las
+     * estadísticas dentro del mismo lote atómico
      */
     public String save(Order order) throws ExecutionException, InterruptedException {
-        Firestore dbFirestore = FirestoreClient.getFirestore();
-        ApiFuture<WriteResult> collectionsApiFuture = dbFirestore.collection(COLLECTION_NAME)
-                .document(order.getId())
-                .set(order);
+        WriteBatch batch = firestore.batch();
+        stageSave(batch, order);
+        ApiFuture<List<WriteResult>> collectionsApiFuture = batch.commit();
         
         log.info("Orden guardada con ID: {}", order.getId());
-        return collectionsApiFuture.get().getUpdateTime().toString();
+        return collectionsApiFuture.get().get(0).getUpdateTime().toString();
+    }
+
+    /**
+     * Agrega a un lote o transacción la orden nueva junto con su conteo en estadísticas y agregados
+     */
+    public void stageSave(UpdateBuilder<?> writer, Order order) {
+        writer.set(firestore.collection(COLLECTION_NAME).document(order.getId()), order);
+        writer.set(statsReference(), statsDelta(null, order.getStatus(), order.getTotalAmount()), SetOptions.merge());
+        if (rollupRepository != null) {
+            rollupRepository.stageOrderEvent(writer, order, 1);
+        }
     }
 
     /**
      * Obtiene una orden por su ID
      */
     public Order getOrderById(String id) throws ExecutionException, InterruptedException {
-        Firestore dbFirestore = FirestoreClient.getFirestore();
-        DocumentReference documentReference = dbFirestore.collection(COLLECTION_NAME).document(id);
+        DocumentReference documentReference = firestore.collection(COLLECTION_NAME).document(id);
         ApiFuture<DocumentSnapshot> future = documentReference.get();
         DocumentSnapshot document = future.get();
 
@@ -57,13 +97,21 @@ public class OrderRepository {
         return null;
     }
 
+    /**
+     * Versión asíncrona de getOrderById
+     */
+    public CompletableFuture<Order> getOrderByIdAsync(String id) {
+        return FirestoreFutures.toCompletableFuture(firestore.collection(COLLECTION_NAME).document(id).get())
+                .thenApply(document -> document.exists() ? document.toObject(Order.class) : null);
+    }
+
     /**
      * Obtiene todas las órdenes de un usuario
      */
     public List<Order> getOrdersByUserId(String userId) throws ExecutionException, InterruptedException {
-        Firestore dbFirestore = FirestoreClient.getFirestore();
-        Query query = dbFirestore.collection(COLLECTION_NAME)
-                .whereEqualTo("userId", userId);
+        Query query = firestore.collection(COLLECTION_NAME)
+                .whereEqualTo("userId", userId)
+                .orderBy(FIELD_CREATED_AT, Query.Direction.DESCENDING);
         
         ApiFuture<QuerySnapshot> querySnapshot = query.get();
         List<QueryDocumentSnapshot> documents = querySnapshot.get().getDocuments();
@@ -73,84 +121,48 @@ public class OrderRepository {
             orderList.add(doc.toObject(Order.class));
         }
 
-        // Ordenar en memoria por createdAt descendente
-        orderList.sort((o1, o2) -> {
-            if (o1.getCreatedAt() == null && o2.getCreatedAt() == null) return 0;
-            if (o1.getCreatedAt() == null) return 1;
-            if (o2.getCreatedAt() == null) return -1;
-            return o2.getCreatedAt().compareTo(o1.getCreatedAt());
-        });
-
         log.info("Encontradas {} órdenes para usuario: {}", orderList.size(), userId);
         return orderList;
     }
 
     /**
-     * Obtiene órdenes por estado
+     * Obtiene una página de órdenes por estado, de la más reciente a la más antigua.
+     * El filtro, el orden y el límite se resuelven en Firestore
+     * (índice compuesto status ASC, createdAt DESC).
      */
-    public List<Order> getOrdersByStatus(String status) throws ExecutionException, InterruptedException {
-        Firestore dbFirestore = FirestoreClient.getFirestore();
-        Query query = dbFirestore.collection(COLLECTION_NAME)
+    public PageResponse<Order> getOrdersByStatusPage(String status, String cursor, Integer size)
+            throws ExecutionException, InterruptedException {
+        Query query = firestore.collection(COLLECTION_NAME)
                 .whereEqualTo("status", status);
-        
-        ApiFuture<QuerySnapshot> querySnapshot = query.get();
-        List<QueryDocumentSnapshot> documents = querySnapshot.get().getDocuments();
-        List<Order> orderList = new ArrayList<>();
-
-        for (QueryDocumentSnapshot doc : documents) {
-            orderList.add(doc.toObject(Order.class));
-        }
 
-        // Ordenar en memoria por createdAt descendente
-        orderList.sort((o1, o2) -> {
-            if (o1.getCreatedAt() == null && o2.getCreatedAt() == null) return 0;
-            if (o1.getCreatedAt() == null) return 1;
-            if (o2.getCreatedAt() == null) return -1;
-            return o2.getCreatedAt().compareTo(o1.getCreatedAt());
-        });
+        PageResponse<Order> page = FirestorePagination.fetchPage(query, FIELD_CREATED_AT, Query.Direction.DESCENDING,
+                cursor, size, doc -> doc.toObject(Order.class));
 
-        log.info("Encontradas {} órdenes con estado: {}", orderList.size(), status);
-        return orderList;
+        log.info("Página de {} órdenes con estado: {}", page.getItems().size(), status);
+        return page;
     }
 
     /**
-     * Obtiene todas las órdenes (para administradores)
+     * Obtiene una página de órdenes, de la más reciente a la más antigua
      */
-    public List<Order> getAllOrders() throws ExecutionException, InterruptedException {
-        Firestore dbFirestore = FirestoreClient.getFirestore();
-        ApiFuture<QuerySnapshot> future = dbFirestore.collection(COLLECTION_NAME)
-                .get();
-        List<QueryDocumentSnapshot> documents = future.get().getDocuments();
-        List<Order> orderList = new ArrayList<>();
+    public PageResponse<Order> getOrdersPage(String cursor, Integer size) throws ExecutionException, InterruptedException {
+        PageResponse<Order> page = FirestorePagination.fetchPage(firestore.collection(COLLECTION_NAME),
+                FIELD_CREATED_AT, Query.Direction.DESCENDING, cursor, size, doc -> doc.toObject(Order.class));
 
-        for (QueryDocumentSnapshot doc : documents) {
-            orderList.add(doc.toObject(Order.class));
-        }
-
-        // Ordenar en memoria por createdAt descendente
-        orderList.sort((o1, o2) -> {
-            if (o1.getCreatedAt() == null && o2.getCreatedAt() == null) return 0;
-            if (o1.getCreatedAt() == null) return 1;
-            if (o2.getCreatedAt() == null) return -1;
-            return o2.getCreatedAt().compareTo(o1.getCreatedAt());
-        });
-
-        log.info("Encontradas {} órdenes en total", orderList.size());
-        return orderList;
+        log.info("Página de {} órdenes", page.getItems().size());
+        return page;
     }
 
     /**
      * Obtiene órdenes recientes (últimos N días)
      */
     public List<Order> getRecentOrders(int days) throws ExecutionException, InterruptedException {
-        Firestore dbFirestore = FirestoreClient.getFirestore();
-        
         // Calcular fecha límite
         long millisecondsAgo = System.currentTimeMillis() - (days * 24L * 60L * 60L * 1000L);
-        com.google.cloud.Timestamp limitDate = com.google.cloud.Timestamp.ofTimeMicroseconds(millisecondsAgo * 1000);
+        Timestamp limitDate = Timestamp.ofTimeMicroseconds(millisecondsAgo * 1000);
         
-        Query query = dbFirestore.collection(COLLECTION_NAME)
-                .whereGreaterThan("createdAt", limitDate);
+        Query query = whereCreatedAtBetween(firestore.collection(COLLECTION_NAME), limitDate, null)
+                .orderBy(FIELD_CREATED_AT, Query.Direction.DESCENDING);
         
         ApiFuture<QuerySnapshot> querySnapshot = query.get();
         List<QueryDocumentSnapshot> documents = querySnapshot.get().getDocuments();
@@ -160,29 +172,199 @@ public class OrderRepository {
             orderList.add(doc.toObject(Order.class));
         }
 
-        // Ordenar en memoria por createdAt descendente
-        orderList.sort((o1, o2) -> {
-            if (o1.getCreatedAt() == null && o2.getCreatedAt() == null) return 0;
-            if (o1.getCreatedAt() == null) return 1;
-            if (o2.getCreatedAt() == null) return -1;
-            return o2.getCreatedAt().compareTo(o1.getCreatedAt());
-        });
-
         log.info("Encontradas {} órdenes de los últimos {} días", orderList.size(), days);
         return orderList;
     }
 
     /**
-     * Actualiza una orden existente
+     * Recorre las órdenes que cumplen los filtros, de la más reciente a la más antigua,
+     * sin cargar la colección completa en memoria
+     *
+     * @param status estado exacto, o null para todos
+     * @param from límite inferior exclusivo de createdAt, o null
+     * @param to límite superior exclusivo de createdAt, o null
+     * @return cantidad de órdenes recorridas
+     */
+    public long streamOrders(String status, Timestamp from, Timestamp to, int chunkSize, Consumer<Order> consumer)
+            throws ExecutionException, InterruptedException {
+        Query query = firestore.collection(COLLECTION_NAME);
+        if (status != null) {
+            query = query.whereEqualTo("status", status);
+        }
+        query = whereCreatedAtBetween(query, from, to);
+
+        return FirestorePagination.scan(query, FIELD_CREATED_AT, Query.Direction.DESCENDING, chunkSize,
+                doc -> consumer.accept(doc.toObject(Order.class)));
+    }
+
+    /**
+     * Aplica el rango de fechas sobre createdAt (ambos límites exclusivos y opcionales)
+     */
+    static Query whereCreatedAtBetween(Query query, Timestamp from, Timestamp to) {
+        Query filtered = query;
+        if (from != null) {
+            filtered = filtered.whereGreaterThan(FIELD_CREATED_AT, from);
+        }
+        if (to != null) {
+            filtered = filtered.whereLessThan(FIELD_CREATED_AT, to);
+        }
+        return filtered;
+    }
+
+    /**
+     * Actualiza una orden existente si nadie la modificó desde que se leyó
+     *
+     * @throws ConcurrentUpdateException si la versión de la orden cambió desde la lectura
      */
     public String update(Order order) throws ExecutionException, InterruptedException {
-        Firestore dbFirestore = FirestoreClient.getFirestore();
-        ApiFuture<WriteResult> collectionsApiFuture = dbFirestore.collection(COLLECTION_NAME)
-                .document(order.getId())
-                .set(order);
+        VersionedWrites.await(VersionedWrites.set(firestore,
+                firestore.collection(COLLECTION_NAME).document(order.getId()), order));
         
-        log.info("Orden actualizada con ID: {}", order.getId());
-        return collectionsApiFuture.get().getUpdateTime().toString();
+        log.info("Orden actualizada con ID: {} (versión {})", order.getId(), order.getVersion());
+        return Timestamp.now().toString();
+    }
+
+    /**
+     * Persiste una transición de estado y ajusta los contadores en la misma transacción.
+     * Falla si la orden ya no está en {@code previousStatus}, para que dos transiciones
+     * concurrentes no descuenten el mismo estado dos veces.
+     *
+     * @throws IllegalStateException si la orden cambió de estado concurrentemente
+     * @throws ConcurrentUpdateException si otro cambio (por ejemplo el pago) modificó la orden
+     */
+    public void updateStatus(Order order, OrderStatus previousStatus) throws ExecutionException, InterruptedException {
+        DocumentReference orderReference = firestore.collection(COLLECTION_NAME).document(order.getId());
+        DocumentReference statsReference = statsReference();
+        Long expectedVersion = order.getVersion();
+
+        ApiFuture<Void> future = firestore.runTransaction(transaction -> {
+            DocumentSnapshot current = transaction.get(orderReference).get();
+            if (!current.exists() || !previousStatus.name().equals(current.getString("status"))) {
+                throw new IllegalStateException("La orden " + order.getId() + " cambió de estado concurrentemente");
+            }
+
+            VersionedWrites.stage(transaction, current, order, expectedVersion);
+            transaction.set(statsReference, statsDelta(previousStatus, order.getStatus(), order.getTotalAmount()),
+                    SetOptions.merge());
+            if (rollupRepository != null && order.getStatus() == OrderStatus.CANCELLED) {
+                rollupRepository.stageOrderEvent(transaction, order, -1);
+            }
+            return null;
+        });
+
+        try {
+            VersionedWrites.await(future);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IllegalStateException illegalState) {
+                throw illegalState;
+            }
+            throw e;
+        }
+        log.info("Orden {} pasó de {} a {}", order.getId(), previousStatus, order.getStatus());
+    }
+
+    /**
+     * Obtiene el documento de estadísticas, o null si todavía no existe. Un documento sin
+     * rebuiltAt sólo tiene los incrementos de las órdenes creadas desde que se creó: falta
+     * contar las anteriores
+     */
+    public OrderStatistics getOrderStatistics() throws ExecutionException, InterruptedException {
+        DocumentSnapshot document = statsReference().get().get();
+        return document.exists() ? document.toObject(OrderStatistics.class) : null;
+    }
+
+    /**
+     * Recalcula las estadísticas desde cero recorriendo la colección por bloques y reemplaza el
+     * documento de estadísticas. El recorrido no es transaccional, pero toda escritura de una
+     * orden incrementa también ese documento: si su hora de actualización cambió entre el inicio
+     * del recorrido y el reemplazo, el conteo puede no incluir ese cambio y se vuelve a recorrer.
+     * El reemplazo se hace en una transacción que relee el documento, así que un incremento que
+     * llega durante el recorrido nunca queda sobrescrito
+     *
+     * @throws IllegalStateException si las órdenes cambiaron durante todos los intentos; los
+     *         contadores incrementales quedan como estaban
+     */
+    public OrderStatistics rebuildOrderStatistics() throws ExecutionException, InterruptedException {
+        DocumentReference statsReference = statsReference();
+        for (int attempt = 1; attempt <= MAX_REBUILD_ATTEMPTS; attempt++) {
+            DocumentSnapshot before = statsReference.get().get();
+            Timestamp baseline = before.exists() ? before.getUpdateTime() : null;
+            OrderStatistics statistics = scanOrderStatistics();
+
+            boolean replaced = firestore.runTransaction(transaction -> {
+                DocumentSnapshot current = transaction.get(statsReference).get();
+                if (!Objects.equals(baseline, current.exists() ? current.getUpdateTime() : null)) {
+                    return false;
+                }
+                transaction.set(statsReference, statistics);
+                return true;
+            }).get();
+
+            if (replaced) {
+                log.info("Estadísticas de órdenes reconstruidas a partir de {} órdenes", statistics.getTotalOrders());
+                return statistics;
+            }
+            log.warn("Las órdenes cambiaron durante la reconstrucción de estadísticas (intento {} de {})",
+                    attempt, MAX_REBUILD_ATTEMPTS);
+        }
+        throw new IllegalStateException("Las órdenes cambiaron durante cada intento de reconstruir las estadísticas");
+    }
+
+    private OrderStatistics scanOrderStatistics() throws ExecutionException, InterruptedException {
+        Map<String, Long> statusCounts = new HashMap<>();
+        double[] revenue = {0.0};
+
+        long total = FirestorePagination.scan(firestore.collection(COLLECTION_NAME), null,
+                Query.Direction.ASCENDING, REBUILD_CHUNK_SIZE, doc -> {
+                    String status = doc.getString("status");
+                    if (status != null) {
+                        statusCounts.merge(status, 1L, Long::sum);
+                    }
+                    Double amount = doc.getDouble("totalAmount");
+                    if (OrderStatus.DELIVERED.name().equals(status) && amount != null) {
+                        revenue[0] += amount;
+                    }
+                });
+
+        Timestamp now = Timestamp.now();
+        return OrderStatistics.builder()
+                .statusCounts(statusCounts)
+                .totalOrders(total)
+                .totalRevenue(revenue[0])
+                .updatedAt(now)
+                .rebuiltAt(now)
+                .build();
+    }
+
+    private DocumentReference statsReference() {
+        return firestore.collection(STATS_COLLECTION).document(ORDER_STATS_DOCUMENT);
+    }
+
+    /**
+     * Construye los incrementos de contadores para una creación (from == null)
+     * o una transición de estado. Los ingresos sólo cuentan órdenes entregadas.
+     */
+    static Map<String, Object> statsDelta(OrderStatus from, OrderStatus to, Double totalAmount) {
+        Map<String, Object> statusCounts = new HashMap<>();
+        if (from != null) {
+            statusCounts.put(from.name(), FieldValue.increment(-1));
+        }
+        statusCounts.put(to.name(), FieldValue.increment(1));
+
+        Map<String, Object> delta = new HashMap<>();
+        delta.put("statusCounts", statusCounts);
+        delta.put("updatedAt", Timestamp.now());
+        if (from == null) {
+            delta.put("totalOrders", FieldValue.increment(1));
+        }
+
+        double amount = totalAmount == null ? 0.0 : totalAmount;
+        if (to == OrderStatus.DELIVERED && from != OrderStatus.DELIVERED) {
+            delta.put("totalRevenue", FieldValue.increment(amount));
+        } else if (from == OrderStatus.DELIVERED && to != OrderStatus.DELIVERED) {
+            delta.put("totalRevenue", FieldValue.increment(-amount));
+        }
+        return delta;
     }
 
     /**
@@ -191,9 +373,14 @@ public class OrderRepository {
     public String softDelete(String id) throws ExecutionException, InterruptedException {
         Order order = getOrderById(id);
         if (order != null) {
+            OrderStatus previousStatus = order.getStatus();
             order.setActive(false);
             order.setStatus(OrderStatus.CANCELLED);
-            return update(order);
+            if (previousStatus == OrderStatus.CANCELLED) {
+                return update(order);
+            }
+            updateStatus(order, previousStatus);
+            return order.getUpdatedAt().toString();
         }
         
         log.warn("Intento de eliminar orden inexistente con ID: {}", id);
@@ -201,11 +388,11 @@ public class OrderRepository {
     }
 
     /**
-     * Elimina una orden permanentemente
+     * Elimina una orden permanentemente.
+     * Los contadores de estadísticas se corrigen en la siguiente reconstrucción.
      */
     public String delete(String id) {
-        Firestore dbFirestore = FirestoreClient.getFirestore();
-        ApiFuture<WriteResult> writeResult = dbFirestore.collection(COLLECTION_NAME).document(id).delete();
+        ApiFuture<WriteResult> writeResult = firestore.collection(COLLECTION_NAME).document(id).delete();
         
         log.warn("Orden eliminada permanentemente con ID: {}", id);
         return "Orden eliminada en: " + writeResult.toString();
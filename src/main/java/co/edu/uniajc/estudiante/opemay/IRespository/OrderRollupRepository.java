@@ -0,0 +1,243 @@
+package co.edu.uniajc.estudiante.opemay.IRespository;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldValue;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.SetOptions;
+import com.google.cloud.firestore.UpdateBuilder;
+
+import co.edu.uniajc.estudiante.opemay.model.Order;
+import co.edu.uniajc.estudiante.opemay.model.OrderItem;
+import co.edu.uniajc.estudiante.opemay.model.OrderRollup;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Agregados por hora y por día de órdenes, ingresos y unidades vendidas por categoría.
+ * Cada evento de orden se suma al intervalo horario de su createdAt en la misma
+ * escritura atómica que la orden; la compactación funde las horas antiguas en días.
+ */
+@Repository
+@Slf4j
+public class OrderRollupRepository {
+
+    private static final String HOURLY_COLLECTION = "order_rollups_hourly";
+    private static final String DAILY_COLLECTION = "order_rollups_daily";
+    private static final String FIELD_BUCKET_START = "bucketStart";
+    private static final String UNCATEGORIZED = "sin-categoria";
+    private static final int COMPACTION_CHUNK_SIZE = 500;
+
+    private static final DateTimeFormatter HOUR_ID = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH");
+    private static final DateTimeFormatter DAY_ID = DateTimeFormatter.ISO_LOCAL_DATE;
+
+    private final Firestore firestore;
+    private final ZoneId zone;
+
+    public OrderRollupRepository(@Autowired(required = false) Firestore firestore,
+                                 @Value("${app.rollups.zone:America/Bogota}") String zone) {
+        this.firestore = firestore;
+        this.zone = ZoneId.of(zone);
+    }
+
+    /**
+     * Agrega al lote/transacción el incremento del intervalo horario de la orden
+     *
+     * @param sign 1 al crear la orden, -1 al cancelarla
+     */
+    public void stageOrderEvent(UpdateBuilder<?> writer, Order order, int sign) {
+        ZonedDateTime hour = hourOf(order.getCreatedAt());
+        DocumentReference reference = firestore.collection(HOURLY_COLLECTION).document(HOUR_ID.format(hour));
+        writer.set(reference, eventDelta(order, hour, sign), SetOptions.merge());
+    }
+
+    /**
+     * Construye los incrementos para un evento de orden
+     */
+    Map<String, Object> eventDelta(Order order, ZonedDateTime hour, int sign) {
+        OrderRollup totals = OrderRollup.builder()
+                .ordersPlaced(sign > 0 ? 1L : 0L)
+                .ordersCancelled(sign > 0 ? 0L : 1L)
+                .build();
+        double revenue = order.getTotalAmount() == null ? 0.0 : order.getTotalAmount();
+        totals.setRevenue(sign * revenue);
+
+        long items = 0;
+        if (order.getItems() != null) {
+            for (OrderItem item : order.getItems()) {
+                long quantity = item.getQuantity() == null ? 0 : item.getQuantity();
+                items += quantity;
+
+                // Varios items de la misma categoría se acumulan antes de escribir
+                OrderRollup.CategoryTotals category = totals.getCategories().computeIfAbsent(categoryKey(item),
+                        id -> OrderRollup.CategoryTotals.builder().categoryName(item.getCategoryName()).build());
+                category.setRevenue(category.getRevenue() + sign * item.getSubtotal());
+                category.setItemsSold(category.getItemsSold() + sign * quantity);
+            }
+        }
+        totals.setItemsSold(sign * items);
+
+        return increments(totals, HOUR_ID.format(hour), OrderRollup.HOUR, hour);
+    }
+
+    /**
+     * Devuelve los intervalos que se solapan con [from, to), sin leer la colección de órdenes.
+     * Los intervalos ya compactados sólo existen con resolución diaria.
+     */
+    public List<OrderRollup> getRollups(Instant from, Instant to) throws ExecutionException, InterruptedException {
+        Timestamp dayStart = toTimestamp(from.atZone(zone).truncatedTo(ChronoUnit.DAYS).toInstant());
+        Timestamp hourStart = toTimestamp(from.atZone(zone).truncatedTo(ChronoUnit.HOURS).toInstant());
+        Timestamp end = toTimestamp(to);
+
+        List<OrderRollup> rollups = new ArrayList<>();
+        rollups.addAll(readRange(DAILY_COLLECTION, dayStart, end));
+        rollups.addAll(readRange(HOURLY_COLLECTION, hourStart, end));
+        rollups.sort((a, b) -> a.getBucketStart().compareTo(b.getBucketStart()));
+        return rollups;
+    }
+
+    private List<OrderRollup> readRange(String collection, Timestamp from, Timestamp to)
+            throws ExecutionException, InterruptedException {
+        List<QueryDocumentSnapshot> documents = firestore.collection(collection)
+                .whereGreaterThanOrEqualTo(FIELD_BUCKET_START, from)
+                .whereLessThan(FIELD_BUCKET_START, to)
+                .orderBy(FIELD_BUCKET_START, Query.Direction.ASCENDING)
+                .get().get().getDocuments();
+
+        List<OrderRollup> rollups = new ArrayList<>(documents.size());
+        for (QueryDocumentSnapshot doc : documents) {
+            rollups.add(doc.toObject(OrderRollup.class));
+        }
+        return rollups;
+    }
+
+    /**
+     * Funde en documentos diarios los intervalos horarios anteriores a {@code before}
+     * y los elimina. Cada día se compacta en su propia transacción.
+     *
+     * @return cantidad de intervalos horarios compactados
+     */
+    public int compactHourlyBefore(Instant before) throws ExecutionException, InterruptedException {
+        Timestamp cutoff = toTimestamp(before.atZone(zone).truncatedTo(ChronoUnit.DAYS).toInstant());
+        int compacted = 0;
+
+        while (true) {
+            List<QueryDocumentSnapshot> documents = firestore.collection(HOURLY_COLLECTION)
+                    .whereLessThan(FIELD_BUCKET_START, cutoff)
+                    .orderBy(FIELD_BUCKET_START, Query.Direction.ASCENDING)
+                    .limit(COMPACTION_CHUNK_SIZE)
+                    .get().get().getDocuments();
+            if (documents.isEmpty()) {
+                break;
+            }
+
+            Map<String, List<DocumentReference>> byDay = new LinkedHashMap<>();
+            for (QueryDocumentSnapshot doc : documents) {
+                byDay.computeIfAbsent(doc.getString("dayId"), day -> new ArrayList<>()).add(doc.getReference());
+            }
+            for (Map.Entry<String, List<DocumentReference>> day : byDay.entrySet()) {
+                compacted += compactDay(day.getKey(), day.getValue());
+            }
+        }
+
+        log.info("Compactados {} intervalos horarios en agregados diarios", compacted);
+        return compacted;
+    }
+
+    private int compactDay(String dayId, List<DocumentReference> hours) throws ExecutionException, InterruptedException {
+        DocumentReference dayReference = firestore.collection(DAILY_COLLECTION).document(dayId);
+        ZonedDateTime dayStart = LocalDate.parse(dayId, DAY_ID).atStartOfDay(zone);
+
+        return firestore.runTransaction(transaction -> {
+            List<DocumentSnapshot> snapshots = transaction.getAll(hours.toArray(new DocumentReference[0])).get();
+
+            OrderRollup merged = OrderRollup.builder().build();
+            int found = 0;
+            for (DocumentSnapshot snapshot : snapshots) {
+                if (snapshot.exists()) {
+                    merged.add(snapshot.toObject(OrderRollup.class));
+                    found++;
+                }
+            }
+            if (found == 0) {
+                return 0;
+            }
+
+            transaction.set(dayReference, increments(merged, dayId, OrderRollup.DAY, dayStart), SetOptions.merge());
+            for (DocumentSnapshot snapshot : snapshots) {
+                if (snapshot.exists()) {
+                    transaction.delete(snapshot.getReference());
+                }
+            }
+            return found;
+        }).get();
+    }
+
+    /**
+     * Convierte un agregado en incrementos para sumarlo a un documento de intervalo
+     */
+    private Map<String, Object> increments(OrderRollup rollup, String id, String granularity, ZonedDateTime start) {
+        Map<String, Object> categories = new HashMap<>();
+        rollup.getCategories().forEach((categoryId, totals) -> {
+            Map<String, Object> category = new HashMap<>();
+            if (totals.getCategoryName() != null) {
+                category.put("categoryName", totals.getCategoryName());
+            }
+            category.put("revenue", FieldValue.increment(totals.getRevenue()));
+            category.put("itemsSold", FieldValue.increment(totals.getItemsSold()));
+            categories.put(categoryId, category);
+        });
+
+        Map<String, Object> delta = new HashMap<>();
+        delta.put("id", id);
+        delta.put("granularity", granularity);
+        delta.put(FIELD_BUCKET_START, toTimestamp(start.toInstant()));
+        delta.put("dayId", DAY_ID.format(start));
+        if (rollup.getOrdersPlaced() != 0) {
+            delta.put("ordersPlaced", FieldValue.increment(rollup.getOrdersPlaced()));
+        }
+        if (rollup.getOrdersCancelled() != 0) {
+            delta.put("ordersCancelled", FieldValue.increment(rollup.getOrdersCancelled()));
+        }
+        delta.put("revenue", FieldValue.increment(rollup.getRevenue()));
+        delta.put("itemsSold", FieldValue.increment(rollup.getItemsSold()));
+        delta.put("categories", categories);
+        return delta;
+    }
+
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    private ZonedDateTime hourOf(Timestamp createdAt) {
+        Timestamp moment = createdAt == null ? Timestamp.now() : createdAt;
+        return Instant.ofEpochSecond(moment.getSeconds(), moment.getNanos()).atZone(zone).truncatedTo(ChronoUnit.HOURS);
+    }
+
+    private static String categoryKey(OrderItem item) {
+        return item.getCategoryId() == null || item.getCategoryId().isBlank() ? UNCATEGORIZED : item.getCategoryId();
+    }
+
+    private static Timestamp toTimestamp(Instant instant) {
+        return Timestamp.ofTimeSecondsAndNanos(instant.getEpochSecond(), instant.getNano());
+    }
+}
@@ -1,38 +1,67 @@
 package co.edu.uniajc.estudiante.opemay.IRespository;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
 import com.google.api.core.ApiFuture;
+import com.google.cloud.Timestamp;
 import com.google.cloud.firestore.DocumentReference;
 import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldValue;
 import com.google.cloud.firestore.Firestore;
 import com.google.cloud.firestore.QueryDocumentSnapshot;
 import com.google.cloud.firestore.QuerySnapshot;
+import com.google.cloud.firestore.SetOptions;
 import com.google.cloud.firestore.WriteResult;
-import com.google.firebase.cloud.FirestoreClient;
 
 import co.edu.uniajc.estudiante.opemay.model.Product;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
 
 @Repository
+@Slf4j
 public class ProductRepository {
 
     private static final String COLLECTION_NAME = "products";
+    private static final String STATS_COLLECTION = "productStats";
+    private static final String FIELD_SALES_COUNT = "salesCount";
+    private static final String FIELD_STOCK = "stock";
+    private static final String FIELD_UPDATED_AT = "updatedAt";
+    private static final String METRIC_STOCK_RETRIES = "opemay.products.stock.transaction.retries";
+
+    private final Firestore firestore;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    /**
+     * Recibe el cliente Firestore compartido configurado en FirebaseInitializer
+     */
+    public ProductRepository(@Autowired(required = false) Firestore firestore) {
+        this.firestore = firestore;
+    }
 
     public String save(Product product) throws ExecutionException, InterruptedException {
-        Firestore dbFirestore = FirestoreClient.getFirestore();
-        ApiFuture<WriteResult> collectionsApiFuture = dbFirestore.collection(COLLECTION_NAME)
+        ApiFuture<WriteResult> collectionsApiFuture = firestore.collection(COLLECTION_NAME)
                 .document(product.getId())
                 .set(product);
         return collectionsApiFuture.get().getUpdateTime().toString();
     }
 
     public Product getProductById(String id) throws ExecutionException, InterruptedException {
-        Firestore dbFirestore = FirestoreClient.getFirestore();
-        DocumentReference documentReference = dbFirestore.collection(COLLECTION_NAME).document(id);
+        DocumentReference documentReference = firestore.collection(COLLECTION_NAME).document(id);
         ApiFuture<DocumentSnapshot> future = documentReference.get();
         DocumentSnapshot document = future.get();
 
@@ -42,9 +71,179 @@ public class ProductRepository {
         return null;
     }
 
+    public CompletableFuture<Product> getProductByIdAsync(String id) {
+        return FirestoreFutures.toCompletableFuture(firestore.collection(COLLECTION_NAME).document(id).get())
+                .thenApply(document -> document.exists() ? document.toObject(Product.class) : null);
+    }
+
+    /**
+     * Obtiene varios productos en un solo round trip usando Firestore.getAll.
+     * Los IDs repetidos se consultan una sola vez; los que no existen no aparecen en el mapa.
+     */
+    public Map<String, Product> getProductsByIds(Collection<String> ids) throws ExecutionException, InterruptedException {
+        Map<String, Product> products = new LinkedHashMap<>();
+        if (ids == null || ids.isEmpty()) {
+            return products;
+        }
+
+        DocumentReference[] references = new LinkedHashSet<>(ids).stream()
+                .map(id -> firestore.collection(COLLECTION_NAME).document(id))
+                .toArray(DocumentReference[]::new);
+
+        ApiFuture<List<DocumentSnapshot>> future = firestore.getAll(references);
+        for (DocumentSnapshot document : future.get()) {
+            if (document.exists()) {
+                products.put(document.getId(), document.toObject(Product.class));
+            }
+        }
+        return products;
+    }
+
+    /**
+     * Versión asíncrona de getProductsByIds
+     */
+    public CompletableFuture<Map<String, Product>> getProductsByIdsAsync(Collection<String> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return CompletableFuture.completedFuture(new LinkedHashMap<>());
+        }
+
+        DocumentReference[] references = new LinkedHashSet<>(ids).stream()
+                .map(id -> firestore.collection(COLLECTION_NAME).document(id))
+                .toArray(DocumentReference[]::new);
+
+        return FirestoreFutures.toCompletableFuture(firestore.getAll(references))
+                .thenApply(documents -> {
+                    Map<String, Product> products = new LinkedHashMap<>();
+                    for (DocumentSnapshot document : documents) {
+                        if (document.exists()) {
+                            products.put(document.getId(), document.toObject(Product.class));
+                        }
+                    }
+                    return products;
+                });
+    }
+
+    /**
+     * Descuenta stock de varios productos en una sola transacción.
+     * Falla completa (sin aplicar ningún cambio) si algún producto no existe,
+     * está inactivo o no tiene stock suficiente.
+     *
+     * @param quantities cantidades a descontar por ID de producto
+     */
+    public void decrementStock(Map<String, Integer> quantities) throws ExecutionException, InterruptedException {
+        applyStockDeltas(quantities, -1, true);
+    }
+
+    /**
+     * Devuelve stock a varios productos en una sola transacción.
+     * Los productos que ya no existen se ignoran.
+     *
+     * @param quantities cantidades a restaurar por ID de producto
+     */
+    public void restoreStock(Map<String, Integer> quantities) throws ExecutionException, InterruptedException {
+        applyStockDeltas(quantities, 1, false);
+    }
+
+    /**
+     * Aplica los cambios de stock con FieldValue.increment dentro de una transacción,
+     * de modo que compras concurrentes no se pisen entre sí. Firestore reintenta la
+     * transacción cuando hay contención; cada reintento se registra como métrica.
+     * En la misma transacción se ajustan las unidades vendidas en productStats/{id}, que
+     * se guardan aparte para que la edición del producto (que reemplaza el documento) no las borre.
+     */
+    private void applyStockDeltas(Map<String, Integer> quantities, int sign, boolean strict)
+            throws ExecutionException, InterruptedException {
+        if (quantities == null || quantities.isEmpty()) {
+            return;
+        }
+
+        List<String> ids = new ArrayList<>(quantities.keySet());
+        DocumentReference[] references = ids.stream()
+                .map(id -> firestore.collection(COLLECTION_NAME).document(id))
+                .toArray(DocumentReference[]::new);
+        AtomicInteger attempts = new AtomicInteger();
+
+        ApiFuture<Void> future = firestore.runTransaction(transaction -> {
+            attempts.incrementAndGet();
+            List<DocumentSnapshot> snapshots = transaction.getAll(references).get();
+            Timestamp now = Timestamp.now();
+
+            for (int i = 0; i < snapshots.size(); i++) {
+                DocumentSnapshot snapshot = snapshots.get(i);
+                String id = ids.get(i);
+                int quantity = quantities.get(id);
+
+                if (!snapshot.exists()) {
+                    if (strict) {
+                        throw new IllegalArgumentException("Producto no encontrado o inactivo: " + id);
+                    }
+                    log.warn("Producto {} no existe, se omite el ajuste de stock", id);
+                    continue;
+                }
+
+                if (strict) {
+                    Boolean active = snapshot.getBoolean("active");
+                    Long stock = snapshot.getLong(FIELD_STOCK);
+                    if (Boolean.FALSE.equals(active)) {
+                        throw new IllegalArgumentException("Producto no encontrado o inactivo: " + id);
+                    }
+                    if (stock == null || stock < quantity) {
+                        throw new IllegalArgumentException("Stock insuficiente para: " + snapshot.getString("name"));
+                    }
+                }
+
+                transaction.update(references[i],
+                        FIELD_STOCK, FieldValue.increment((long) sign * quantity),
+                        FIELD_UPDATED_AT, now);
+                transaction.set(firestore.collection(STATS_COLLECTION).document(id),
+                        Map.of(FIELD_SALES_COUNT, FieldValue.increment((long) -sign * quantity),
+                                FIELD_UPDATED_AT, now),
+                        SetOptions.merge());
+            }
+            return null;
+        });
+
+        try {
+            future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IllegalArgumentException illegalArgument) {
+                throw illegalArgument;
+            }
+            throw e;
+        } finally {
+            recordStockRetries(attempts.get() - 1);
+        }
+        log.info("Stock ajustado para {} productos", ids.size());
+    }
+
+    private void recordStockRetries(int retries) {
+        if (retries <= 0 || meterRegistry == null) {
+            return;
+        }
+        log.warn("Transacción de stock reintentada {} veces por contención", retries);
+        Counter.builder(METRIC_STOCK_RETRIES)
+                .description("Reintentos de transacciones de stock por contención en Firestore")
+                .register(meterRegistry)
+                .increment(retries);
+    }
+
+    /**
+     * Unidades vendidas por ID de producto (compras menos devoluciones de stock).
+     * Los productos sin ventas no aparecen en el mapa
+     */
+    public Map<String, Long> getSalesCounts() throws ExecutionException, InterruptedException {
+        Map<String, Long> salesCounts = new HashMap<>();
+        for (QueryDocumentSnapshot doc : firestore.collection(STATS_COLLECTION).get().get().getDocuments()) {
+            Long salesCount = doc.getLong(FIELD_SALES_COUNT);
+            if (salesCount != null && salesCount > 0) {
+                salesCounts.put(doc.getId(), salesCount);
+            }
+        }
+        return salesCounts;
+    }
+
     public List<Product> getAllProducts() throws ExecutionException, InterruptedException {
-        Firestore dbFirestore = FirestoreClient.getFirestore();
-        ApiFuture<QuerySnapshot> future = dbFirestore.collection(COLLECTION_NAME).get();
+        ApiFuture<QuerySnapshot> future = firestore.collection(COLLECTION_NAME).get();
         List<QueryDocumentSnapshot> documents = future.get().getDocuments();
         List<Product> productList = new ArrayList<>();
 
@@ -56,8 +255,7 @@ public class ProductRepository {
     }
 
     public String delete(String id) {
-        Firestore dbFirestore = FirestoreClient.getFirestore();
-        ApiFuture<WriteResult> writeResult = dbFirestore.collection(COLLECTION_NAME).document(id).delete();
+        ApiFuture<WriteResult> writeResult = firestore.collection(COLLECTION_NAME).document(id).delete();
         return "Eliminado en: " + writeResult.toString();
     }
 }
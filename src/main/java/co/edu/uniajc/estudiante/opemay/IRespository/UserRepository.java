@@ -1,12 +1,15 @@
 package co.edu.uniajc.estudiante.opemay.IRespository;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
 import com.google.api.core.ApiFuture;
+import com.google.cloud.Timestamp;
 import com.google.cloud.firestore.DocumentReference;
 import com.google.cloud.firestore.DocumentSnapshot;
 import com.google.cloud.firestore.Firestore;
@@ -14,8 +17,8 @@ import com.google.cloud.firestore.Query;
 import com.google.cloud.firestore.QueryDocumentSnapshot;
 import com.google.cloud.firestore.QuerySnapshot;
 import com.google.cloud.firestore.WriteResult;
-import com.google.firebase.cloud.FirestoreClient;
 
+import co.edu.uniajc.estudiante.opemay.dto.PageResponse;
 import co.edu.uniajc.estudiante.opemay.model.User;
 import lombok.extern.slf4j.Slf4j;
 
@@ -24,18 +27,26 @@ import lombok.extern.slf4j.Slf4j;
 public class UserRepository {
 
     private static final String COLLECTION_NAME = "users";
+    private static final String FIELD_TOKENS_VALID_AFTER = "tokensValidAfter";
+
+    private final Firestore firestore;
+
+    /**
+     * Recibe el cliente Firestore compartido configurado en FirebaseInitializer
+     */
+    public UserRepository(@Autowired(required = false) Firestore firestore) {
+        this.firestore = firestore;
+    }
 
     public String save(User user) throws ExecutionException, InterruptedException {
-        Firestore dbFirestore = FirestoreClient.getFirestore();
-        ApiFuture<WriteResult> collectionsApiFuture = dbFirestore.collection(COLLECTION_NAME)
+        ApiFuture<WriteResult> collectionsApiFuture = firestore.collection(COLLECTION_NAME)
                 .document(user.getId())
                 .set(user);
         return collectionsApiFuture.get().getUpdateTime().toString();
     }
 
     public User getUserByUsername(String username) throws ExecutionException, InterruptedException {
-        Firestore dbFirestore = FirestoreClient.getFirestore();
-        Query query = dbFirestore.collection(COLLECTION_NAME).whereEqualTo("username", username);
+        Query query = firestore.collection(COLLECTION_NAME).whereEqualTo("username", username);
         ApiFuture<QuerySnapshot> querySnapshot = query.get();
         
         List<QueryDocumentSnapshot> documents = querySnapshot.get().getDocuments();
@@ -47,8 +58,7 @@ public class UserRepository {
 
     public User getUserByEmail(String email) throws ExecutionException, InterruptedException {
         System.out.println("🔍 UserRepository: Buscando usuario con email: '" + email + "'");
-        Firestore dbFirestore = FirestoreClient.getFirestore();
-        Query query = dbFirestore.collection(COLLECTION_NAME).whereEqualTo("email", email);
+        Query query = firestore.collection(COLLECTION_NAME).whereEqualTo("email", email);
         ApiFuture<QuerySnapshot> querySnapshot = query.get();
         
         List<QueryDocumentSnapshot> documents = querySnapshot.get().getDocuments();
@@ -66,9 +76,14 @@ public class UserRepository {
         return null;
     }
 
+    public CompletableFuture<User> getUserByEmailAsync(String email) {
+        Query query = firestore.collection(COLLECTION_NAME).whereEqualTo("email", email);
+        return FirestoreFutures.toCompletableFuture(query.get())
+                .thenApply(snapshot -> snapshot.isEmpty() ? null : snapshot.getDocuments().get(0).toObject(User.class));
+    }
+
     public User getUserById(String id) throws ExecutionException, InterruptedException {
-        Firestore dbFirestore = FirestoreClient.getFirestore();
-        DocumentReference documentReference = dbFirestore.collection(COLLECTION_NAME).document(id);
+        DocumentReference documentReference = firestore.collection(COLLECTION_NAME).document(id);
         ApiFuture<DocumentSnapshot> future = documentReference.get();
         DocumentSnapshot document = future.get();
 
@@ -78,30 +93,63 @@ public class UserRepository {
         return null;
     }
 
-    public List<User> getAllUsers() throws ExecutionException, InterruptedException {
-        Firestore dbFirestore = FirestoreClient.getFirestore();
-        ApiFuture<QuerySnapshot> future = dbFirestore.collection(COLLECTION_NAME).get();
-        List<QueryDocumentSnapshot> documents = future.get().getDocuments();
-        List<User> userList = new ArrayList<>();
+    public CompletableFuture<User> getUserByIdAsync(String id) {
+        return FirestoreFutures.toCompletableFuture(firestore.collection(COLLECTION_NAME).document(id).get())
+                .thenApply(document -> document.exists() ? document.toObject(User.class) : null);
+    }
 
-        for (QueryDocumentSnapshot doc : documents) {
-            userList.add(doc.toObject(User.class));
-        }
+    /**
+     * Obtiene una página de usuarios ordenada por ID de documento
+     */
+    public PageResponse<User> getUsersPage(String cursor, Integer size) throws ExecutionException, InterruptedException {
+        return FirestorePagination.fetchPage(firestore.collection(COLLECTION_NAME), null,
+                Query.Direction.ASCENDING, cursor, size, doc -> doc.toObject(User.class));
+    }
 
-        return userList;
+    /**
+     * Recorre los usuarios sin cargar la colección completa en memoria. Con rango de fechas
+     * se ordena por createdAt descendente; sin él, por ID de documento.
+     *
+     * @return cantidad de usuarios recorridos
+     */
+    public long streamUsers(Timestamp from, Timestamp to, int chunkSize, Consumer<User> consumer)
+            throws ExecutionException, InterruptedException {
+        boolean byDate = from != null || to != null;
+        Query query = OrderRepository.whereCreatedAtBetween(firestore.collection(COLLECTION_NAME), from, to);
+
+        return FirestorePagination.scan(query, byDate ? "createdAt" : null,
+                byDate ? Query.Direction.DESCENDING : Query.Direction.ASCENDING, chunkSize,
+                doc -> consumer.accept(doc.toObject(User.class)));
     }
 
+    /**
+     * Reemplaza el usuario conservando el tokensValidAfter más reciente: una copia leída
+     * antes de una revocación hecha en otra instancia no la deshace al guardarse
+     */
     public String update(User user) throws ExecutionException, InterruptedException {
-        Firestore dbFirestore = FirestoreClient.getFirestore();
-        ApiFuture<WriteResult> collectionsApiFuture = dbFirestore.collection(COLLECTION_NAME)
-                .document(user.getId())
-                .set(user);
-        return collectionsApiFuture.get().getUpdateTime().toString();
+        DocumentReference reference = firestore.collection(COLLECTION_NAME).document(user.getId());
+        firestore.runTransaction(transaction -> {
+            Timestamp stored = transaction.get(reference).get().getTimestamp(FIELD_TOKENS_VALID_AFTER);
+            if (stored != null && (user.getTokensValidAfter() == null
+                    || stored.compareTo(user.getTokensValidAfter()) > 0)) {
+                user.setTokensValidAfter(stored);
+            }
+            transaction.set(reference, user);
+            return null;
+        }).get();
+        return Timestamp.now().toString();
+    }
+
+    /**
+     * Invalida los tokens del usuario emitidos hasta {@code validAfter}
+     */
+    public void revokeTokens(String id, Timestamp validAfter) throws ExecutionException, InterruptedException {
+        firestore.collection(COLLECTION_NAME).document(id).update(FIELD_TOKENS_VALID_AFTER, validAfter).get();
+        log.info("Tokens revocados para el usuario {}", id);
     }
 
     public String delete(String id) {
-        Firestore dbFirestore = FirestoreClient.getFirestore();
-        ApiFuture<WriteResult> writeResult = dbFirestore.collection(COLLECTION_NAME).document(id).delete();
+        ApiFuture<WriteResult> writeResult = firestore.collection(COLLECTION_NAME).document(id).delete();
         return "Usuario eliminado en: " + writeResult.toString();
     }
 }
@@ -0,0 +1,70 @@
+package co.edu.uniajc.estudiante.opemay.IRespository;
+
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import com.google.api.core.ApiFuture;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Transaction;
+
+import co.edu.uniajc.estudiante.opemay.model.Versioned;
+
+/**
+ * Escrituras condicionadas a la versión del documento. La entidad lleva la versión con la que
+ * se leyó; dentro de una transacción se compara con la guardada y, si coinciden, se escribe
+ * con la versión siguiente. Si no, falla con ConcurrentUpdateException sin escribir nada.
+ */
+public final class VersionedWrites {
+
+    public static final String FIELD_VERSION = "version";
+
+    private VersionedWrites() {
+        // Constructor privado para clase utilitaria
+    }
+
+    /**
+     * Reemplaza el documento si sigue en la versión de la entidad
+     */
+    public static ApiFuture<Void> set(Firestore firestore, DocumentReference reference, Versioned entity) {
+        Long expected = entity.getVersion();
+        return firestore.runTransaction(transaction -> {
+            stage(transaction, transaction.get(reference).get(), entity, expected);
+            return null;
+        });
+    }
+
+    /**
+     * Agrega la escritura versionada a una transacción que ya leyó el documento.
+     * Firestore puede ejecutar la transacción más de una vez, por eso la versión
+     * esperada se captura antes y no se toma de la entidad.
+     *
+     * @param current documento leído en esta transacción
+     * @throws ConcurrentUpdateException si la versión guardada no es la esperada
+     */
+    public static void stage(Transaction transaction, DocumentSnapshot current, Versioned entity, Long expected) {
+        Long stored = current.exists() ? current.getLong(FIELD_VERSION) : null;
+        if (!Objects.equals(stored, expected)) {
+            DocumentReference reference = current.getReference();
+            throw new ConcurrentUpdateException(reference.getParent().getId(), reference.getId(), expected, stored);
+        }
+        entity.setVersion(expected == null ? 1L : expected + 1);
+        transaction.set(current.getReference(), entity);
+    }
+
+    /**
+     * Espera la escritura y entrega el conflicto de versión sin envolver
+     */
+    public static <T> T await(Future<T> future) throws ExecutionException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ConcurrentUpdateException conflict) {
+                throw conflict;
+            }
+            throw e;
+        }
+    }
+}
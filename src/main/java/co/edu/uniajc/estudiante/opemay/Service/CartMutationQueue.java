@@ -0,0 +1,198 @@
+package co.edu.uniajc.estudiante.opemay.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+import co.edu.uniajc.estudiante.opemay.model.Cart;
+
+/**
+ * Cola de cambios al carrito por usuario. Los cambios de un mismo usuario se aplican en el orden
+ * en que llegaron y nunca en paralelo; los que se acumulan mientras se guarda un lote se aplican
+ * juntos sobre una sola lectura del carrito y se guardan con una sola escritura.
+ *
+ * No usa hilos propios: la primera petición que encuentra la cola vacía del usuario procesa los
+ * lotes hasta vaciarla, y las demás esperan su resultado. Sólo ordena las peticiones de esta
+ * instancia; entre instancias sigue mandando la versión del carrito.
+ */
+final class CartMutationQueue {
+
+    static final int MAX_BATCH_SIZE = 64;
+
+    /**
+     * Un cambio sobre el carrito. Debe validar antes de modificar nada: si lanza una excepción,
+     * el resto del lote se guarda igual y sólo quien pidió este cambio recibe el error
+     */
+    @FunctionalInterface
+    interface Mutation {
+        void applyTo(Cart cart);
+    }
+
+    /**
+     * Lee el carrito del usuario, le aplica el lote con applyAll y lo guarda una vez
+     */
+    @FunctionalInterface
+    interface BatchWriter {
+        Cart write(String userId, List<Pending> batch) throws ExecutionException, InterruptedException;
+    }
+
+    static final class Pending {
+        private final Mutation mutation;
+        private final CompletableFuture<Cart> result = new CompletableFuture<>();
+        private RuntimeException rejection;
+
+        Pending(Mutation mutation) {
+            this.mutation = mutation;
+        }
+    }
+
+    private final BatchWriter writer;
+
+    /**
+     * Una entrada por usuario con cambios en curso; quien la crea procesa la cola y la quita al vaciarla
+     */
+    private final ConcurrentHashMap<String, Deque<Pending>> queues = new ConcurrentHashMap<>();
+
+    CartMutationQueue(BatchWriter writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Encola el cambio y espera a que se guarde junto con los demás de su lote
+     *
+     * @return el carrito guardado tras aplicar el lote
+     * @throws IllegalArgumentException si el cambio fue rechazado al aplicarlo
+     */
+    Cart submit(String userId, Mutation mutation) throws ExecutionException, InterruptedException {
+        Pending pending = new Pending(mutation);
+        boolean[] drainer = {false};
+        queues.compute(userId, (id, queue) -> {
+            if (queue == null) {
+                queue = new ArrayDeque<>();
+                drainer[0] = true;
+            }
+            queue.add(pending);
+            return queue;
+        });
+        if (drainer[0]) {
+            drain(userId);
+        }
+        return await(pending);
+    }
+
+    /**
+     * Aplica en orden los cambios del lote sobre el carrito. Se llama en cada intento de
+     * escritura, así que los rechazos de un intento anterior se descartan
+     *
+     * @return true si al menos un cambio se aplicó y hay algo que guardar
+     */
+    static boolean applyAll(Cart cart, List<Pending> batch) {
+        boolean changed = false;
+        for (Pending pending : batch) {
+            try {
+                pending.mutation.applyTo(cart);
+                pending.rejection = null;
+                changed = true;
+            } catch (RuntimeException e) {
+                pending.rejection = e;
+            }
+        }
+        return changed;
+    }
+
+    int pendingUsers() {
+        return queues.size();
+    }
+
+    /**
+     * Cambios del usuario que esperan el siguiente lote (sin contar el lote que se está guardando)
+     */
+    int queuedMutations(String userId) {
+        int[] size = {0};
+        queues.computeIfPresent(userId, (id, queue) -> {
+            size[0] = queue.size();
+            return queue;
+        });
+        return size[0];
+    }
+
+    private void drain(String userId) {
+        List<Pending> batch = List.of();
+        boolean drained = false;
+        try {
+            while (true) {
+                batch = takeBatch(userId);
+                if (batch.isEmpty()) {
+                    drained = true;
+                    return;
+                }
+                writeBatch(userId, batch);
+            }
+        } finally {
+            if (!drained) {
+                abandon(userId, batch);
+            }
+        }
+    }
+
+    private List<Pending> takeBatch(String userId) {
+        List<Pending> batch = new ArrayList<>();
+        queues.compute(userId, (id, queue) -> {
+            while (!queue.isEmpty() && batch.size() < MAX_BATCH_SIZE) {
+                batch.add(queue.poll());
+            }
+            return batch.isEmpty() ? null : queue;
+        });
+        return batch;
+    }
+
+    /**
+     * Si un Error corta el procesamiento, falla el lote en curso y los cambios encolados y quita
+     * la entrada del usuario; si no, sus siguientes peticiones esperarían a un procesador que ya no existe
+     */
+    private void abandon(String userId, List<Pending> batch) {
+        List<Pending> abandoned = new ArrayList<>(batch);
+        queues.computeIfPresent(userId, (id, queue) -> {
+            abandoned.addAll(queue);
+            return null;
+        });
+        IllegalStateException failure = new IllegalStateException("Se interrumpió el guardado de los cambios del carrito");
+        abandoned.forEach(pending -> pending.result.completeExceptionally(failure));
+    }
+
+    private void writeBatch(String userId, List<Pending> batch) {
+        try {
+            Cart cart = writer.write(userId, batch);
+            for (Pending pending : batch) {
+                if (pending.rejection != null) {
+                    pending.result.completeExceptionally(pending.rejection);
+                } else {
+                    pending.result.complete(cart);
+                }
+            }
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            batch.forEach(pending -> pending.result.completeExceptionally(e));
+        }
+    }
+
+    private static Cart await(Pending pending) throws ExecutionException, InterruptedException {
+        try {
+            return pending.result.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof ExecutionException execution) {
+                throw execution;
+            }
+            throw e;
+        }
+    }
+}
@@ -11,21 +11,45 @@ import com.google.cloud.Timestamp;
 
 import co.edu.uniajc.estudiante.opemay.IRespository.CartRepository;
 import co.edu.uniajc.estudiante.opemay.IRespository.ProductRepository;
+import co.edu.uniajc.estudiante.opemay.dto.PageResponse;
 import co.edu.uniajc.estudiante.opemay.model.Cart;
 import co.edu.uniajc.estudiante.opemay.model.CartItem;
 import co.edu.uniajc.estudiante.opemay.model.Product;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 
 @Service
 @Slf4j
 public class CartService {
 
+    static final String METRIC_MUTATION_BATCH = "opemay.cart.mutations.batch";
+
     @Autowired
     private CartRepository cartRepository;
 
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired(required = false)
+    private ProductCatalogCache catalogCache;
+
+    /**
+     * Dos pestañas modificando el mismo carrito chocan en la escritura; quien pierde
+     * relee el carrito y vuelve a aplicar su cambio
+     */
+    @Autowired
+    private OptimisticRetry optimisticRetry;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    /**
+     * Agregar, cambiar cantidad, quitar y vaciar pasan por esta cola: los clics seguidos de un
+     * usuario se aplican en orden y se guardan con una escritura por lote
+     */
+    private final CartMutationQueue mutationQueue = new CartMutationQueue(this::writeBatch);
+
     /**
      * Obtiene o crea el carrito activo de un usuario
      */
@@ -37,22 +61,57 @@ public class CartService {
         Cart activeCart = cartRepository.getActiveCartByUserId(userId);
         
         if (activeCart == null) {
-            log.info("Creando nuevo carrito para usuario: {}", userId);
-            activeCart = Cart.builder()
-                    .id(UUID.randomUUID().toString())
-                    .userId(userId)
-                    .status("ACTIVE")
-                    .build();
-            
-            cartRepository.save(activeCart);
+            activeCart = createActiveCart(userId);
         }
         
         return activeCart;
     }
 
     /**
-     * Agrega un producto al carrito
+     * Crea y persiste un carrito activo vacío para el usuario. Si otra petición lo creó
+     * al mismo tiempo, devuelve ese
+     */
+    private Cart createActiveCart(String userId) throws ExecutionException, InterruptedException {
+        log.info("Creando nuevo carrito para usuario: {}", userId);
+        Cart activeCart = Cart.builder()
+                .id(UUID.randomUUID().toString())
+                .userId(userId)
+                .status("ACTIVE")
+                .build();
+        
+        return cartRepository.createActiveCart(activeCart);
+    }
+
+    private Cart submitMutation(String userId, CartMutationQueue.Mutation mutation)
+            throws ExecutionException, InterruptedException {
+        if (userId == null || userId.trim().isEmpty()) {
+            throw new IllegalArgumentException("El ID del usuario no puede estar vacío");
+        }
+        return mutationQueue.submit(userId, mutation);
+    }
+
+    /**
+     * Lee el carrito activo, le aplica el lote de cambios y lo guarda una sola vez. Si la
+     * escritura choca con otra instancia, relee el carrito y vuelve a aplicar el lote completo
      */
+    private Cart writeBatch(String userId, List<CartMutationQueue.Pending> batch)
+            throws ExecutionException, InterruptedException {
+        if (meterRegistry != null) {
+            DistributionSummary.builder(METRIC_MUTATION_BATCH)
+                    .description("Cambios al carrito guardados con una misma escritura")
+                    .register(meterRegistry)
+                    .record(batch.size());
+        }
+        return optimisticRetry.run(() -> {
+            Cart cart = getOrCreateActiveCart(userId);
+            if (CartMutationQueue.applyAll(cart, batch)) {
+                cartRepository.update(cart);
+            }
+            log.debug("Lote de {} cambios aplicado al carrito {} del usuario {}", batch.size(), cart.getId(), userId);
+            return cart;
+        });
+    }
+
 /**
  * Agrega un producto al carrito
  */
@@ -68,8 +127,17 @@ public Cart addProductToCart(String userId, String productId, Integer quantity)
         throw new IllegalArgumentException("La cantidad debe ser mayor a 0");
     }
 
+    if (userId == null || userId.trim().isEmpty()) {
+        throw new IllegalArgumentException("El ID del usuario no puede estar vacío");
+    }
+
+    // El producto sale de la caché del catálogo cuando está disponible
+    Product product = catalogCache != null ? catalogCache.get(productId) : null;
+    if (product == null) {
+        product = productRepository.getProductByIdAsync(productId).get();
+    }
+
     // Verificar que el producto existe
-    Product product = productRepository.getProductById(productId);
     if (product == null) {
         throw new IllegalArgumentException("Producto no encontrado");
     }
@@ -80,26 +148,17 @@ public Cart addProductToCart(String userId, String productId, Integer quantity)
 
     log.info("Producto encontrado: {}", product);
 
-    // Obtener o crear carrito
-    Cart cart = getOrCreateActiveCart(userId);
-    log.info("Carrito actual (antes de agregar): {}", cart);
-
-    // Crear item del carrito
-    CartItem cartItem = CartItem.builder()
+    // Agregar item al carrito; se guarda junto con los demás cambios pendientes del usuario.
+    // El item se crea en cada aplicación: addItem guarda la instancia y los reintentos del
+    // lote vuelven a aplicar el cambio sobre un carrito recién leído
+    Product selected = product;
+    Cart cart = submitMutation(userId, current -> current.addItem(CartItem.builder()
             .productId(productId)
-            .productName(product.getName())
-            .price(product.getPrice())
+            .productName(selected.getName())
+            .price(selected.getPrice())
             .quantity(quantity)
-            .imageUrl(product.getImageUrl())
-            .build();
-
-    log.info("Item creado para agregar al carrito: {}", cartItem);
-
-    // Agregar item al carrito
-    cart.addItem(cartItem);
-
-    // Guardar carrito
-    cartRepository.update(cart);
+            .imageUrl(selected.getImageUrl())
+            .build()));
 
     log.info("Carrito actualizado (después de agregar): {}", cart);
     log.info("✅ Producto {} agregado correctamente al carrito del usuario {}", productId, userId);
@@ -118,29 +177,27 @@ public Cart addProductToCart(String userId, String productId, Integer quantity)
             throw new IllegalArgumentException("La cantidad no puede ser negativa");
         }
 
-        Cart cart = getOrCreateActiveCart(userId);
-        
-        if (quantity == 0) {
-            // Si la cantidad es 0, remover el producto
-            cart.removeItem(productId);
-        } else {
-            // Buscar el item y actualizar cantidad
-            CartItem existingItem = cart.getItems().stream()
-                    .filter(item -> item.getProductId().equals(productId))
-                    .findFirst()
-                    .orElse(null);
-                    
-            if (existingItem != null) {
-                existingItem.setQuantity(quantity);
-                existingItem.setUpdatedAt(Timestamp.now());
-                cart.calculateTotals();
-                cart.setUpdatedAt(Timestamp.now());
+        Cart cart = submitMutation(userId, current -> {
+            if (quantity == 0) {
+                // Si la cantidad es 0, remover el producto
+                current.removeItem(productId);
             } else {
-                throw new IllegalArgumentException("Producto no encontrado en el carrito");
+                // Buscar el item y actualizar cantidad
+                CartItem existingItem = current.getItems().stream()
+                        .filter(item -> item.getProductId().equals(productId))
+                        .findFirst()
+                        .orElse(null);
+
+                if (existingItem != null) {
+                    existingItem.setQuantity(quantity);
+                    existingItem.setUpdatedAt(Timestamp.now());
+                    current.calculateTotals();
+                    current.setUpdatedAt(Timestamp.now());
+                } else {
+                    throw new IllegalArgumentException("Producto no encontrado en el carrito");
+                }
             }
-        }
-
-        cartRepository.update(cart);
+        });
         
         log.info("Cantidad del producto {} actualizada en el carrito del usuario {}", productId, userId);
         return cart;
@@ -152,10 +209,7 @@ public Cart addProductToCart(String userId, String productId, Integer quantity)
     public Cart removeProductFromCart(String userId, String productId) 
             throws ExecutionException, InterruptedException {
         
-        Cart cart = getOrCreateActiveCart(userId);
-        cart.removeItem(productId);
-        
-        cartRepository.update(cart);
+        Cart cart = submitMutation(userId, current -> current.removeItem(productId));
         
         log.info("Producto {} removido del carrito del usuario {}", productId, userId);
         return cart;
@@ -163,10 +217,7 @@ public Cart addProductToCart(String userId, String productId, Integer quantity)
 
   
     public Cart clearCart(String userId) throws ExecutionException, InterruptedException {
-        Cart cart = getOrCreateActiveCart(userId);
-        cart.clearCart();
-        
-        cartRepository.update(cart);
+        Cart cart = submitMutation(userId, Cart::clearCart);
         
         log.info("Carrito del usuario {} limpiado", userId);
         return cart;
@@ -180,34 +231,37 @@ public Cart addProductToCart(String userId, String productId, Integer quantity)
     }
 
     /**
-     * Obtiene todos los carritos de un usuario
+     * Obtiene una página del historial de carritos de un usuario
      */
-    public List<Cart> getUserCarts(String userId) throws ExecutionException, InterruptedException {
+    public PageResponse<Cart> getUserCarts(String userId, String cursor, Integer size)
+            throws ExecutionException, InterruptedException {
         if (userId == null || userId.trim().isEmpty()) {
             throw new IllegalArgumentException("El ID del usuario no puede estar vacío");
         }
         
-        return cartRepository.getCartsByUserId(userId);
+        return cartRepository.getCartsByUserIdPage(userId, cursor, size);
     }
 
     /**
      * Completa el carrito (lo marca como completado)
      */
     public Cart completeCart(String userId) throws ExecutionException, InterruptedException {
-        Cart cart = cartRepository.getActiveCartByUserId(userId);
-        
-        if (cart == null) {
-            throw new IllegalArgumentException("No hay carrito activo para completar");
-        }
-        
-        if (cart.getItems() == null || cart.getItems().isEmpty()) {
-            throw new IllegalArgumentException("El carrito está vacío");
-        }
-        
-        cart.setStatus("COMPLETED");
-        cart.setUpdatedAt(Timestamp.now());
-        
-        cartRepository.update(cart);
+        Cart cart = optimisticRetry.run(() -> {
+            Cart current = cartRepository.getActiveCartByUserId(userId);
+
+            if (current == null) {
+                throw new IllegalArgumentException("No hay carrito activo para completar");
+            }
+
+            if (current.getItems() == null || current.getItems().isEmpty()) {
+                throw new IllegalArgumentException("El carrito está vacío");
+            }
+
+            current.setStatus("COMPLETED");
+            current.setUpdatedAt(Timestamp.now());
+            cartRepository.update(current);
+            return current;
+        });
         
         log.info("Carrito del usuario {} completado", userId);
         return cart;
@@ -217,17 +271,19 @@ public Cart addProductToCart(String userId, String productId, Integer quantity)
      * Abandona el carrito (lo marca como abandonado)
      */
     public Cart abandonCart(String userId) throws ExecutionException, InterruptedException {
-        Cart cart = cartRepository.getActiveCartByUserId(userId);
-        
-        if (cart == null) {
-            throw new IllegalArgumentException("No hay carrito activo para abandonar");
-        }
-        
-        cart.setStatus("ABANDONED");
-        cart.setActive(false);
-        cart.setUpdatedAt(Timestamp.now());
-        
-        cartRepository.update(cart);
+        Cart cart = optimisticRetry.run(() -> {
+            Cart current = cartRepository.getActiveCartByUserId(userId);
+
+            if (current == null) {
+                throw new IllegalArgumentException("No hay carrito activo para abandonar");
+            }
+
+            current.setStatus("ABANDONED");
+            current.setActive(false);
+            current.setUpdatedAt(Timestamp.now());
+            cartRepository.update(current);
+            return current;
+        });
         
         log.info("Carrito del usuario {} abandonado", userId);
         return cart;
@@ -245,10 +301,10 @@ public Cart addProductToCart(String userId, String productId, Integer quantity)
     }
 
     /**
-     * Obtiene todos los carritos (para administradores)
+     * Obtiene una página de carritos (para administradores)
      */
-    public List<Cart> getAllCarts() throws ExecutionException, InterruptedException {
-        return cartRepository.getAllCarts();
+    public PageResponse<Cart> getAllCarts(String cursor, Integer size) throws ExecutionException, InterruptedException {
+        return cartRepository.getCartsPage(cursor, size);
     }
 
     /**
@@ -0,0 +1,60 @@
+package co.edu.uniajc.estudiante.opemay.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+import com.google.cloud.Timestamp;
+
+/**
+ * Versión de una colección del catálogo para GET condicionales: un ETag fuerte calculado
+ * a partir del contenido (igual en todas las instancias para los mismos datos) y la fecha
+ * de la última modificación.
+ *
+ * @param etag valor del ETag, sin comillas
+ * @param lastModifiedMillis updatedAt más reciente en milisegundos, o -1 si ningún elemento lo tiene
+ */
+public record CatalogVersion(String etag, long lastModifiedMillis) {
+
+    private static final int ETAG_BYTES = 12;
+
+    /**
+     * Calcula la versión de los elementos usando su toString como contenido.
+     * No depende del orden en que lleguen, para que coincida entre instancias
+     */
+    public static <T> CatalogVersion of(Collection<T> items, Function<T, Timestamp> updatedAt) {
+        List<String> contents = new ArrayList<>(items.size());
+        long lastModified = -1;
+        for (T item : items) {
+            contents.add(String.valueOf(item));
+            Timestamp timestamp = updatedAt.apply(item);
+            if (timestamp != null) {
+                lastModified = Math.max(lastModified, timestamp.toDate().getTime());
+            }
+        }
+        Collections.sort(contents);
+
+        MessageDigest digest = sha256();
+        for (String content : contents) {
+            digest.update(content.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+        }
+        byte[] hash = Arrays.copyOf(digest.digest(), ETAG_BYTES);
+        return new CatalogVersion(Base64.getUrlEncoder().withoutPadding().encodeToString(hash), lastModified);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+}
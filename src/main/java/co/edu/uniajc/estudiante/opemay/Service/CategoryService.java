@@ -3,15 +3,13 @@ package co.edu.uniajc.estudiante.opemay.Service;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import com.google.api.core.ApiFuture;
 import com.google.cloud.Timestamp;
-import com.google.cloud.firestore.Firestore;
-import com.google.cloud.firestore.QueryDocumentSnapshot;
-import com.google.cloud.firestore.QuerySnapshot;
 
 import co.edu.uniajc.estudiante.opemay.IRespository.CategoryRepository;
 import co.edu.uniajc.estudiante.opemay.dto.CategoryCreateDTO;
@@ -25,9 +23,64 @@ public class CategoryService {
 
     @Autowired
     private CategoryRepository categoryRepository;
-    
-    @Autowired(required = false)
-    private Firestore firestore;
+
+    /**
+     * Categorías precalculadas y ordenadas. Se descarta en cada escritura hecha
+     * por este servicio y se reconstruye en la siguiente lectura
+     */
+    private volatile CategorySnapshot snapshot;
+    private final AtomicLong snapshotGeneration = new AtomicLong();
+    private final ReentrantLock snapshotRebuild = new ReentrantLock();
+
+    /**
+     * Devuelve el snapshot vigente, reconstruyéndolo desde Firestore si fue invalidado
+     */
+    private CategorySnapshot currentSnapshot() throws ExecutionException, InterruptedException {
+        CategorySnapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        // Se espera a Firestore con el lock tomado; con hilos virtuales un synchronized fijaría el carrier
+        snapshotRebuild.lock();
+        try {
+            if (snapshot != null) {
+                return snapshot;
+            }
+            long generation = snapshotGeneration.get();
+            CategorySnapshot rebuilt = new CategorySnapshot(categoryRepository.getAllCategories());
+            // Si hubo una escritura durante la lectura, no publicar un snapshot desactualizado
+            if (generation == snapshotGeneration.get()) {
+                snapshot = rebuilt;
+            }
+            log.info("Snapshot de categorías reconstruido: {} categorías", rebuilt.all().size());
+            return rebuilt;
+        } finally {
+            snapshotRebuild.unlock();
+        }
+    }
+
+    /**
+     * Descarta el snapshot de categorías; la próxima lectura lo reconstruye
+     */
+    void invalidateSnapshot() {
+        snapshotGeneration.incrementAndGet();
+        snapshot = null;
+    }
+
+    /**
+     * Versión de las categorías para GET condicionales, tomada del snapshot en memoria
+     */
+    public CatalogVersion getVersion() throws ExecutionException, InterruptedException {
+        return currentSnapshot().version();
+    }
+
+    /**
+     * Categorías activas junto con la versión del mismo snapshot, para servirlas con su ETag
+     */
+    public VersionedCatalog<Category> getActiveCatalog() throws ExecutionException, InterruptedException {
+        CategorySnapshot current = currentSnapshot();
+        return new VersionedCatalog<>(current.version(), current.active());
+    }
 
     /**
      * Crea una nueva categoría
@@ -55,45 +108,57 @@ public class CategoryService {
                 .build();
 
         categoryRepository.save(category);
+        invalidateSnapshot();
         
         log.info("Categoría creada: {} con ID: {}", name, category.getId());
         return category;
     }
 
     /**
-     * Obtiene una categoría por ID
+     * Obtiene una categoría por ID desde el snapshot en memoria
      */
     public Category getCategoryById(String id) throws ExecutionException, InterruptedException {
+        validateCategoryId(id);
+        return currentSnapshot().byId(id);
+    }
+
+    /**
+     * Lee una categoría directamente de Firestore para modificarla
+     */
+    private Category loadCategoryForUpdate(String id) throws ExecutionException, InterruptedException {
+        validateCategoryId(id);
+        return categoryRepository.getCategoryById(id);
+    }
+
+    private void validateCategoryId(String id) {
         if (id == null || id.trim().isEmpty()) {
             throw new IllegalArgumentException("El ID de la categoría no puede estar vacío");
         }
-        
-        return categoryRepository.getCategoryById(id);
     }
 
     /**
-     * Obtiene una categoría por nombre
+     * Obtiene una categoría activa por nombre desde el snapshot en memoria
      */
     public Category getCategoryByName(String name) throws ExecutionException, InterruptedException {
         if (name == null || name.trim().isEmpty()) {
             throw new IllegalArgumentException("El nombre de la categoría no puede estar vacío");
         }
         
-        return categoryRepository.getCategoryByName(name.trim());
+        return currentSnapshot().activeByName(name.trim());
     }
 
     /**
-     * Obtiene todas las categorías activas
+     * Obtiene todas las categorías activas, ya ordenadas por sortOrder y nombre
      */
     public List<Category> getAllActiveCategories() throws ExecutionException, InterruptedException {
-        return categoryRepository.getAllActiveCategories();
+        return currentSnapshot().active();
     }
 
     /**
-     * Obtiene todas las categorías (para administradores)
+     * Obtiene todas las categorías (para administradores), ya ordenadas por sortOrder y nombre
      */
     public List<Category> getAllCategories() throws ExecutionException, InterruptedException {
-        return categoryRepository.getAllCategories();
+        return currentSnapshot().all();
     }
 
     /**
@@ -102,7 +167,7 @@ public class CategoryService {
     public Category updateCategory(String id, String name, String description, String imageUrl, Integer sortOrder) 
             throws ExecutionException, InterruptedException {
         
-        Category category = getCategoryById(id);
+        Category category = loadCategoryForUpdate(id);
         if (category == null) {
             throw new IllegalArgumentException("Categoría no encontrada");
         }
@@ -131,6 +196,7 @@ public class CategoryService {
         category.setUpdatedAt(Timestamp.now());
         
         categoryRepository.update(category);
+        invalidateSnapshot();
         
         log.info("Categoría actualizada: {}", category.getName());
         return category;
@@ -140,7 +206,7 @@ public class CategoryService {
      * Activa o desactiva una categoría
      */
     public Category toggleCategoryStatus(String id) throws ExecutionException, InterruptedException {
-        Category category = getCategoryById(id);
+        Category category = loadCategoryForUpdate(id);
         if (category == null) {
             throw new IllegalArgumentException("Categoría no encontrada");
         }
@@ -149,6 +215,7 @@ public class CategoryService {
         category.setUpdatedAt(Timestamp.now());
         
         categoryRepository.update(category);
+        invalidateSnapshot();
         
         log.info("Categoría {} {}: {}", category.getName(), 
                 category.getActive() ? "activada" : "desactivada", category.getId());
@@ -159,12 +226,13 @@ public class CategoryService {
      * Elimina una categoría (soft delete)
      */
     public void deleteCategory(String id) throws ExecutionException, InterruptedException {
-        Category category = getCategoryById(id);
+        Category category = loadCategoryForUpdate(id);
         if (category == null) {
             throw new IllegalArgumentException("Categoría no encontrada");
         }
         
         categoryRepository.softDelete(id);
+        invalidateSnapshot();
         
         log.info("Categoría eliminada: {}", category.getName());
     }
@@ -189,25 +257,13 @@ public class CategoryService {
     }
 
     public Category updateCategory(String categoryId, CategoryUpdateDTO dto) throws ExecutionException, InterruptedException {
-        updateCategory(categoryId, dto.getName(), dto.getDescription(), dto.getSlug(), 0);
-        return getCategoryById(categoryId);
+        return updateCategory(categoryId, dto.getName(), dto.getDescription(), dto.getSlug(), 0);
     }
 
+    /**
+     * Obtiene una categoría por slug desde el snapshot en memoria
+     */
     public Category getCategoryBySlug(String slug) throws ExecutionException, InterruptedException {
-        ApiFuture<QuerySnapshot> future = firestore.collection("categories")
-            .whereEqualTo("slug", slug)
-            .get();
-        
-        QuerySnapshot querySnapshot = future.get();
-        List<QueryDocumentSnapshot> documents = querySnapshot.getDocuments();
-        
-        if (documents.isEmpty()) {
-            return null;
-        }
-        
-        QueryDocumentSnapshot document = documents.get(0);
-        Category category = document.toObject(Category.class);
-        category.setId(document.getId());
-        return category;
+        return currentSnapshot().bySlug(slug);
     }
 }
\ No newline at end of file
@@ -0,0 +1,77 @@
+package co.edu.uniajc.estudiante.opemay.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import co.edu.uniajc.estudiante.opemay.model.Category;
+
+/**
+ * Vista inmutable y ya ordenada de todas las categorías, con índices por ID, nombre y slug.
+ * Las categorías que expone son compartidas y de sólo lectura: quien necesite modificarlas
+ * debe leerlas del repositorio.
+ */
+final class CategorySnapshot {
+
+    private final List<Category> all;
+    private final List<Category> active;
+    private final Map<String, Category> byId;
+    private final Map<String, Category> activeByName;
+    private final Map<String, Category> bySlug;
+    private final CatalogVersion version;
+
+    /**
+     * @param sortedCategories todas las categorías en orden de presentación (sortOrder, nombre)
+     */
+    CategorySnapshot(List<Category> sortedCategories) {
+        Map<String, Category> ids = new HashMap<>();
+        Map<String, Category> names = new HashMap<>();
+        Map<String, Category> slugs = new HashMap<>();
+        for (Category category : sortedCategories) {
+            if (category.getId() != null) {
+                ids.putIfAbsent(category.getId(), category);
+            }
+            if (category.getSlug() != null) {
+                slugs.putIfAbsent(category.getSlug(), category);
+            }
+            if (Boolean.TRUE.equals(category.getActive()) && category.getName() != null) {
+                names.putIfAbsent(category.getName(), category);
+            }
+        }
+        this.all = List.copyOf(sortedCategories);
+        this.active = sortedCategories.stream()
+                .filter(category -> Boolean.TRUE.equals(category.getActive()))
+                .toList();
+        this.byId = Map.copyOf(ids);
+        this.activeByName = Map.copyOf(names);
+        this.bySlug = Map.copyOf(slugs);
+        this.version = CatalogVersion.of(sortedCategories, Category::getUpdatedAt);
+    }
+
+    CatalogVersion version() {
+        return version;
+    }
+
+    List<Category> all() {
+        return all;
+    }
+
+    List<Category> active() {
+        return active;
+    }
+
+    Category byId(String id) {
+        return byId.get(id);
+    }
+
+    /**
+     * Busca entre las categorías activas, igual que CategoryRepository.getCategoryByName
+     */
+    Category activeByName(String name) {
+        return activeByName.get(name);
+    }
+
+    Category bySlug(String slug) {
+        return bySlug.get(slug);
+    }
+}
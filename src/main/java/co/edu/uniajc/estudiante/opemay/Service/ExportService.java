@@ -0,0 +1,239 @@
+package co.edu.uniajc.estudiante.opemay.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.cloud.Timestamp;
+
+import co.edu.uniajc.estudiante.opemay.IRespository.CartRepository;
+import co.edu.uniajc.estudiante.opemay.IRespository.OrderRepository;
+import co.edu.uniajc.estudiante.opemay.IRespository.UserRepository;
+import co.edu.uniajc.estudiante.opemay.dto.ExportFormat;
+import co.edu.uniajc.estudiante.opemay.model.Cart;
+import co.edu.uniajc.estudiante.opemay.model.Order;
+import co.edu.uniajc.estudiante.opemay.model.OrderStatus;
+import co.edu.uniajc.estudiante.opemay.model.User;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Exporta órdenes, carritos y usuarios en NDJSON o CSV escribiendo cada fila
+ * a medida que llega desde Firestore, con memoria acotada al tamaño del bloque
+ */
+@Service
+@Slf4j
+public class ExportService {
+
+    private static final int FLUSH_EVERY_ROWS = 100;
+
+    private static final Map<String, Function<Order, Object>> ORDER_COLUMNS = new LinkedHashMap<>();
+    private static final Map<String, Function<Cart, Object>> CART_COLUMNS = new LinkedHashMap<>();
+    private static final Map<String, Function<User, Object>> USER_COLUMNS = new LinkedHashMap<>();
+
+    static {
+        ORDER_COLUMNS.put("id", Order::getId);
+        ORDER_COLUMNS.put("userId", Order::getUserId);
+        ORDER_COLUMNS.put("userEmail", Order::getUserEmail);
+        ORDER_COLUMNS.put("status", Order::getStatus);
+        ORDER_COLUMNS.put("paymentStatus", Order::getPaymentStatus);
+        ORDER_COLUMNS.put("paymentMethod", Order::getPaymentMethod);
+        ORDER_COLUMNS.put("totalItems", Order::getTotalItems);
+        ORDER_COLUMNS.put("totalAmount", Order::getTotalAmount);
+        ORDER_COLUMNS.put("shippingCost", Order::getShippingCost);
+        ORDER_COLUMNS.put("discountAmount", Order::getDiscountAmount);
+        ORDER_COLUMNS.put("createdAt", Order::getCreatedAt);
+        ORDER_COLUMNS.put("updatedAt", Order::getUpdatedAt);
+
+        CART_COLUMNS.put("id", Cart::getId);
+        CART_COLUMNS.put("userId", Cart::getUserId);
+        CART_COLUMNS.put("status", Cart::getStatus);
+        CART_COLUMNS.put("totalItems", Cart::getTotalItems);
+        CART_COLUMNS.put("totalAmount", Cart::getTotalAmount);
+        CART_COLUMNS.put("active", Cart::getActive);
+        CART_COLUMNS.put("createdAt", Cart::getCreatedAt);
+        CART_COLUMNS.put("updatedAt", Cart::getUpdatedAt);
+
+        // Nunca se exporta el password
+        USER_COLUMNS.put("id", User::getId);
+        USER_COLUMNS.put("username", User::getUsername);
+        USER_COLUMNS.put("email", User::getEmail);
+        USER_COLUMNS.put("firstName", User::getFirstName);
+        USER_COLUMNS.put("lastName", User::getLastName);
+        USER_COLUMNS.put("enabled", User::getEnabled);
+        USER_COLUMNS.put("roles", user -> user.getRoles() == null ? null : String.join(";", user.getRoles()));
+        USER_COLUMNS.put("createdAt", User::getCreatedAt);
+    }
+
+    private final OrderRepository orderRepository;
+    private final CartRepository cartRepository;
+    private final UserRepository userRepository;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+
+    public ExportService(OrderRepository orderRepository, CartRepository cartRepository,
+                         UserRepository userRepository, ObjectMapper objectMapper,
+                         @Value("${app.export.chunk-size:500}") int chunkSize) {
+        this.orderRepository = orderRepository;
+        this.cartRepository = cartRepository;
+        this.userRepository = userRepository;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Valida y normaliza el filtro de estado de órdenes antes de empezar a escribir
+     */
+    public String normalizeOrderStatus(String status) {
+        if (status == null || status.isBlank()) {
+            return null;
+        }
+        try {
+            return OrderStatus.valueOf(status.trim().toUpperCase()).name();
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Estado de orden inválido: " + status, e);
+        }
+    }
+
+    /**
+     * Escribe las órdenes filtradas. En NDJSON cada línea es la orden completa con sus items;
+     * en CSV se exporta una fila resumen por orden.
+     */
+    public long exportOrders(OutputStream out, ExportFormat format, String status, Timestamp from, Timestamp to)
+            throws IOException, ExecutionException, InterruptedException {
+        try (RowWriter<Order> writer = new RowWriter<>(out, format, ORDER_COLUMNS, order -> order)) {
+            long rows = orderRepository.streamOrders(normalizeOrderStatus(status), from, to, chunkSize, writer::write);
+            log.info("Exportadas {} órdenes en formato {}", rows, format);
+            return rows;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Escribe los carritos filtrados por estado y rango de fechas
+     */
+    public long exportCarts(OutputStream out, ExportFormat format, String status, Timestamp from, Timestamp to)
+            throws IOException, ExecutionException, InterruptedException {
+        String normalizedStatus = status == null || status.isBlank() ? null : status.trim().toUpperCase();
+        try (RowWriter<Cart> writer = new RowWriter<>(out, format, CART_COLUMNS, cart -> cart)) {
+            long rows = cartRepository.streamCarts(normalizedStatus, from, to, chunkSize, writer::write);
+            log.info("Exportados {} carritos en formato {}", rows, format);
+            return rows;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Escribe los usuarios creados en el rango de fechas, sin credenciales
+     */
+    public long exportUsers(OutputStream out, ExportFormat format, Timestamp from, Timestamp to)
+            throws IOException, ExecutionException, InterruptedException {
+        try (RowWriter<User> writer = new RowWriter<>(out, format, USER_COLUMNS, ExportService::toUserRow)) {
+            long rows = userRepository.streamUsers(from, to, chunkSize, writer::write);
+            log.info("Exportados {} usuarios en formato {}", rows, format);
+            return rows;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static Map<String, Object> toUserRow(User user) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", user.getId());
+        row.put("username", user.getUsername());
+        row.put("email", user.getEmail());
+        row.put("firstName", user.getFirstName());
+        row.put("lastName", user.getLastName());
+        row.put("enabled", user.getEnabled());
+        row.put("roles", user.getRoles());
+        row.put("createdAt", formatTimestamp(user.getCreatedAt()));
+        return row;
+    }
+
+    static String formatTimestamp(Timestamp timestamp) {
+        if (timestamp == null) {
+            return null;
+        }
+        Instant instant = Instant.ofEpochSecond(timestamp.getSeconds(), timestamp.getNanos());
+        return DateTimeFormatter.ISO_INSTANT.format(instant);
+    }
+
+    static String escapeCsv(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value instanceof Timestamp timestamp ? formatTimestamp(timestamp) : value.toString();
+        if (text.contains(",") || text.contains("\"") || text.contains("\n") || text.contains("\r")) {
+            return "\"" + text.replace("\"", "\"\"") + "\"";
+        }
+        return text;
+    }
+
+    /**
+     * Escribe filas en el formato pedido, vaciando el buffer periódicamente para que
+     * el cliente reciba datos mientras la consulta sigue avanzando
+     */
+    private final class RowWriter<T> implements AutoCloseable {
+
+        private final Writer writer;
+        private final ExportFormat format;
+        private final Map<String, Function<T, Object>> columns;
+        private final Function<T, Object> jsonView;
+        private long pending;
+
+        RowWriter(OutputStream out, ExportFormat format, Map<String, Function<T, Object>> columns,
+                  Function<T, Object> jsonView) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            this.format = format;
+            this.columns = columns;
+            this.jsonView = jsonView;
+            if (format == ExportFormat.CSV) {
+                writer.write(String.join(",", columns.keySet()));
+                writer.write('\n');
+            }
+        }
+
+        void write(T item) {
+            try {
+                if (format == ExportFormat.CSV) {
+                    StringJoiner line = new StringJoiner(",");
+                    for (Function<T, Object> column : columns.values()) {
+                        line.add(escapeCsv(column.apply(item)));
+                    }
+                    writer.write(line.toString());
+                } else {
+                    writer.write(objectMapper.writeValueAsString(jsonView.apply(item)));
+                }
+                writer.write('\n');
+
+                if (++pending >= FLUSH_EVERY_ROWS) {
+                    writer.flush();
+                    pending = 0;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.flush();
+        }
+    }
+}
@@ -1,17 +1,25 @@
 package co.edu.uniajc.estudiante.opemay.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import javax.crypto.SecretKey;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import co.edu.uniajc.estudiante.opemay.model.User;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.MalformedJwtException;
-import io.jsonwebtoken.UnsupportedJwtException;
 import io.jsonwebtoken.security.Keys;
 import lombok.extern.slf4j.Slf4j;
 
@@ -19,35 +27,108 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class JwtService {
 
-    @Value("${app.jwt.secret:opemaySecretKeyForJWTTokenGeneration2024SecureKey}")
-    private String jwtSecret;
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_USERNAME = "username";
+    public static final String CLAIM_ROLES = "roles";
+
+    private final SecretKey signingKey;
+    private final JwtParser jwtParser;
+    private final int verifiedCacheSize;
 
-    @Value("${app.jwt.expiration:86400000}") // 24 horas en milisegundos
     private long jwtExpirationMs;
 
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes());
+    /**
+     * Tokens ya verificados, indexados por el SHA-256 del token. Evita repetir
+     * el HMAC y el parseo cuando el mismo token llega en varias peticiones
+     */
+    private final Map<String, VerifiedToken> verifiedTokens;
+
+    /**
+     * Claims de un token cuya firma y expiración ya fueron verificadas.
+     * userId, username y roles son null en tokens emitidos antes de incluir esos claims
+     */
+    public record VerifiedToken(String subject, String userId, String username, List<String> roles,
+                                Date issuedAt, Date expiration, Claims claims) {
+
+        public boolean isExpired() {
+            return expiration != null && expiration.before(new Date());
+        }
+
+        /**
+         * Indica si el token trae los claims necesarios para construir el principal sin consultar la base de datos
+         */
+        public boolean hasUserClaims() {
+            return userId != null && roles != null;
+        }
+    }
+
+    public JwtService(
+            @Value("${app.jwt.secret:opemaySecretKeyForJWTTokenGeneration2024SecureKey}") String jwtSecret,
+            @Value("${app.jwt.expiration:86400000}") long jwtExpirationMs, // 24 horas en milisegundos
+            @Value("${app.jwt.verified-cache-size:10000}") int verifiedCacheSize) {
+        this.signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        this.jwtParser = Jwts.parser().verifyWith(signingKey).build();
+        this.jwtExpirationMs = jwtExpirationMs;
+        this.verifiedCacheSize = verifiedCacheSize;
+        this.verifiedTokens = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, VerifiedToken> eldest) {
+                return size() > JwtService.this.verifiedCacheSize;
+            }
+        };
     }
 
     public String generateTokenFromUsername(String username) {
         Date expiryDate = new Date(System.currentTimeMillis() + jwtExpirationMs);
-        
+
         return Jwts.builder()
                 .subject(username)
                 .issuedAt(new Date())
                 .expiration(expiryDate)
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .compact();
     }
 
     public String generateTokenFromEmail(String email) {
         Date expiryDate = new Date(System.currentTimeMillis() + jwtExpirationMs);
-        
+
         return Jwts.builder()
                 .subject(email)
                 .issuedAt(new Date())
                 .expiration(expiryDate)
-                .signWith(getSigningKey())
+                .signWith(signingKey)
+                .compact();
+    }
+
+    /**
+     * Genera un token con el email como subject y el ID, username y roles del usuario como claims,
+     * para que las peticiones autenticadas no tengan que consultar la base de datos
+     */
+    public String generateTokenForUser(User user) {
+        return buildUserToken(user.getEmail(), user.getId(), user.getUsername(),
+                user.getRoles() != null ? user.getRoles() : List.of("USER"));
+    }
+
+    /**
+     * Emite un token nuevo con los mismos datos de usuario que uno ya verificado
+     */
+    public String refreshToken(VerifiedToken token) {
+        if (!token.hasUserClaims()) {
+            return generateTokenFromUsername(token.subject());
+        }
+        return buildUserToken(token.subject(), token.userId(), token.username(), token.roles());
+    }
+
+    private String buildUserToken(String subject, String userId, String username, List<String> roles) {
+        Date now = new Date();
+        return Jwts.builder()
+                .subject(subject)
+                .claim(CLAIM_USER_ID, userId)
+                .claim(CLAIM_USERNAME, username)
+                .claim(CLAIM_ROLES, roles)
+                .issuedAt(now)
+                .expiration(new Date(now.getTime() + jwtExpirationMs))
+                .signWith(signingKey)
                 .compact();
     }
 
@@ -56,30 +137,69 @@ public class JwtService {
         return generateTokenFromUsername(username);
     }
 
+    /**
+     * Verifica firma y expiración del token una sola vez y devuelve sus claims.
+     * Los tokens válidos se guardan en una caché acotada hasta que expiran.
+     * La revocación por usuario no se verifica aquí sino en UserService.isSessionCurrent
+     *
+     * @throws JwtException si el token es inválido, tiene otra firma o expiró
+     * @throws IllegalArgumentException si el token es nulo o vacío
+     */
+    public VerifiedToken verifyToken(String token) {
+        if (token == null || token.isBlank()) {
+            throw new IllegalArgumentException("El token JWT no puede estar vacío");
+        }
+
+        String key = hash(token);
+        VerifiedToken cached;
+        synchronized (verifiedTokens) {
+            cached = verifiedTokens.get(key);
+        }
+        if (cached != null) {
+            if (!cached.isExpired()) {
+                return cached;
+            }
+            synchronized (verifiedTokens) {
+                verifiedTokens.remove(key);
+            }
+            throw new ExpiredJwtException(null, cached.claims(), "JWT expired at " + cached.expiration());
+        }
+
+        Claims claims = jwtParser.parseSignedClaims(token).getPayload();
+        VerifiedToken verified = new VerifiedToken(
+                claims.getSubject(),
+                claims.get(CLAIM_USER_ID, String.class),
+                claims.get(CLAIM_USERNAME, String.class),
+                rolesFrom(claims),
+                claims.getIssuedAt(),
+                claims.getExpiration(),
+                claims);
+        synchronized (verifiedTokens) {
+            verifiedTokens.put(key, verified);
+        }
+        return verified;
+    }
+
+    private static List<String> rolesFrom(Claims claims) {
+        Object roles = claims.get(CLAIM_ROLES);
+        if (!(roles instanceof List<?> list)) {
+            return null;
+        }
+        return list.stream().map(String::valueOf).toList();
+    }
+
     public String getUsernameFromToken(String token) {
-        Claims claims = Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-        return claims.getSubject();
+        return verifyToken(token).subject();
     }
 
     public boolean validateToken(String token) {
         try {
-            Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token);
+            verifyToken(token);
             return true;
-        } catch (SecurityException ex) {
-            log.error("Invalid JWT signature: {}", ex.getMessage());
-        } catch (MalformedJwtException ex) {
-            log.error("Invalid JWT token: {}", ex.getMessage());
         } catch (ExpiredJwtException ex) {
             log.error("JWT token is expired: {}", ex.getMessage());
-        } catch (UnsupportedJwtException ex) {
-            log.error("JWT token is unsupported: {}", ex.getMessage());
+        } catch (JwtException ex) {
+            log.error("Invalid JWT token: {}", ex.getMessage());
         } catch (IllegalArgumentException ex) {
             log.error("JWT claims string is empty: {}", ex.getMessage());
         }
@@ -87,16 +207,19 @@ public class JwtService {
     }
 
     public Date getExpirationDateFromToken(String token) {
-        Claims claims = Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-        return claims.getExpiration();
+        return verifyToken(token).expiration();
     }
 
     public boolean isTokenExpired(String token) {
-        Date expiration = getExpirationDateFromToken(token);
-        return expiration.before(new Date());
+        return verifyToken(token).isExpired();
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
     }
 }
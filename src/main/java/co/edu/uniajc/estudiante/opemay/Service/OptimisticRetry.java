@@ -0,0 +1,93 @@
+package co.edu.uniajc.estudiante.opemay.Service;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import co.edu.uniajc.estudiante.opemay.IRespository.ConcurrentUpdateException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Reintenta un ciclo leer-modificar-escribir cuando la escritura choca con otra
+ * (ConcurrentUpdateException). Cada intento debe volver a leer el documento. Entre intentos
+ * se espera un tiempo aleatorio que crece exponencialmente, para que las peticiones que
+ * chocaron no vuelvan a coincidir.
+ */
+@Component
+@Slf4j
+public class OptimisticRetry {
+
+    static final String METRIC_CONFLICTS = "opemay.concurrency.conflicts";
+
+    /**
+     * Un intento de leer-modificar-escribir
+     */
+    @FunctionalInterface
+    public interface Attempt<T> {
+        T run() throws ExecutionException, InterruptedException;
+    }
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.concurrency.max-attempts:4}")
+    private int maxAttempts = 4;
+
+    /**
+     * Tope de la espera tras el primer conflicto; se duplica en cada intento
+     */
+    @Value("${app.concurrency.base-backoff:25ms}")
+    private Duration baseBackoff = Duration.ofMillis(25);
+
+    /**
+     * Ejecuta el intento hasta que escriba sin conflicto o se agoten los intentos
+     *
+     * @throws ConcurrentUpdateException si el último intento también chocó
+     */
+    public <T> T run(Attempt<T> attempt) throws ExecutionException, InterruptedException {
+        for (int attemptNumber = 1; ; attemptNumber++) {
+            try {
+                return attempt.run();
+            } catch (ConcurrentUpdateException conflict) {
+                boolean exhausted = attemptNumber >= maxAttempts;
+                recordConflict(conflict, exhausted ? "exhausted" : "retried");
+                if (exhausted) {
+                    log.warn("Conflicto de escritura sin resolver tras {} intentos: {}", attemptNumber,
+                            conflict.getMessage());
+                    throw conflict;
+                }
+                long backoff = backoffNanos(attemptNumber);
+                log.debug("Conflicto en {}/{}, reintento {} en {} ms", conflict.getCollection(),
+                        conflict.getDocumentId(), attemptNumber + 1, TimeUnit.NANOSECONDS.toMillis(backoff));
+                TimeUnit.NANOSECONDS.sleep(backoff);
+            }
+        }
+    }
+
+    /**
+     * Espera aleatoria entre 0 y baseBackoff·2^(intento-1)
+     */
+    long backoffNanos(int attemptNumber) {
+        long ceiling = baseBackoff.toNanos() << Math.min(attemptNumber - 1, 10);
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private void recordConflict(ConcurrentUpdateException conflict, String outcome) {
+        if (meterRegistry == null) {
+            return;
+        }
+        Counter.builder(METRIC_CONFLICTS)
+                .description("Escrituras rechazadas porque el documento cambió desde su lectura")
+                .tag("collection", conflict.getCollection())
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+}
@@ -0,0 +1,35 @@
+package co.edu.uniajc.estudiante.opemay.Service;
+
+import java.util.concurrent.ExecutionException;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Compacta periódicamente los agregados horarios antiguos en agregados diarios
+ */
+@Component
+@ConditionalOnProperty(name = "firebase.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class OrderRollupCompactionJob {
+
+    private final OrderRollupService orderRollupService;
+
+    @Scheduled(cron = "${app.rollups.compaction-cron:0 15 * * * *}")
+    public void compact() {
+        try {
+            int compacted = orderRollupService.compactHourlyRollups();
+            log.info("Job de compactación completado: {} intervalos horarios", compacted);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Job de compactación interrumpido: {}", e.getMessage());
+        } catch (ExecutionException e) {
+            log.error("Error en el job de compactación: {}", e.getMessage());
+        }
+    }
+}
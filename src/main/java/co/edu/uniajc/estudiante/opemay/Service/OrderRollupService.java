@@ -0,0 +1,93 @@
+package co.edu.uniajc.estudiante.opemay.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.google.cloud.Timestamp;
+
+import co.edu.uniajc.estudiante.opemay.IRespository.OrderRollupRepository;
+import co.edu.uniajc.estudiante.opemay.dto.RollupReport;
+import co.edu.uniajc.estudiante.opemay.model.OrderRollup;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Consultas de ingresos, volumen de órdenes y unidades vendidas por intervalo.
+ * Sólo lee documentos de agregados, nunca la colección de órdenes.
+ */
+@Service
+@Slf4j
+public class OrderRollupService {
+
+    private final OrderRollupRepository rollupRepository;
+    private final int hourlyRetentionDays;
+
+    public OrderRollupService(OrderRollupRepository rollupRepository,
+                              @Value("${app.rollups.hourly-retention-days:7}") int hourlyRetentionDays) {
+        this.rollupRepository = rollupRepository;
+        this.hourlyRetentionDays = hourlyRetentionDays;
+    }
+
+    /**
+     * Devuelve los agregados del rango [from, to) con la granularidad pedida (HOUR o DAY).
+     * Los días ya compactados sólo tienen resolución diaria aunque se pida HOUR.
+     */
+    public RollupReport getRollups(Instant from, Instant to, String granularity)
+            throws ExecutionException, InterruptedException {
+        if (from == null || to == null || !from.isBefore(to)) {
+            throw new IllegalArgumentException("El rango debe tener 'from' anterior a 'to'");
+        }
+        String resolved = granularity == null || granularity.isBlank() ? OrderRollup.DAY : granularity.trim().toUpperCase();
+        if (!OrderRollup.HOUR.equals(resolved) && !OrderRollup.DAY.equals(resolved)) {
+            throw new IllegalArgumentException("Granularidad no soportada: " + granularity);
+        }
+
+        List<OrderRollup> rollups = rollupRepository.getRollups(from, to);
+        List<OrderRollup> buckets = OrderRollup.DAY.equals(resolved) ? groupByDay(rollups) : rollups;
+
+        OrderRollup totals = OrderRollup.builder().build();
+        buckets.forEach(totals::add);
+
+        return RollupReport.builder()
+                .from(from)
+                .to(to)
+                .granularity(resolved)
+                .buckets(buckets)
+                .totals(totals)
+                .build();
+    }
+
+    /**
+     * Funde en días los intervalos horarios más antiguos que la retención configurada
+     */
+    public int compactHourlyRollups() throws ExecutionException, InterruptedException {
+        return rollupRepository.compactHourlyBefore(Instant.now().minus(Duration.ofDays(hourlyRetentionDays)));
+    }
+
+    private List<OrderRollup> groupByDay(List<OrderRollup> rollups) {
+        Map<String, OrderRollup> days = new LinkedHashMap<>();
+        for (OrderRollup rollup : rollups) {
+            OrderRollup day = days.computeIfAbsent(rollup.getDayId(), dayId -> OrderRollup.builder()
+                    .id(dayId)
+                    .granularity(OrderRollup.DAY)
+                    .dayId(dayId)
+                    .bucketStart(dayStart(dayId))
+                    .build());
+            day.add(rollup);
+        }
+        return new ArrayList<>(days.values());
+    }
+
+    private Timestamp dayStart(String dayId) {
+        Instant start = LocalDate.parse(dayId).atStartOfDay(rollupRepository.getZone()).toInstant();
+        return Timestamp.ofTimeSecondsAndNanos(start.getEpochSecond(), start.getNano());
+    }
+}
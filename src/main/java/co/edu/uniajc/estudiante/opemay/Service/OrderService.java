@@ -1,25 +1,40 @@
 package co.edu.uniajc.estudiante.opemay.Service;
 
+import java.time.Duration;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import com.google.cloud.Timestamp;
 
 import co.edu.uniajc.estudiante.opemay.IRespository.CartRepository;
+import co.edu.uniajc.estudiante.opemay.IRespository.ConcurrentUpdateException;
 import co.edu.uniajc.estudiante.opemay.IRespository.OrderRepository;
 import co.edu.uniajc.estudiante.opemay.IRespository.ProductRepository;
 import co.edu.uniajc.estudiante.opemay.dto.CreateOrderRequest;
+import co.edu.uniajc.estudiante.opemay.dto.PageResponse;
 import co.edu.uniajc.estudiante.opemay.model.Cart;
 import co.edu.uniajc.estudiante.opemay.model.CartItem;
 import co.edu.uniajc.estudiante.opemay.model.Order;
 import co.edu.uniajc.estudiante.opemay.model.OrderItem;
+import co.edu.uniajc.estudiante.opemay.model.OrderStatistics;
 import co.edu.uniajc.estudiante.opemay.model.OrderStatus;
 import co.edu.uniajc.estudiante.opemay.model.PaymentStatus;
 import co.edu.uniajc.estudiante.opemay.model.Product;
 import co.edu.uniajc.estudiante.opemay.model.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
@@ -32,41 +47,99 @@ public class OrderService {
     private final CartRepository cartRepository;
     private final ProductRepository productRepository;
     private final UserService userService;
+    private final OptimisticRetry optimisticRetry;
+
+    private static final String METRIC_CHECKOUT = "opemay.orders.checkout";
+    private static final String METRIC_CHECKOUT_PHASE = "opemay.orders.checkout.phase";
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    /**
+     * Tiempo máximo para las lecturas del checkout; pasado este plazo no se reserva stock
+     */
+    @Value("${app.orders.checkout.deadline:5s}")
+    private Duration checkoutDeadline = Duration.ofSeconds(5);
 
     /**
      * Crea una orden desde un carrito
      */
     public Order createOrderFromCart(String cartId, String deliveryAddress, String paymentMethod) 
             throws ExecutionException, InterruptedException {
-        
+        return checkout(cartId, null, deliveryAddress, paymentMethod);
+    }
+
+    /**
+     * Checkout con las lecturas independientes en paralelo. El carrito va primero porque de él
+     * salen el usuario y los productos; después usuario y productos se leen a la vez. Si el
+     * usuario ya se conoce, su lectura arranca junto con la del carrito. Si una lectura falla
+     * se cancelan las demás, y todas comparten el deadline de la petición.
+     *
+     * @param expectedUserId dueño probable del carrito para adelantar su lectura, o null
+     */
+    private Order checkout(String cartId, String expectedUserId, String deliveryAddress, String paymentMethod)
+            throws ExecutionException, InterruptedException {
+
         log.info("Creando orden desde carrito ID: {}", cartId);
-        
-        // Obtener el carrito
-        Cart cart = cartRepository.getCartById(cartId);
-        if (cart == null || !cart.getActive()) {
-            throw new IllegalArgumentException("Carrito no encontrado o inactivo");
+        long startedAt = System.nanoTime();
+        long deadline = startedAt + checkoutDeadline.toNanos();
+        String outcome = "error";
+        try {
+            Order order = placeOrder(cartId, expectedUserId, deliveryAddress, paymentMethod, startedAt, deadline);
+            outcome = "success";
+            return order;
+        } finally {
+            recordCheckout(outcome, startedAt);
         }
+    }
 
-        if (cart.getItems().isEmpty()) {
-            throw new IllegalArgumentException("El carrito está vacío");
+    private Order placeOrder(String cartId, String expectedUserId, String deliveryAddress, String paymentMethod,
+            long startedAt, long deadline) throws ExecutionException, InterruptedException {
+
+        // ====== FASE 1: CARRITO (y usuario, si ya se conoce) ======
+        CompletableFuture<Cart> cartRead = cartRepository.getCartByIdAsync(cartId);
+        CompletableFuture<User> userRead = expectedUserId != null ? userService.getUserByIdAsync(expectedUserId) : null;
+        Cart cart;
+        try {
+            awaitAll(deadline, cartRead);
+            cart = cartRead.join();
+            if (cart == null || !cart.getActive()) {
+                throw new IllegalArgumentException("Carrito no encontrado o inactivo");
+            }
+            if (cart.getItems().isEmpty()) {
+                throw new IllegalArgumentException("El carrito está vacío");
+            }
+        } catch (ExecutionException | InterruptedException | RuntimeException e) {
+            cancelAll(userRead);
+            throw e;
         }
+        long phaseStart = recordPhase("cart", startedAt);
 
-        // ====== BUSCAR INFORMACIÓN COMPLETA DEL USUARIO ======
-        log.info("🔸 [USUARIO] Buscando información del usuario desde el carrito...");
-        User user = userService.getUserById(cart.getUserId());
+        // ====== FASE 2: USUARIO Y PRODUCTOS EN PARALELO ======
+        if (userRead != null && !cart.getUserId().equals(expectedUserId)) {
+            // La lectura anticipada apostó por otro usuario; la orden siempre es del dueño del carrito
+            userRead.cancel(true);
+            userRead = null;
+        }
+        if (userRead == null) {
+            userRead = userService.getUserByIdAsync(cart.getUserId());
+        }
+        CompletableFuture<Map<String, Product>> productsRead = productRepository.getProductsByIdsAsync(
+                cart.getItems().stream().map(CartItem::getProductId).toList());
+        awaitAll(deadline, userRead, productsRead);
+        phaseStart = recordPhase("reads", phaseStart);
+
+        User user = userRead.join();
         if (user == null) {
             throw new IllegalArgumentException("Usuario no encontrado con ID: " + cart.getUserId());
         }
-        
-        log.info("✅ [USUARIO] Usuario encontrado:");
-        log.info("✅ [USUARIO] ID: {}", user.getId());
-        log.info("✅ [USUARIO] Username: {}", user.getUsername());
-        log.info("✅ [USUARIO] Email: {}", user.getEmail());
-        log.info("✅ [USUARIO] Nombre completo: {} {}", user.getFirstName(), user.getLastName());
+        log.info("✅ [USUARIO] Usuario {} ({}) encontrado para el carrito {}", user.getId(), user.getEmail(), cartId);
+
+        Map<String, Product> products = productsRead.join();
 
         // Validar stock de todos los productos
         for (CartItem cartItem : cart.getItems()) {
-            Product product = productRepository.getProductById(cartItem.getProductId());
+            Product product = products.get(cartItem.getProductId());
             if (product == null || !product.getActive()) {
                 throw new IllegalArgumentException("Producto no encontrado o inactivo: " + cartItem.getProductId());
             }
@@ -105,7 +178,7 @@ public class OrderService {
 
         // Convertir items del carrito a items de orden
         for (CartItem cartItem : cart.getItems()) {
-            Product product = productRepository.getProductById(cartItem.getProductId());
+            Product product = products.get(cartItem.getProductId());
             
             OrderItem orderItem = OrderItem.builder()
                     .productId(cartItem.getProductId())
@@ -113,6 +186,8 @@ public class OrderService {
                     .quantity(cartItem.getQuantity())
                     .price(cartItem.getPrice())
                     .imageUrl(product.getImageUrl())
+                    .categoryId(product.getCategoryId())
+                    .categoryName(product.getCategoryName())
                     .build();
             
             order.getItems().add(orderItem);
@@ -121,25 +196,110 @@ public class OrderService {
         // Calcular totales
         order.calculateTotals();
 
-        // Guardar la orden
-        orderRepository.save(order);
-
-        // Actualizar stock de productos y desactivar carrito
-        for (CartItem cartItem : cart.getItems()) {
-            Product product = productRepository.getProductById(cartItem.getProductId());
-            product.setStock(product.getStock() - cartItem.getQuantity());
-            productRepository.save(product);
+        // Descontar stock de forma atómica (falla si otra compra se llevó el stock)
+        Map<String, Integer> quantities = toStockQuantities(cart.getItems().stream()
+                .map(item -> Map.entry(item.getProductId(), item.getQuantity())).toList());
+        // Pasado el deadline no se reserva stock: la petición ya se da por fallida
+        if (System.nanoTime() - deadline > 0) {
+            throw new ExecutionException("Tiempo agotado antes de reservar stock para el carrito " + cartId,
+                    new TimeoutException());
         }
+        productRepository.decrementStock(quantities);
+        phaseStart = recordPhase("stock", phaseStart);
 
-        // Marcar carrito como completado
+        // Cerrar el carrito y guardar la orden en una sola transacción, condicionada a la versión
+        // del carrito leída en la fase 1. Si otra pestaña lo cambió u otro checkout ya lo cerró,
+        // no se guarda nada y se devuelve el stock reservado
         cart.setStatus("COMPLETED");
         cart.setUpdatedAt(Timestamp.now());
-        cartRepository.update(cart);
+        try {
+            cartRepository.checkout(cart, transaction -> orderRepository.stageSave(transaction, order));
+        } catch (ConcurrentUpdateException e) {
+            log.warn("El carrito {} cambió durante el checkout, restaurando stock reservado", cartId);
+            productRepository.restoreStock(quantities);
+            throw e;
+        } catch (ExecutionException | InterruptedException | RuntimeException e) {
+            log.error("Error guardando orden {}, restaurando stock reservado", order.getId());
+            productRepository.restoreStock(quantities);
+            throw e;
+        }
+        recordPhase("save", phaseStart);
 
         log.info("Orden creada exitosamente con ID: {}", order.getId());
         return order;
     }
 
+    /**
+     * Espera todas las lecturas hasta el deadline. Ante el primer error o al agotarse el tiempo
+     * cancela las que siguen en curso, sin esperar a que terminen
+     */
+    private static void awaitAll(long deadline, CompletableFuture<?>... reads)
+            throws ExecutionException, InterruptedException {
+        AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+        for (CompletableFuture<?> read : reads) {
+            read.whenComplete((value, error) -> {
+                if (error != null && firstFailure.compareAndSet(null, unwrap(error))) {
+                    cancelAll(reads);
+                }
+            });
+        }
+        try {
+            CompletableFuture.allOf(reads).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            cancelAll(reads);
+            throw new ExecutionException("Tiempo agotado esperando las lecturas del checkout", e);
+        } catch (InterruptedException e) {
+            cancelAll(reads);
+            throw e;
+        } catch (ExecutionException e) {
+            // allOf puede reportar la cancelación de una hermana; interesa el error que la provocó
+            Throwable cause = firstFailure.get() != null ? firstFailure.get() : unwrap(e.getCause());
+            if (cause instanceof IllegalArgumentException illegalArgument) {
+                throw illegalArgument;
+            }
+            throw new ExecutionException("Error en las lecturas del checkout", cause);
+        }
+    }
+
+    private static void cancelAll(CompletableFuture<?>... reads) {
+        for (CompletableFuture<?> read : reads) {
+            if (read != null) {
+                read.cancel(true);
+            }
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    /**
+     * Registra la duración de una fase del checkout y devuelve el inicio de la siguiente
+     */
+    private long recordPhase(String phase, long phaseStart) {
+        long now = System.nanoTime();
+        if (meterRegistry != null) {
+            Timer.builder(METRIC_CHECKOUT_PHASE)
+                    .description("Duración de cada fase del checkout")
+                    .tag("phase", phase)
+                    .register(meterRegistry)
+                    .record(now - phaseStart, TimeUnit.NANOSECONDS);
+        }
+        return now;
+    }
+
+    private void recordCheckout(String outcome, long startedAt) {
+        long elapsed = System.nanoTime() - startedAt;
+        log.debug("Checkout terminado ({}) en {} ms", outcome, TimeUnit.NANOSECONDS.toMillis(elapsed));
+        if (meterRegistry != null) {
+            Timer.builder(METRIC_CHECKOUT)
+                    .description("Duración total del checkout")
+                    .tag("outcome", outcome)
+                    .register(meterRegistry)
+                    .record(elapsed, TimeUnit.NANOSECONDS);
+        }
+    }
+
     /**
      * Obtiene una orden por su ID
      */
@@ -155,27 +315,41 @@ public class OrderService {
     }
 
     /**
-     * Obtiene todas las órdenes (para administradores)
+     * Obtiene una página de órdenes (para administradores)
      */
-    public List<Order> getAllOrders() throws ExecutionException, InterruptedException {
-        return orderRepository.getAllOrders();
+    public PageResponse<Order> getAllOrders(String cursor, Integer size) throws ExecutionException, InterruptedException {
+        return orderRepository.getOrdersPage(cursor, size);
     }
 
     /**
-     * Obtiene órdenes por estado
+     * Obtiene una página de órdenes por estado
+     *
+     * @throws IllegalArgumentException si el estado no existe
      */
-    public List<Order> getOrdersByStatus(String status) throws ExecutionException, InterruptedException {
-        return orderRepository.getOrdersByStatus(status);
+    public PageResponse<Order> getOrdersByStatus(String status, String cursor, Integer size)
+            throws ExecutionException, InterruptedException {
+        OrderStatus orderStatus;
+        try {
+            orderStatus = OrderStatus.valueOf(status.trim().toUpperCase());
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new IllegalArgumentException("Estado de orden inválido: " + status);
+        }
+        return getOrdersByStatus(orderStatus, cursor, size);
     }
 
     /**
-     * Actualiza el estado de una orden
+     * Actualiza el estado de una orden. Si otra escritura la modificó mientras tanto,
+     * se vuelve a leer y a validar la transición
      */
     public Order updateOrderStatus(String orderId, String newStatus) 
             throws ExecutionException, InterruptedException {
         
         log.info("Actualizando estado de orden {} a {}", orderId, newStatus);
-        
+        return optimisticRetry.run(() -> applyStatusUpdate(orderId, newStatus));
+    }
+
+    private Order applyStatusUpdate(String orderId, String newStatus)
+            throws ExecutionException, InterruptedException {
         Order order = orderRepository.getOrderById(orderId);               
         if (order == null) {
             throw new IllegalArgumentException("Orden no encontrada");
@@ -187,6 +361,7 @@ public class OrderService {
                 order.getStatus() + " -> " + newStatus);
         }
 
+        OrderStatus previousStatus = order.getStatus();
         order.updateStatus(newStatus);
         
         // Actualizar timestamps según el estado
@@ -206,14 +381,18 @@ public class OrderService {
                 break;
             case "CANCELLED":
                 order.updateStatus("CANCELLED");
-                // Restaurar stock si la orden se cancela antes de enviar
-                if (List.of("PENDING", "CONFIRMED", "PROCESSING").contains(order.getStatus())) {
-                    restoreStock(order);
-                }
                 break;
         }
 
-        orderRepository.update(order);
+        // La orden y los contadores de estadísticas se escriben en la misma transacción
+        orderRepository.updateStatus(order, previousStatus);
+
+        // Restaurar stock si la orden se cancela antes de enviar
+        if (order.getStatus() == OrderStatus.CANCELLED
+                && List.of(OrderStatus.PENDING, OrderStatus.CONFIRMED, OrderStatus.PROCESSING).contains(previousStatus)) {
+            restoreStock(order);
+        }
+
         log.info("Estado de orden {} actualizado a {}", orderId, newStatus);
         return order;
     }
@@ -225,7 +404,10 @@ public class OrderService {
             throws ExecutionException, InterruptedException {
         
         log.info("Cancelando orden: {}", orderId);
-        
+        return optimisticRetry.run(() -> applyCancellation(orderId));
+    }
+
+    private Order applyCancellation(String orderId) throws ExecutionException, InterruptedException {
         Order order = orderRepository.getOrderById(orderId);
         if (order == null) {
             throw new IllegalArgumentException("Orden no encontrada");
@@ -236,13 +418,14 @@ public class OrderService {
                 order.getStatus());
         }
 
-        order.updateStatus("CANCELLED");
+        OrderStatus previousStatus = order.getStatus();
         order.updateStatus("CANCELLED");
 
-        // Restaurar stock
+        orderRepository.updateStatus(order, previousStatus);
+
+        // Restaurar stock una vez confirmada la cancelación
         restoreStock(order);
 
-        orderRepository.update(order);
         log.info("Orden {} cancelada exitosamente", orderId);
         return order;
     }
@@ -255,54 +438,62 @@ public class OrderService {
         
         log.info("Actualizando estado de pago de orden {} a {}", orderId, paymentStatus);
         
-        Order order = orderRepository.getOrderById(orderId);
-        if (order == null) {
-            throw new IllegalArgumentException("Orden no encontrada");
-        }
+        return optimisticRetry.run(() -> {
+            Order order = orderRepository.getOrderById(orderId);
+            if (order == null) {
+                throw new IllegalArgumentException("Orden no encontrada");
+            }
 
-        order.setPaymentStatus(PaymentStatus.valueOf(paymentStatus));
-        if ("COMPLETED".equals(paymentStatus)) {
-            order.setPaymentStatus(PaymentStatus.PAID);
-            order.setUpdatedAt(Timestamp.now());
-        }
+            order.setPaymentStatus(PaymentStatus.valueOf(paymentStatus));
+            if ("COMPLETED".equals(paymentStatus)) {
+                order.setPaymentStatus(PaymentStatus.PAID);
+                order.setUpdatedAt(Timestamp.now());
+            }
 
-        orderRepository.update(order);
-        return order;
+            orderRepository.update(order);
+            return order;
+        });
     }
 
     /**
-     * Obtiene estadísticas de órdenes
+     * Obtiene estadísticas de órdenes leyendo el documento de contadores.
+     * Si nunca se ha reconstruido (no existe, o sólo tiene los incrementos de las órdenes
+     * creadas después de desplegar los contadores) se construye a partir de la colección.
      */
     public OrderStats getOrderStats() throws ExecutionException, InterruptedException {
-        List<Order> allOrders = orderRepository.getAllOrders();
-        
-        OrderStats stats = new OrderStats();
-        stats.setTotalOrders(allOrders.size());
-        
-        for (Order order : allOrders) {
-            switch (order.getStatus()) {
-                case PENDING:
-                    stats.setPendingOrders(stats.getPendingOrders() + 1);
-                    break;
-                case CONFIRMED:
-                    stats.setConfirmedOrders(stats.getConfirmedOrders() + 1);
-                    break;
-                case PROCESSING:
-                    stats.setProcessingOrders(stats.getProcessingOrders() + 1);
-                    break;
-                case SHIPPED:
-                    stats.setShippedOrders(stats.getShippedOrders() + 1);
-                    break;
-                case DELIVERED:
-                    stats.setDeliveredOrders(stats.getDeliveredOrders() + 1);
-                    stats.setTotalRevenue(stats.getTotalRevenue() + order.getTotalAmount());
-                    break;
-                case CANCELLED:
-                    stats.setCancelledOrders(stats.getCancelledOrders() + 1);
-                    break;
+        OrderStatistics statistics = orderRepository.getOrderStatistics();
+        if (statistics == null || statistics.getRebuiltAt() == null) {
+            log.info("Estadísticas de órdenes sin reconstruir, reconstruyendo");
+            try {
+                statistics = orderRepository.rebuildOrderStatistics();
+            } catch (IllegalStateException e) {
+                if (statistics == null) {
+                    throw e;
+                }
+                // Se reintenta en la siguiente consulta; mientras tanto, los contadores incrementales
+                log.warn("No se pudieron reconstruir las estadísticas de órdenes: {}", e.getMessage());
             }
         }
-        
+        return toOrderStats(statistics);
+    }
+
+    /**
+     * Recalcula las estadísticas desde cero (job programado y endpoint de administración)
+     */
+    public OrderStats rebuildOrderStats() throws ExecutionException, InterruptedException {
+        return toOrderStats(orderRepository.rebuildOrderStatistics());
+    }
+
+    private OrderStats toOrderStats(OrderStatistics statistics) {
+        OrderStats stats = new OrderStats();
+        stats.setTotalOrders(statistics.getTotalOrders() == null ? 0 : statistics.getTotalOrders().intValue());
+        stats.setPendingOrders((int) statistics.getCount(OrderStatus.PENDING));
+        stats.setConfirmedOrders((int) statistics.getCount(OrderStatus.CONFIRMED));
+        stats.setProcessingOrders((int) statistics.getCount(OrderStatus.PROCESSING));
+        stats.setShippedOrders((int) statistics.getCount(OrderStatus.SHIPPED));
+        stats.setDeliveredOrders((int) statistics.getCount(OrderStatus.DELIVERED));
+        stats.setCancelledOrders((int) statistics.getCount(OrderStatus.CANCELLED));
+        stats.setTotalRevenue(statistics.getTotalRevenue() == null ? 0.0 : statistics.getTotalRevenue());
         return stats;
     }
 
@@ -337,13 +528,19 @@ public class OrderService {
     private void restoreStock(Order order) throws ExecutionException, InterruptedException {
         log.info("Restaurando stock para orden cancelada: {}", order.getId());
         
-        for (OrderItem item : order.getItems()) {
-            Product product = productRepository.getProductById(item.getProductId());
-            if (product != null) {
-                product.setStock(product.getStock() + item.getQuantity());
-                productRepository.save(product);
-            }
+        productRepository.restoreStock(toStockQuantities(order.getItems().stream()
+                .map(item -> Map.entry(item.getProductId(), item.getQuantity())).toList()));
+    }
+
+    /**
+     * Agrupa las cantidades por producto para aplicarlas en una sola transacción
+     */
+    private Map<String, Integer> toStockQuantities(List<Map.Entry<String, Integer>> lines) {
+        Map<String, Integer> quantities = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> line : lines) {
+            quantities.merge(line.getKey(), line.getValue(), Integer::sum);
         }
+        return quantities;
     }
 
     /**
@@ -433,7 +630,7 @@ public class OrderService {
 
     public Order createOrder(String cartId, String userId, String shippingAddress, String paymentMethod)
             throws ExecutionException, InterruptedException {
-        return createOrderFromCart(cartId, shippingAddress, paymentMethod);
+        return checkout(cartId, userId, shippingAddress, paymentMethod);
     }
 
     public Order updateOrderStatus(String orderId, OrderStatus newStatus) 
@@ -446,24 +643,24 @@ public class OrderService {
         
         log.info("Actualizando estado de pago de orden {} a {}", orderId, newPaymentStatus);
         
-        Order order = orderRepository.getOrderById(orderId);
-        if (order == null) {
-            throw new IllegalArgumentException("Orden no encontrada");
-        }
+        Order order = optimisticRetry.run(() -> {
+            Order current = orderRepository.getOrderById(orderId);
+            if (current == null) {
+                throw new IllegalArgumentException("Orden no encontrada");
+            }
 
-        order.setPaymentStatus(newPaymentStatus);
-        order.setUpdatedAt(Timestamp.now());
-        
-        orderRepository.update(order);
+            current.setPaymentStatus(newPaymentStatus);
+            current.setUpdatedAt(Timestamp.now());
+            orderRepository.update(current);
+            return current;
+        });
         
         log.info("Estado de pago actualizado exitosamente");
         return order;
     }
 
-    public List<Order> getOrdersByStatus(OrderStatus status) throws ExecutionException, InterruptedException {
-        List<Order> allOrders = orderRepository.getAllOrders();
-        return allOrders.stream()
-                .filter(order -> status.equals(order.getStatus()))
-                .toList();
+    public PageResponse<Order> getOrdersByStatus(OrderStatus status, String cursor, Integer size)
+            throws ExecutionException, InterruptedException {
+        return orderRepository.getOrdersByStatusPage(status.name(), cursor, size);
     }
 }
\ No newline at end of file
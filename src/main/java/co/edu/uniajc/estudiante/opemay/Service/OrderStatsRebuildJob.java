@@ -0,0 +1,38 @@
+package co.edu.uniajc.estudiante.opemay.Service;
+
+import java.util.concurrent.ExecutionException;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Reconstruye periódicamente las estadísticas de órdenes para corregir cualquier
+ * desviación de los contadores incrementales (p. ej. borrados permanentes)
+ */
+@Component
+@ConditionalOnProperty(name = "firebase.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class OrderStatsRebuildJob {
+
+    private final OrderService orderService;
+
+    @Scheduled(cron = "${app.orders.stats.rebuild-cron:0 0 3 * * *}")
+    public void rebuild() {
+        try {
+            OrderService.OrderStats stats = orderService.rebuildOrderStats();
+            log.info("Job de estadísticas completado: {} órdenes", stats.getTotalOrders());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Job de estadísticas interrumpido: {}", e.getMessage());
+        } catch (ExecutionException e) {
+            log.error("Error en el job de estadísticas: {}", e.getMessage());
+        } catch (IllegalStateException e) {
+            log.warn("Job de estadísticas omitido: {}", e.getMessage());
+        }
+    }
+}
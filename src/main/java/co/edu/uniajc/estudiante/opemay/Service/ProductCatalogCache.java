@@ -0,0 +1,313 @@
+package co.edu.uniajc.estudiante.opemay.Service;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import co.edu.uniajc.estudiante.opemay.model.Product;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Caché en memoria del catálogo de productos, acotada por tamaño (LRU) y por TTL.
+ * Guarda productos individuales y, mientras el catálogo quepa en el límite, la lista completa.
+ * Sólo responde mientras está "viva", es decir, mientras el listener de Firestore la mantiene
+ * al día; si el listener se cae se vacía y las lecturas vuelven a ir a Firestore.
+ * Entrega siempre copias para que los llamadores puedan modificar los productos sin afectarla.
+ */
+@Component
+@Slf4j
+public class ProductCatalogCache {
+
+    static final String METRIC_REQUESTS = "opemay.products.cache.requests";
+    static final String METRIC_SIZE = "opemay.products.cache.size";
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LongSupplier ticker;
+
+    private final Map<String, Entry<Product>> products;
+    /** Versión y lista del catálogo se publican juntas para que nunca se lean de snapshots distintos */
+    private volatile Catalog catalog;
+    private volatile boolean live;
+
+    /**
+     * Aumenta con cada cambio que llega del listener o de una escritura local. Las lecturas a
+     * Firestore que terminan después de uno de esos cambios no se guardan: podrían ser más viejas
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    private Counter productHits;
+    private Counter productMisses;
+    private Counter catalogHits;
+    private Counter catalogMisses;
+
+    @Autowired
+    public ProductCatalogCache(@Value("${app.products.cache.max-size:5000}") int maxSize,
+                               @Value("${app.products.cache.ttl:10m}") Duration ttl,
+                               @Autowired(required = false) MeterRegistry meterRegistry) {
+        this(maxSize, ttl, meterRegistry, System::nanoTime);
+    }
+
+    ProductCatalogCache(int maxSize, Duration ttl, MeterRegistry meterRegistry, LongSupplier ticker) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("El tamaño máximo de la caché debe ser mayor a 0");
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.ticker = ticker;
+        this.products = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry<Product>> eldest) {
+                return size() > ProductCatalogCache.this.maxSize;
+            }
+        };
+        registerMetrics(meterRegistry);
+    }
+
+    private void registerMetrics(MeterRegistry meterRegistry) {
+        if (meterRegistry == null) {
+            return;
+        }
+        productHits = requestCounter(meterRegistry, "product", "hit");
+        productMisses = requestCounter(meterRegistry, "product", "miss");
+        catalogHits = requestCounter(meterRegistry, "catalog", "hit");
+        catalogMisses = requestCounter(meterRegistry, "catalog", "miss");
+        Gauge.builder(METRIC_SIZE, this, ProductCatalogCache::size)
+                .description("Productos guardados en la caché del catálogo")
+                .register(meterRegistry);
+    }
+
+    private static Counter requestCounter(MeterRegistry meterRegistry, String view, String result) {
+        return Counter.builder(METRIC_REQUESTS)
+                .description("Consultas a la caché del catálogo de productos")
+                .tag("view", view)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Marca la caché como sincronizada con Firestore a partir de este momento
+     */
+    public void markLive() {
+        live = true;
+    }
+
+    /**
+     * Deja de responder desde memoria y descarta todo lo guardado
+     */
+    public void markStale() {
+        live = false;
+        clear();
+    }
+
+    public boolean isLive() {
+        return live;
+    }
+
+    /**
+     * Generación actual; se toma antes de leer Firestore y se pasa a put o putCatalog
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Versión del catálogo que la caché tiene sincronizada, o null si no está viva o
+     * hubo una escritura local que el listener todavía no ha confirmado
+     */
+    public CatalogVersion getVersion() {
+        Catalog current = catalog;
+        return live && current != null ? current.version() : null;
+    }
+
+    /**
+     * Devuelve una copia del producto en caché, o null si no está, expiró o la caché no está viva
+     */
+    public Product get(String id) {
+        if (!live) {
+            return null;
+        }
+        Entry<Product> entry;
+        synchronized (products) {
+            entry = products.get(id);
+            if (entry != null && entry.isExpired(ticker.getAsLong())) {
+                products.remove(id);
+                entry = null;
+            }
+        }
+        increment(entry != null ? productHits : productMisses);
+        return entry != null ? ProductCopies.copy(entry.value) : null;
+    }
+
+    /**
+     * Devuelve una copia del catálogo completo, o null si no está cargado, expiró o la caché no está viva
+     */
+    public List<Product> getCatalog() {
+        if (!live) {
+            return null;
+        }
+        List<Product> products = currentProducts(catalog);
+        increment(products != null ? catalogHits : catalogMisses);
+        return products != null ? products.stream().map(ProductCopies::copy).toList() : null;
+    }
+
+    /**
+     * Devuelve el catálogo completo junto con su versión, ambos del mismo snapshot, o null si
+     * no está cargado, expiró o la caché no está viva. Los productos son los guardados en la
+     * caché, sin copiar: sólo sirven para leerlos, por ejemplo para serializarlos
+     */
+    public VersionedCatalog<Product> getVersionedCatalog() {
+        if (!live) {
+            return null;
+        }
+        Catalog current = catalog;
+        List<Product> products = currentProducts(current);
+        increment(products != null ? catalogHits : catalogMisses);
+        return products != null ? new VersionedCatalog<>(current.version(), products) : null;
+    }
+
+    private List<Product> currentProducts(Catalog current) {
+        if (current == null || current.products() == null || current.isExpired(ticker.getAsLong())) {
+            return null;
+        }
+        return current.products();
+    }
+
+    /**
+     * Guarda un producto que llegó del listener o de una escritura local
+     */
+    public void put(Product product) {
+        if (product == null || product.getId() == null) {
+            return;
+        }
+        synchronized (products) {
+            generation.incrementAndGet();
+            store(product);
+        }
+    }
+
+    /**
+     * Guarda un producto leído de Firestore, salvo que la caché haya cambiado desde {@code readGeneration}
+     */
+    public void put(Product product, long readGeneration) {
+        if (product == null || product.getId() == null) {
+            return;
+        }
+        synchronized (products) {
+            if (generation.get() == readGeneration) {
+                store(product);
+            }
+        }
+    }
+
+    /**
+     * Guarda el catálogo completo que entregó el listener y sus productos. Si supera el tamaño
+     * máximo sólo se guardan los productos individuales (hasta el límite LRU)
+     */
+    public void putCatalog(Collection<Product> all) {
+        Catalog loaded = catalogOf(all);
+        synchronized (products) {
+            generation.incrementAndGet();
+            all.forEach(this::store);
+            catalog = loaded;
+        }
+    }
+
+    /**
+     * Como {@link #putCatalog(Collection)} para un catálogo leído de Firestore: no guarda nada
+     * si la caché cambió desde {@code readGeneration}
+     */
+    public void putCatalog(Collection<Product> all, long readGeneration) {
+        Catalog loaded = catalogOf(all);
+        synchronized (products) {
+            if (generation.get() != readGeneration) {
+                return;
+            }
+            all.forEach(this::store);
+            catalog = loaded;
+        }
+    }
+
+    private Catalog catalogOf(Collection<Product> all) {
+        CatalogVersion version = CatalogVersion.of(all, Product::getUpdatedAt);
+        List<Product> copies = null;
+        if (all.size() > maxSize) {
+            log.warn("El catálogo ({} productos) supera el tamaño de la caché ({}), no se guarda la lista completa",
+                    all.size(), maxSize);
+        } else {
+            copies = all.stream().map(ProductCopies::copy).toList();
+        }
+        return new Catalog(version, copies, ticker.getAsLong() + ttlNanos);
+    }
+
+    /**
+     * Debe llamarse con el lock de products tomado
+     */
+    private void store(Product product) {
+        if (product != null && product.getId() != null) {
+            products.put(product.getId(), new Entry<>(ProductCopies.copy(product), ticker.getAsLong() + ttlNanos));
+        }
+    }
+
+    public void invalidate(String id) {
+        synchronized (products) {
+            generation.incrementAndGet();
+            products.remove(id);
+            catalog = null;
+        }
+    }
+
+    public void invalidateCatalog() {
+        synchronized (products) {
+            generation.incrementAndGet();
+            catalog = null;
+        }
+    }
+
+    public void clear() {
+        synchronized (products) {
+            generation.incrementAndGet();
+            products.clear();
+            catalog = null;
+        }
+    }
+
+    public int size() {
+        synchronized (products) {
+            return products.size();
+        }
+    }
+
+    private static void increment(Counter counter) {
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+
+    private record Entry<T>(T value, long expiresAtNanos) {
+        boolean isExpired(long now) {
+            return now - expiresAtNanos >= 0;
+        }
+    }
+
+    /**
+     * Versión del catálogo y, si cupo en la caché, la lista de la que se calculó.
+     * La versión sigue valiendo aunque la lista expire: sólo cambia con el siguiente snapshot
+     */
+    private record Catalog(CatalogVersion version, List<Product> products, long expiresAtNanos) {
+        boolean isExpired(long now) {
+            return now - expiresAtNanos >= 0;
+        }
+    }
+}
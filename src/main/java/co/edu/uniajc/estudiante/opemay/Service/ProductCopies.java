@@ -0,0 +1,33 @@
+package co.edu.uniajc.estudiante.opemay.Service;
+
+import co.edu.uniajc.estudiante.opemay.model.Product;
+
+/**
+ * Copias de productos para las estructuras en memoria (caché e índices), que nunca
+ * entregan sus propias instancias a quien las consulta
+ */
+final class ProductCopies {
+
+    private ProductCopies() {
+    }
+
+    static Product copy(Product product) {
+        return Product.builder()
+                .id(product.getId())
+                .name(product.getName())
+                .price(product.getPrice())
+                .description(product.getDescription())
+                .createdAt(product.getCreatedAt())
+                .updatedAt(product.getUpdatedAt())
+                .active(product.getActive())
+                .categoryId(product.getCategoryId())
+                .categoryName(product.getCategoryName())
+                .stock(product.getStock())
+                .imageUrl(product.getImageUrl())
+                .unit(product.getUnit())
+                .weight(product.getWeight())
+                .origin(product.getOrigin())
+                .version(product.getVersion())
+                .build();
+    }
+}
@@ -0,0 +1,95 @@
+package co.edu.uniajc.estudiante.opemay.Service;
+
+import java.time.Duration;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import co.edu.uniajc.estudiante.opemay.dto.FacetedProductPage;
+import co.edu.uniajc.estudiante.opemay.dto.ProductFilter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Consultas del catálogo con filtros por precio, categoría, origen, unidad y stock,
+ * orden y conteo de facetas, resueltas sobre un ProductFacetStore en memoria.
+ * El store se reconstruye cuando cambia la versión del catálogo.
+ */
+@Service
+@Slf4j
+public class ProductFacetService {
+
+    static final int DEFAULT_PAGE_SIZE = 20;
+    static final int MAX_PAGE_SIZE = 100;
+
+    private final ProductService productService;
+
+    /**
+     * Sin listener del catálogo no hay versión y el store se reconstruye con esta frecuencia
+     */
+    @Value("${app.products.facets.rebuild-interval:1m}")
+    private Duration rebuildInterval = Duration.ofMinutes(1);
+
+    private volatile ProductFacetStore store;
+    private volatile String storeEtag;
+    private volatile long storeBuiltAt;
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    public ProductFacetService(ProductService productService) {
+        this.productService = productService;
+    }
+
+    /**
+     * Filtra los productos activos y devuelve la página pedida con el conteo de cada faceta
+     *
+     * @param filter filtros, orden (name, price, -price, pricePerWeight, newest), página desde 0 y tamaño (máximo 100)
+     * @return página de productos con total y facetas
+     * @throws IllegalArgumentException si el orden, la página o el rango de precios son inválidos
+     */
+    public FacetedProductPage filterProducts(ProductFilter filter) {
+        ProductFilter criteria = filter == null ? new ProductFilter() : filter;
+        ProductFacetStore.Sort sort = ProductFacetStore.Sort.parse(criteria.getSort());
+        int page = criteria.getPage() == null ? 0 : criteria.getPage();
+        if (page < 0) {
+            throw new IllegalArgumentException("La página no puede ser negativa");
+        }
+        if (criteria.getMinPrice() != null && criteria.getMaxPrice() != null
+                && criteria.getMinPrice() > criteria.getMaxPrice()) {
+            throw new IllegalArgumentException("El precio mínimo no puede superar al máximo");
+        }
+        int size = criteria.getSize() == null
+                ? DEFAULT_PAGE_SIZE
+                : Math.max(1, Math.min(criteria.getSize(), MAX_PAGE_SIZE));
+        return currentStore().query(criteria, sort, page, size);
+    }
+
+    private ProductFacetStore currentStore() {
+        CatalogVersion version = productService.getCatalogVersion();
+        ProductFacetStore current = store;
+        if (current != null && isFresh(version)) {
+            return current;
+        }
+        // Sin caché viva getAllProducts va a Firestore; quien espera el lock no retiene su carrier
+        rebuildLock.lock();
+        try {
+            version = productService.getCatalogVersion();
+            if (store != null && isFresh(version)) {
+                return store;
+            }
+            store = new ProductFacetStore(productService.getAllProducts());
+            storeEtag = version == null ? null : version.etag();
+            storeBuiltAt = System.nanoTime();
+            log.info("Store de facetas construido con {} productos activos", store.size());
+            return store;
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private boolean isFresh(CatalogVersion version) {
+        if (version != null) {
+            return version.etag().equals(storeEtag);
+        }
+        return System.nanoTime() - storeBuiltAt < rebuildInterval.toNanos();
+    }
+}
@@ -0,0 +1,329 @@
+package co.edu.uniajc.estudiante.opemay.Service;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import com.google.cloud.Timestamp;
+
+import co.edu.uniajc.estudiante.opemay.dto.FacetedProductPage;
+import co.edu.uniajc.estudiante.opemay.dto.ProductFilter;
+import co.edu.uniajc.estudiante.opemay.model.Product;
+
+/**
+ * Copia inmutable y columnar de los productos activos para filtrar, ordenar y contar facetas
+ * sin consultar Firestore. Cada campo filtrable vive en un arreglo primitivo indexado por fila;
+ * cada valor de categoría, origen y unidad tiene un bitmap con sus filas. Las filas están en
+ * orden por nombre y los demás órdenes se precalculan como permutaciones, así que una consulta
+ * es una pasada por las filas para filtrar y contar, y otra por la permutación hasta llenar la página.
+ */
+final class ProductFacetStore {
+
+    static final String FACET_CATEGORY = "categoryId";
+    static final String FACET_ORIGIN = "origin";
+    static final String FACET_UNIT = "unit";
+    static final String FACET_IN_STOCK = "inStock";
+
+    private static final int PRICE = 0;
+    private static final int STOCK = 1;
+    private static final int CATEGORY = 2;
+    private static final int ORIGIN = 3;
+    private static final int UNIT = 4;
+    private static final int DIMENSIONS = 5;
+
+    private static final Comparator<Product> BY_NAME = Comparator
+            .comparing((Product product) -> product.getName() == null ? "" : product.getName(),
+                    String.CASE_INSENSITIVE_ORDER)
+            .thenComparing(product -> product.getId() == null ? "" : product.getId());
+
+    /**
+     * Orden de los resultados
+     */
+    enum Sort {
+        NAME, PRICE_ASC, PRICE_DESC, PRICE_PER_WEIGHT, NEWEST;
+
+        /**
+         * name (o vacío), price, -price, pricePerWeight, newest
+         */
+        static Sort parse(String value) {
+            if (value == null || value.isBlank()) {
+                return NAME;
+            }
+            return switch (value.trim()) {
+                case "name" -> NAME;
+                case "price" -> PRICE_ASC;
+                case "-price" -> PRICE_DESC;
+                case "pricePerWeight" -> PRICE_PER_WEIGHT;
+                case "newest" -> NEWEST;
+                default -> throw new IllegalArgumentException("Orden no soportado: " + value);
+            };
+        }
+    }
+
+    /**
+     * Filas ordenadas por una columna: primero las defined que tienen valor, luego las que no
+     */
+    private record SortOrder(int[] rows, int defined) {
+    }
+
+    /**
+     * Columna codificada por diccionario: ordinal del valor por fila (-1 si no tiene) y un bitmap por valor
+     */
+    private static final class Facet {
+        final String[] values;
+        final Map<String, Integer> ordinals;
+        final int[] rowOrdinals;
+        final BitSet[] bitmaps;
+
+        Facet(Product[] rows, Function<Product, String> field) {
+            Map<String, Integer> dictionary = new HashMap<>();
+            List<String> dictionaryValues = new ArrayList<>();
+            List<BitSet> valueBitmaps = new ArrayList<>();
+            rowOrdinals = new int[rows.length];
+            for (int row = 0; row < rows.length; row++) {
+                String value = field.apply(rows[row]);
+                if (value == null || value.isBlank()) {
+                    rowOrdinals[row] = -1;
+                    continue;
+                }
+                int ordinal = dictionary.computeIfAbsent(value, key -> {
+                    dictionaryValues.add(key);
+                    valueBitmaps.add(new BitSet(rows.length));
+                    return dictionaryValues.size() - 1;
+                });
+                rowOrdinals[row] = ordinal;
+                valueBitmaps.get(ordinal).set(row);
+            }
+            values = dictionaryValues.toArray(String[]::new);
+            ordinals = Map.copyOf(dictionary);
+            bitmaps = valueBitmaps.toArray(BitSet[]::new);
+        }
+
+        /**
+         * Unión de los bitmaps de los valores pedidos; null si no se filtra por esta faceta
+         */
+        BitSet match(List<String> selected) {
+            if (selected == null || selected.isEmpty()) {
+                return null;
+            }
+            BitSet union = new BitSet();
+            for (String value : selected) {
+                Integer ordinal = value == null ? null : ordinals.get(value.trim());
+                if (ordinal != null) {
+                    union.or(bitmaps[ordinal]);
+                }
+            }
+            return union;
+        }
+    }
+
+    private final Product[] rows;
+    private final double[] prices;
+    private final BitSet inStock;
+    private final Facet categories;
+    private final Facet origins;
+    private final Facet units;
+    private final SortOrder byPrice;
+    private final SortOrder byPricePerWeight;
+    private final SortOrder newest;
+
+    ProductFacetStore(Collection<Product> products) {
+        rows = products.stream()
+                .filter(product -> product != null && Boolean.TRUE.equals(product.getActive()))
+                .sorted(BY_NAME)
+                .map(ProductCopies::copy)
+                .toArray(Product[]::new);
+
+        int n = rows.length;
+        prices = new double[n];
+        double[] pricesPerWeight = new double[n];
+        double[] createdAt = new double[n];
+        inStock = new BitSet(n);
+        for (int row = 0; row < n; row++) {
+            Product product = rows[row];
+            Double price = product.getPrice();
+            Double weight = product.getWeight();
+            prices[row] = price == null ? Double.NaN : price;
+            // Precio por kilo: el peso se guarda en gramos
+            pricesPerWeight[row] = price == null || weight == null || weight <= 0
+                    ? Double.NaN
+                    : price / weight * 1000;
+            Timestamp created = product.getCreatedAt();
+            // Negado para que el orden ascendente deje primero los más nuevos
+            createdAt[row] = created == null ? Double.NaN : -(created.getSeconds() * 1000.0 + created.getNanos() / 1_000_000);
+            if (product.getStock() != null && product.getStock() > 0) {
+                inStock.set(row);
+            }
+        }
+
+        categories = new Facet(rows, Product::getCategoryId);
+        origins = new Facet(rows, Product::getOrigin);
+        units = new Facet(rows, Product::getUnit);
+        byPrice = sortOrder(prices);
+        byPricePerWeight = sortOrder(pricesPerWeight);
+        newest = sortOrder(createdAt);
+    }
+
+    int size() {
+        return rows.length;
+    }
+
+    /**
+     * Filtra, cuenta facetas y arma la página pedida
+     */
+    FacetedProductPage query(ProductFilter filter, Sort sort, int page, int size) {
+        BitSet[] filters = new BitSet[DIMENSIONS];
+        filters[PRICE] = priceRange(filter.getMinPrice(), filter.getMaxPrice());
+        filters[STOCK] = Boolean.TRUE.equals(filter.getInStock()) ? inStock : null;
+        filters[CATEGORY] = categories.match(filter.getCategoryIds());
+        filters[ORIGIN] = origins.match(filter.getOrigins());
+        filters[UNIT] = units.match(filter.getUnits());
+
+        // Una sola pasada: una fila que cumple todo cuenta en todas las facetas; una que sólo falla
+        // el filtro de una faceta cuenta únicamente en esa, que es lo que el cliente obtendría al cambiarla
+        BitSet matched = new BitSet(rows.length);
+        int[] categoryCounts = new int[categories.values.length];
+        int[] originCounts = new int[origins.values.length];
+        int[] unitCounts = new int[units.values.length];
+        int inStockCount = 0;
+        for (int row = 0; row < rows.length; row++) {
+            int failed = 0;
+            for (int dimension = 0; dimension < DIMENSIONS; dimension++) {
+                if (filters[dimension] != null && !filters[dimension].get(row)) {
+                    failed |= 1 << dimension;
+                }
+            }
+            if (failed == 0) {
+                matched.set(row);
+            }
+            if ((failed & ~(1 << CATEGORY)) == 0) {
+                count(categoryCounts, categories.rowOrdinals[row]);
+            }
+            if ((failed & ~(1 << ORIGIN)) == 0) {
+                count(originCounts, origins.rowOrdinals[row]);
+            }
+            if ((failed & ~(1 << UNIT)) == 0) {
+                count(unitCounts, units.rowOrdinals[row]);
+            }
+            if ((failed & ~(1 << STOCK)) == 0 && inStock.get(row)) {
+                inStockCount++;
+            }
+        }
+
+        Map<String, Map<String, Integer>> facets = new LinkedHashMap<>();
+        facets.put(FACET_CATEGORY, counts(categories, categoryCounts));
+        facets.put(FACET_ORIGIN, counts(origins, originCounts));
+        facets.put(FACET_UNIT, counts(units, unitCounts));
+        facets.put(FACET_IN_STOCK, Map.of("true", inStockCount));
+
+        return FacetedProductPage.builder()
+                .items(page(matched, sort, page, size))
+                .total(matched.cardinality())
+                .page(page)
+                .size(size)
+                .facets(facets)
+                .build();
+    }
+
+    private List<Product> page(BitSet matched, Sort sort, int page, int size) {
+        long skip = (long) page * size;
+        List<Product> items = new ArrayList<>(Math.min(size, rows.length));
+        int seen = 0;
+        for (int position = 0; position < rows.length && items.size() < size; position++) {
+            int row = rowAt(sort, position);
+            if (matched.get(row) && seen++ >= skip) {
+                items.add(ProductCopies.copy(rows[row]));
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Fila en la posición indicada según el orden; en orden descendente los productos
+     * sin precio quedan igualmente al final
+     */
+    private int rowAt(Sort sort, int position) {
+        return switch (sort) {
+            case NAME -> position;
+            case PRICE_ASC -> byPrice.rows()[position];
+            case PRICE_DESC -> position < byPrice.defined()
+                    ? byPrice.rows()[byPrice.defined() - 1 - position]
+                    : byPrice.rows()[position];
+            case PRICE_PER_WEIGHT -> byPricePerWeight.rows()[position];
+            case NEWEST -> newest.rows()[position];
+        };
+    }
+
+    /**
+     * Filas con precio en [min, max], buscando los extremos en la permutación ordenada por precio
+     */
+    private BitSet priceRange(Double min, Double max) {
+        if (min == null && max == null) {
+            return null;
+        }
+        int from = min == null ? 0 : firstPriceAtLeast(min, false);
+        int to = max == null ? byPrice.defined() : firstPriceAtLeast(max, true);
+        BitSet range = new BitSet(rows.length);
+        for (int position = from; position < to; position++) {
+            range.set(byPrice.rows()[position]);
+        }
+        return range;
+    }
+
+    /**
+     * Primera posición con precio >= bound (o > bound si exclusive) entre las filas con precio
+     */
+    private int firstPriceAtLeast(double bound, boolean exclusive) {
+        int low = 0;
+        int high = byPrice.defined();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            double price = prices[byPrice.rows()[middle]];
+            if (price < bound || (exclusive && price == bound)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static SortOrder sortOrder(double[] column) {
+        // Orden estable: a igual valor se conserva el orden por nombre de las filas
+        int[] sorted = IntStream.range(0, column.length)
+                .boxed()
+                .sorted(Comparator.comparingDouble((Integer row) -> Double.isNaN(column[row]) ? 1 : 0)
+                        .thenComparingDouble(row -> Double.isNaN(column[row]) ? 0 : column[row]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        int defined = (int) IntStream.range(0, column.length).filter(row -> !Double.isNaN(column[row])).count();
+        return new SortOrder(sorted, defined);
+    }
+
+    private static void count(int[] counts, int ordinal) {
+        if (ordinal >= 0) {
+            counts[ordinal]++;
+        }
+    }
+
+    /**
+     * Valores con al menos un resultado, del más frecuente al menos frecuente
+     */
+    private static Map<String, Integer> counts(Facet facet, int[] counts) {
+        Map<String, Integer> result = new LinkedHashMap<>();
+        IntStream.range(0, counts.length)
+                .filter(ordinal -> counts[ordinal] > 0)
+                .boxed()
+                .sorted(Comparator.comparingInt((Integer ordinal) -> -counts[ordinal])
+                        .thenComparing(ordinal -> facet.values[ordinal]))
+                .forEach(ordinal -> result.put(facet.values[ordinal], counts[ordinal]));
+        return result;
+    }
+}
@@ -0,0 +1,34 @@
+package co.edu.uniajc.estudiante.opemay.Service;
+
+import java.util.concurrent.ExecutionException;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Recarga periódicamente las unidades vendidas que ordenan el autocompletado
+ */
+@Component
+@ConditionalOnProperty(name = "firebase.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class ProductPopularityRefreshJob {
+
+    private final ProductSuggestService productSuggestService;
+
+    @Scheduled(fixedDelayString = "${app.products.suggest.popularity-refresh:PT10M}")
+    public void refresh() {
+        try {
+            productSuggestService.refreshPopularity();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Recarga de popularidad interrumpida: {}", e.getMessage());
+        } catch (ExecutionException e) {
+            log.error("Error recargando la popularidad de productos: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package co.edu.uniajc.estudiante.opemay.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.stereotype.Component;
+
+import co.edu.uniajc.estudiante.opemay.model.Product;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Índice invertido en memoria de los productos activos sobre nombre, descripción, origen y
+ * categoría, con ranking BM25. El nombre pesa más que la categoría y ésta más que el resto.
+ * Se actualiza producto a producto a medida que cambian, sin reconstruirse completo.
+ */
+@Component
+@Slf4j
+public class ProductSearchIndex {
+
+    static final int NAME_WEIGHT = 3;
+    static final int CATEGORY_WEIGHT = 2;
+    static final int TEXT_WEIGHT = 1;
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** término → (ID de producto → frecuencia ponderada) */
+    private final Map<String, Map<String, Integer>> postings = new HashMap<>();
+    private final Map<String, IndexedProduct> documents = new HashMap<>();
+    private long totalLength;
+    private volatile boolean built;
+
+    private record IndexedProduct(Product product, Map<String, Integer> termFrequencies, int length) {
+    }
+
+    /**
+     * Producto encontrado y su puntuación BM25
+     */
+    public record SearchHit(Product product, double score) {
+    }
+
+    /**
+     * Reemplaza todo el contenido del índice
+     */
+    public void rebuild(Collection<Product> products) {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            totalLength = 0;
+            products.forEach(this::indexLocked);
+            built = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Índice de búsqueda construido con {} productos", size());
+    }
+
+    /**
+     * Agrega o reemplaza un producto; los inactivos se quitan del índice
+     */
+    public void index(Product product) {
+        if (product == null || product.getId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            indexLocked(product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String productId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isBuilt() {
+        return built;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Busca los productos que contienen alguno de los términos de la consulta,
+     * ordenados por puntuación BM25 de mayor a menor
+     */
+    public List<SearchHit> search(String query, int limit) {
+        Set<String> terms = new LinkedHashSet<>(SpanishTextAnalyzer.analyze(query));
+        if (terms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        Map<String, Double> scores = new HashMap<>();
+        Map<String, Product> matched = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            int documentCount = documents.size();
+            if (documentCount == 0) {
+                return List.of();
+            }
+            double averageLength = (double) totalLength / documentCount;
+            for (String term : terms) {
+                Map<String, Integer> posting = postings.get(term);
+                if (posting == null) {
+                    continue;
+                }
+                double idf = Math.log(1 + (documentCount - posting.size() + 0.5) / (posting.size() + 0.5));
+                for (Map.Entry<String, Integer> entry : posting.entrySet()) {
+                    IndexedProduct document = documents.get(entry.getKey());
+                    double tf = entry.getValue();
+                    double norm = K1 * (1 - B + B * document.length() / averageLength);
+                    scores.merge(entry.getKey(), idf * tf * (K1 + 1) / (tf + norm), Double::sum);
+                    matched.putIfAbsent(entry.getKey(), document.product());
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // Top-k con un heap acotado: menor puntuación primero, desempate por ID para un orden estable
+        Comparator<Map.Entry<String, Double>> ascending = Map.Entry.<String, Double>comparingByValue()
+                .thenComparing(Map.Entry.<String, Double>comparingByKey().reversed());
+        PriorityQueue<Map.Entry<String, Double>> top = new PriorityQueue<>(limit + 1, ascending);
+        for (Map.Entry<String, Double> entry : scores.entrySet()) {
+            top.offer(entry);
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+        List<SearchHit> hits = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            Map.Entry<String, Double> entry = top.poll();
+            hits.add(new SearchHit(ProductCopies.copy(matched.get(entry.getKey())), entry.getValue()));
+        }
+        Collections.reverse(hits);
+        return hits;
+    }
+
+    private void indexLocked(Product product) {
+        removeLocked(product.getId());
+        if (!Boolean.TRUE.equals(product.getActive())) {
+            return;
+        }
+        Map<String, Integer> frequencies = new HashMap<>();
+        addTerms(frequencies, product.getName(), NAME_WEIGHT);
+        addTerms(frequencies, product.getCategoryName(), CATEGORY_WEIGHT);
+        addTerms(frequencies, product.getDescription(), TEXT_WEIGHT);
+        addTerms(frequencies, product.getOrigin(), TEXT_WEIGHT);
+        if (frequencies.isEmpty()) {
+            return;
+        }
+
+        int length = frequencies.values().stream().mapToInt(Integer::intValue).sum();
+        documents.put(product.getId(), new IndexedProduct(ProductCopies.copy(product), frequencies, length));
+        totalLength += length;
+        frequencies.forEach((term, frequency) ->
+                postings.computeIfAbsent(term, key -> new HashMap<>()).put(product.getId(), frequency));
+    }
+
+    private void removeLocked(String productId) {
+        IndexedProduct previous = documents.remove(productId);
+        if (previous == null) {
+            return;
+        }
+        totalLength -= previous.length();
+        for (String term : previous.termFrequencies().keySet()) {
+            Map<String, Integer> posting = postings.get(term);
+            if (posting != null) {
+                posting.remove(productId);
+                if (posting.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    private static void addTerms(Map<String, Integer> frequencies, String text, int weight) {
+        for (String term : SpanishTextAnalyzer.analyze(text)) {
+            frequencies.merge(term, weight, Integer::sum);
+        }
+    }
+}
@@ -1,20 +1,42 @@
 package co.edu.uniajc.estudiante.opemay.Service;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.stereotype.Service;
 
 import com.google.api.core.ApiFuture;
 import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.DocumentChange;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
 import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.FirestoreException;
+import com.google.cloud.firestore.ListenerRegistration;
+import com.google.cloud.firestore.Query;
 import com.google.cloud.firestore.QueryDocumentSnapshot;
 import com.google.cloud.firestore.QuerySnapshot;
 import com.google.cloud.firestore.WriteResult;
 
+import co.edu.uniajc.estudiante.opemay.IRespository.ConcurrentUpdateException;
+import co.edu.uniajc.estudiante.opemay.IRespository.FirestorePagination;
+import co.edu.uniajc.estudiante.opemay.IRespository.VersionedWrites;
+import co.edu.uniajc.estudiante.opemay.dto.PageResponse;
 import co.edu.uniajc.estudiante.opemay.model.Product;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import lombok.extern.slf4j.Slf4j;
@@ -32,6 +54,38 @@ import lombok.extern.slf4j.Slf4j;
 public class ProductService {
 
     private final Firestore firestore;
+    private final ProductCatalogCache catalogCache;
+    private final ProductSearchIndex searchIndex;
+
+    @Value("${app.products.cache.listener-enabled:true}")
+    private boolean catalogListenerEnabled = true;
+
+    /**
+     * Sin listener el índice de búsqueda no recibe los cambios de otras instancias y se reconstruye con esta frecuencia
+     */
+    @Value("${app.products.search.rebuild-interval:5m}")
+    private Duration searchRebuildInterval = Duration.ofMinutes(5);
+
+    private volatile long searchIndexBuiltAt;
+    private final ReentrantLock searchIndexRebuild = new ReentrantLock();
+
+    /**
+     * Espera antes de volver a registrar el listener tras un error; se duplica en cada fallo
+     * consecutivo hasta listener-retry-max y vuelve al inicio con el primer snapshot recibido
+     */
+    @Value("${app.products.cache.listener-retry-initial:1s}")
+    private Duration listenerRetryInitial = Duration.ofSeconds(1);
+
+    @Value("${app.products.cache.listener-retry-max:1m}")
+    private Duration listenerRetryMax = Duration.ofMinutes(1);
+
+    @Autowired(required = false)
+    private TaskScheduler taskScheduler;
+
+    private final Object catalogListenerLock = new Object();
+    private ListenerRegistration catalogListener;
+    private boolean catalogListenerStopped;
+    private final AtomicInteger catalogListenerFailures = new AtomicInteger();
     
     // 🔹 Constantes SonarQube-compliant
     private static final String CIRCUIT_BREAKER_NAME = "productService";
@@ -50,14 +104,152 @@ public class ProductService {
     private static final String FALLBACK_NAME = "Producto no disponible temporalmente";
     private static final String FALLBACK_DESCRIPTION = "Servicio no disponible";
     private static final double FALLBACK_PRICE = 0.0;
+    private static final int DEFAULT_SEARCH_LIMIT = 20;
+    private static final int MAX_SEARCH_LIMIT = 100;
+    private static final Comparator<Product> BY_NAME = (p1, p2) -> {
+        if (p1.getName() == null && p2.getName() == null) return 0;
+        if (p1.getName() == null) return 1;
+        if (p2.getName() == null) return -1;
+        return p1.getName().compareToIgnoreCase(p2.getName());
+    };
 
     /**
      * Constructor que inyecta la dependencia de Firestore
      * 
      * @param firestore instancia de Firestore configurada (puede ser null en desarrollo local)
+     * @param catalogCache caché en memoria del catálogo
+     * @param searchIndex índice de búsqueda de texto de los productos activos
      */
-    public ProductService(@Autowired(required = false) Firestore firestore) {
+    public ProductService(@Autowired(required = false) Firestore firestore, ProductCatalogCache catalogCache,
+                          ProductSearchIndex searchIndex) {
         this.firestore = firestore;
+        this.catalogCache = catalogCache;
+        this.searchIndex = searchIndex;
+    }
+
+    /**
+     * Escucha la colección de productos para mantener la caché del catálogo al día.
+     * Los cambios hechos desde cualquier instancia llegan en menos de un segundo.
+     */
+    @PostConstruct
+    void startCatalogListener() {
+        if (firestore == null || !catalogListenerEnabled) {
+            log.info("Listener del catálogo deshabilitado, los productos se leerán siempre desde Firestore");
+            return;
+        }
+        subscribeCatalog();
+    }
+
+    private void subscribeCatalog() {
+        ListenerRegistration registration;
+        try {
+            registration = firestore.collection(PRODUCTS_COLLECTION).addSnapshotListener(this::onCatalogSnapshot);
+        } catch (Exception e) {
+            log.error("No se pudo registrar el listener del catálogo: {}", e.getMessage());
+            scheduleCatalogResubscribe();
+            return;
+        }
+        ListenerRegistration previous;
+        synchronized (catalogListenerLock) {
+            if (catalogListenerStopped) {
+                registration.remove();
+                return;
+            }
+            previous = catalogListener;
+            catalogListener = registration;
+        }
+        if (previous != null) {
+            previous.remove();
+        }
+        log.info("Listener del catálogo de productos registrado");
+    }
+
+    /**
+     * Un listener que falla no vuelve a recibir snapshots: se descarta y se registra otro
+     * tras la espera. Mientras tanto las lecturas van a Firestore
+     */
+    private void scheduleCatalogResubscribe() {
+        ListenerRegistration failed;
+        synchronized (catalogListenerLock) {
+            if (catalogListenerStopped) {
+                return;
+            }
+            failed = catalogListener;
+            catalogListener = null;
+        }
+        if (failed != null) {
+            failed.remove();
+        }
+        if (taskScheduler == null) {
+            log.warn("Sin TaskScheduler, el listener del catálogo no se volverá a registrar");
+            return;
+        }
+        int failures = catalogListenerFailures.incrementAndGet();
+        Duration delay = catalogListenerRetryDelay(failures);
+        log.info("Se volverá a registrar el listener del catálogo en {} ms (fallo {})", delay.toMillis(), failures);
+        taskScheduler.schedule(this::subscribeCatalog, Instant.now().plus(delay));
+    }
+
+    Duration catalogListenerRetryDelay(int failures) {
+        Duration delay = listenerRetryInitial.multipliedBy(1L << Math.min(failures - 1, 20));
+        return delay.compareTo(listenerRetryMax) > 0 ? listenerRetryMax : delay;
+    }
+
+    @PreDestroy
+    void stopCatalogListener() {
+        ListenerRegistration registration;
+        synchronized (catalogListenerLock) {
+            catalogListenerStopped = true;
+            registration = catalogListener;
+            catalogListener = null;
+        }
+        if (registration != null) {
+            registration.remove();
+        }
+        catalogCache.markStale();
+    }
+
+    /**
+     * Aplica un snapshot de la colección de productos a la caché.
+     * Un error termina el listener: la caché deja de responder hasta que el listener
+     * registrado de nuevo entrega su primer snapshot, que vuelve a cargarla completa.
+     */
+    void onCatalogSnapshot(QuerySnapshot snapshot, FirestoreException error) {
+        if (error != null) {
+            log.error("El listener del catálogo falló, se desactiva la caché: {}", error.getMessage());
+            catalogCache.markStale();
+            scheduleCatalogResubscribe();
+            return;
+        }
+        if (snapshot == null) {
+            return;
+        }
+        catalogListenerFailures.set(0);
+        boolean firstSnapshot = !catalogCache.isLive();
+        if (firstSnapshot) {
+            // Primer snapshot: descartar lo que se haya guardado antes de estar sincronizados
+            catalogCache.clear();
+        }
+        for (DocumentChange change : snapshot.getDocumentChanges()) {
+            if (change.getType() == DocumentChange.Type.REMOVED) {
+                catalogCache.invalidate(change.getDocument().getId());
+                searchIndex.remove(change.getDocument().getId());
+            } else if (!firstSnapshot) {
+                searchIndex.index(convertDocumentSafely(change.getDocument()));
+            }
+        }
+        List<Product> products = snapshot.getDocuments().stream()
+                .map(this::convertDocumentSafely)
+                .filter(Objects::nonNull)
+                .toList();
+        catalogCache.putCatalog(products);
+        if (firstSnapshot) {
+            searchIndex.rebuild(products);
+            searchIndexBuiltAt = System.nanoTime();
+        }
+        catalogCache.markLive();
+        log.debug("Caché del catálogo actualizada: {} productos, {} cambios",
+                products.size(), snapshot.getDocumentChanges().size());
     }
 
     /**
@@ -85,6 +277,7 @@ public class ProductService {
 
             WriteResult result = future.get();
             log.info("Producto guardado en: {}", result.getUpdateTime());
+            refreshCachedProduct(product);
             return product;
             
         } catch (InterruptedException e) {
@@ -97,6 +290,15 @@ public class ProductService {
         }
     }
 
+    /**
+     * Refleja una escritura local en la caché sin esperar al listener
+     */
+    private void refreshCachedProduct(Product product) {
+        catalogCache.put(product);
+        catalogCache.invalidateCatalog();
+        searchIndex.index(product);
+    }
+
     /**
      * Valida que el producto tenga los campos requeridos
      * 
@@ -126,6 +328,66 @@ public class ProductService {
             firestore.collection(PRODUCTS_COLLECTION).document().getId();
     }
 
+    /**
+     * Busca productos activos por nombre, descripción, origen y categoría, ordenados por relevancia
+     *
+     * @param query texto a buscar; se ignoran tildes, mayúsculas y plurales
+     * @param limit cantidad máxima de resultados (por defecto 20, máximo 100)
+     * @return productos encontrados, el más relevante primero
+     * @throws IllegalArgumentException si la consulta está vacía
+     */
+    public List<Product> searchProducts(String query, Integer limit) {
+        if (query == null || query.trim().isEmpty()) {
+            throw new IllegalArgumentException("La consulta de búsqueda no puede estar vacía");
+        }
+        int size = limit == null ? DEFAULT_SEARCH_LIMIT : Math.max(1, Math.min(limit, MAX_SEARCH_LIMIT));
+        ensureSearchIndex();
+        return searchIndex.search(query, size).stream()
+                .map(ProductSearchIndex.SearchHit::product)
+                .toList();
+    }
+
+    /**
+     * Con el listener activo el índice se mantiene al día solo; sin él se reconstruye
+     * desde el catálogo cuando falta o superó el intervalo de reconstrucción
+     */
+    private void ensureSearchIndex() {
+        boolean fresh = catalogCache.isLive()
+                || System.nanoTime() - searchIndexBuiltAt < searchRebuildInterval.toNanos();
+        if (searchIndex.isBuilt() && fresh) {
+            return;
+        }
+        // Lock en vez de synchronized: la reconstrucción lee Firestore y no debe fijar hilos virtuales
+        searchIndexRebuild.lock();
+        try {
+            fresh = catalogCache.isLive()
+                    || System.nanoTime() - searchIndexBuiltAt < searchRebuildInterval.toNanos();
+            if (searchIndex.isBuilt() && fresh) {
+                return;
+            }
+            searchIndex.rebuild(getAllProducts());
+            searchIndexBuiltAt = System.nanoTime();
+        } finally {
+            searchIndexRebuild.unlock();
+        }
+    }
+
+    /**
+     * Versión del catálogo sincronizada por el listener, para responder GET condicionales
+     * sin consultar Firestore. Null si la caché no está viva o hay una escritura sin confirmar
+     */
+    public CatalogVersion getCatalogVersion() {
+        return catalogCache.getVersion();
+    }
+
+    /**
+     * Catálogo completo sincronizado por el listener junto con su versión, tomados del mismo
+     * snapshot. Null si la caché no está viva o no tiene la lista; los productos son de sólo lectura
+     */
+    public VersionedCatalog<Product> getVersionedCatalog() {
+        return catalogCache.getVersionedCatalog();
+    }
+
     /**
      * Obtiene todos los productos activos desde Firestore con Circuit Breaker
      * 
@@ -134,6 +396,12 @@ public class ProductService {
      */
     @CircuitBreaker(name = CIRCUIT_BREAKER_NAME, fallbackMethod = "getAllProductsFallback")
     public List<Product> getAllProducts() {
+        List<Product> cached = catalogCache.getCatalog();
+        if (cached != null) {
+            return new ArrayList<>(cached);
+        }
+        long cacheGeneration = catalogCache.generation();
+
         List<Product> products = new ArrayList<>();
         
         try {
@@ -146,6 +414,10 @@ public class ProductService {
             }
             
             log.info("Se obtuvieron {} productos", products.size());
+            if (catalogCache.isLive()) {
+                // Si el listener actualizó la caché durante la lectura, esta puede ser más vieja
+                catalogCache.putCatalog(products, cacheGeneration);
+            }
             return products;
             
         } catch (InterruptedException e) {
@@ -158,6 +430,40 @@ public class ProductService {
         }
     }
 
+    /**
+     * Obtiene una página de productos ordenada por ID, usando un cursor opaco
+     * 
+     * @param cursor cursor devuelto por la página anterior (null para la primera)
+     * @param size tamaño solicitado, acotado a FirestorePagination.MAX_PAGE_SIZE
+     * @return página de productos con el cursor de la siguiente
+     * @throws IllegalArgumentException si el cursor es inválido
+     */
+    public PageResponse<Product> getProductsPage(String cursor, Integer size) {
+        try {
+            return FirestorePagination.fetchPage(firestore.collection(PRODUCTS_COLLECTION), null,
+                    Query.Direction.ASCENDING, cursor, size, this::convertDocumentSafely);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Proceso interrumpido obteniendo página de productos: {}", e.getMessage());
+            throw new RuntimeException(ERROR_FIREBASE_RETRIEVE, e);
+        } catch (ExecutionException e) {
+            log.error("Error ejecutando consulta paginada de productos: {}", e.getMessage());
+            throw new RuntimeException(ERROR_FIREBASE_RETRIEVE, e);
+        }
+    }
+
+    /**
+     * Convierte un documento omitiendo los que no se pueden leer
+     */
+    private Product convertDocumentSafely(QueryDocumentSnapshot doc) {
+        try {
+            return convertDocumentToProduct(doc);
+        } catch (Exception e) {
+            log.error("Error convirtiendo documento a Product: {}", e.getMessage());
+            return null;
+        }
+    }
+
     /**
      * Procesa un documento individual y lo añade a la lista si es válido
      * 
@@ -187,6 +493,12 @@ public class ProductService {
     @CircuitBreaker(name = CIRCUIT_BREAKER_NAME, fallbackMethod = "getProductByIdFallback")
     public Product getProductById(String id) {
         validateProductId(id);
+
+        Product cached = catalogCache.get(id);
+        if (cached != null) {
+            return cached;
+        }
+        long cacheGeneration = catalogCache.generation();
         
         try {
             log.info("Obteniendo producto por ID: {}", id);
@@ -196,7 +508,11 @@ public class ProductService {
             com.google.cloud.firestore.DocumentSnapshot document = future.get();
             
             if (document.exists()) {
-                return processDocumentSnapshot(document);
+                Product product = processDocumentSnapshot(document);
+                if (product != null && catalogCache.isLive()) {
+                    catalogCache.put(product, cacheGeneration);
+                }
+                return product;
             } else {
                 log.warn("Producto no encontrado con ID: {}", id);
                 return null;
@@ -212,6 +528,34 @@ public class ProductService {
         }
     }
 
+    /**
+     * Espera una transacción sobre un producto y entrega sin envolver el conflicto de versión
+     * y las validaciones que falló dentro de ella
+     */
+    private static <T> T awaitTransaction(ApiFuture<T> transaction) throws ExecutionException, InterruptedException {
+        try {
+            return VersionedWrites.await(transaction);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IllegalArgumentException invalid) {
+                throw invalid;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Errores que responden a la petición y no a una falla de Firestore; el circuit breaker
+     * los ignora (ignore-exceptions) y los fallbacks de escritura no deben ocultarlos
+     */
+    private static void rethrowClientErrors(Exception e) {
+        if (e instanceof ConcurrentUpdateException conflict) {
+            throw conflict;
+        }
+        if (e instanceof IllegalArgumentException invalid) {
+            throw invalid;
+        }
+    }
+
     /**
      * Valida que el ID del producto sea válido
      * 
@@ -391,6 +735,7 @@ public class ProductService {
                 .unit(unit)
                 .weight(weight)
                 .origin(origin)
+                .version(doc.getLong(VersionedWrites.FIELD_VERSION))
                 .createdAt(createdAt)
                 .updatedAt(updatedAt)
                 .build();
@@ -442,6 +787,16 @@ public class ProductService {
             log.error("❌ [ERROR] ID de categoría no puede estar vacío");
             throw new IllegalArgumentException("ID de categoría no puede estar vacío");
         }
+
+        List<Product> catalog = catalogCache.getCatalog();
+        if (catalog != null) {
+            List<Product> products = catalog.stream()
+                    .filter(p -> categoryId.equals(p.getCategoryId()) && Boolean.TRUE.equals(p.getActive()))
+                    .sorted(BY_NAME)
+                    .collect(Collectors.toCollection(ArrayList::new));
+            log.info("🔹 [CACHÉ] {} productos para categoría '{}' servidos desde memoria", products.size(), categoryId);
+            return products;
+        }
         
         try {
             log.info("🔸 [FIRESTORE] Ejecutando consulta para categoría: {}", categoryId);
@@ -496,12 +851,7 @@ public class ProductService {
             
             // ====== ORDENACIÓN EN MEMORIA ======
             log.info("🔄 [ORDENACIÓN] Ordenando productos por nombre...");
-            products.sort((p1, p2) -> {
-                if (p1.getName() == null && p2.getName() == null) return 0;
-                if (p1.getName() == null) return 1;
-                if (p2.getName() == null) return -1;
-                return p1.getName().compareToIgnoreCase(p2.getName());
-            });
+            products.sort(BY_NAME);
             log.info("✅ [ORDENACIÓN] Productos ordenados correctamente");
             
             // ====== LOGGING DE SALIDA ======
@@ -547,12 +897,15 @@ public class ProductService {
     }
 
     /**
-     * Actualiza un producto existente en Firestore con Circuit Breaker
+     * Actualiza un producto existente en Firestore con Circuit Breaker.
+     * La edición se condiciona a la versión con la que el cliente leyó el producto, y el stock
+     * se conserva del documento: lo mueven las compras con incrementos que no cambian la versión
      * 
      * @param id ID del producto a actualizar
-     * @param product producto con los nuevos datos
+     * @param product producto con los nuevos datos y la versión leída por el cliente
      * @return producto actualizado
-     * @throws IllegalArgumentException si el ID o producto son inválidos
+     * @throws IllegalArgumentException si el ID o producto son inválidos, o falta la versión
+     * @throws ConcurrentUpdateException si el producto cambió desde que el cliente lo leyó
      * @throws RuntimeException si hay error en la persistencia
      */
     @CircuitBreaker(name = CIRCUIT_BREAKER_NAME, fallbackMethod = "updateProductFallback")
@@ -562,24 +915,28 @@ public class ProductService {
         
         try {
             log.info("Actualizando producto con ID: {}", id);
-            
-            // Verificar que el producto existe
-            Product existingProduct = getProductById(id);
-            if (existingProduct == null) {
-                throw new IllegalArgumentException("Producto no encontrado con ID: " + id);
-            }
-            
-            // Mantener ID y timestamps del producto existente
+
+            DocumentReference reference = firestore.collection(PRODUCTS_COLLECTION).document(id);
+            Long expectedVersion = product.getVersion();
             product.setId(id);
-            product.setCreatedAt(existingProduct.getCreatedAt());
             product.setUpdatedAt(Timestamp.now());
-            
-            ApiFuture<WriteResult> future = firestore.collection(PRODUCTS_COLLECTION)
-                    .document(id)
-                    .set(product);
+            awaitTransaction(firestore.runTransaction(transaction -> {
+                DocumentSnapshot current = transaction.get(reference).get();
+                if (!current.exists()) {
+                    throw new IllegalArgumentException("Producto no encontrado con ID: " + id);
+                }
+                if (expectedVersion == null && current.getLong(VersionedWrites.FIELD_VERSION) != null) {
+                    throw new IllegalArgumentException("La versión del producto es requerida para actualizarlo");
+                }
+                Product stored = buildProductFromDocument(id, current);
+                product.setCreatedAt(stored.getCreatedAt());
+                product.setStock(stored.getStock());
+                VersionedWrites.stage(transaction, current, product, expectedVersion);
+                return null;
+            }));
 
-            WriteResult result = future.get();
-            log.info("Producto actualizado en: {}", result.getUpdateTime());
+            log.info("Producto {} actualizado (versión {})", id, product.getVersion());
+            refreshCachedProduct(product);
             return product;
             
         } catch (InterruptedException e) {
@@ -593,9 +950,11 @@ public class ProductService {
     }
 
     /**
-     * Fallback para updateProduct
+     * Fallback para updateProduct. Los conflictos de versión y los datos inválidos se
+     * propagan: el cliente debe recibir 409 o 400, no un producto de relleno
      */
     public Product updateProductFallback(String id, Product product, Exception e) {
+        rethrowClientErrors(e);
         log.warn("Fallback activado para updateProduct con ID: {}. Error: {}", id, e.getMessage());
         return Product.builder()
                 .id(id)
@@ -608,7 +967,9 @@ public class ProductService {
     }
 
     /**
-     * Elimina un producto (soft delete) marcándolo como inactivo
+     * Elimina un producto (soft delete) marcándolo como inactivo. Sólo escribe active,
+     * updatedAt y la versión, dentro de una transacción sobre el documento, así que no pisa
+     * el stock que muevan las compras en paralelo
      * 
      * @param id ID del producto a eliminar
      * @return true si se eliminó correctamente
@@ -621,23 +982,26 @@ public class ProductService {
         
         try {
             log.info("Eliminando producto con ID: {}", id);
-            
-            // Verificar que el producto existe
-            Product existingProduct = getProductById(id);
-            if (existingProduct == null) {
-                throw new IllegalArgumentException("Producto no encontrado con ID: " + id);
-            }
-            
-            // Soft delete: marcar como inactivo
-            existingProduct.setActive(false);
-            existingProduct.setUpdatedAt(Timestamp.now());
-            
-            ApiFuture<WriteResult> future = firestore.collection(PRODUCTS_COLLECTION)
-                    .document(id)
-                    .set(existingProduct);
 
-            WriteResult result = future.get();
-            log.info("Producto eliminado (soft delete) en: {}", result.getUpdateTime());
+            DocumentReference reference = firestore.collection(PRODUCTS_COLLECTION).document(id);
+            Product deletedProduct = awaitTransaction(firestore.runTransaction(transaction -> {
+                DocumentSnapshot current = transaction.get(reference).get();
+                if (!current.exists()) {
+                    throw new IllegalArgumentException("Producto no encontrado con ID: " + id);
+                }
+                Product deleted = buildProductFromDocument(id, current);
+                deleted.setActive(false);
+                deleted.setUpdatedAt(Timestamp.now());
+                deleted.setVersion(deleted.getVersion() == null ? 1L : deleted.getVersion() + 1);
+                transaction.update(reference, Map.of(
+                        FIELD_ACTIVE, false,
+                        FIELD_UPDATED_AT, deleted.getUpdatedAt(),
+                        VersionedWrites.FIELD_VERSION, deleted.getVersion()));
+                return deleted;
+            }));
+
+            log.info("Producto {} eliminado (soft delete)", id);
+            refreshCachedProduct(deletedProduct);
             return true;
             
         } catch (InterruptedException e) {
@@ -651,9 +1015,10 @@ public class ProductService {
     }
 
     /**
-     * Fallback para deleteProduct
+     * Fallback para deleteProduct; igual que en updateProduct, conflictos y datos inválidos se propagan
      */
     public boolean deleteProductFallback(String id, Exception e) {
+        rethrowClientErrors(e);
         log.warn("Fallback activado para deleteProduct con ID: {}. Error: {}", id, e.getMessage());
         return false;
     }
@@ -679,6 +1044,8 @@ public class ProductService {
 
             WriteResult result = future.get();
             log.info("Producto eliminado permanentemente en: {}", result.getUpdateTime());
+            catalogCache.invalidate(id);
+            searchIndex.remove(id);
             return true;
             
         } catch (InterruptedException e) {
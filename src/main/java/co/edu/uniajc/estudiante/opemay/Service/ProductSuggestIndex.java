@@ -0,0 +1,231 @@
+package co.edu.uniajc.estudiante.opemay.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Árbol radix inmutable para autocompletar nombres de productos y categorías.
+ * Cada nombre se indexa desde el inicio de cada una de sus palabras ("limón tahití" se
+ * encuentra por "lim" y por "tah"), y cada nodo guarda ya calculadas las entradas más
+ * populares de su subárbol, de modo que un prefijo exacto se resuelve sin recorrerlo.
+ * Las erratas se toleran recorriendo el árbol con la fila de la distancia de Levenshtein,
+ * podando las ramas que ya superan la distancia permitida.
+ */
+final class ProductSuggestIndex {
+
+    static final String TYPE_PRODUCT = "product";
+    static final String TYPE_CATEGORY = "category";
+
+    private static final Pattern WORD_SEPARATOR = Pattern.compile("[^a-z0-9ñ]+");
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final int[] NO_ENTRIES = new int[0];
+
+    /**
+     * Mejor primero: más popular y, a igual popularidad, orden alfabético
+     */
+    private static final Comparator<Entry> BY_POPULARITY = Comparator.comparingLong(Entry::popularity).reversed()
+            .thenComparing(Entry::text, String.CASE_INSENSITIVE_ORDER);
+
+    private final Entry[] entries;
+    private final Node root;
+    private final int topPerNode;
+
+    /**
+     * Nombre sugerible con su popularidad (unidades vendidas)
+     */
+    record Entry(String text, String type, String id, long popularity) {
+    }
+
+    /**
+     * Entrada sugerida y la cantidad de erratas con que coincidió
+     */
+    record Match(Entry entry, int distance) {
+    }
+
+    private record Key(String text, int entry) {
+    }
+
+    private static final class Node {
+        final String label;
+        final Node[] children;
+        final int[] top;
+
+        Node(String label, Node[] children, int[] top) {
+            this.label = label;
+            this.children = children;
+            this.top = top;
+        }
+    }
+
+    private ProductSuggestIndex(Entry[] entries, Node root, int topPerNode) {
+        this.entries = entries;
+        this.root = root;
+        this.topPerNode = topPerNode;
+    }
+
+    /**
+     * Construye el índice; cada nodo conserva como máximo topPerNode entradas, que debe
+     * ser al menos el mayor límite que se vaya a pedir
+     */
+    static ProductSuggestIndex build(List<Entry> candidates, int topPerNode) {
+        Entry[] entries = candidates.stream()
+                .filter(entry -> entry.text() != null && !entry.text().isBlank())
+                .sorted(BY_POPULARITY)
+                .toArray(Entry[]::new);
+
+        // Al ordenar por popularidad antes de generar las claves, el índice de la entrada
+        // ya es su rango: menor índice, mejor sugerencia
+        List<Key> keys = new ArrayList<>();
+        for (int i = 0; i < entries.length; i++) {
+            for (String suffix : wordSuffixes(entries[i].text())) {
+                keys.add(new Key(suffix, i));
+            }
+        }
+        keys.sort(Comparator.comparing(Key::text).thenComparingInt(Key::entry));
+
+        Node root = keys.isEmpty()
+                ? new Node("", NO_CHILDREN, NO_ENTRIES)
+                : buildNode(keys, 0, keys.size(), "", 0, topPerNode);
+        return new ProductSuggestIndex(entries, root, topPerNode);
+    }
+
+    int size() {
+        return entries.length;
+    }
+
+    /**
+     * Entradas cuyo nombre contiene una palabra que empieza por el prefijo, con hasta
+     * maxDistance erratas. Ordenadas por menos erratas y luego por popularidad
+     */
+    List<Match> suggest(String prefix, int maxDistance, int limit) {
+        List<String> normalized = prefix == null ? List.of() : wordSuffixes(prefix);
+        if (normalized.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        char[] target = normalized.get(0).toCharArray();
+        int[] initialRow = new int[target.length + 1];
+        for (int j = 0; j < initialRow.length; j++) {
+            initialRow[j] = j;
+        }
+        Map<Integer, Integer> distances = new HashMap<>();
+        for (Node child : root.children) {
+            collect(child, target, initialRow, maxDistance, distances);
+        }
+
+        return distances.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Integer>comparingByValue().thenComparing(Map.Entry.comparingByKey()))
+                .limit(Math.min(limit, topPerNode))
+                .map(match -> new Match(entries[match.getKey()], match.getValue()))
+                .toList();
+    }
+
+    /**
+     * Avanza la fila de Levenshtein por la etiqueta del nodo. Cuando la última columna queda
+     * dentro de la distancia, el camino recorrido es un prefijo aceptable y todo el subárbol
+     * coincide; se sigue bajando por si más adentro coincide con menos erratas
+     */
+    private void collect(Node node, char[] target, int[] previousRow, int maxDistance,
+            Map<Integer, Integer> distances) {
+        int[] row = previousRow;
+        for (int i = 0; i < node.label.length(); i++) {
+            row = nextRow(row, target, node.label.charAt(i));
+            int last = row[target.length];
+            if (last <= maxDistance) {
+                for (int entry : node.top) {
+                    distances.merge(entry, last, Math::min);
+                }
+                if (last == 0) {
+                    // Coincidencia exacta: ningún descendiente puede mejorarla
+                    return;
+                }
+            }
+            if (min(row) > maxDistance) {
+                return;
+            }
+        }
+        for (Node child : node.children) {
+            collect(child, target, row, maxDistance, distances);
+        }
+    }
+
+    private static int[] nextRow(int[] previous, char[] target, char c) {
+        int[] row = new int[previous.length];
+        row[0] = previous[0] + 1;
+        for (int j = 1; j < row.length; j++) {
+            int substitution = previous[j - 1] + (target[j - 1] == c ? 0 : 1);
+            row[j] = Math.min(substitution, Math.min(previous[j], row[j - 1]) + 1);
+        }
+        return row;
+    }
+
+    private static int min(int[] row) {
+        int min = Integer.MAX_VALUE;
+        for (int value : row) {
+            min = Math.min(min, value);
+        }
+        return min;
+    }
+
+    /**
+     * Construye el nodo para las claves [from, to), que comparten los primeros depth caracteres.
+     * Los hijos se agrupan por el siguiente carácter y su etiqueta es el prefijo común del grupo
+     */
+    private static Node buildNode(List<Key> keys, int from, int to, String label, int depth, int topPerNode) {
+        Set<Integer> candidates = new LinkedHashSet<>();
+        List<Node> children = new ArrayList<>();
+        int i = from;
+        while (i < to && keys.get(i).text().length() == depth) {
+            candidates.add(keys.get(i).entry());
+            i++;
+        }
+        while (i < to) {
+            char next = keys.get(i).text().charAt(depth);
+            int groupEnd = i + 1;
+            while (groupEnd < to && keys.get(groupEnd).text().charAt(depth) == next) {
+                groupEnd++;
+            }
+            String first = keys.get(i).text();
+            int common = commonPrefixLength(first, keys.get(groupEnd - 1).text());
+            Node child = buildNode(keys, i, groupEnd, first.substring(depth, common), common, topPerNode);
+            children.add(child);
+            for (int entry : child.top) {
+                candidates.add(entry);
+            }
+            i = groupEnd;
+        }
+
+        int[] top = candidates.stream().mapToInt(Integer::intValue).sorted().limit(topPerNode).toArray();
+        return new Node(label, children.isEmpty() ? NO_CHILDREN : children.toArray(NO_CHILDREN), top);
+    }
+
+    private static int commonPrefixLength(String a, String b) {
+        int length = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < length && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Texto normalizado desde el inicio de cada palabra: "Limón Tahití" → "limon tahiti", "tahiti"
+     */
+    static List<String> wordSuffixes(String text) {
+        String[] words = Arrays.stream(WORD_SEPARATOR.split(SpanishTextAnalyzer.fold(text)))
+                .filter(word -> !word.isEmpty())
+                .toArray(String[]::new);
+        List<String> suffixes = new ArrayList<>(words.length);
+        for (int i = 0; i < words.length; i++) {
+            suffixes.add(String.join(" ", Arrays.copyOfRange(words, i, words.length)));
+        }
+        return suffixes;
+    }
+}
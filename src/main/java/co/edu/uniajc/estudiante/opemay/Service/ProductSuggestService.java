@@ -0,0 +1,197 @@
+package co.edu.uniajc.estudiante.opemay.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import co.edu.uniajc.estudiante.opemay.IRespository.ProductRepository;
+import co.edu.uniajc.estudiante.opemay.dto.Suggestion;
+import co.edu.uniajc.estudiante.opemay.model.Category;
+import co.edu.uniajc.estudiante.opemay.model.Product;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Autocompletado de nombres de productos y categorías mientras el usuario escribe.
+ * El índice se arma con el catálogo y las categorías que ya están en memoria y se
+ * reconstruye sólo cuando cambian los campos indexados de los productos, la versión de
+ * las categorías o la popularidad, así que las consultas no llegan a Firestore.
+ */
+@Service
+@Slf4j
+public class ProductSuggestService {
+
+    static final int DEFAULT_LIMIT = 10;
+    static final int MAX_LIMIT = 20;
+
+    private final ProductService productService;
+    private final CategoryService categoryService;
+    private final ProductRepository productRepository;
+
+    /**
+     * Sin listener del catálogo no hay versión de productos y el índice se reconstruye con esta frecuencia
+     */
+    @Value("${app.products.suggest.rebuild-interval:5m}")
+    private Duration rebuildInterval = Duration.ofMinutes(5);
+
+    private volatile ProductSuggestIndex index;
+    private volatile String indexKey;
+    private volatile long indexBuiltAt;
+
+    /**
+     * Resumen de los campos indexados para la última versión del catálogo vista. La versión
+     * cambia también con el stock (cada compra); el resumen sólo con lo que entra al índice
+     */
+    private volatile IndexedProducts indexedProducts;
+
+    private record IndexedProducts(String catalogEtag, String digest) {
+    }
+
+    /** Lo único de un producto que afecta al índice */
+    private record IndexedFields(String id, String name, Boolean active, String categoryId) {
+    }
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    /** Unidades vendidas por producto, cargadas por ProductPopularityRefreshJob */
+    private volatile Map<String, Long> salesCounts = Map.of();
+    private final AtomicLong popularityGeneration = new AtomicLong();
+
+    public ProductSuggestService(ProductService productService, CategoryService categoryService,
+            ProductRepository productRepository) {
+        this.productService = productService;
+        this.categoryService = categoryService;
+        this.productRepository = productRepository;
+    }
+
+    /**
+     * Sugiere productos y categorías con alguna palabra que empiece por el prefijo,
+     * tolerando erratas según su largo (ver maxDistance)
+     *
+     * @param prefix texto escrito hasta ahora; se ignoran tildes y mayúsculas
+     * @param limit cantidad máxima de sugerencias (por defecto 10, máximo 20)
+     * @return sugerencias con menos erratas primero y, entre ellas, las más vendidas
+     * @throws IllegalArgumentException si el prefijo está vacío
+     */
+    public List<Suggestion> suggest(String prefix, Integer limit) throws ExecutionException, InterruptedException {
+        if (prefix == null || prefix.trim().isEmpty()) {
+            throw new IllegalArgumentException("El prefijo no puede estar vacío");
+        }
+        int size = limit == null ? DEFAULT_LIMIT : Math.max(1, Math.min(limit, MAX_LIMIT));
+        int distance = maxDistance(SpanishTextAnalyzer.fold(prefix.trim()).length());
+        return currentIndex().suggest(prefix, distance, size).stream()
+                .map(match -> Suggestion.builder()
+                        .text(match.entry().text())
+                        .type(match.entry().type())
+                        .id(match.entry().id())
+                        .build())
+                .toList();
+    }
+
+    /**
+     * Erratas toleradas: ninguna con menos de 3 letras (cualquier cosa coincidiría),
+     * una hasta 5 letras y dos desde 6 ("platno" → "plátano")
+     */
+    static int maxDistance(int prefixLength) {
+        if (prefixLength < 3) {
+            return 0;
+        }
+        return prefixLength < 6 ? 1 : 2;
+    }
+
+    /**
+     * Vuelve a leer las unidades vendidas de productStats; el índice se reconstruye en la siguiente consulta
+     */
+    public void refreshPopularity() throws ExecutionException, InterruptedException {
+        Map<String, Long> loaded = productRepository.getSalesCounts();
+        if (!loaded.equals(salesCounts)) {
+            salesCounts = Map.copyOf(loaded);
+            popularityGeneration.incrementAndGet();
+        }
+        log.debug("Popularidad de productos actualizada: {} productos con ventas", loaded.size());
+    }
+
+    private ProductSuggestIndex currentIndex() throws ExecutionException, InterruptedException {
+        String key = indexKey();
+        ProductSuggestIndex current = index;
+        if (current != null && isFresh(key)) {
+            return current;
+        }
+        // La reconstrucción puede leer Firestore: un lock no fija el carrier de un hilo virtual
+        rebuildLock.lock();
+        try {
+            key = indexKey();
+            if (index != null && isFresh(key)) {
+                return index;
+            }
+            index = buildIndex();
+            indexKey = key;
+            indexBuiltAt = System.nanoTime();
+            log.info("Índice de autocompletado construido con {} nombres", index.size());
+            return index;
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private boolean isFresh(String key) {
+        return key.equals(indexKey)
+                && (productService.getCatalogVersion() != null
+                        || System.nanoTime() - indexBuiltAt < rebuildInterval.toNanos());
+    }
+
+    private String indexKey() throws ExecutionException, InterruptedException {
+        return productsKey()
+                + "|" + categoryService.getVersion().etag()
+                + "|" + popularityGeneration.get();
+    }
+
+    private String productsKey() throws ExecutionException, InterruptedException {
+        CatalogVersion products = productService.getCatalogVersion();
+        if (products == null) {
+            return "-";
+        }
+        IndexedProducts current = indexedProducts;
+        if (current != null && current.catalogEtag().equals(products.etag())) {
+            return current.digest();
+        }
+        // El catálogo se lee después de la versión: a lo sumo es más nuevo, y eso sólo adelanta la reconstrucción
+        List<IndexedFields> fields = productService.getAllProducts().stream()
+                .map(product -> new IndexedFields(product.getId(), product.getName(), product.getActive(),
+                        product.getCategoryId()))
+                .toList();
+        String digest = CatalogVersion.of(fields, field -> null).etag();
+        indexedProducts = new IndexedProducts(products.etag(), digest);
+        return digest;
+    }
+
+    private ProductSuggestIndex buildIndex() throws ExecutionException, InterruptedException {
+        Map<String, Long> sales = salesCounts;
+        Map<String, Long> categorySales = new HashMap<>();
+        List<ProductSuggestIndex.Entry> entries = new ArrayList<>();
+
+        for (Product product : productService.getAllProducts()) {
+            if (!Boolean.TRUE.equals(product.getActive()) || product.getName() == null) {
+                continue;
+            }
+            long sold = sales.getOrDefault(product.getId(), 0L);
+            entries.add(new ProductSuggestIndex.Entry(product.getName(), ProductSuggestIndex.TYPE_PRODUCT,
+                    product.getId(), sold));
+            if (product.getCategoryId() != null) {
+                categorySales.merge(product.getCategoryId(), sold, Long::sum);
+            }
+        }
+        // Una categoría es tan popular como la suma de las ventas de sus productos
+        for (Category category : categoryService.getAllActiveCategories()) {
+            entries.add(new ProductSuggestIndex.Entry(category.getName(), ProductSuggestIndex.TYPE_CATEGORY,
+                    category.getId(), categorySales.getOrDefault(category.getId(), 0L)));
+        }
+        return ProductSuggestIndex.build(entries, MAX_LIMIT);
+    }
+}
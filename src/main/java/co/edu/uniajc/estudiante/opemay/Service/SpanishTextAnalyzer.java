@@ -0,0 +1,74 @@
+package co.edu.uniajc.estudiante.opemay.Service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Normaliza texto en español para búsqueda: minúsculas, sin tildes, sin palabras vacías
+ * y con un stemming ligero que quita el plural y la vocal final, de modo que singular,
+ * plural y género comparten raíz (manzana/manzanas → manzan, limón/limones → limon,
+ * nuez/nueces → nuec). Se usa igual al indexar y al consultar.
+ */
+final class SpanishTextAnalyzer {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^a-z0-9ñ]+");
+
+    private static final Set<String> STOPWORDS = Set.of(
+            "a", "al", "con", "de", "del", "el", "en", "la", "las", "lo", "los",
+            "o", "para", "por", "sin", "su", "sus", "u", "un", "una", "unas", "unos", "y");
+
+    private static final int MIN_STEM_LENGTH = 3;
+
+    private SpanishTextAnalyzer() {
+    }
+
+    /**
+     * Separa el texto en términos normalizados, en el orden en que aparecen
+     */
+    static List<String> analyze(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null || text.isBlank()) {
+            return terms;
+        }
+        for (String token : NON_ALPHANUMERIC.split(fold(text))) {
+            if (!token.isEmpty() && !STOPWORDS.contains(token)) {
+                terms.add(stem(token));
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Minúsculas y sin tildes ni diéresis; la ñ se conserva
+     */
+    static String fold(String text) {
+        String lower = text.toLowerCase(Locale.ROOT).replace('ñ', '\u0000');
+        String folded = DIACRITICS.matcher(Normalizer.normalize(lower, Normalizer.Form.NFD)).replaceAll("");
+        return folded.replace('\u0000', 'ñ');
+    }
+
+    /**
+     * Quita "-es" o "-s" del plural y luego la vocal final a/e/o, sin dejar raíces de menos
+     * de tres letras. La z final pasa a c para que coincida con el plural en "-ces"
+     */
+    static String stem(String term) {
+        String stem = term;
+        if (stem.endsWith("es") && stem.length() - 2 >= MIN_STEM_LENGTH) {
+            stem = stem.substring(0, stem.length() - 2);
+        } else if (stem.endsWith("s") && stem.length() - 1 >= MIN_STEM_LENGTH) {
+            stem = stem.substring(0, stem.length() - 1);
+        }
+        char last = stem.charAt(stem.length() - 1);
+        if ((last == 'a' || last == 'e' || last == 'o') && stem.length() - 1 >= MIN_STEM_LENGTH) {
+            stem = stem.substring(0, stem.length() - 1);
+        } else if (last == 'z') {
+            stem = stem.substring(0, stem.length() - 1) + "c";
+        }
+        return stem;
+    }
+}
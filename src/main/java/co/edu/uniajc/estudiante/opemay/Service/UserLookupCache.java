@@ -0,0 +1,271 @@
+package co.edu.uniajc.estudiante.opemay.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import co.edu.uniajc.estudiante.opemay.model.User;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Caché en memoria de usuarios por ID, email y username, acotada por tamaño (LRU) y por TTL.
+ * También guarda los usuarios que no existen ("negativos") con un TTL corto, para que los
+ * logins fallidos repetidos no consulten Firestore cada vez. Las entradas de sesión, que se
+ * consultan en cada petición autenticada para aplicar revocaciones hechas en otras instancias,
+ * usan un TTL propio más corto.
+ * Entrega siempre copias para que los llamadores puedan modificar el usuario sin afectarla.
+ */
+@Component
+public class UserLookupCache {
+
+    static final String METRIC_REQUESTS = "opemay.users.cache.requests";
+    static final String METRIC_HIT_RATIO = "opemay.users.cache.hit.ratio";
+    static final String METRIC_SIZE = "opemay.users.cache.size";
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    private final long sessionTtlNanos;
+    private final LongSupplier ticker;
+
+    private final Map<String, Entry> entries;
+
+    /**
+     * Se incrementa en cada invalidación; una consulta iniciada antes no guarda su resultado
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private Counter hitCounter;
+    private Counter missCounter;
+
+    /**
+     * Resultado de una consulta a la caché: si {@code found} es true, {@code user} es el
+     * usuario guardado o null si se sabe que no existe
+     */
+    public record Lookup(boolean found, User user) {
+        static final Lookup MISS = new Lookup(false, null);
+    }
+
+    @Autowired
+    public UserLookupCache(@Value("${app.users.cache.max-size:10000}") int maxSize,
+                           @Value("${app.users.cache.ttl:5m}") Duration ttl,
+                           @Value("${app.users.cache.negative-ttl:30s}") Duration negativeTtl,
+                           @Value("${app.users.cache.session-ttl:30s}") Duration sessionTtl,
+                           @Autowired(required = false) MeterRegistry meterRegistry) {
+        this(maxSize, ttl, negativeTtl, sessionTtl, meterRegistry, System::nanoTime);
+    }
+
+    UserLookupCache(int maxSize, Duration ttl, Duration negativeTtl, Duration sessionTtl, MeterRegistry meterRegistry,
+                    LongSupplier ticker) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("El tamaño máximo de la caché debe ser mayor a 0");
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.negativeTtlNanos = negativeTtl.toNanos();
+        this.sessionTtlNanos = sessionTtl.toNanos();
+        this.ticker = ticker;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > UserLookupCache.this.maxSize;
+            }
+        };
+        registerMetrics(meterRegistry);
+    }
+
+    private void registerMetrics(MeterRegistry meterRegistry) {
+        if (meterRegistry == null) {
+            return;
+        }
+        hitCounter = requestCounter(meterRegistry, "hit");
+        missCounter = requestCounter(meterRegistry, "miss");
+        Gauge.builder(METRIC_HIT_RATIO, this, UserLookupCache::hitRatio)
+                .description("Proporción de búsquedas de usuarios resueltas desde la caché")
+                .register(meterRegistry);
+        Gauge.builder(METRIC_SIZE, this, UserLookupCache::size)
+                .description("Entradas guardadas en la caché de usuarios")
+                .register(meterRegistry);
+    }
+
+    private static Counter requestCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder(METRIC_REQUESTS)
+                .description("Consultas a la caché de usuarios")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    public static String idKey(String id) {
+        return "id:" + id;
+    }
+
+    public static String emailKey(String email) {
+        return "email:" + email;
+    }
+
+    public static String usernameKey(String username) {
+        return "username:" + username;
+    }
+
+    public static String sessionKey(String id) {
+        return "session:" + id;
+    }
+
+    /**
+     * Generación actual; se pasa a {@link #put} para descartar resultados leídos antes de una invalidación
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    public Lookup get(String key) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && entry.isExpired(ticker.getAsLong())) {
+                entries.remove(key);
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+            increment(missCounter);
+            return Lookup.MISS;
+        }
+        hits.incrementAndGet();
+        increment(hitCounter);
+        return new Lookup(true, entry.user != null ? copy(entry.user) : null);
+    }
+
+    /**
+     * Guarda el resultado de una consulta a Firestore; un usuario null se guarda como negativo
+     * con el TTL corto. No guarda nada si hubo una invalidación desde {@code readGeneration}
+     */
+    public void put(String key, User user, long readGeneration) {
+        store(key, user, ttlNanos, readGeneration);
+    }
+
+    /**
+     * Como {@link #put} pero con el TTL de sesión: es lo que tarda una revocación hecha en
+     * otra instancia en aplicarse aquí
+     */
+    public void putSession(String id, User user, long readGeneration) {
+        store(sessionKey(id), user, sessionTtlNanos, readGeneration);
+    }
+
+    private void store(String key, User user, long userTtlNanos, long readGeneration) {
+        long now = ticker.getAsLong();
+        Entry entry = user != null
+                ? new Entry(copy(user), now + userTtlNanos)
+                : new Entry(null, now + negativeTtlNanos);
+        synchronized (entries) {
+            if (generation.get() != readGeneration) {
+                return;
+            }
+            entries.put(key, entry);
+        }
+    }
+
+    /**
+     * Elimina todas las entradas del usuario, incluidas las de un email o username anterior,
+     * y las entradas negativas de su email y username actuales
+     */
+    public void invalidate(User user) {
+        if (user == null) {
+            return;
+        }
+        List<String> keys = new ArrayList<>(3);
+        if (user.getId() != null) {
+            keys.add(idKey(user.getId()));
+            keys.add(sessionKey(user.getId()));
+        }
+        if (user.getEmail() != null) {
+            keys.add(emailKey(user.getEmail()));
+        }
+        if (user.getUsername() != null) {
+            keys.add(usernameKey(user.getUsername()));
+        }
+        synchronized (entries) {
+            generation.incrementAndGet();
+            keys.forEach(entries::remove);
+            if (user.getId() != null) {
+                entries.values().removeIf(e -> e.user != null && user.getId().equals(e.user.getId()));
+            }
+        }
+    }
+
+    public void invalidateId(String id) {
+        if (id == null) {
+            return;
+        }
+        synchronized (entries) {
+            generation.incrementAndGet();
+            entries.remove(idKey(id));
+            entries.remove(sessionKey(id));
+            entries.values().removeIf(e -> e.user != null && id.equals(e.user.getId()));
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public double hitRatio() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    private static void increment(Counter counter) {
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+
+    private static User copy(User user) {
+        return User.builder()
+                .id(user.getId())
+                .username(user.getUsername())
+                .email(user.getEmail())
+                .password(user.getPassword())
+                .firstName(user.getFirstName())
+                .lastName(user.getLastName())
+                .enabled(user.getEnabled())
+                .accountNonExpired(user.getAccountNonExpired())
+                .accountNonLocked(user.getAccountNonLocked())
+                .credentialsNonExpired(user.getCredentialsNonExpired())
+                .roles(user.getRoles() != null ? List.copyOf(user.getRoles()) : null)
+                .createdAt(user.getCreatedAt())
+                .lastLogin(user.getLastLogin())
+                .updatedAt(user.getUpdatedAt())
+                .tokensValidAfter(user.getTokensValidAfter())
+                .build();
+    }
+
+    private record Entry(User user, long expiresAtNanos) {
+        boolean isExpired(long now) {
+            return now - expiresAtNanos >= 0;
+        }
+    }
+}
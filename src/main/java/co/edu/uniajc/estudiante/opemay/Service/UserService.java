@@ -2,7 +2,9 @@ package co.edu.uniajc.estudiante.opemay.Service;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -10,6 +12,7 @@ import org.springframework.stereotype.Service;
 import com.google.cloud.Timestamp;
 
 import co.edu.uniajc.estudiante.opemay.IRespository.UserRepository;
+import co.edu.uniajc.estudiante.opemay.dto.PageResponse;
 import co.edu.uniajc.estudiante.opemay.model.User;
 import lombok.extern.slf4j.Slf4j;
     
@@ -19,16 +22,52 @@ public class UserService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final JwtService jwtService;
+    private final UserLookupCache userCache;
 
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder, JwtService jwtService,
+                       UserLookupCache userCache) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.jwtService = jwtService;
+        this.userCache = userCache;
+    }
+
+    /**
+     * Consulta de usuario a Firestore que puede resolverse desde la caché
+     */
+    @FunctionalInterface
+    private interface UserLoader {
+        User load() throws ExecutionException, InterruptedException;
+    }
+
+    /**
+     * Devuelve el usuario desde la caché (incluidos los "no existe" recientes) o lo consulta
+     * y guarda el resultado. Los errores de Firestore no se guardan
+     */
+    private User cachedLookup(String key, UserLoader loader) throws ExecutionException, InterruptedException {
+        UserLookupCache.Lookup cached = userCache.get(key);
+        if (cached.found()) {
+            return cached.user();
+        }
+        long generation = userCache.generation();
+        User user = loader.load();
+        userCache.put(key, user, generation);
+        return user;
+    }
+
+    private User lookupByUsername(String username) throws ExecutionException, InterruptedException {
+        return cachedLookup(UserLookupCache.usernameKey(username), () -> userRepository.getUserByUsername(username));
+    }
+
+    private User lookupByEmail(String email) throws ExecutionException, InterruptedException {
+        return cachedLookup(UserLookupCache.emailKey(email), () -> userRepository.getUserByEmail(email));
     }
 
     // Método simple para JWT filter que no depende de Spring Security UserDetails
     public User loadUserByUsername(String username) {
         try {
-            User user = userRepository.getUserByUsername(username);
+            User user = lookupByUsername(username);
             if (user == null) {
                 log.error("Usuario no encontrado: {}", username);
                 return null;
@@ -64,6 +103,7 @@ public class UserService {
             user.setUpdatedAt(Timestamp.now());
 
             userRepository.save(user);
+            userCache.invalidate(user);
             log.info("Usuario creado exitosamente: {}", user.getUsername());
             return user;
             
@@ -75,7 +115,7 @@ public class UserService {
 
     public User getUserByUsername(String username) {
         try {
-            return userRepository.getUserByUsername(username);
+            return lookupByUsername(username);
         } catch (ExecutionException | InterruptedException e) {
             log.error("Error obteniendo usuario por username: {}", e.getMessage());
             return null;
@@ -85,7 +125,7 @@ public class UserService {
     public User getUserByEmail(String email) {
         try {
             log.info("Buscando usuario por email: '{}'", email);
-            User user = userRepository.getUserByEmail(email);
+            User user = lookupByEmail(email);
             if (user != null) {
                 log.info("Usuario encontrado: ID={}, Email={}", user.getId(), user.getEmail());
             } else {
@@ -100,19 +140,40 @@ public class UserService {
 
     public User getUserById(String id) {
         try {
-            return userRepository.getUserById(id);
+            return cachedLookup(UserLookupCache.idKey(id), () -> userRepository.getUserById(id));
         } catch (ExecutionException | InterruptedException e) {
             log.error("Error obteniendo usuario por ID: {}", e.getMessage());
             return null;
         }
     }
 
-    public List<User> getAllUsers() {
+    /**
+     * Versión asíncrona de getUserById: responde desde la caché o consulta Firestore sin
+     * bloquear el hilo. A diferencia de getUserById, los errores se propagan en el future
+     */
+    public CompletableFuture<User> getUserByIdAsync(String id) {
+        String key = UserLookupCache.idKey(id);
+        UserLookupCache.Lookup cached = userCache.get(key);
+        if (cached.found()) {
+            return CompletableFuture.completedFuture(cached.user());
+        }
+        long generation = userCache.generation();
+        return userRepository.getUserByIdAsync(id).thenApply(user -> {
+            userCache.put(key, user, generation);
+            return user;
+        });
+    }
+
+    public PageResponse<User> getAllUsers(String cursor, Integer size) {
         try {
-            return userRepository.getAllUsers();
+            return userRepository.getUsersPage(cursor, size);
         } catch (ExecutionException | InterruptedException e) {
-            log.error("Error obteniendo todos los usuarios: {}", e.getMessage());
-            return List.of();
+            log.error("Error obteniendo usuarios: {}", e.getMessage());
+            return PageResponse.<User>builder()
+                    .items(List.of())
+                    .size(0)
+                    .hasMore(false)
+                    .build();
         }
     }
 
@@ -120,6 +181,10 @@ public class UserService {
         try {
             user.setUpdatedAt(Timestamp.now());
             userRepository.update(user);
+            userCache.invalidate(user);
+            if (!isAccountActive(user)) {
+                revokeSessions(user.getId());
+            }
             return user;
         } catch (ExecutionException | InterruptedException e) {
             log.error("Error actualizando usuario: {}", e.getMessage());
@@ -130,6 +195,8 @@ public class UserService {
     public void deleteUser(String id) {
         try {
             userRepository.delete(id);
+            // Sin documento, isSessionCurrent rechaza sus tokens en cuanto vence la entrada de sesión
+            userCache.invalidateId(id);
             log.info("Usuario eliminado: {}", id);
         } catch (Exception e) {
             log.error("Error eliminando usuario: {}", e.getMessage());
@@ -137,6 +204,70 @@ public class UserService {
         }
     }
 
+    /**
+     * Invalida los tokens ya emitidos para el usuario. Necesario cuando cambian
+     * datos que viajan en el token (roles, email) o la cuenta deja de estar activa.
+     * Se guarda en el usuario, así que aplica en todas las instancias y sobrevive a reinicios
+     */
+    public void revokeSessions(String userId) {
+        if (userId == null) {
+            return;
+        }
+        try {
+            // Truncada al segundo, la precisión de iat: un login justo después de revocar sigue valiendo
+            userRepository.revokeTokens(userId, Timestamp.ofTimeSecondsAndNanos(Timestamp.now().getSeconds(), 0));
+            userCache.invalidateId(userId);
+        } catch (ExecutionException | InterruptedException e) {
+            log.error("Error revocando sesiones del usuario {}: {}", userId, e.getMessage());
+            throw new RuntimeException("Error al revocar las sesiones del usuario", e);
+        }
+    }
+
+    /**
+     * Indica si un token con claims de usuario sigue vigente: la cuenta existe, está activa y el
+     * token se emitió en el segundo de la última revocación o después. El usuario se lee desde la
+     * caché con el TTL de sesión, que acota cuánto tarda en aplicarse aquí una revocación de otra instancia.
+     * Si Firestore no responde el token se rechaza
+     */
+    public boolean isSessionCurrent(JwtService.VerifiedToken token) {
+        if (token.userId() == null) {
+            return true;
+        }
+        User user;
+        try {
+            user = sessionLookup(token.userId());
+        } catch (ExecutionException | InterruptedException e) {
+            log.error("No se pudo verificar la sesión del usuario {}: {}", token.userId(), e.getMessage());
+            return false;
+        }
+        if (user == null || !isAccountActive(user)) {
+            return false;
+        }
+        Timestamp validAfter = user.getTokensValidAfter();
+        // iat sólo tiene segundos: se compara al segundo y vale el token emitido en el mismo segundo
+        // de la revocación, para no rechazar el login que la sigue
+        return validAfter == null
+                || (token.issuedAt() != null
+                        && TimeUnit.MILLISECONDS.toSeconds(token.issuedAt().getTime()) >= validAfter.getSeconds());
+    }
+
+    private User sessionLookup(String id) throws ExecutionException, InterruptedException {
+        UserLookupCache.Lookup cached = userCache.get(UserLookupCache.sessionKey(id));
+        if (cached.found()) {
+            return cached.user();
+        }
+        long generation = userCache.generation();
+        User user = userRepository.getUserById(id);
+        userCache.putSession(id, user, generation);
+        return user;
+    }
+
+    private boolean isAccountActive(User user) {
+        return !Boolean.FALSE.equals(user.getEnabled())
+                && !Boolean.FALSE.equals(user.getAccountNonLocked())
+                && !Boolean.FALSE.equals(user.getAccountNonExpired());
+    }
+
     public void updateLastLogin(String username) {
         try {
             User user = getUserByUsername(username);
@@ -152,8 +283,7 @@ public class UserService {
     // Métodos compatibles con tests (usando Optional)
     public Optional<User> findByUsername(String username) {
         try {
-            User user = userRepository.getUserByUsername(username);
-            return Optional.ofNullable(user);
+            return Optional.ofNullable(lookupByUsername(username));
         } catch (ExecutionException | InterruptedException e) {
             log.error("Error buscando usuario por username: {}", e.getMessage());
             return Optional.empty();
@@ -162,8 +292,7 @@ public class UserService {
 
     public Optional<User> findByEmail(String email) {
         try {
-            User user = userRepository.getUserByEmail(email);
-            return Optional.ofNullable(user);
+            return Optional.ofNullable(lookupByEmail(email));
         } catch (ExecutionException | InterruptedException e) {
             log.error("Error buscando usuario por email: {}", e.getMessage());
             return Optional.empty();
@@ -191,6 +320,7 @@ public class UserService {
             }
 
             userRepository.save(user);
+            userCache.invalidate(user);
             return user;
             
         } catch (ExecutionException e) {
@@ -0,0 +1,14 @@
+package co.edu.uniajc.estudiante.opemay.Service;
+
+import java.util.List;
+
+/**
+ * Una vista del catálogo junto con la versión calculada a partir de ese mismo contenido.
+ * Se publican juntas para que quien sirva el ETag sirva también exactamente esos elementos.
+ * Los elementos son compartidos y de sólo lectura: quien necesite modificarlos debe pedir una copia.
+ *
+ * @param version versión del contenido, para ETag y Last-Modified
+ * @param items elementos de la vista, en orden de presentación
+ */
+public record VersionedCatalog<T>(CatalogVersion version, List<T> items) {
+}
@@ -5,19 +5,32 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import com.google.api.gax.grpc.ChannelPoolSettings;
+import com.google.api.gax.grpc.InstantiatingGrpcChannelProvider;
+import com.google.api.gax.rpc.TransportChannelProvider;
 import com.google.auth.oauth2.GoogleCredentials;
 import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.FirestoreOptions;
 import com.google.firebase.FirebaseApp;
 import com.google.firebase.FirebaseOptions;
 import com.google.firebase.cloud.FirestoreClient;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
 import lombok.extern.slf4j.Slf4j;
 
 @Configuration
@@ -25,8 +38,31 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 class FirebaseInitializer {
 
+    private static final String EXECUTOR_METRIC_NAME = "firestore.grpc.executor";
+
     private boolean firebaseInitialized = false;
 
+    private ExecutorService firestoreExecutor;
+
+    // Ajustes del canal gRPC de Firestore (0 = usar el valor por defecto del SDK)
+    @Value("${firebase.firestore.channel-pool-size:4}")
+    private int channelPoolSize;
+
+    @Value("${firebase.firestore.keep-alive-seconds:60}")
+    private long keepAliveSeconds;
+
+    @Value("${firebase.firestore.keep-alive-timeout-seconds:20}")
+    private long keepAliveTimeoutSeconds;
+
+    @Value("${firebase.firestore.max-inbound-message-size-mb:16}")
+    private int maxInboundMessageSizeMb;
+
+    @Value("${firebase.firestore.executor-threads:16}")
+    private int executorThreads;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
     @PostConstruct
     public void initFirestore() throws IOException {
         String firebaseConfig = System.getenv("FIREBASE_CONFIG_03");
@@ -57,6 +93,7 @@ class FirebaseInitializer {
             try {
                 FirebaseOptions options = FirebaseOptions.builder()
                         .setCredentials(GoogleCredentials.fromStream(serviceAccount))
+                        .setFirestoreOptions(buildFirestoreOptions())
                         .build();
                 FirebaseApp.initializeApp(options);
                 this.firebaseInitialized = true;
@@ -71,6 +108,61 @@ class FirebaseInitializer {
         }
     }
 
+    /**
+     * Construye las opciones del cliente Firestore con un canal gRPC ajustado.
+     * FirestoreClient completa credenciales y projectId a partir de FirebaseOptions,
+     * así que todos los repositorios y servicios comparten esta única instancia.
+     */
+    private FirestoreOptions buildFirestoreOptions() {
+        InstantiatingGrpcChannelProvider.Builder channel = FirestoreOptions.getDefaultTransportChannelProviderBuilder();
+
+        if (channelPoolSize > 0) {
+            channel.setChannelPoolSettings(ChannelPoolSettings.staticallySized(channelPoolSize));
+        }
+        if (keepAliveSeconds > 0) {
+            channel.setKeepAliveTime(org.threeten.bp.Duration.ofSeconds(keepAliveSeconds));
+            channel.setKeepAliveTimeout(org.threeten.bp.Duration.ofSeconds(Math.max(keepAliveTimeoutSeconds, 1)));
+            channel.setKeepAliveWithoutCalls(true);
+        }
+        if (maxInboundMessageSizeMb > 0) {
+            channel.setMaxInboundMessageSize(maxInboundMessageSizeMb * 1024 * 1024);
+        }
+
+        TransportChannelProvider channelProvider = channel.build();
+        if (executorThreads > 0) {
+            firestoreExecutor = Executors.newFixedThreadPool(executorThreads, firestoreThreadFactory());
+            if (meterRegistry != null) {
+                firestoreExecutor = ExecutorServiceMetrics.monitor(meterRegistry, firestoreExecutor, EXECUTOR_METRIC_NAME);
+            }
+            channelProvider = channelProvider.withExecutor(firestoreExecutor);
+        }
+
+        // Pool, keep-alive y tamaño de mensaje son configuración fija: se registran en el log, no como
+        // métricas. Lo que sí se mide es el executor del canal (hilos activos, cola, tareas completadas)
+        log.info("⚙️ Firestore gRPC: pool={} canales, keepAlive={}s, maxInbound={}MB, executor={} hilos",
+                channelPoolSize, keepAliveSeconds, maxInboundMessageSizeMb, executorThreads);
+
+        return FirestoreOptions.newBuilder()
+                .setChannelProvider(channelProvider)
+                .build();
+    }
+
+    private ThreadFactory firestoreThreadFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "firestore-grpc-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    @PreDestroy
+    public void shutdownExecutor() {
+        if (firestoreExecutor != null) {
+            firestoreExecutor.shutdown();
+        }
+    }
+
     @Bean
     public Firestore firestore() {
         if (!firebaseInitialized) {
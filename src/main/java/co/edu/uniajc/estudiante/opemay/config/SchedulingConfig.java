@@ -0,0 +1,12 @@
+package co.edu.uniajc.estudiante.opemay.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Habilita las tareas programadas (mantenimiento de estadísticas, etc.)
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
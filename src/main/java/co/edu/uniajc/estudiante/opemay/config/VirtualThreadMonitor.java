@@ -0,0 +1,180 @@
+package co.edu.uniajc.estudiante.opemay.config;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Con spring.threads.virtual.enabled=true, Tomcat, @Async y las tareas programadas corren en
+ * hilos virtuales. Este monitor escucha con JFR los eventos de pinning (un hilo virtual que se
+ * bloquea sin soltar su carrier, típicamente dentro de un synchronized o de código nativo) y
+ * los rechazos del scheduler, y publica cuántos carriers están vivos. La primera vez que aparece
+ * un punto de pinning se registra su pila en el log.
+ */
+@Component
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+@Slf4j
+public class VirtualThreadMonitor {
+
+    static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    static final String SUBMIT_FAILED_EVENT = "jdk.VirtualThreadSubmitFailed";
+    private static final String CARRIER_GROUP = "CarrierThreads";
+    private static final int LOGGED_FRAMES = 12;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    /**
+     * Bloqueos más cortos que este umbral no se reportan como pinning
+     */
+    @Value("${app.threads.virtual.pinned-threshold:20ms}")
+    private Duration pinnedThreshold = Duration.ofMillis(20);
+
+    private RecordingStream recording;
+    private Counter pinnedCounter;
+    private Timer pinnedTimer;
+    private Counter submitFailedCounter;
+    private final Set<String> reportedPinningSites = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    void start() {
+        registerCarrierMetrics();
+        try {
+            recording = new RecordingStream();
+            recording.enable(PINNED_EVENT).withThreshold(pinnedThreshold).withStackTrace();
+            recording.enable(SUBMIT_FAILED_EVENT);
+            recording.onEvent(PINNED_EVENT, this::onPinned);
+            recording.onEvent(SUBMIT_FAILED_EVENT, event -> onSubmitFailed());
+            recording.startAsync();
+            // Paralelismo y máximo de carriers son configuración fija: van al log, no a métricas
+            log.info("Hilos virtuales habilitados: monitor de pinning activo (umbral {} ms, {} carriers, máximo {})",
+                    pinnedThreshold.toMillis(), carrierParallelism(), carrierMaxPoolSize());
+        } catch (Exception e) {
+            // JFR puede estar deshabilitado en la JVM; los hilos virtuales siguen funcionando
+            log.warn("No se pudo iniciar el monitor de pinning con JFR: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+
+    void onPinned(RecordedEvent event) {
+        if (pinnedCounter != null) {
+            pinnedCounter.increment();
+            pinnedTimer.record(event.getDuration());
+        }
+        String site = pinningSite(event.getStackTrace());
+        if (reportedPinningSites.add(site)) {
+            log.warn("Hilo virtual fijado a su carrier durante {} ms en {}:\n{}",
+                    event.getDuration().toMillis(), site, formatStack(event.getStackTrace()));
+        }
+    }
+
+    void onSubmitFailed() {
+        if (submitFailedCounter != null) {
+            submitFailedCounter.increment();
+        }
+        log.error("El scheduler de hilos virtuales rechazó una tarea");
+    }
+
+    private void registerCarrierMetrics() {
+        if (meterRegistry == null) {
+            return;
+        }
+        pinnedCounter = Counter.builder("opemay.threads.virtual.pinned")
+                .description("Veces que un hilo virtual bloqueó su carrier más allá del umbral")
+                .register(meterRegistry);
+        pinnedTimer = Timer.builder("opemay.threads.virtual.pinned.duration")
+                .description("Tiempo que los hilos virtuales permanecieron fijados a su carrier")
+                .register(meterRegistry);
+        submitFailedCounter = Counter.builder("opemay.threads.virtual.submit.failed")
+                .description("Tareas de hilos virtuales rechazadas por el scheduler")
+                .register(meterRegistry);
+        Gauge.builder("opemay.threads.virtual.carrier.live", VirtualThreadMonitor::liveCarriers)
+                .description("Carriers vivos en este momento")
+                .register(meterRegistry);
+    }
+
+    static int carrierParallelism() {
+        return Integer.getInteger("jdk.virtualThreadScheduler.parallelism",
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    static int carrierMaxPoolSize() {
+        return Integer.getInteger("jdk.virtualThreadScheduler.maxPoolSize", Math.max(carrierParallelism(), 256));
+    }
+
+    /**
+     * Cuenta los hilos del grupo de carriers; sólo recorre hilos de plataforma, sin capturar pilas
+     */
+    static int liveCarriers() {
+        ThreadGroup root = Thread.currentThread().getThreadGroup();
+        while (root.getParent() != null) {
+            root = root.getParent();
+        }
+        Thread[] threads = new Thread[root.activeCount() * 2 + 16];
+        int count = root.enumerate(threads, true);
+        int carriers = 0;
+        for (int i = 0; i < count; i++) {
+            ThreadGroup group = threads[i].getThreadGroup();
+            if (group != null && CARRIER_GROUP.equals(group.getName())) {
+                carriers++;
+            }
+        }
+        return carriers;
+    }
+
+    /**
+     * Primer frame fuera del JDK: el código de la aplicación o dependencia que provocó el pinning
+     */
+    static String pinningSite(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) {
+            return "desconocido";
+        }
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            if (!frame.isJavaFrame()) {
+                continue;
+            }
+            String type = frame.getMethod().getType().getName();
+            if (!type.startsWith("java.") && !type.startsWith("jdk.") && !type.startsWith("sun.")) {
+                return type + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+            }
+        }
+        return "JDK";
+    }
+
+    private static String formatStack(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) {
+            return "  (sin pila)";
+        }
+        StringBuilder text = new StringBuilder();
+        stackTrace.getFrames().stream().limit(LOGGED_FRAMES).forEach(frame -> text.append("  at ")
+                .append(frame.getMethod().getType().getName()).append('.')
+                .append(frame.getMethod().getName()).append(':')
+                .append(frame.getLineNumber()).append('\n'));
+        return text.toString();
+    }
+}
@@ -0,0 +1,28 @@
+package co.edu.uniajc.estudiante.opemay.dto;
+
+import java.util.List;
+import java.util.Map;
+
+import co.edu.uniajc.estudiante.opemay.model.Product;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Página de productos filtrados con el conteo de cada valor de faceta.
+ * El conteo de una faceta aplica todos los filtros salvo el de esa misma faceta,
+ * para que el cliente sepa cuántos resultados tendría al elegir otro valor
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FacetedProductPage {
+
+    private List<Product> items;
+    private Integer total;
+    private Integer page;
+    private Integer size;
+    private Map<String, Map<String, Integer>> facets; // faceta → valor → cantidad
+}
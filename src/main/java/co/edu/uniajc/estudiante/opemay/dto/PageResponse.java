@@ -0,0 +1,23 @@
+package co.edu.uniajc.estudiante.opemay.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Página de resultados con cursor opaco para solicitar la siguiente
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PageResponse<T> {
+
+    private List<T> items;
+    private Integer size;
+    private String nextCursor;
+    private Boolean hasMore;
+}
@@ -0,0 +1,29 @@
+package co.edu.uniajc.estudiante.opemay.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Filtros, orden y página para consultar el catálogo con facetas.
+ * Dentro de una misma faceta los valores se combinan con OR; entre facetas, con AND
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductFilter {
+
+    private Double minPrice;
+    private Double maxPrice;
+    private List<String> categoryIds;
+    private List<String> origins;
+    private List<String> units;
+    private Boolean inStock;
+    private String sort; // name (por defecto), price, -price, pricePerWeight, newest
+    private Integer page; // desde 0
+    private Integer size;
+}
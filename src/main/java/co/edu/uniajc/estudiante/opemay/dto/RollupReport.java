@@ -0,0 +1,26 @@
+package co.edu.uniajc.estudiante.opemay.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+import co.edu.uniajc.estudiante.opemay.model.OrderRollup;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Respuesta de consulta de agregados: intervalos del rango y su total
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RollupReport {
+
+    private Instant from;
+    private Instant to;
+    private String granularity;
+    private List<OrderRollup> buckets;
+    private OrderRollup totals;
+}
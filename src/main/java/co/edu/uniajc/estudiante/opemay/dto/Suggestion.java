@@ -0,0 +1,20 @@
+package co.edu.uniajc.estudiante.opemay.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Sugerencia de autocompletado: nombre de un producto o de una categoría
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class Suggestion {
+
+    private String text;
+    private String type; // product o category
+    private String id;
+}
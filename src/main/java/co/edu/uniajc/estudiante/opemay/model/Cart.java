@@ -21,7 +21,7 @@ import lombok.ToString;
 @AllArgsConstructor
 @ToString
 @EqualsAndHashCode(of = "id")
-public class Cart {
+public class Cart implements Versioned {
     
     private String id;
     private String userId;
@@ -49,6 +49,11 @@ public class Cart {
     
     @Builder.Default
     private Boolean active = true;
+
+    /**
+     * Se incrementa en cada escritura; una escritura con una versión vieja se rechaza
+     */
+    private Long version;
     
     /**
      * Calcula el monto total del carrito
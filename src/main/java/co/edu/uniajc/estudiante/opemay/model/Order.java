@@ -21,7 +21,7 @@ import lombok.ToString;
 @AllArgsConstructor
 @ToString
 @EqualsAndHashCode(of = "id")
-public class Order {
+public class Order implements Versioned {
     
     private String id;
     private String userId;
@@ -76,6 +76,11 @@ public class Order {
     
     @Builder.Default
     private Boolean active = true;
+
+    /**
+     * Se incrementa en cada escritura; una escritura con una versión vieja se rechaza
+     */
+    private Long version;
     
     /**
      * Calcula el total de la orden
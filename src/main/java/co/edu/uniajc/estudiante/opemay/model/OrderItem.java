@@ -22,6 +22,7 @@ public class OrderItem {
     private Double price;
     private Integer quantity;
     private String imageUrl;
+    private String categoryId;
     private String categoryName;
     private String unit; // kg, unidad, litro, etc.
     
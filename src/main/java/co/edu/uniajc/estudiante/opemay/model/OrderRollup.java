@@ -0,0 +1,102 @@
+package co.edu.uniajc.estudiante.opemay.model;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.google.cloud.Timestamp;
+
+import co.edu.uniajc.estudiante.opemay.config.JacksonConfig;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Agregado de órdenes para un intervalo de tiempo (hora o día).
+ * Los ingresos y unidades son netos: una cancelación resta en el
+ * intervalo en que se creó la orden.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderRollup {
+
+    public static final String HOUR = "HOUR";
+    public static final String DAY = "DAY";
+
+    private String id;
+    private String granularity;
+
+    @JsonSerialize(using = JacksonConfig.TimestampSerializer.class)
+    @JsonDeserialize(using = JacksonConfig.TimestampDeserializer.class)
+    private Timestamp bucketStart;
+
+    // Día al que pertenece el intervalo (yyyy-MM-dd), usado por la compactación
+    private String dayId;
+
+    @Builder.Default
+    private Long ordersPlaced = 0L;
+
+    @Builder.Default
+    private Long ordersCancelled = 0L;
+
+    @Builder.Default
+    private Double revenue = 0.0;
+
+    @Builder.Default
+    private Long itemsSold = 0L;
+
+    @Builder.Default
+    private Map<String, CategoryTotals> categories = new HashMap<>();
+
+    /**
+     * Ingresos y unidades vendidas de una categoría dentro del intervalo
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CategoryTotals {
+        private String categoryName;
+
+        @Builder.Default
+        private Double revenue = 0.0;
+
+        @Builder.Default
+        private Long itemsSold = 0L;
+    }
+
+    /**
+     * Suma otro agregado sobre éste (usado al combinar horas en días y en los totales de un rango)
+     */
+    public void add(OrderRollup other) {
+        ordersPlaced = safe(ordersPlaced) + safe(other.getOrdersPlaced());
+        ordersCancelled = safe(ordersCancelled) + safe(other.getOrdersCancelled());
+        revenue = safe(revenue) + safe(other.getRevenue());
+        itemsSold = safe(itemsSold) + safe(other.getItemsSold());
+
+        if (other.getCategories() == null) {
+            return;
+        }
+        if (categories == null) {
+            categories = new HashMap<>();
+        }
+        other.getCategories().forEach((categoryId, totals) -> {
+            CategoryTotals target = categories.computeIfAbsent(categoryId,
+                    id -> CategoryTotals.builder().categoryName(totals.getCategoryName()).build());
+            target.setRevenue(safe(target.getRevenue()) + safe(totals.getRevenue()));
+            target.setItemsSold(safe(target.getItemsSold()) + safe(totals.getItemsSold()));
+        });
+    }
+
+    private static long safe(Long value) {
+        return value == null ? 0L : value;
+    }
+
+    private static double safe(Double value) {
+        return value == null ? 0.0 : value;
+    }
+}
@@ -0,0 +1,50 @@
+package co.edu.uniajc.estudiante.opemay.model;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.google.cloud.Timestamp;
+
+import co.edu.uniajc.estudiante.opemay.config.JacksonConfig;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Documento de estadísticas de órdenes mantenido de forma incremental
+ * (stats/orders). Se actualiza en la misma escritura atómica que cada
+ * creación o transición de estado de una orden.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderStatistics {
+
+    @Builder.Default
+    private Map<String, Long> statusCounts = new HashMap<>();
+
+    @Builder.Default
+    private Long totalOrders = 0L;
+
+    // Ingresos de órdenes entregadas
+    @Builder.Default
+    private Double totalRevenue = 0.0;
+
+    @JsonSerialize(using = JacksonConfig.TimestampSerializer.class)
+    @JsonDeserialize(using = JacksonConfig.TimestampDeserializer.class)
+    private Timestamp updatedAt;
+
+    // Última reconstrucción completa; null mientras el documento sólo tiene incrementos
+    @JsonSerialize(using = JacksonConfig.TimestampSerializer.class)
+    @JsonDeserialize(using = JacksonConfig.TimestampDeserializer.class)
+    private Timestamp rebuiltAt;
+
+    public long getCount(OrderStatus status) {
+        Long count = statusCounts == null ? null : statusCounts.get(status.name());
+        return count == null ? 0L : count;
+    }
+}
@@ -19,7 +19,7 @@ import lombok.ToString;
 @AllArgsConstructor
 @ToString
 @EqualsAndHashCode(of = "id")
-public class Product {
+public class Product implements Versioned {
     
     private String id;
     private String name;
@@ -45,6 +45,11 @@ public class Product {
     private String unit; // kg, unidad, litro, etc.
     private Double weight; // peso en gramos
     private String origin; // origen del producto
+
+    /**
+     * Se incrementa en cada escritura; una escritura con una versión vieja se rechaza
+     */
+    private Long version;
     
     /**
      * Valida que el producto tenga los datos mínimos requeridos
@@ -54,4 +54,12 @@ public class User {
     @JsonSerialize(using = JacksonConfig.TimestampSerializer.class)
     @JsonDeserialize(using = JacksonConfig.TimestampDeserializer.class)
     private Timestamp updatedAt;
+
+    /**
+     * Los tokens emitidos hasta este momento ya no son válidos (roles cambiados, cuenta
+     * deshabilitada). Se guarda en Firestore para que todas las instancias lo apliquen
+     */
+    @JsonSerialize(using = JacksonConfig.TimestampSerializer.class)
+    @JsonDeserialize(using = JacksonConfig.TimestampDeserializer.class)
+    private Timestamp tokensValidAfter;
 }
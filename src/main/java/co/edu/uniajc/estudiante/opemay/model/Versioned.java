@@ -0,0 +1,12 @@
+package co.edu.uniajc.estudiante.opemay.model;
+
+/**
+ * Documento con número de versión para control de concurrencia optimista.
+ * La versión es null en documentos escritos antes de existir este campo.
+ */
+public interface Versioned {
+
+    Long getVersion();
+
+    void setVersion(Long version);
+}
@@ -50,8 +50,13 @@ public class AuthController {
                     .body(Map.of("error", "Contraseña incorrecta"));
             }
             
-            // Generar token JWT usando email
-            String jwt = jwtService.generateTokenFromEmail(user.getEmail());
+            if (!Boolean.TRUE.equals(user.getEnabled()) || Boolean.FALSE.equals(user.getAccountNonLocked())) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("error", "Cuenta deshabilitada o bloqueada"));
+            }
+            
+            // Generar token JWT con email como subject e ID y roles como claims
+            String jwt = jwtService.generateTokenForUser(user);
             
             log.info("Login exitoso para usuario: {}", loginRequest.getEmail());
             
@@ -88,13 +93,17 @@ public class AuthController {
                     .body(Map.of("error", "Token expirado o inválido"));
             }
 
-            String username = jwtService.getUsernameFromToken(token);
-            String newToken = jwtService.generateTokenFromUsername(username);
+            JwtService.VerifiedToken verified = jwtService.verifyToken(token);
+            if (!userService.isSessionCurrent(verified)) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("error", "La sesión fue revocada, inicie sesión de nuevo"));
+            }
+            String newToken = jwtService.refreshToken(verified);
             
             return ResponseEntity.ok(Map.of(
                 "token", newToken,
                 "type", "Bearer",
-                "username", username
+                "username", verified.subject()
             ));
             
         } catch (Exception e) {
@@ -157,9 +166,10 @@ public class AuthController {
                     .body(Map.of("error", "Usuario no encontrado"));
             }
             
-            // Actualizar roles
+            // Actualizar roles; los tokens emitidos con los roles anteriores quedan revocados
             user.setRoles(roles);
             userService.updateUser(user);
+            userService.revokeSessions(user.getId());
             
             log.info("Roles actualizados para usuario {}: {}", email, roles);
             
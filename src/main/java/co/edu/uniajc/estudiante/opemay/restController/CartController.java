@@ -18,12 +18,15 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import co.edu.uniajc.estudiante.opemay.IRespository.ConcurrentUpdateException;
 import co.edu.uniajc.estudiante.opemay.Service.CartService;
 import co.edu.uniajc.estudiante.opemay.dto.AddToCartRequest;
 import co.edu.uniajc.estudiante.opemay.dto.CartResponse;
+import co.edu.uniajc.estudiante.opemay.dto.PageResponse;
 import co.edu.uniajc.estudiante.opemay.dto.UpdateCartItemRequest;
 import co.edu.uniajc.estudiante.opemay.model.Cart;
 import co.edu.uniajc.estudiante.opemay.security.UserPrincipal;
@@ -37,6 +40,9 @@ public class CartController {
     @Autowired
     private CartService cartService;
 
+    @Autowired
+    private IdempotentRequests idempotentRequests;
+
     /**
      * Obtiene el carrito activo del usuario autenticado
      */
@@ -65,9 +71,15 @@ public class CartController {
      */
     @PostMapping("/items")
     @PreAuthorize("hasRole('USER')")
-    public ResponseEntity<CartResponse> addToCart(@Valid @RequestBody AddToCartRequest request) {
+    public ResponseEntity<?> addToCart(@Valid @RequestBody AddToCartRequest request,
+            @RequestHeader(value = IdempotentRequests.HEADER, required = false) String idempotencyKey) {
+        String userId = getCurrentUserId();
+        return idempotentRequests.execute(idempotencyKey, userId, "cart.addItem", request,
+                () -> addToCart(userId, request));
+    }
+
+    private ResponseEntity<CartResponse> addToCart(String userId, AddToCartRequest request) {
         try {
-            String userId = getCurrentUserId();
             Cart cart = cartService.addProductToCart(userId, request.getProductId(), request.getQuantity());
             
             CartResponse response = convertToResponse(cart);
@@ -77,6 +89,9 @@ public class CartController {
             log.error("Error al agregar producto al carrito", e);
             Thread.currentThread().interrupt();
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        } catch (ConcurrentUpdateException e) {
+            log.warn("Conflicto de escritura en el carrito: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
         } catch (IllegalArgumentException e) {
             log.warn("Argumento inválido al agregar al carrito: {}", e.getMessage());
             return ResponseEntity.badRequest().build();
@@ -100,6 +115,9 @@ public class CartController {
             log.error("Error al actualizar item del carrito", e);
             Thread.currentThread().interrupt();
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        } catch (ConcurrentUpdateException e) {
+            log.warn("Conflicto de escritura en el carrito: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
         } catch (IllegalArgumentException e) {
             log.warn("Argumento inválido al actualizar item: {}", e.getMessage());
             return ResponseEntity.badRequest().build();
@@ -123,6 +141,9 @@ public class CartController {
             log.error("Error al remover producto del carrito", e);
             Thread.currentThread().interrupt();
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        } catch (ConcurrentUpdateException e) {
+            log.warn("Conflicto de escritura en el carrito: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
         } catch (IllegalArgumentException e) {
             log.warn("Argumento inválido al remover del carrito: {}", e.getMessage());
             return ResponseEntity.badRequest().build();
@@ -146,6 +167,9 @@ public class CartController {
             log.error("Error al limpiar carrito", e);
             Thread.currentThread().interrupt();
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        } catch (ConcurrentUpdateException e) {
+            log.warn("Conflicto de escritura en el carrito: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
         } catch (IllegalArgumentException e) {
             log.warn("Argumento inválido al limpiar carrito: {}", e.getMessage());
             return ResponseEntity.badRequest().build();
@@ -169,6 +193,9 @@ public class CartController {
             log.error("Error al completar carrito", e);
             Thread.currentThread().interrupt();
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        } catch (ConcurrentUpdateException e) {
+            log.warn("Conflicto de escritura en el carrito: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
         } catch (IllegalArgumentException e) {
             log.warn("Error al completar carrito: {}", e.getMessage());
             return ResponseEntity.badRequest().build();
@@ -180,16 +207,14 @@ public class CartController {
      */
     @GetMapping("/history")
     @PreAuthorize("hasRole('USER')")
-    public ResponseEntity<List<CartResponse>> getCartHistory() {
+    public ResponseEntity<PageResponse<CartResponse>> getCartHistory(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
         try {
             String userId = getCurrentUserId();
-            List<Cart> carts = cartService.getUserCarts(userId);
+            PageResponse<Cart> carts = cartService.getUserCarts(userId, cursor, size);
             
-            List<CartResponse> responses = carts.stream()
-                    .map(this::convertToResponse)
-                    .toList();
-            
-            return ResponseEntity.ok(responses);
+            return ResponseEntity.ok(convertToPageResponse(carts));
             
         } catch (ExecutionException | InterruptedException e) {
             log.error("Error al obtener historial de carritos", e);
@@ -208,20 +233,21 @@ public class CartController {
      */
     @GetMapping("/admin/all")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<List<CartResponse>> getAllCarts() {
+    public ResponseEntity<PageResponse<CartResponse>> getAllCarts(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
         try {
-            List<Cart> carts = cartService.getAllCarts();
-            
-            List<CartResponse> responses = carts.stream()
-                    .map(this::convertToResponse)
-                    .toList();
+            PageResponse<Cart> carts = cartService.getAllCarts(cursor, size);
             
-            return ResponseEntity.ok(responses);
+            return ResponseEntity.ok(convertToPageResponse(carts));
             
         } catch (ExecutionException | InterruptedException e) {
             log.error("Error al obtener todos los carritos", e);
             Thread.currentThread().interrupt();
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        } catch (IllegalArgumentException e) {
+            log.warn("Cursor inválido al obtener carritos: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
         }
     }
 
@@ -303,4 +329,16 @@ public class CartController {
                 .active(cart.getActive())
                 .build();
     }
-}
\ No newline at end of file
+
+    /**
+     * Convierte una página de Cart a una página de CartResponse
+     */
+    private PageResponse<CartResponse> convertToPageResponse(PageResponse<Cart> page) {
+        return PageResponse.<CartResponse>builder()
+                .items(page.getItems().stream().map(this::convertToResponse).toList())
+                .size(page.getSize())
+                .nextCursor(page.getNextCursor())
+                .hasMore(page.getHasMore())
+                .build();
+    }
+}
@@ -1,11 +1,13 @@
 package co.edu.uniajc.estudiante.opemay.restController;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
 
 import jakarta.validation.Valid;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -17,8 +19,11 @@ import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
+import co.edu.uniajc.estudiante.opemay.Service.CatalogVersion;
 import co.edu.uniajc.estudiante.opemay.Service.CategoryService;
+import co.edu.uniajc.estudiante.opemay.Service.VersionedCatalog;
 import co.edu.uniajc.estudiante.opemay.dto.CreateCategoryRequest;
 import co.edu.uniajc.estudiante.opemay.dto.UpdateCategoryRequest;
 import co.edu.uniajc.estudiante.opemay.model.Category;
@@ -32,14 +37,27 @@ public class CategoryController {
     @Autowired
     private CategoryService categoryService;
 
+    @Autowired
+    private PrecompressedCatalog precompressedCatalog;
+
+    @Value("${app.catalog.http.max-age:60s}")
+    private Duration catalogMaxAge = Duration.ofSeconds(60);
+
     /**
      * Obtiene todas las categorías activas (público)
      */
     @GetMapping
-    public ResponseEntity<List<Category>> getAllActiveCategories() {
+    public ResponseEntity<?> getAllActiveCategories(WebRequest request) {
         try {
+            VersionedCatalog<Category> catalog = categoryService.getActiveCatalog();
+            if (catalog != null) {
+                return precompressedCatalog.respond(request, "categories:active", catalog, catalogMaxAge);
+            }
             List<Category> categories = categoryService.getAllActiveCategories();
-            return ResponseEntity.ok(categories);
+            if (ConditionalGet.notModified(request, CatalogVersion.of(categories, Category::getUpdatedAt))) {
+                return ConditionalGet.notModifiedResponse(catalogMaxAge);
+            }
+            return ConditionalGet.ok(categories, catalogMaxAge);
             
         } catch (ExecutionException | InterruptedException e) {
             log.error("Error al obtener categorías activas", e);
@@ -52,15 +70,22 @@ public class CategoryController {
      * Obtiene una categoría por ID (público)
      */
     @GetMapping("/{id}")
-    public ResponseEntity<Category> getCategoryById(@PathVariable String id) {
+    public ResponseEntity<Category> getCategoryById(@PathVariable String id, WebRequest request) {
         try {
+            CatalogVersion version = categoryService.getVersion();
+            if (ConditionalGet.notModified(request, version)) {
+                return ConditionalGet.notModifiedResponse(catalogMaxAge);
+            }
             Category category = categoryService.getCategoryById(id);
             
             if (category == null) {
                 return ResponseEntity.notFound().build();
             }
+            if (version == null && ConditionalGet.notModified(request, CatalogVersion.of(List.of(category), Category::getUpdatedAt))) {
+                return ConditionalGet.notModifiedResponse(catalogMaxAge);
+            }
             
-            return ResponseEntity.ok(category);
+            return ConditionalGet.ok(category, catalogMaxAge);
             
         } catch (ExecutionException | InterruptedException e) {
             log.error("Error al obtener categoría por ID", e);
@@ -76,15 +101,22 @@ public class CategoryController {
      * Busca una categoría por nombre (público)
      */
     @GetMapping("/name/{name}")
-    public ResponseEntity<Category> getCategoryByName(@PathVariable String name) {
+    public ResponseEntity<Category> getCategoryByName(@PathVariable String name, WebRequest request) {
         try {
+            CatalogVersion version = categoryService.getVersion();
+            if (ConditionalGet.notModified(request, version)) {
+                return ConditionalGet.notModifiedResponse(catalogMaxAge);
+            }
             Category category = categoryService.getCategoryByName(name);
             
             if (category == null) {
                 return ResponseEntity.notFound().build();
             }
+            if (version == null && ConditionalGet.notModified(request, CatalogVersion.of(List.of(category), Category::getUpdatedAt))) {
+                return ConditionalGet.notModifiedResponse(catalogMaxAge);
+            }
             
-            return ResponseEntity.ok(category);
+            return ConditionalGet.ok(category, catalogMaxAge);
             
         } catch (ExecutionException | InterruptedException e) {
             log.error("Error al obtener categoría por nombre", e);
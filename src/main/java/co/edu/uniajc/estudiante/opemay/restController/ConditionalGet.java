@@ -0,0 +1,40 @@
+package co.edu.uniajc.estudiante.opemay.restController;
+
+import java.time.Duration;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+import co.edu.uniajc.estudiante.opemay.Service.CatalogVersion;
+
+/**
+ * Respuestas de los GET del catálogo con ETag, Last-Modified y Cache-Control,
+ * para que navegadores y proxies reutilicen la respuesta mientras el catálogo no cambie
+ */
+final class ConditionalGet {
+
+    private ConditionalGet() {
+    }
+
+    /**
+     * Compara If-None-Match / If-Modified-Since con la versión y deja ETag y Last-Modified
+     * en la respuesta. Devuelve true si el cliente ya tiene esta versión
+     */
+    static boolean notModified(WebRequest request, CatalogVersion version) {
+        return version != null && request.checkNotModified(version.etag(), version.lastModifiedMillis());
+    }
+
+    static <T> ResponseEntity<T> notModifiedResponse(Duration maxAge) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cacheControl(maxAge)).build();
+    }
+
+    static <T> ResponseEntity<T> ok(T body, Duration maxAge) {
+        return ResponseEntity.ok().cacheControl(cacheControl(maxAge)).body(body);
+    }
+
+    private static CacheControl cacheControl(Duration maxAge) {
+        return CacheControl.maxAge(maxAge).cachePublic();
+    }
+}
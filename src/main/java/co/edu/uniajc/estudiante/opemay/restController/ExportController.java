@@ -0,0 +1,136 @@
+package co.edu.uniajc.estudiante.opemay.restController;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.google.cloud.Timestamp;
+
+import co.edu.uniajc.estudiante.opemay.Service.ExportService;
+import co.edu.uniajc.estudiante.opemay.dto.ExportFormat;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Exportación masiva para administradores. Las respuestas se escriben en streaming
+ * (NDJSON o CSV) para no mantener la colección completa en memoria.
+ */
+@RestController
+@RequestMapping("/api/admin/export")
+@RequiredArgsConstructor
+@Slf4j
+public class ExportController {
+
+    private final ExportService exportService;
+
+    /**
+     * Exporta órdenes filtradas por estado y rango de createdAt
+     */
+    @GetMapping("/orders")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> exportOrders(
+            @RequestParam(required = false) String format,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to) {
+        try {
+            ExportFormat exportFormat = ExportFormat.fromParam(format);
+            String normalizedStatus = exportService.normalizeOrderStatus(status);
+            validateRange(from, to);
+
+            return stream("orders", exportFormat, out ->
+                    exportService.exportOrders(out, exportFormat, normalizedStatus, toTimestamp(from), toTimestamp(to)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Exporta carritos filtrados por estado y rango de createdAt
+     */
+    @GetMapping("/carts")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> exportCarts(
+            @RequestParam(required = false) String format,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to) {
+        try {
+            ExportFormat exportFormat = ExportFormat.fromParam(format);
+            validateRange(from, to);
+
+            return stream("carts", exportFormat, out ->
+                    exportService.exportCarts(out, exportFormat, status, toTimestamp(from), toTimestamp(to)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Exporta usuarios (sin credenciales) creados en el rango indicado
+     */
+    @GetMapping("/users")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> exportUsers(
+            @RequestParam(required = false) String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to) {
+        try {
+            ExportFormat exportFormat = ExportFormat.fromParam(format);
+            validateRange(from, to);
+
+            return stream("users", exportFormat, out ->
+                    exportService.exportUsers(out, exportFormat, toTimestamp(from), toTimestamp(to)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    private ResponseEntity<StreamingResponseBody> stream(String name, ExportFormat format, ExportTask task) {
+        StreamingResponseBody body = out -> {
+            try {
+                task.run(out);
+            } catch (ExecutionException e) {
+                log.error("Error exportando {}: {}", name, e.getMessage());
+                throw new IOException("Error exportando " + name, e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Exportación de " + name + " interrumpida", e);
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"" + name + "-export." + format.getExtension() + "\"")
+                .body(body);
+    }
+
+    private static void validateRange(Instant from, Instant to) {
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new IllegalArgumentException("El parámetro 'from' debe ser anterior a 'to'");
+        }
+    }
+
+    private static Timestamp toTimestamp(Instant instant) {
+        return instant == null ? null : Timestamp.ofTimeSecondsAndNanos(instant.getEpochSecond(), instant.getNano());
+    }
+
+    @FunctionalInterface
+    private interface ExportTask {
+        void run(OutputStream out) throws IOException, ExecutionException, InterruptedException;
+    }
+}
@@ -0,0 +1,185 @@
+package co.edu.uniajc.estudiante.opemay.restController;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import co.edu.uniajc.estudiante.opemay.IRespository.IdempotencyRecord;
+import co.edu.uniajc.estudiante.opemay.IRespository.IdempotencyStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * POST que el cliente puede reintentar sin duplicar efectos. Con la cabecera Idempotency-Key,
+ * la primera petición se ejecuta y su respuesta exitosa se guarda durante app.idempotency.ttl;
+ * las repeticiones con la misma clave y el mismo cuerpo reciben esa respuesta sin volver a
+ * ejecutarse. Las respuestas de error no se guardan, así que un reintento vuelve a intentarlo.
+ */
+@Component
+@Slf4j
+class IdempotentRequests {
+
+    static final String HEADER = "Idempotency-Key";
+    static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    static final String METRIC_REQUESTS = "opemay.idempotency.requests";
+    static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyStore store;
+    private final ObjectMapper objectMapper;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.idempotency.ttl:24h}")
+    private Duration ttl = Duration.ofHours(24);
+
+    /**
+     * Vencimiento de la reserva mientras la petición se atiende; si la instancia cae a mitad,
+     * la clave queda libre tras este plazo en lugar de bloquearse todo el TTL
+     */
+    @Value("${app.idempotency.in-progress-ttl:1m}")
+    private Duration inProgressTtl = Duration.ofMinutes(1);
+
+    IdempotentRequests(IdempotencyStore store, ObjectMapper objectMapper) {
+        this.store = store;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Ejecuta la acción una sola vez por clave
+     *
+     * @param key valor de la cabecera Idempotency-Key; sin clave la acción se ejecuta siempre
+     * @param userId dueño de la clave: la misma clave de otro usuario es otra petición
+     * @param operation nombre del endpoint, para que la clave no se cruce entre endpoints
+     * @param request cuerpo de la petición; reutilizar la clave con otro cuerpo responde 422
+     */
+    ResponseEntity<?> execute(String key, String userId, String operation, Object request,
+            Supplier<ResponseEntity<?>> action) {
+        if (key == null) {
+            return action.get();
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            return error(HttpStatus.BAD_REQUEST,
+                    "La cabecera " + HEADER + " debe tener entre 1 y " + MAX_KEY_LENGTH + " caracteres");
+        }
+
+        String storeKey = hash(userId + "\n" + operation + "\n" + key);
+        String fingerprint;
+        Optional<IdempotencyRecord> existing;
+        try {
+            fingerprint = hash(objectMapper.writeValueAsString(request));
+            existing = store.reserve(storeKey, IdempotencyRecord.inProgress(fingerprint, expiresAt(inProgressTtl)));
+        } catch (JsonProcessingException | ExecutionException e) {
+            log.error("Error al reservar la Idempotency-Key de {}", operation, e);
+            return error(HttpStatus.INTERNAL_SERVER_ERROR, "Error interno del servidor");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return error(HttpStatus.INTERNAL_SERVER_ERROR, "Error interno del servidor");
+        }
+
+        if (existing.isPresent()) {
+            return answerRepeat(existing.get(), fingerprint, operation);
+        }
+        record(operation, "executed");
+        return runReserved(storeKey, fingerprint, operation, action);
+    }
+
+    private ResponseEntity<?> answerRepeat(IdempotencyRecord stored, String fingerprint, String operation) {
+        if (!stored.fingerprint().equals(fingerprint)) {
+            record(operation, "mismatch");
+            return error(HttpStatus.UNPROCESSABLE_ENTITY,
+                    "La " + HEADER + " ya se usó con una petición distinta");
+        }
+        if (!stored.completed()) {
+            record(operation, "in_progress");
+            return error(HttpStatus.CONFLICT, "Hay una petición con la misma " + HEADER + " en curso");
+        }
+        record(operation, "replayed");
+        log.debug("Respuesta repetida para {} con {}", operation, HEADER);
+        return ResponseEntity.status(stored.status())
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(REPLAYED_HEADER, "true")
+                .body(stored.body());
+    }
+
+    private ResponseEntity<?> runReserved(String storeKey, String fingerprint, String operation,
+            Supplier<ResponseEntity<?>> action) {
+        ResponseEntity<?> response;
+        try {
+            response = action.get();
+        } catch (RuntimeException e) {
+            release(storeKey, operation);
+            throw e;
+        }
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            release(storeKey, operation);
+            return response;
+        }
+        try {
+            store.complete(storeKey, new IdempotencyRecord(fingerprint, response.getStatusCode().value(),
+                    objectMapper.writeValueAsString(response.getBody()), expiresAt(ttl)));
+        } catch (JsonProcessingException | ExecutionException e) {
+            // La acción ya se ejecutó: se responde igual y la reserva vence sola
+            log.error("No se pudo guardar la respuesta de {} para su {}", operation, HEADER, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return response;
+    }
+
+    private void release(String storeKey, String operation) {
+        try {
+            store.release(storeKey);
+        } catch (ExecutionException e) {
+            log.warn("No se pudo liberar la {} de {}: {}", HEADER, operation, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static long expiresAt(Duration duration) {
+        return System.currentTimeMillis() + duration.toMillis();
+    }
+
+    private static ResponseEntity<Map<String, String>> error(HttpStatus status, String message) {
+        return ResponseEntity.status(status).body(Map.of("error", message));
+    }
+
+    private void record(String operation, String outcome) {
+        if (meterRegistry == null) {
+            return;
+        }
+        Counter.builder(METRIC_REQUESTS)
+                .description("Peticiones con Idempotency-Key por resultado")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private static String hash(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+}
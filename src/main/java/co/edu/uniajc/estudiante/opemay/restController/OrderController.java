@@ -2,6 +2,7 @@ package co.edu.uniajc.estudiante.opemay.restController;
 
 import java.security.Principal;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
 
 import org.springframework.http.HttpStatus;
@@ -16,11 +17,14 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import co.edu.uniajc.estudiante.opemay.IRespository.ConcurrentUpdateException;
 import co.edu.uniajc.estudiante.opemay.Service.OrderService;
 import co.edu.uniajc.estudiante.opemay.dto.CreateOrderRequest;
+import co.edu.uniajc.estudiante.opemay.dto.PageResponse;
 import co.edu.uniajc.estudiante.opemay.dto.UpdateOrderStatusRequest;
 import co.edu.uniajc.estudiante.opemay.dto.UpdatePaymentStatusRequest;
 import co.edu.uniajc.estudiante.opemay.model.Order;
@@ -37,6 +41,7 @@ import lombok.extern.slf4j.Slf4j;
 public class OrderController {
 
     private final OrderService orderService;
+    private final IdempotentRequests idempotentRequests;
     
     /**
      * Método helper para obtener el usuario actual desde el SecurityContext
@@ -70,8 +75,14 @@ public class OrderController {
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
     public ResponseEntity<?> createOrder(
             @Valid @RequestBody CreateOrderRequest request,
+            @RequestHeader(value = IdempotentRequests.HEADER, required = false) String idempotencyKey,
             Principal principal) {
-        
+        String userId = getCurrentUserId();
+        return idempotentRequests.execute(idempotencyKey, userId, "orders.create", request,
+                () -> createOrder(request, principal));
+    }
+
+    private ResponseEntity<?> createOrder(CreateOrderRequest request, Principal principal) {
         try {
             // ====== LOGGING DETALLADO DE ENTRADA ======
             log.info("🔹 [ORDEN] ===== INICIO CREACIÓN DE ORDEN =====");
@@ -107,19 +118,24 @@ public class OrderController {
             log.info("🔹 [ORDEN] ===== FIN CREACIÓN DE ORDEN =====");
             return ResponseEntity.status(HttpStatus.CREATED).body(order);
             
+        } catch (ConcurrentUpdateException e) {
+            log.warn("Conflicto de escritura al crear orden: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("error", "El carrito cambió durante la compra, intente de nuevo"));
+            
         } catch (IllegalArgumentException e) {
             log.error("❌ [ERROR] Error en validación al crear orden: {}", e.getMessage(), e);
             return ResponseEntity.badRequest()
-                .body(java.util.Map.of("error", "Error: " + e.getMessage()));
+                .body(Map.of("error", "Error: " + e.getMessage()));
             
         } catch (ExecutionException | InterruptedException e) {
             log.error("❌ [ERROR] Error al crear orden", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(java.util.Map.of("error", "Error interno del servidor"));
+                .body(Map.of("error", "Error interno del servidor"));
         } catch (Exception e) {
             log.error("❌ [ERROR] Error inesperado al crear orden", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(java.util.Map.of("error", "Error inesperado: " + e.getMessage()));
+                .body(Map.of("error", "Error inesperado: " + e.getMessage()));
         }
     }
 
@@ -142,13 +158,13 @@ public class OrderController {
             
             if (order == null) {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                    .body(java.util.Map.of("error", "Orden no encontrada"));
+                    .body(Map.of("error", "Orden no encontrada"));
             }
 
             // Los usuarios solo pueden ver sus propias órdenes, los admin pueden ver todas
             if (!isAdmin && !order.getUserId().equals(currentUserId)) {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                    .body(java.util.Map.of("error", "No autorizado para ver esta orden"));
+                    .body(Map.of("error", "No autorizado para ver esta orden"));
             }
 
             return ResponseEntity.ok(order);
@@ -156,7 +172,7 @@ public class OrderController {
         } catch (ExecutionException | InterruptedException e) {
             log.error("Error al obtener orden {}", orderId, e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(java.util.Map.of("error", "Error interno del servidor"));
+                .body(Map.of("error", "Error interno del servidor"));
         }
     }
 
@@ -200,11 +216,16 @@ public class OrderController {
      */
     @GetMapping("/admin/all")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<?> getAllOrders() {
+    public ResponseEntity<?> getAllOrders(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
         try {
-            List<Order> orders = orderService.getAllOrders();
+            PageResponse<Order> orders = orderService.getAllOrders(cursor, size);
             return ResponseEntity.ok(orders);
             
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                .body(Map.of("error", e.getMessage()));
         } catch (ExecutionException | InterruptedException e) {
             log.error("Error al obtener todas las órdenes", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -217,15 +238,21 @@ public class OrderController {
      */
     @GetMapping("/admin/status/{status}")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<?> getOrdersByStatus(@PathVariable String status) {
+    public ResponseEntity<?> getOrdersByStatus(
+            @PathVariable String status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
         try {
-            List<Order> orders = orderService.getOrdersByStatus(status);
+            PageResponse<Order> orders = orderService.getOrdersByStatus(status, cursor, size);
             return ResponseEntity.ok(orders);
             
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                .body(Map.of("error", e.getMessage()));
         } catch (ExecutionException | InterruptedException e) {
             log.error("Error al obtener órdenes por estado {}", status, e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(java.util.Map.of("error", "Error interno del servidor"));
+                .body(Map.of("error", "Error interno del servidor"));
         }
     }
 
@@ -245,20 +272,25 @@ public class OrderController {
             
             if (updatedOrder == null) {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                    .body(java.util.Map.of("error", "Orden no encontrada"));
+                    .body(Map.of("error", "Orden no encontrada"));
             }
             
             return ResponseEntity.ok(updatedOrder);
             
+        } catch (ConcurrentUpdateException e) {
+            log.warn("Conflicto al actualizar estado de orden {}: {}", orderId, e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("error", "La orden fue modificada por otra petición, intente de nuevo"));
+            
         } catch (IllegalArgumentException e) {
             log.warn("Error en validación al actualizar estado: {}", e.getMessage());
             return ResponseEntity.badRequest()
-                .body(java.util.Map.of("error", "Error: " + e.getMessage()));
+                .body(Map.of("error", "Error: " + e.getMessage()));
             
         } catch (ExecutionException | InterruptedException e) {
             log.error("Error al actualizar estado de orden {}", orderId, e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(java.util.Map.of("error", "Error interno del servidor"));
+                .body(Map.of("error", "Error interno del servidor"));
         }
     }
 
@@ -291,6 +323,11 @@ public class OrderController {
             Order cancelledOrder = orderService.cancelOrder(orderId, reason);
             return ResponseEntity.ok(cancelledOrder);
             
+        } catch (ConcurrentUpdateException e) {
+            log.warn("Conflicto al cancelar orden {}: {}", orderId, e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body("La orden fue modificada por otra petición, intente de nuevo");
+            
         } catch (IllegalArgumentException | IllegalStateException e) {
             log.warn("Error al cancelar orden {}: {}", orderId, e.getMessage());
             return ResponseEntity.badRequest().body("Error: " + e.getMessage());
@@ -319,20 +356,25 @@ public class OrderController {
             
             if (updatedOrder == null) {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                    .body(java.util.Map.of("error", "Orden no encontrada"));
+                    .body(Map.of("error", "Orden no encontrada"));
             }
             
             return ResponseEntity.ok(updatedOrder);
             
+        } catch (ConcurrentUpdateException e) {
+            log.warn("Conflicto al actualizar pago de orden {}: {}", orderId, e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("error", "La orden fue modificada por otra petición, intente de nuevo"));
+            
         } catch (IllegalArgumentException e) {
             log.warn("Error al actualizar estado de pago: {}", e.getMessage());
             return ResponseEntity.badRequest()
-                .body(java.util.Map.of("error", "Error: " + e.getMessage()));
+                .body(Map.of("error", "Error: " + e.getMessage()));
             
         } catch (ExecutionException | InterruptedException e) {
             log.error("Error al actualizar estado de pago de orden {}", orderId, e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(java.util.Map.of("error", "Error interno del servidor"));
+                .body(Map.of("error", "Error interno del servidor"));
         }
     }
 
@@ -352,4 +394,25 @@ public class OrderController {
                 .body("Error interno del servidor");
         }
     }
+
+    /**
+     * Recalcular estadísticas de órdenes desde cero (solo administradores)
+     */
+    @PostMapping("/admin/stats/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> rebuildOrderStats() {
+        try {
+            OrderService.OrderStats stats = orderService.rebuildOrderStats();
+            return ResponseEntity.ok(stats);
+            
+        } catch (IllegalStateException e) {
+            log.warn("Reconstrucción de estadísticas abortada: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("error", "Las órdenes cambiaron durante la reconstrucción, intente de nuevo"));
+        } catch (ExecutionException | InterruptedException e) {
+            log.error("Error al reconstruir estadísticas de órdenes", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body("Error interno del servidor");
+        }
+    }
 }
\ No newline at end of file
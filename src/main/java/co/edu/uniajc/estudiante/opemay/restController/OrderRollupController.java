@@ -0,0 +1,65 @@
+package co.edu.uniajc.estudiante.opemay.restController;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import co.edu.uniajc.estudiante.opemay.Service.OrderRollupService;
+import co.edu.uniajc.estudiante.opemay.dto.RollupReport;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Ingresos, volumen de órdenes y unidades vendidas por hora/día (solo administradores)
+ */
+@RestController
+@RequestMapping("/api/orders/admin/rollups")
+@RequiredArgsConstructor
+@Slf4j
+public class OrderRollupController {
+
+    private final OrderRollupService orderRollupService;
+
+    @GetMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getRollups(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @RequestParam(required = false, defaultValue = "DAY") String granularity) {
+        try {
+            RollupReport report = orderRollupService.getRollups(from, to, granularity);
+            return ResponseEntity.ok(report);
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (ExecutionException | InterruptedException e) {
+            log.error("Error al consultar agregados de órdenes", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("error", "Error interno del servidor"));
+        }
+    }
+
+    @PostMapping("/compact")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> compact() {
+        try {
+            int compacted = orderRollupService.compactHourlyRollups();
+            return ResponseEntity.ok(Map.of("compactedBuckets", compacted));
+
+        } catch (ExecutionException | InterruptedException e) {
+            log.error("Error al compactar agregados de órdenes", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("error", "Error interno del servidor"));
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package co.edu.uniajc.estudiante.opemay.restController;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.WebRequest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import co.edu.uniajc.estudiante.opemay.Service.CatalogVersion;
+import co.edu.uniajc.estudiante.opemay.Service.VersionedCatalog;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Respuestas del catálogo ya serializadas a JSON y comprimidas con gzip, una vez por versión.
+ * Mientras la versión no cambie, cada petición sólo copia bytes: no pasa por Jackson ni por
+ * el compresor. Se guarda únicamente la última versión de cada vista.
+ */
+@Component
+@Slf4j
+public class PrecompressedCatalog {
+
+    static final String GZIP = "gzip";
+
+    private final ObjectMapper objectMapper;
+    private final Map<String, Representation> latest = new ConcurrentHashMap<>();
+    private final ReentrantLock serialization = new ReentrantLock();
+
+    record Representation(String etag, byte[] identity, byte[] gzip) {
+    }
+
+    public PrecompressedCatalog(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Responde la vista con los bytes de su versión, comprimidos si el cliente acepta gzip.
+     * Cada codificación tiene su propio ETag, ya que el contenido enviado es distinto.
+     * Sólo se serializa cuando la versión cambió, y siempre el contenido que la originó
+     */
+    public ResponseEntity<byte[]> respond(WebRequest request, String view, VersionedCatalog<?> catalog,
+            Duration maxAge) {
+        CatalogVersion version = catalog.version();
+        boolean gzip = acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        CatalogVersion encoded = gzip
+                ? new CatalogVersion(version.etag() + "-" + GZIP, version.lastModifiedMillis())
+                : version;
+        CacheControl cacheControl = CacheControl.maxAge(maxAge).cachePublic();
+
+        if (ConditionalGet.notModified(request, encoded)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .cacheControl(cacheControl)
+                    .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                    .build();
+        }
+
+        Representation representation = representation(view, catalog);
+        byte[] body = gzip ? representation.gzip() : representation.identity();
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .contentLength(body.length)
+                .cacheControl(cacheControl)
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, GZIP);
+        }
+        return response.body(body);
+    }
+
+    private Representation representation(String view, VersionedCatalog<?> catalog) {
+        CatalogVersion version = catalog.version();
+        Representation current = latest.get(view);
+        if (current != null && current.etag().equals(version.etag())) {
+            return current;
+        }
+        // Las versiones cambian pocas veces al día: basta con serializar una sola a la vez.
+        // Serializar un catálogo grande toma tiempo; quien espera el lock no retiene su carrier
+        serialization.lock();
+        try {
+            current = latest.get(view);
+            if (current != null && current.etag().equals(version.etag())) {
+                return current;
+            }
+            byte[] json = serialize(catalog.items());
+            Representation rebuilt = new Representation(version.etag(), json, gzip(json));
+            latest.put(view, rebuilt);
+            log.debug("Vista {} del catálogo serializada para la versión {}: {} bytes, {} con gzip",
+                    view, version.etag(), json.length, rebuilt.gzip().length);
+            return rebuilt;
+        } finally {
+            serialization.unlock();
+        }
+    }
+
+    private byte[] serialize(Object body) {
+        try {
+            return objectMapper.writeValueAsBytes(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error serializando el catálogo", e);
+        }
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, json.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error comprimiendo el catálogo", e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Indica si el cliente acepta gzip según Accept-Encoding. Un gzip explícito
+     * prevalece sobre el comodín, y q=0 lo rechaza
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isBlank()) {
+            return false;
+        }
+        Boolean explicit = null;
+        boolean wildcard = false;
+        for (String part : acceptEncoding.split(",")) {
+            String[] tokens = part.split(";");
+            String coding = tokens[0].trim().toLowerCase(Locale.ROOT);
+            boolean accepted = quality(tokens) > 0;
+            if (coding.equals(GZIP) || coding.equals("x-gzip")) {
+                explicit = accepted;
+            } else if (coding.equals("*")) {
+                wildcard = accepted;
+            }
+        }
+        return explicit != null ? explicit : wildcard;
+    }
+
+    private static double quality(String[] tokens) {
+        for (int i = 1; i < tokens.length; i++) {
+            String param = tokens[i].trim();
+            if (param.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(param.substring(2));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+}
@@ -1,8 +1,10 @@
 package co.edu.uniajc.estudiante.opemay.restController;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -13,9 +15,20 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
+import co.edu.uniajc.estudiante.opemay.IRespository.ConcurrentUpdateException;
+import co.edu.uniajc.estudiante.opemay.Service.CatalogVersion;
+import co.edu.uniajc.estudiante.opemay.Service.ProductFacetService;
 import co.edu.uniajc.estudiante.opemay.Service.ProductService;
+import co.edu.uniajc.estudiante.opemay.Service.ProductSuggestService;
+import co.edu.uniajc.estudiante.opemay.Service.VersionedCatalog;
+import co.edu.uniajc.estudiante.opemay.dto.FacetedProductPage;
+import co.edu.uniajc.estudiante.opemay.dto.PageResponse;
+import co.edu.uniajc.estudiante.opemay.dto.ProductFilter;
+import co.edu.uniajc.estudiante.opemay.dto.Suggestion;
 import co.edu.uniajc.estudiante.opemay.model.Product;
 import lombok.extern.slf4j.Slf4j;
 
@@ -25,9 +38,19 @@ import lombok.extern.slf4j.Slf4j;
 public class ProductController {
 
     private final ProductService productService;
+    private final PrecompressedCatalog precompressedCatalog;
+    private final ProductSuggestService productSuggestService;
+    private final ProductFacetService productFacetService;
+
+    @Value("${app.catalog.http.max-age:60s}")
+    private Duration catalogMaxAge = Duration.ofSeconds(60);
     
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService, PrecompressedCatalog precompressedCatalog,
+                             ProductSuggestService productSuggestService, ProductFacetService productFacetService) {
         this.productService = productService;
+        this.precompressedCatalog = precompressedCatalog;
+        this.productSuggestService = productSuggestService;
+        this.productFacetService = productFacetService;
     }
 
     @PostMapping("/save")
@@ -51,28 +74,144 @@ public class ProductController {
     }
 
     @GetMapping("/all")
-    public ResponseEntity<List<Product>> getAllProducts() {
+    public ResponseEntity<?> getAllProducts(WebRequest request) {
         try {
             log.info("Recibida petición para obtener todos los productos");
+            VersionedCatalog<Product> catalog = productService.getVersionedCatalog();
+            if (catalog != null) {
+                // Catálogo sincronizado: bytes ya serializados y comprimidos para esta versión
+                return precompressedCatalog.respond(request, "products:all", catalog, catalogMaxAge);
+            }
             List<Product> products = productService.getAllProducts();
-            return ResponseEntity.ok(products);
+            if (ConditionalGet.notModified(request, CatalogVersion.of(products, Product::getUpdatedAt))) {
+                return ConditionalGet.notModifiedResponse(catalogMaxAge);
+            }
+            return ConditionalGet.ok(products, catalogMaxAge);
         } catch (Exception e) {
             log.error("Error obteniendo productos: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
+    /**
+     * Catálogo filtrado por precio, categoría, origen, unidad y stock, con orden,
+     * paginación y conteo de facetas. Los parámetros de lista aceptan varios valores
+     */
+    @GetMapping
+    public ResponseEntity<FacetedProductPage> filterProducts(
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam(required = false) List<String> categoryId,
+            @RequestParam(required = false) List<String> origin,
+            @RequestParam(required = false) List<String> unit,
+            @RequestParam(required = false) Boolean inStock,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size,
+            WebRequest request) {
+        try {
+            CatalogVersion version = productService.getCatalogVersion();
+            if (ConditionalGet.notModified(request, version)) {
+                return ConditionalGet.notModifiedResponse(catalogMaxAge);
+            }
+            ProductFilter filter = ProductFilter.builder()
+                    .minPrice(minPrice)
+                    .maxPrice(maxPrice)
+                    .categoryIds(categoryId)
+                    .origins(origin)
+                    .units(unit)
+                    .inStock(inStock)
+                    .sort(sort)
+                    .page(page)
+                    .size(size)
+                    .build();
+            return ConditionalGet.ok(productFacetService.filterProducts(filter), catalogMaxAge);
+        } catch (IllegalArgumentException e) {
+            log.warn("Filtro de productos inválido: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            log.error("Error filtrando productos: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    @GetMapping("/page")
+    public ResponseEntity<PageResponse<Product>> getProductsPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            WebRequest request) {
+        try {
+            CatalogVersion version = productService.getCatalogVersion();
+            if (ConditionalGet.notModified(request, version)) {
+                return ConditionalGet.notModifiedResponse(catalogMaxAge);
+            }
+            PageResponse<Product> page = productService.getProductsPage(cursor, size);
+            if (version == null && ConditionalGet.notModified(request, CatalogVersion.of(page.getItems(), Product::getUpdatedAt))) {
+                return ConditionalGet.notModifiedResponse(catalogMaxAge);
+            }
+            return ConditionalGet.ok(page, catalogMaxAge);
+        } catch (IllegalArgumentException e) {
+            log.warn("Cursor inválido al paginar productos: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            log.error("Error obteniendo página de productos: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * Búsqueda de texto sobre nombre, descripción, origen y categoría de los productos activos
+     */
+    @GetMapping("/search")
+    public ResponseEntity<List<Product>> searchProducts(
+            @RequestParam String q,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            return ResponseEntity.ok(productService.searchProducts(q, limit));
+        } catch (IllegalArgumentException e) {
+            log.warn("Búsqueda de productos inválida: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            log.error("Error buscando productos: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * Autocompletado de nombres de productos y categorías, tolerante a erratas
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<List<Suggestion>> suggest(
+            @RequestParam String prefix,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            return ResponseEntity.ok(productSuggestService.suggest(prefix, limit));
+        } catch (IllegalArgumentException e) {
+            log.warn("Autocompletado inválido: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            log.error("Error en el autocompletado: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<Product> getProductById(@PathVariable String id) {
+    public ResponseEntity<Product> getProductById(@PathVariable String id, WebRequest request) {
         try {
             log.info("Recibida petición para obtener producto con ID: {}", id);
+            CatalogVersion version = productService.getCatalogVersion();
+            if (ConditionalGet.notModified(request, version)) {
+                return ConditionalGet.notModifiedResponse(catalogMaxAge);
+            }
             Product product = productService.getProductById(id);
             
-            if (product != null) {
-                return ResponseEntity.ok(product);
-            } else {
+            if (product == null) {
                 return ResponseEntity.notFound().build();
             }
+            if (version == null && ConditionalGet.notModified(request, CatalogVersion.of(List.of(product), Product::getUpdatedAt))) {
+                return ConditionalGet.notModifiedResponse(catalogMaxAge);
+            }
+            return ConditionalGet.ok(product, catalogMaxAge);
         } catch (Exception e) {
             log.error("Error obteniendo producto por ID: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
@@ -81,11 +220,18 @@ public class ProductController {
 
  //trae todos los productos de una categoria
     @GetMapping("/category/{categoryId}")
-    public ResponseEntity<List<Product>> getProductsByCategory(@PathVariable String categoryId) {
+    public ResponseEntity<List<Product>> getProductsByCategory(@PathVariable String categoryId, WebRequest request) {
         try {
             log.info("Recibida petición para obtener productos de categoría: {}", categoryId);
+            CatalogVersion version = productService.getCatalogVersion();
+            if (ConditionalGet.notModified(request, version)) {
+                return ConditionalGet.notModifiedResponse(catalogMaxAge);
+            }
             List<Product> products = productService.getProductsByCategory(categoryId);
-            return ResponseEntity.ok(products);
+            if (version == null && ConditionalGet.notModified(request, CatalogVersion.of(products, Product::getUpdatedAt))) {
+                return ConditionalGet.notModifiedResponse(catalogMaxAge);
+            }
+            return ConditionalGet.ok(products, catalogMaxAge);
         } catch (IllegalArgumentException e) {
             log.error("Error de validación obteniendo productos por categoría {}: {}", categoryId, e.getMessage());
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
@@ -111,6 +257,10 @@ public class ProductController {
             Product updatedProduct = productService.updateProduct(id, product);
             return ResponseEntity.ok(updatedProduct);
             
+        } catch (ConcurrentUpdateException e) {
+            log.warn("Conflicto de escritura actualizando producto: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", "El producto cambió desde que se leyó, vuelva a cargarlo e intente de nuevo"));
         } catch (IllegalArgumentException e) {
             log.error("Error de validación actualizando producto: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
@@ -140,6 +290,10 @@ public class ProductController {
                         .body(Map.of("error", "No se pudo eliminar el producto"));
             }
             
+        } catch (ConcurrentUpdateException e) {
+            log.warn("Conflicto de escritura eliminando producto: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", "El producto cambió durante la eliminación, intente de nuevo"));
         } catch (IllegalArgumentException e) {
             log.error("Error de validación eliminando producto: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
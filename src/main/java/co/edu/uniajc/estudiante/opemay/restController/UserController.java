@@ -15,11 +15,13 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.google.cloud.Timestamp;
 
 import co.edu.uniajc.estudiante.opemay.Service.UserService;
+import co.edu.uniajc.estudiante.opemay.dto.PageResponse;
 import co.edu.uniajc.estudiante.opemay.model.User;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -242,12 +244,13 @@ public class UserController {
     }
 
     @GetMapping("/all")
-    public ResponseEntity<?> getAllUsers() {
+    public ResponseEntity<?> getAllUsers(@RequestParam(required = false) String cursor,
+                                         @RequestParam(required = false) Integer size) {
         try {
-            var users = userService.getAllUsers();
+            PageResponse<User> users = userService.getAllUsers(cursor, size);
 
-            var filteredUsers = users.stream()
-                    .map(user -> Map.of(
+            List<Map<String, Object>> filteredUsers = users.getItems().stream()
+                    .map(user -> Map.<String, Object>of(
                             "id", user.getId(),
                             USERNAME, user.getUsername(),
                             EMAIL, user.getEmail(),
@@ -258,8 +261,16 @@ public class UserController {
                     ))
                     .toList();
 
-            return ResponseEntity.ok(filteredUsers);
+            return ResponseEntity.ok(PageResponse.<Map<String, Object>>builder()
+                    .items(filteredUsers)
+                    .size(users.getSize())
+                    .nextCursor(users.getNextCursor())
+                    .hasMore(users.getHasMore())
+                    .build());
 
+        } catch (IllegalArgumentException e) {
+            log.warn("Cursor inválido al obtener usuarios: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of(ERROR, e.getMessage()));
         } catch (Exception e) {
             log.error("Error obteniendo usuarios: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -300,6 +311,10 @@ public class UserController {
             existingUser.setUpdatedAt(Timestamp.now());
 
             User updatedUser = userService.updateUser(existingUser);
+            if (userData.containsKey(EMAIL) || userData.containsKey("roles")) {
+                // Email y roles viajan en el token: obligar a iniciar sesión de nuevo
+                userService.revokeSessions(updatedUser.getId());
+            }
 
             return ResponseEntity.ok(Map.of(
                     MESSAGE, "Usuario actualizado exitosamente",
@@ -12,6 +12,8 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import co.edu.uniajc.estudiante.opemay.Service.JwtService;
+import co.edu.uniajc.estudiante.opemay.Service.UserService;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -26,13 +28,15 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private UserDetailsService userDetailsService;
 
+    @Autowired
+    private UserService userService;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
         
         final String authHeader = request.getHeader("Authorization");
         final String jwt;
-        final String username;
         
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
             filterChain.doFilter(request, response);
@@ -42,22 +46,30 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         jwt = authHeader.substring(7);
         
         try {
-            username = jwtService.getUsernameFromToken(jwt);
+            // Firma y expiración se verifican una sola vez; lanza excepción si el token no es válido
+            JwtService.VerifiedToken token = jwtService.verifyToken(jwt);
+            String username = token.subject();
             
             if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
-                
-                if (jwtService.validateToken(jwt) && !jwtService.isTokenExpired(jwt)) {
-                    UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                            userDetails,
-                            null,
-                            userDetails.getAuthorities()
-                    );
-                    authToken.setDetails(
-                            new WebAuthenticationDetailsSource().buildDetails(request)
-                    );
-                    SecurityContextHolder.getContext().setAuthentication(authToken);
+                // Tokens nuevos traen ID y roles: el principal se arma con ellos y sólo se comprueba,
+                // desde la caché de sesiones, que no hayan sido revocados.
+                // Los emitidos antes de incluir esos claims siguen cargando el usuario
+                if (token.hasUserClaims() && !userService.isSessionCurrent(token)) {
+                    throw new JwtException("Sesión revocada para el usuario " + token.userId());
                 }
+                UserDetails userDetails = token.hasUserClaims()
+                        ? UserPrincipal.fromClaims(token.userId(), token.username(), username, token.roles())
+                        : this.userDetailsService.loadUserByUsername(username);
+                
+                UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                        userDetails,
+                        null,
+                        userDetails.getAuthorities()
+                );
+                authToken.setDetails(
+                        new WebAuthenticationDetailsSource().buildDetails(request)
+                );
+                SecurityContextHolder.getContext().setAuthentication(authToken);
             }
         } catch (Exception e) {
             // Token inválido, continuar sin autenticación
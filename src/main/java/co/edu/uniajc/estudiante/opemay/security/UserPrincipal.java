@@ -27,18 +27,12 @@ public class UserPrincipal implements UserDetails {
     private boolean credentialsNonExpired;
 
     public static UserPrincipal create(User user) {
-        List<GrantedAuthority> authorities = user.getRoles() != null ? 
-                user.getRoles().stream()
-                        .map(role -> new SimpleGrantedAuthority("ROLE_" + role))
-                        .collect(Collectors.toList()) 
-                : new java.util.ArrayList<>();
-
         return new UserPrincipal(
                 user.getId(),
                 user.getUsername(),
                 user.getEmail(),
                 user.getPassword(),
-                authorities,
+                toAuthorities(user.getRoles()),
                 user.getEnabled() != null ? user.getEnabled() : false,
                 user.getAccountNonExpired() != null ? user.getAccountNonExpired() : false,
                 user.getAccountNonLocked() != null ? user.getAccountNonLocked() : false,
@@ -46,6 +40,23 @@ public class UserPrincipal implements UserDetails {
         );
     }
 
+    /**
+     * Construye el principal sólo con los claims de un JWT ya verificado, sin consultar la base de datos.
+     * La cuenta se considera activa: JwtAuthenticationFilter rechaza antes los tokens de usuarios
+     * eliminados, deshabilitados o revocados con UserService.isSessionCurrent (tokensValidAfter)
+     */
+    public static UserPrincipal fromClaims(String id, String username, String email, List<String> roles) {
+        return new UserPrincipal(id, username, email, null, toAuthorities(roles), true, true, true, true);
+    }
+
+    private static List<GrantedAuthority> toAuthorities(List<String> roles) {
+        return roles != null ?
+                roles.stream()
+                        .map(role -> new SimpleGrantedAuthority("ROLE_" + role))
+                        .collect(Collectors.toList())
+                : new java.util.ArrayList<>();
+    }
+
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
         return authorities;
@@ -0,0 +1,85 @@
+package co.edu.uniajc.estudiante.opemay.IRespository;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.google.api.core.ApiFuture;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Firestore;
+
+import co.edu.uniajc.estudiante.opemay.model.Cart;
+
+@ExtendWith(MockitoExtension.class)
+@SuppressWarnings("unchecked")
+class CartRepositoryTest {
+
+    private Firestore firestore;
+    private CollectionReference carts;
+    private DocumentReference pointerReference;
+    private DocumentSnapshot pointerSnapshot;
+    private CartRepository cartRepository;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        firestore = mock(Firestore.class);
+        carts = mock(CollectionReference.class);
+        CollectionReference activeCarts = mock(CollectionReference.class);
+        pointerReference = mock(DocumentReference.class);
+        pointerSnapshot = mock(DocumentSnapshot.class);
+        ApiFuture<DocumentSnapshot> pointerFuture = mock(ApiFuture.class);
+
+        when(firestore.collection("activeCarts")).thenReturn(activeCarts);
+        when(activeCarts.document("user-1")).thenReturn(pointerReference);
+        when(pointerReference.get()).thenReturn(pointerFuture);
+        when(pointerFuture.get()).thenReturn(pointerSnapshot);
+
+        cartRepository = new CartRepository(firestore, 100, Duration.ofMinutes(1));
+    }
+
+    private void stubCart(Cart cart) throws Exception {
+        DocumentReference cartReference = mock(DocumentReference.class);
+        DocumentSnapshot cartSnapshot = mock(DocumentSnapshot.class);
+        ApiFuture<DocumentSnapshot> cartFuture = mock(ApiFuture.class);
+        when(firestore.collection("carts")).thenReturn(carts);
+        when(carts.document(cart.getId())).thenReturn(cartReference);
+        when(cartReference.get()).thenReturn(cartFuture);
+        when(cartFuture.get()).thenReturn(cartSnapshot);
+        when(cartSnapshot.exists()).thenReturn(true);
+        when(cartSnapshot.toObject(Cart.class)).thenReturn(cart);
+    }
+
+    @Test
+    void testActiveCartResolvedByPointerAndThenFromLocalCache() throws Exception {
+        Cart cart = Cart.builder().id("cart-1").userId("user-1").status("ACTIVE").build();
+        when(pointerSnapshot.exists()).thenReturn(true);
+        when(pointerSnapshot.getString("cartId")).thenReturn("cart-1");
+        stubCart(cart);
+
+        assertEquals("cart-1", cartRepository.getActiveCartByUserId("user-1").getId());
+        assertEquals("cart-1", cartRepository.getActiveCartByUserId("user-1").getId());
+
+        // El puntero se lee una sola vez; la segunda búsqueda es sólo la lectura del carrito por ID
+        verify(pointerReference, times(1)).get();
+        verify(carts, never()).whereEqualTo("userId", "user-1");
+    }
+
+    @Test
+    void testEmptyPointerMeansNoActiveCartWithoutQuery() throws ExecutionException, InterruptedException {
+        when(pointerSnapshot.exists()).thenReturn(true);
+        when(pointerSnapshot.getString("cartId")).thenReturn(null);
+
+        assertNull(cartRepository.getActiveCartByUserId("user-1"));
+
+        verify(firestore, never()).collection("carts");
+    }
+}
@@ -0,0 +1,66 @@
+package co.edu.uniajc.estudiante.opemay.IRespository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.api.core.SettableApiFuture;
+
+class FirestoreFuturesTest {
+
+    @Test
+    void testCompletesWhenApiFutureSucceeds() throws ExecutionException, InterruptedException {
+        SettableApiFuture<String> apiFuture = SettableApiFuture.create();
+
+        CompletableFuture<String> result = FirestoreFutures.toCompletableFuture(apiFuture);
+        assertFalse(result.isDone());
+
+        apiFuture.set("ok");
+
+        assertTrue(result.isDone());
+        assertEquals("ok", result.get());
+    }
+
+    @Test
+    void testPropagatesFailure() {
+        SettableApiFuture<String> apiFuture = SettableApiFuture.create();
+        RuntimeException error = new RuntimeException("Firestore no disponible");
+
+        CompletableFuture<String> result = FirestoreFutures.toCompletableFuture(apiFuture);
+        apiFuture.setException(error);
+
+        ExecutionException exception = assertThrows(ExecutionException.class, result::get);
+        assertSame(error, exception.getCause());
+    }
+
+    @Test
+    void testCancelPropagatesToApiFuture() {
+        SettableApiFuture<String> apiFuture = SettableApiFuture.create();
+
+        CompletableFuture<String> result = FirestoreFutures.toCompletableFuture(apiFuture);
+        result.cancel(true);
+
+        assertTrue(apiFuture.isCancelled());
+    }
+
+    @Test
+    void testCancelOfDerivedStagePropagatesToApiFuture() {
+        SettableApiFuture<String> apiFuture = SettableApiFuture.create();
+
+        // Así devuelven los repositorios sus *Async: una etapa thenApply sobre el adaptador
+        CompletableFuture<Integer> mapped = FirestoreFutures.toCompletableFuture(apiFuture)
+                .thenApply(String::length)
+                .thenApply(length -> length * 2);
+        mapped.cancel(true);
+
+        assertTrue(mapped.isCancelled());
+        assertTrue(apiFuture.isCancelled());
+    }
+}
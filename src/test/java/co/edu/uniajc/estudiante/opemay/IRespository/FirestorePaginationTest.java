@@ -0,0 +1,128 @@
+package co.edu.uniajc.estudiante.opemay.IRespository;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.api.core.ApiFuture;
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.FieldPath;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
+
+import co.edu.uniajc.estudiante.opemay.dto.PageResponse;
+
+@SuppressWarnings("unchecked")
+class FirestorePaginationTest {
+
+    @Test
+    void testClampPageSize() {
+        assertEquals(FirestorePagination.DEFAULT_PAGE_SIZE, FirestorePagination.clampPageSize(null));
+        assertEquals(FirestorePagination.DEFAULT_PAGE_SIZE, FirestorePagination.clampPageSize(0));
+        assertEquals(5, FirestorePagination.clampPageSize(5));
+        assertEquals(FirestorePagination.MAX_PAGE_SIZE, FirestorePagination.clampPageSize(10_000));
+    }
+
+    @Test
+    void testCursorRoundTripWithTimestamp() {
+        Timestamp createdAt = Timestamp.ofTimeSecondsAndNanos(1_700_000_000L, 123);
+        QueryDocumentSnapshot doc = mock(QueryDocumentSnapshot.class);
+        when(doc.getTimestamp("createdAt")).thenReturn(createdAt);
+        when(doc.getId()).thenReturn("order-9");
+
+        String cursor = FirestorePagination.encodeCursor(doc, "createdAt");
+        Object[] values = FirestorePagination.decodeCursor(cursor, true);
+
+        assertArrayEquals(new Object[] {createdAt, "order-9"}, values);
+    }
+
+    @Test
+    void testCursorRoundTripByDocumentId() {
+        QueryDocumentSnapshot doc = mock(QueryDocumentSnapshot.class);
+        when(doc.getId()).thenReturn("user-1");
+
+        String cursor = FirestorePagination.encodeCursor(doc, null);
+
+        assertArrayEquals(new Object[] {"user-1"}, FirestorePagination.decodeCursor(cursor, false));
+    }
+
+    @Test
+    void testInvalidCursorIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> FirestorePagination.decodeCursor("%%%", true));
+        assertThrows(IllegalArgumentException.class, () -> FirestorePagination.decodeCursor("bm8tc2VwYXJhdG9y", false));
+    }
+
+    @Test
+    void testFetchPageReturnsNextCursorWhenMoreResults() throws ExecutionException, InterruptedException {
+        Query base = mock(Query.class);
+        Query ordered = mock(Query.class);
+        Query limited = mock(Query.class);
+        ApiFuture<QuerySnapshot> future = mock(ApiFuture.class);
+        QuerySnapshot snapshot = mock(QuerySnapshot.class);
+        QueryDocumentSnapshot first = mock(QueryDocumentSnapshot.class);
+        QueryDocumentSnapshot second = mock(QueryDocumentSnapshot.class);
+        QueryDocumentSnapshot extra = mock(QueryDocumentSnapshot.class);
+
+        when(base.orderBy(any(FieldPath.class), eq(Query.Direction.ASCENDING))).thenReturn(ordered);
+        when(ordered.limit(3)).thenReturn(limited);
+        when(limited.get()).thenReturn(future);
+        when(future.get()).thenReturn(snapshot);
+        when(snapshot.getDocuments()).thenReturn(List.of(first, second, extra));
+        when(first.getId()).thenReturn("a");
+        when(second.getId()).thenReturn("b");
+
+        PageResponse<String> page = FirestorePagination.fetchPage(base, null, Query.Direction.ASCENDING,
+                null, 2, QueryDocumentSnapshot::getId);
+
+        assertEquals(List.of("a", "b"), page.getItems());
+        assertTrue(page.getHasMore());
+        assertNotNull(page.getNextCursor());
+        assertArrayEquals(new Object[] {"b"}, FirestorePagination.decodeCursor(page.getNextCursor(), false));
+        verify(ordered, never()).startAfter(any(Object[].class));
+    }
+
+    @Test
+    void testFetchPageLastPageHasNoCursor() throws ExecutionException, InterruptedException {
+        Query base = mock(Query.class);
+        Query ordered = mock(Query.class);
+        Query started = mock(Query.class);
+        Query limited = mock(Query.class);
+        ApiFuture<QuerySnapshot> future = mock(ApiFuture.class);
+        QuerySnapshot snapshot = mock(QuerySnapshot.class);
+        QueryDocumentSnapshot only = mock(QueryDocumentSnapshot.class);
+        QueryDocumentSnapshot previous = mock(QueryDocumentSnapshot.class);
+        when(previous.getId()).thenReturn("a");
+        String cursor = FirestorePagination.encodeCursor(previous, null);
+
+        when(base.orderBy(any(FieldPath.class), eq(Query.Direction.ASCENDING))).thenReturn(ordered);
+        when(ordered.startAfter(any(Object[].class))).thenReturn(started);
+        when(started.limit(3)).thenReturn(limited);
+        when(limited.get()).thenReturn(future);
+        when(future.get()).thenReturn(snapshot);
+        when(snapshot.getDocuments()).thenReturn(List.of(only));
+        when(only.getId()).thenReturn("b");
+
+        PageResponse<String> page = FirestorePagination.fetchPage(base, null, Query.Direction.ASCENDING,
+                cursor, 2, QueryDocumentSnapshot::getId);
+
+        assertEquals(List.of("b"), page.getItems());
+        assertFalse(page.getHasMore());
+        assertNull(page.getNextCursor());
+    }
+}
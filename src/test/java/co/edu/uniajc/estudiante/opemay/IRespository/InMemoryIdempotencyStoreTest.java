@@ -0,0 +1,53 @@
+package co.edu.uniajc.estudiante.opemay.IRespository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class InMemoryIdempotencyStoreTest {
+
+    private final long later = System.currentTimeMillis() + 60_000;
+
+    @Test
+    void testReserveReturnsLiveRecord() {
+        InMemoryIdempotencyStore store = new InMemoryIdempotencyStore(10);
+
+        assertThat(store.reserve("k", IdempotencyRecord.inProgress("f", later))).isEmpty();
+        assertThat(store.reserve("k", IdempotencyRecord.inProgress("f", later)))
+                .hasValueSatisfying(stored -> assertThat(stored.completed()).isFalse());
+
+        store.complete("k", new IdempotencyRecord("f", 201, "{\"id\":\"order-1\"}", later));
+        assertThat(store.reserve("k", IdempotencyRecord.inProgress("f", later)))
+                .hasValueSatisfying(stored -> assertThat(stored.body()).isEqualTo("{\"id\":\"order-1\"}"));
+    }
+
+    @Test
+    void testExpiredRecordIsReplaced() {
+        InMemoryIdempotencyStore store = new InMemoryIdempotencyStore(10);
+        store.complete("k", new IdempotencyRecord("f", 200, "{}", System.currentTimeMillis() - 1));
+
+        assertThat(store.reserve("k", IdempotencyRecord.inProgress("f", later))).isEmpty();
+    }
+
+    @Test
+    void testReleaseFreesKey() {
+        InMemoryIdempotencyStore store = new InMemoryIdempotencyStore(10);
+        store.reserve("k", IdempotencyRecord.inProgress("f", later));
+        store.release("k");
+
+        assertThat(store.size()).isZero();
+        assertThat(store.reserve("k", IdempotencyRecord.inProgress("f", later))).isEmpty();
+    }
+
+    @Test
+    void testOldestKeyIsEvictedWhenFull() {
+        InMemoryIdempotencyStore store = new InMemoryIdempotencyStore(2);
+        store.reserve("a", IdempotencyRecord.inProgress("f", later));
+        store.reserve("b", IdempotencyRecord.inProgress("f", later));
+        store.reserve("c", IdempotencyRecord.inProgress("f", later));
+
+        assertThat(store.size()).isEqualTo(2);
+        assertThat(store.reserve("a", IdempotencyRecord.inProgress("f", later))).isEmpty();
+        assertThat(store.reserve("c", IdempotencyRecord.inProgress("f", later))).isPresent();
+    }
+}
@@ -0,0 +1,145 @@
+package co.edu.uniajc.estudiante.opemay.IRespository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldPath;
+import com.google.cloud.firestore.FieldValue;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QuerySnapshot;
+import com.google.cloud.firestore.Transaction;
+
+import co.edu.uniajc.estudiante.opemay.dto.PageResponse;
+import co.edu.uniajc.estudiante.opemay.model.Order;
+import co.edu.uniajc.estudiante.opemay.model.OrderStatistics;
+import co.edu.uniajc.estudiante.opemay.model.OrderStatus;
+
+@SuppressWarnings("unchecked")
+class OrderRepositoryTest {
+
+    @Test
+    void testStatsDeltaForNewOrderCountsTotalAndStatus() {
+        Map<String, Object> delta = OrderRepository.statsDelta(null, OrderStatus.PENDING, 50.0);
+
+        Map<String, Object> statusCounts = (Map<String, Object>) delta.get("statusCounts");
+        assertEquals(FieldValue.increment(1), statusCounts.get("PENDING"));
+        assertEquals(1, statusCounts.size());
+        assertEquals(FieldValue.increment(1), delta.get("totalOrders"));
+        assertFalse(delta.containsKey("totalRevenue"));
+        assertTrue(delta.containsKey("updatedAt"));
+    }
+
+    @Test
+    void testStatsDeltaForTransitionMovesCounter() {
+        Map<String, Object> delta = OrderRepository.statsDelta(OrderStatus.PENDING, OrderStatus.CANCELLED, 50.0);
+
+        Map<String, Object> statusCounts = (Map<String, Object>) delta.get("statusCounts");
+        assertEquals(FieldValue.increment(-1), statusCounts.get("PENDING"));
+        assertEquals(FieldValue.increment(1), statusCounts.get("CANCELLED"));
+        assertFalse(delta.containsKey("totalOrders"));
+        assertFalse(delta.containsKey("totalRevenue"));
+    }
+
+    @Test
+    void testStatsDeltaForDeliveryAddsRevenue() {
+        Map<String, Object> delta = OrderRepository.statsDelta(OrderStatus.SHIPPED, OrderStatus.DELIVERED, 80.5);
+
+        assertEquals(FieldValue.increment(80.5), delta.get("totalRevenue"));
+    }
+
+    @Test
+    void testOrdersByStatusPageFiltersOrdersAndLimitsInFirestore() throws ExecutionException, InterruptedException {
+        Firestore firestore = mock(Firestore.class);
+        CollectionReference orders = mock(CollectionReference.class);
+        Query byStatus = mock(Query.class);
+        Query byCreatedAt = mock(Query.class);
+        Query byId = mock(Query.class);
+        Query limited = mock(Query.class);
+        ApiFuture<QuerySnapshot> future = mock(ApiFuture.class);
+        QuerySnapshot snapshot = mock(QuerySnapshot.class);
+
+        when(firestore.collection("orders")).thenReturn(orders);
+        when(orders.whereEqualTo("status", "PENDING")).thenReturn(byStatus);
+        when(byStatus.orderBy("createdAt", Query.Direction.DESCENDING)).thenReturn(byCreatedAt);
+        when(byCreatedAt.orderBy(any(FieldPath.class), eq(Query.Direction.DESCENDING))).thenReturn(byId);
+        when(byId.limit(11)).thenReturn(limited);
+        when(limited.get()).thenReturn(future);
+        when(future.get()).thenReturn(snapshot);
+        when(snapshot.getDocuments()).thenReturn(List.of());
+
+        PageResponse<Order> page = new OrderRepository(firestore, null).getOrdersByStatusPage("PENDING", null, 10);
+
+        assertTrue(page.getItems().isEmpty());
+        assertFalse(page.getHasMore());
+        verify(orders, never()).get();
+    }
+
+    @Test
+    void testRebuildScansAgainWhenCountersChangeDuringTheScan() throws Exception {
+        Firestore firestore = mock(Firestore.class);
+        CollectionReference orders = mock(CollectionReference.class);
+        Query byId = mock(Query.class);
+        Query limited = mock(Query.class);
+        ApiFuture<QuerySnapshot> scanFuture = mock(ApiFuture.class);
+        QuerySnapshot scan = mock(QuerySnapshot.class);
+        CollectionReference stats = mock(CollectionReference.class);
+        DocumentReference statsReference = mock(DocumentReference.class);
+        Transaction transaction = mock(Transaction.class);
+
+        when(firestore.collection("orders")).thenReturn(orders);
+        when(orders.orderBy(any(FieldPath.class), eq(Query.Direction.ASCENDING))).thenReturn(byId);
+        when(byId.limit(500)).thenReturn(limited);
+        when(limited.get()).thenReturn(scanFuture);
+        when(scanFuture.get()).thenReturn(scan);
+        when(scan.getDocuments()).thenReturn(List.of());
+        when(firestore.collection("stats")).thenReturn(stats);
+        when(stats.document("orders")).thenReturn(statsReference);
+
+        // Una orden incrementa el documento durante el primer recorrido: t1 -> t2
+        Timestamp t1 = Timestamp.ofTimeSecondsAndNanos(1000, 0);
+        Timestamp t2 = Timestamp.ofTimeSecondsAndNanos(1001, 0);
+        DocumentSnapshot atT1 = statsSnapshot(t1);
+        DocumentSnapshot atT2 = statsSnapshot(t2);
+        when(statsReference.get()).thenReturn(ApiFutures.immediateFuture(atT1), ApiFutures.immediateFuture(atT2));
+        when(transaction.get(statsReference)).thenReturn(ApiFutures.immediateFuture(atT2));
+        when(firestore.runTransaction(any())).thenAnswer(invocation -> {
+            Transaction.Function<Boolean> function = invocation.getArgument(0);
+            return ApiFutures.immediateFuture(function.updateCallback(transaction));
+        });
+
+        OrderStatistics statistics = new OrderRepository(firestore, null).rebuildOrderStatistics();
+
+        assertEquals(0L, statistics.getTotalOrders());
+        assertTrue(statistics.getRebuiltAt() != null);
+        verify(statsReference, times(2)).get();
+        verify(transaction, times(1)).set(statsReference, statistics);
+    }
+
+    private static DocumentSnapshot statsSnapshot(Timestamp updateTime) {
+        DocumentSnapshot snapshot = mock(DocumentSnapshot.class);
+        when(snapshot.exists()).thenReturn(true);
+        when(snapshot.getUpdateTime()).thenReturn(updateTime);
+        return snapshot;
+    }
+}
@@ -0,0 +1,67 @@
+package co.edu.uniajc.estudiante.opemay.IRespository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.Mockito.mock;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.cloud.firestore.FieldValue;
+import com.google.cloud.firestore.Firestore;
+
+import co.edu.uniajc.estudiante.opemay.model.Order;
+import co.edu.uniajc.estudiante.opemay.model.OrderItem;
+import co.edu.uniajc.estudiante.opemay.model.OrderRollup;
+
+@SuppressWarnings("unchecked")
+class OrderRollupRepositoryTest {
+
+    private final OrderRollupRepository repository = new OrderRollupRepository(mock(Firestore.class), "America/Bogota");
+
+    private final ZonedDateTime hour = ZonedDateTime.of(2025, 3, 2, 14, 0, 0, 0, ZoneId.of("America/Bogota"));
+
+    @Test
+    void testPlacedOrderDeltaAccumulatesItemsPerCategory() {
+        Order order = Order.builder()
+                .totalAmount(16.0)
+                .items(List.of(
+                        OrderItem.builder().productId("p1").categoryId("frutas").categoryName("Frutas").price(2.0).quantity(3).build(),
+                        OrderItem.builder().productId("p2").categoryId("frutas").categoryName("Frutas").price(5.0).quantity(2).build()))
+                .build();
+
+        Map<String, Object> delta = repository.eventDelta(order, hour, 1);
+
+        assertEquals("2025-03-02T14", delta.get("id"));
+        assertEquals(OrderRollup.HOUR, delta.get("granularity"));
+        assertEquals("2025-03-02", delta.get("dayId"));
+        assertEquals(FieldValue.increment(1L), delta.get("ordersPlaced"));
+        assertFalse(delta.containsKey("ordersCancelled"));
+        assertEquals(FieldValue.increment(16.0), delta.get("revenue"));
+        assertEquals(FieldValue.increment(5L), delta.get("itemsSold"));
+
+        Map<String, Object> frutas = (Map<String, Object>) ((Map<String, Object>) delta.get("categories")).get("frutas");
+        assertEquals(FieldValue.increment(16.0), frutas.get("revenue"));
+        assertEquals(FieldValue.increment(5L), frutas.get("itemsSold"));
+    }
+
+    @Test
+    void testCancelledOrderDeltaSubtractsFromBucket() {
+        Order order = Order.builder()
+                .totalAmount(4.0)
+                .items(List.of(OrderItem.builder().productId("p1").price(2.0).quantity(2).build()))
+                .build();
+
+        Map<String, Object> delta = repository.eventDelta(order, hour, -1);
+
+        assertEquals(FieldValue.increment(1L), delta.get("ordersCancelled"));
+        assertFalse(delta.containsKey("ordersPlaced"));
+        assertEquals(FieldValue.increment(-4.0), delta.get("revenue"));
+        Map<String, Object> categories = (Map<String, Object>) delta.get("categories");
+        assertEquals(FieldValue.increment(-2L), ((Map<String, Object>) categories.get("sin-categoria")).get("itemsSold"));
+    }
+}
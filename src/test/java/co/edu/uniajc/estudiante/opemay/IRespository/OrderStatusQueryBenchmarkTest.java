@@ -0,0 +1,137 @@
+package co.edu.uniajc.estudiante.opemay.IRespository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.FirestoreOptions;
+import com.google.cloud.firestore.WriteBatch;
+
+import co.edu.uniajc.estudiante.opemay.model.Order;
+import co.edu.uniajc.estudiante.opemay.model.OrderStatus;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Compara el filtrado en memoria (lectura completa de la colección) con la consulta
+ * filtrada, ordenada y limitada en Firestore sobre un conjunto sembrado de órdenes.
+ *
+ * Sólo se ejecuta contra el emulador:
+ * FIRESTORE_EMULATOR_HOST=localhost:8080 ./gradlew test --tests '*OrderStatusQueryBenchmarkTest'
+ */
+@Tag("benchmark")
+@Slf4j
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@EnabledIfEnvironmentVariable(named = "FIRESTORE_EMULATOR_HOST", matches = ".+")
+class OrderStatusQueryBenchmarkTest {
+
+    private static final int SEEDED_ORDERS = 5_000;
+    private static final int PAGE_SIZE = 20;
+    private static final int WARMUP_RUNS = 3;
+    private static final int MEASURED_RUNS = 10;
+
+    private Firestore firestore;
+    private OrderRepository orderRepository;
+
+    @BeforeAll
+    void seed() throws ExecutionException, InterruptedException {
+        // Proyecto único por ejecución para no mezclar datos en el emulador
+        firestore = FirestoreOptions.newBuilder()
+                .setProjectId("opemay-benchmark-" + System.currentTimeMillis())
+                .build()
+                .getService();
+        orderRepository = new OrderRepository(firestore, null);
+
+        OrderStatus[] statuses = OrderStatus.values();
+        long baseSeconds = Timestamp.now().getSeconds() - SEEDED_ORDERS;
+        WriteBatch batch = firestore.batch();
+        for (int i = 0; i < SEEDED_ORDERS; i++) {
+            Order order = Order.builder()
+                    .id(String.format("order-%05d", i))
+                    .userId("user-" + (i % 200))
+                    .status(statuses[i % statuses.length])
+                    .totalAmount(10.0 + i % 50)
+                    .createdAt(Timestamp.ofTimeSecondsAndNanos(baseSeconds + i, 0))
+                    .build();
+            batch.set(firestore.collection("orders").document(order.getId()), order);
+            if ((i + 1) % 500 == 0) {
+                batch.commit().get();
+                batch = firestore.batch();
+            }
+        }
+        batch.commit().get();
+    }
+
+    @AfterAll
+    void close() throws Exception {
+        firestore.close();
+    }
+
+    @Test
+    void compareInMemoryFilterWithServerSideQuery() throws ExecutionException, InterruptedException {
+        List<String> inMemory = inMemoryFilter(OrderStatus.PENDING);
+        List<String> serverSide = serverSideQuery(OrderStatus.PENDING);
+        assertEquals(inMemory, serverSide);
+
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            inMemoryFilter(OrderStatus.PENDING);
+            serverSideQuery(OrderStatus.PENDING);
+        }
+
+        long[] inMemoryNanos = new long[MEASURED_RUNS];
+        long[] serverSideNanos = new long[MEASURED_RUNS];
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            long start = System.nanoTime();
+            inMemoryFilter(OrderStatus.PENDING);
+            inMemoryNanos[i] = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            serverSideQuery(OrderStatus.PENDING);
+            serverSideNanos[i] = System.nanoTime() - start;
+        }
+
+        log.info("Benchmark getOrdersByStatus sobre {} órdenes (página de {}):", SEEDED_ORDERS, PAGE_SIZE);
+        log.info("  filtrado en memoria: mediana {} ms, {} documentos leídos", medianMillis(inMemoryNanos), SEEDED_ORDERS);
+        log.info("  consulta en Firestore: mediana {} ms, {} documentos leídos", medianMillis(serverSideNanos), PAGE_SIZE + 1);
+    }
+
+    /**
+     * Comportamiento anterior: leer toda la colección, filtrar y ordenar en memoria
+     */
+    private List<String> inMemoryFilter(OrderStatus status) throws ExecutionException, InterruptedException {
+        List<Order> all = new ArrayList<>();
+        firestore.collection("orders").get().get().getDocuments()
+                .forEach(doc -> all.add(doc.toObject(Order.class)));
+
+        return all.stream()
+                .filter(order -> status.equals(order.getStatus()))
+                .sorted(Comparator.comparing(Order::getCreatedAt).reversed())
+                .limit(PAGE_SIZE)
+                .map(Order::getId)
+                .toList();
+    }
+
+    private List<String> serverSideQuery(OrderStatus status) throws ExecutionException, InterruptedException {
+        return orderRepository.getOrdersByStatusPage(status.name(), null, PAGE_SIZE).getItems().stream()
+                .map(Order::getId)
+                .toList();
+    }
+
+    private static double medianMillis(long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2] / 1_000_000.0;
+    }
+}
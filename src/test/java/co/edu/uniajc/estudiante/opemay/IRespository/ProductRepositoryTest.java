@@ -8,6 +8,8 @@ import static org.mockito.Mockito.*;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 
 import com.google.api.core.ApiFuture;
@@ -18,13 +20,10 @@ import com.google.cloud.firestore.Query;
 import com.google.cloud.firestore.QueryDocumentSnapshot;
 import com.google.cloud.firestore.QuerySnapshot;
 import com.google.cloud.firestore.WriteResult;
-import com.google.firebase.cloud.FirestoreClient;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
-import org.mockito.MockedStatic;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import co.edu.uniajc.estudiante.opemay.model.Product;
@@ -33,7 +32,6 @@ import co.edu.uniajc.estudiante.opemay.model.Product;
 @SuppressWarnings("unchecked")
 class ProductRepositoryTest {
 
-    @InjectMocks
     private ProductRepository productRepository;
 
     private Firestore mockFirestore;
@@ -57,6 +55,7 @@ class ProductRepositoryTest {
         mockDocSnapshot = mock(DocumentSnapshot.class);
         mockQuerySnapshot = mock(QuerySnapshot.class);
         mockQueryDoc = mock(QueryDocumentSnapshot.class);
+        productRepository = new ProductRepository(mockFirestore);
     }
 
     @Test
@@ -67,21 +66,18 @@ class ProductRepositoryTest {
                 .name("Test Product")
                 .build();
 
-        try (MockedStatic<FirestoreClient> firestoreClient = mockStatic(FirestoreClient.class)) {
-            firestoreClient.when(FirestoreClient::getFirestore).thenReturn(mockFirestore);
-            when(mockFirestore.collection("products")).thenReturn(mock(com.google.cloud.firestore.CollectionReference.class));
-            when(mockFirestore.collection("products").document("product-123")).thenReturn(mockDocRef);
-            when(mockDocRef.set(product)).thenReturn(mockWriteFuture);
-            when(mockWriteFuture.get()).thenReturn(mockWriteResult);
-            when(mockWriteResult.getUpdateTime()).thenReturn(com.google.cloud.Timestamp.now());
-
-            // Act
-            String result = productRepository.save(product);
-
-            // Assert
-            assertNotNull(result);
-            verify(mockDocRef).set(product);
-        }
+        when(mockFirestore.collection("products")).thenReturn(mock(com.google.cloud.firestore.CollectionReference.class));
+        when(mockFirestore.collection("products").document("product-123")).thenReturn(mockDocRef);
+        when(mockDocRef.set(product)).thenReturn(mockWriteFuture);
+        when(mockWriteFuture.get()).thenReturn(mockWriteResult);
+        when(mockWriteResult.getUpdateTime()).thenReturn(com.google.cloud.Timestamp.now());
+
+        // Act
+        String result = productRepository.save(product);
+
+        // Assert
+        assertNotNull(result);
+        verify(mockDocRef).set(product);
     }
 
     @Test
@@ -93,22 +89,19 @@ class ProductRepositoryTest {
                 .name("Test Product")
                 .build();
 
-        try (MockedStatic<FirestoreClient> firestoreClient = mockStatic(FirestoreClient.class)) {
-            firestoreClient.when(FirestoreClient::getFirestore).thenReturn(mockFirestore);
-            when(mockFirestore.collection("products")).thenReturn(mock(com.google.cloud.firestore.CollectionReference.class));
-            when(mockFirestore.collection("products").document(productId)).thenReturn(mockDocRef);
-            when(mockDocRef.get()).thenReturn(mockDocFuture);
-            when(mockDocFuture.get()).thenReturn(mockDocSnapshot);
-            when(mockDocSnapshot.exists()).thenReturn(true);
-            when(mockDocSnapshot.toObject(Product.class)).thenReturn(expectedProduct);
-
-            // Act
-            Product result = productRepository.getProductById(productId);
-
-            // Assert
-            assertNotNull(result);
-            assertEquals(expectedProduct, result);
-        }
+        when(mockFirestore.collection("products")).thenReturn(mock(com.google.cloud.firestore.CollectionReference.class));
+        when(mockFirestore.collection("products").document(productId)).thenReturn(mockDocRef);
+        when(mockDocRef.get()).thenReturn(mockDocFuture);
+        when(mockDocFuture.get()).thenReturn(mockDocSnapshot);
+        when(mockDocSnapshot.exists()).thenReturn(true);
+        when(mockDocSnapshot.toObject(Product.class)).thenReturn(expectedProduct);
+
+        // Act
+        Product result = productRepository.getProductById(productId);
+
+        // Assert
+        assertNotNull(result);
+        assertEquals(expectedProduct, result);
     }
 
     @Test
@@ -116,20 +109,17 @@ class ProductRepositoryTest {
         // Arrange
         String productId = "nonexistent-product";
 
-        try (MockedStatic<FirestoreClient> firestoreClient = mockStatic(FirestoreClient.class)) {
-            firestoreClient.when(FirestoreClient::getFirestore).thenReturn(mockFirestore);
-            when(mockFirestore.collection("products")).thenReturn(mock(com.google.cloud.firestore.CollectionReference.class));
-            when(mockFirestore.collection("products").document(productId)).thenReturn(mockDocRef);
-            when(mockDocRef.get()).thenReturn(mockDocFuture);
-            when(mockDocFuture.get()).thenReturn(mockDocSnapshot);
-            when(mockDocSnapshot.exists()).thenReturn(false);
+        when(mockFirestore.collection("products")).thenReturn(mock(com.google.cloud.firestore.CollectionReference.class));
+        when(mockFirestore.collection("products").document(productId)).thenReturn(mockDocRef);
+        when(mockDocRef.get()).thenReturn(mockDocFuture);
+        when(mockDocFuture.get()).thenReturn(mockDocSnapshot);
+        when(mockDocSnapshot.exists()).thenReturn(false);
 
-            // Act
-            Product result = productRepository.getProductById(productId);
+        // Act
+        Product result = productRepository.getProductById(productId);
 
-            // Assert
-            assertNull(result);
-        }
+        // Assert
+        assertNull(result);
     }
 
     @Test
@@ -139,50 +129,44 @@ class ProductRepositoryTest {
         Product product2 = Product.builder().id("2").name("Product 2").build();
         List<QueryDocumentSnapshot> mockDocs = Arrays.asList(mockQueryDoc, mockQueryDoc);
 
-        try (MockedStatic<FirestoreClient> firestoreClient = mockStatic(FirestoreClient.class)) {
-            firestoreClient.when(FirestoreClient::getFirestore).thenReturn(mockFirestore);
-            when(mockFirestore.collection("products")).thenReturn(mock(com.google.cloud.firestore.CollectionReference.class));
-            when(mockFirestore.collection("products").get()).thenReturn(mockQueryFuture);
-            when(mockQueryFuture.get()).thenReturn(mockQuerySnapshot);
-            when(mockQuerySnapshot.getDocuments()).thenReturn(mockDocs);
-            
-            // Mock para cada documento en la lista
-            QueryDocumentSnapshot doc1 = mock(QueryDocumentSnapshot.class);
-            QueryDocumentSnapshot doc2 = mock(QueryDocumentSnapshot.class);
-            when(doc1.toObject(Product.class)).thenReturn(product1);
-            when(doc2.toObject(Product.class)).thenReturn(product2);
-            
-            List<QueryDocumentSnapshot> documents = Arrays.asList(doc1, doc2);
-            when(mockQuerySnapshot.getDocuments()).thenReturn(documents);
-
-            // Act
-            List<Product> result = productRepository.getAllProducts();
-
-            // Assert
-            assertNotNull(result);
-            assertEquals(2, result.size());
-            assertEquals(product1, result.get(0));
-            assertEquals(product2, result.get(1));
-        }
+        when(mockFirestore.collection("products")).thenReturn(mock(com.google.cloud.firestore.CollectionReference.class));
+        when(mockFirestore.collection("products").get()).thenReturn(mockQueryFuture);
+        when(mockQueryFuture.get()).thenReturn(mockQuerySnapshot);
+        when(mockQuerySnapshot.getDocuments()).thenReturn(mockDocs);
+        
+        // Mock para cada documento en la lista
+        QueryDocumentSnapshot doc1 = mock(QueryDocumentSnapshot.class);
+        QueryDocumentSnapshot doc2 = mock(QueryDocumentSnapshot.class);
+        when(doc1.toObject(Product.class)).thenReturn(product1);
+        when(doc2.toObject(Product.class)).thenReturn(product2);
+        
+        List<QueryDocumentSnapshot> documents = Arrays.asList(doc1, doc2);
+        when(mockQuerySnapshot.getDocuments()).thenReturn(documents);
+
+        // Act
+        List<Product> result = productRepository.getAllProducts();
+
+        // Assert
+        assertNotNull(result);
+        assertEquals(2, result.size());
+        assertEquals(product1, result.get(0));
+        assertEquals(product2, result.get(1));
     }
 
     @Test
     void testGetAllProducts_EmptyResult() throws ExecutionException, InterruptedException {
         // Arrange
-        try (MockedStatic<FirestoreClient> firestoreClient = mockStatic(FirestoreClient.class)) {
-            firestoreClient.when(FirestoreClient::getFirestore).thenReturn(mockFirestore);
-            when(mockFirestore.collection("products")).thenReturn(mock(com.google.cloud.firestore.CollectionReference.class));
-            when(mockFirestore.collection("products").get()).thenReturn(mockQueryFuture);
-            when(mockQueryFuture.get()).thenReturn(mockQuerySnapshot);
-            when(mockQuerySnapshot.getDocuments()).thenReturn(Arrays.asList());
-
-            // Act
-            List<Product> result = productRepository.getAllProducts();
-
-            // Assert
-            assertNotNull(result);
-            assertTrue(result.isEmpty());
-        }
+        when(mockFirestore.collection("products")).thenReturn(mock(com.google.cloud.firestore.CollectionReference.class));
+        when(mockFirestore.collection("products").get()).thenReturn(mockQueryFuture);
+        when(mockQueryFuture.get()).thenReturn(mockQuerySnapshot);
+        when(mockQuerySnapshot.getDocuments()).thenReturn(Arrays.asList());
+
+        // Act
+        List<Product> result = productRepository.getAllProducts();
+
+        // Assert
+        assertNotNull(result);
+        assertTrue(result.isEmpty());
     }
 
     @Test
@@ -190,20 +174,17 @@ class ProductRepositoryTest {
         // Arrange
         String productId = "product-to-delete";
 
-        try (MockedStatic<FirestoreClient> firestoreClient = mockStatic(FirestoreClient.class)) {
-            firestoreClient.when(FirestoreClient::getFirestore).thenReturn(mockFirestore);
-            when(mockFirestore.collection("products")).thenReturn(mock(com.google.cloud.firestore.CollectionReference.class));
-            when(mockFirestore.collection("products").document(productId)).thenReturn(mockDocRef);
-            when(mockDocRef.delete()).thenReturn(mockWriteFuture);
+        when(mockFirestore.collection("products")).thenReturn(mock(com.google.cloud.firestore.CollectionReference.class));
+        when(mockFirestore.collection("products").document(productId)).thenReturn(mockDocRef);
+        when(mockDocRef.delete()).thenReturn(mockWriteFuture);
 
-            // Act
-            String result = productRepository.delete(productId);
+        // Act
+        String result = productRepository.delete(productId);
 
-            // Assert
-            assertNotNull(result);
-            assertTrue(result.contains("Eliminado en:"));
-            verify(mockDocRef).delete();
-        }
+        // Assert
+        assertNotNull(result);
+        assertTrue(result.contains("Eliminado en:"));
+        verify(mockDocRef).delete();
     }
 
     @Test
@@ -214,16 +195,13 @@ class ProductRepositoryTest {
                 .name("Test Product")
                 .build();
 
-        try (MockedStatic<FirestoreClient> firestoreClient = mockStatic(FirestoreClient.class)) {
-            firestoreClient.when(FirestoreClient::getFirestore).thenReturn(mockFirestore);
-            when(mockFirestore.collection("products")).thenReturn(mock(com.google.cloud.firestore.CollectionReference.class));
-            when(mockFirestore.collection("products").document("product-123")).thenReturn(mockDocRef);
-            when(mockDocRef.set(product)).thenReturn(mockWriteFuture);
-            when(mockWriteFuture.get()).thenThrow(new ExecutionException("Firestore error", new RuntimeException()));
+        when(mockFirestore.collection("products")).thenReturn(mock(com.google.cloud.firestore.CollectionReference.class));
+        when(mockFirestore.collection("products").document("product-123")).thenReturn(mockDocRef);
+        when(mockDocRef.set(product)).thenReturn(mockWriteFuture);
+        when(mockWriteFuture.get()).thenThrow(new ExecutionException("Firestore error", new RuntimeException()));
 
-            // Act & Assert
-            assertThrows(ExecutionException.class, () -> productRepository.save(product));
-        }
+        // Act & Assert
+        assertThrows(ExecutionException.class, () -> productRepository.save(product));
     }
 
     @Test
@@ -231,16 +209,28 @@ class ProductRepositoryTest {
         // Arrange
         String productId = "product-123";
 
-        try (MockedStatic<FirestoreClient> firestoreClient = mockStatic(FirestoreClient.class)) {
-            firestoreClient.when(FirestoreClient::getFirestore).thenReturn(mockFirestore);
-            when(mockFirestore.collection("products")).thenReturn(mock(com.google.cloud.firestore.CollectionReference.class));
-            when(mockFirestore.collection("products").document(productId)).thenReturn(mockDocRef);
-            when(mockDocRef.get()).thenReturn(mockDocFuture);
-            when(mockDocFuture.get()).thenThrow(new InterruptedException("Thread interrupted"));
+        when(mockFirestore.collection("products")).thenReturn(mock(com.google.cloud.firestore.CollectionReference.class));
+        when(mockFirestore.collection("products").document(productId)).thenReturn(mockDocRef);
+        when(mockDocRef.get()).thenReturn(mockDocFuture);
+        when(mockDocFuture.get()).thenThrow(new InterruptedException("Thread interrupted"));
 
-            // Act & Assert
-            assertThrows(InterruptedException.class, () -> productRepository.getProductById(productId));
-        }
+        // Act & Assert
+        assertThrows(InterruptedException.class, () -> productRepository.getProductById(productId));
+    }
+
+    @Test
+    void testCancelProductsByIdsAsyncCancelsFirestoreRead() {
+        // El checkout cancela las lecturas hermanas cuando una falla; debe llegar al RPC
+        ApiFuture<List<DocumentSnapshot>> getAllFuture = mock(ApiFuture.class);
+        when(mockFirestore.collection("products")).thenReturn(mock(com.google.cloud.firestore.CollectionReference.class));
+        when(mockFirestore.collection("products").document("product-123")).thenReturn(mockDocRef);
+        when(mockFirestore.getAll(mockDocRef)).thenReturn(getAllFuture);
+
+        CompletableFuture<Map<String, Product>> read = productRepository.getProductsByIdsAsync(List.of("product-123"));
+        read.cancel(true);
+
+        assertTrue(read.isCancelled());
+        verify(getAllFuture).cancel(true);
     }
 
     @Test
@@ -0,0 +1,194 @@
+package co.edu.uniajc.estudiante.opemay.Service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import co.edu.uniajc.estudiante.opemay.IRespository.ConcurrentUpdateException;
+import co.edu.uniajc.estudiante.opemay.model.Cart;
+import co.edu.uniajc.estudiante.opemay.model.CartItem;
+
+class CartMutationQueueTest {
+
+    /** Carrito "guardado" en memoria y cantidad de cambios de cada escritura */
+    private final Cart stored = Cart.builder().id("cart-1").userId("user-1").build();
+    private final List<Integer> writes = new CopyOnWriteArrayList<>();
+
+    private Cart write(List<CartMutationQueue.Pending> batch) {
+        if (CartMutationQueue.applyAll(stored, batch)) {
+            writes.add(batch.size());
+        }
+        return stored;
+    }
+
+    private static CartMutationQueue.Mutation add(String productId, int quantity) {
+        return cart -> cart.addItem(CartItem.builder()
+                .productId(productId).productName(productId).price(1.0).quantity(quantity).build());
+    }
+
+    @Test
+    void testChangesQueuedDuringAWriteAreSavedTogetherInOrder() throws Exception {
+        CountDownLatch firstWriteStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstWrite = new CountDownLatch(1);
+        CartMutationQueue queue = new CartMutationQueue((userId, batch) -> {
+            if (writes.isEmpty()) {
+                firstWriteStarted.countDown();
+                releaseFirstWrite.await(5, TimeUnit.SECONDS);
+            }
+            return write(batch);
+        });
+
+        ExecutorService clicks = Executors.newFixedThreadPool(4);
+        try {
+            Future<Cart> first = clicks.submit(() -> queue.submit("user-1", add("banano", 1)));
+            assertThat(firstWriteStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+            // Tres clics mientras se guarda el primero, encolados en este orden
+            Future<Cart> second = clicks.submit(() -> queue.submit("user-1", add("banano", 2)));
+            awaitQueued(queue, 1);
+            Future<Cart> third = clicks.submit(() -> queue.submit("user-1", add("arroz", 1)));
+            awaitQueued(queue, 2);
+            Future<Cart> fourth = clicks.submit(() -> queue.submit("user-1", Cart::clearCart));
+            awaitQueued(queue, 3);
+            releaseFirstWrite.countDown();
+
+            assertThat(first.get(5, TimeUnit.SECONDS)).isSameAs(stored);
+            assertThat(second.get(5, TimeUnit.SECONDS)).isSameAs(stored);
+            assertThat(third.get(5, TimeUnit.SECONDS)).isSameAs(stored);
+            assertThat(fourth.get(5, TimeUnit.SECONDS).getItems()).isEmpty();
+            assertThat(writes).containsExactly(1, 3);
+            assertThat(queue.pendingUsers()).isZero();
+        } finally {
+            clicks.shutdownNow();
+        }
+    }
+
+    @Test
+    void testSameProductTwiceThenConflictSavesEachQuantityOnce() throws Exception {
+        // Cantidades guardadas; cada intento arma un carrito nuevo a partir de ellas
+        Map<String, Integer> saved = new ConcurrentHashMap<>();
+        AtomicInteger attempts = new AtomicInteger();
+        CountDownLatch firstWriteStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstWrite = new CountDownLatch(1);
+        OptimisticRetry retry = new OptimisticRetry();
+        CartMutationQueue queue = new CartMutationQueue((userId, batch) -> retry.run(() -> {
+            if (attempts.incrementAndGet() == 1) {
+                firstWriteStarted.countDown();
+                releaseFirstWrite.await(5, TimeUnit.SECONDS);
+            }
+            Cart fresh = Cart.builder().id("cart-1").userId(userId).build();
+            saved.forEach((productId, quantity) -> add(productId, quantity).applyTo(fresh));
+            CartMutationQueue.applyAll(fresh, batch);
+            if (attempts.get() == 2) {
+                throw new ConcurrentUpdateException("carts", "cart-1", 1L, 2L);
+            }
+            saved.clear();
+            fresh.getItems().forEach(item -> saved.put(item.getProductId(), item.getQuantity()));
+            return fresh;
+        }));
+
+        ExecutorService clicks = Executors.newFixedThreadPool(3);
+        try {
+            Future<Cart> first = clicks.submit(() -> queue.submit("user-1", add("arroz", 1)));
+            assertThat(firstWriteStarted.await(5, TimeUnit.SECONDS)).isTrue();
+            // Dos clics del mismo producto en un lote; add crea el item en cada aplicación, como
+            // CartService.addProductToCart, así que el reintento no arrastra la cantidad ya sumada
+            Future<Cart> second = clicks.submit(() -> queue.submit("user-1", add("banano", 1)));
+            awaitQueued(queue, 1);
+            Future<Cart> third = clicks.submit(() -> queue.submit("user-1", add("banano", 1)));
+            awaitQueued(queue, 2);
+            releaseFirstWrite.countDown();
+
+            first.get(5, TimeUnit.SECONDS);
+            second.get(5, TimeUnit.SECONDS);
+            Cart cart = third.get(5, TimeUnit.SECONDS);
+
+            assertThat(attempts.get()).isEqualTo(3);
+            assertThat(saved).containsEntry("banano", 2).containsEntry("arroz", 1);
+            assertThat(cart.getTotalItems()).isEqualTo(3);
+        } finally {
+            clicks.shutdownNow();
+        }
+    }
+
+    private static void awaitQueued(CartMutationQueue queue, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (queue.queuedMutations("user-1") < expected && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertThat(queue.queuedMutations("user-1")).isEqualTo(expected);
+    }
+
+    @Test
+    void testRejectedChangeFailsOnlyItsCaller() throws Exception {
+        CartMutationQueue queue = new CartMutationQueue((userId, batch) -> write(batch));
+        queue.submit("user-1", add("banano", 1));
+
+        assertThatThrownBy(() -> queue.submit("user-1", cart -> {
+            throw new IllegalArgumentException("Producto no encontrado en el carrito");
+        })).isInstanceOf(IllegalArgumentException.class);
+
+        Cart cart = queue.submit("user-1", add("banano", 2));
+        assertThat(cart.getItems()).hasSize(1);
+        assertThat(cart.getTotalItems()).isEqualTo(3);
+        assertThat(writes).containsExactly(1, 1);
+    }
+
+    @Test
+    void testWriteFailureReachesEveryCallerOfTheBatch() {
+        CartMutationQueue queue = new CartMutationQueue((userId, batch) -> {
+            throw new IllegalStateException("Firestore caído");
+        });
+
+        assertThatThrownBy(() -> queue.submit("user-1", add("banano", 1)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Firestore caído");
+        assertThat(queue.pendingUsers()).isZero();
+    }
+
+    @Test
+    void testErrorWhileDrainingFailsQueuedChangesAndFreesTheUser() throws Exception {
+        CountDownLatch firstWriteStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstWrite = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        CartMutationQueue queue = new CartMutationQueue((userId, batch) -> {
+            if (calls.incrementAndGet() == 1) {
+                firstWriteStarted.countDown();
+                releaseFirstWrite.await(5, TimeUnit.SECONDS);
+                throw new StackOverflowError();
+            }
+            return write(batch);
+        });
+
+        ExecutorService clicks = Executors.newFixedThreadPool(2);
+        try {
+            Future<Cart> first = clicks.submit(() -> queue.submit("user-1", add("banano", 1)));
+            assertThat(firstWriteStarted.await(5, TimeUnit.SECONDS)).isTrue();
+            Future<Cart> queued = clicks.submit(() -> queue.submit("user-1", add("arroz", 1)));
+            awaitQueued(queue, 1);
+            releaseFirstWrite.countDown();
+
+            // Quien procesaba recibe el Error; quien esperaba en la cola, un fallo y no un bloqueo eterno
+            assertThatThrownBy(() -> first.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(StackOverflowError.class);
+            assertThatThrownBy(() -> queued.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalStateException.class);
+            assertThat(queue.pendingUsers()).isZero();
+
+            Future<Cart> next = clicks.submit(() -> queue.submit("user-1", add("arroz", 1)));
+            assertThat(next.get(5, TimeUnit.SECONDS).getTotalItems()).isEqualTo(1);
+        } finally {
+            clicks.shutdownNow();
+        }
+    }
+}
@@ -13,6 +13,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -20,10 +21,13 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import co.edu.uniajc.estudiante.opemay.IRespository.CartRepository;
+import co.edu.uniajc.estudiante.opemay.IRespository.ConcurrentUpdateException;
 import co.edu.uniajc.estudiante.opemay.IRespository.ProductRepository;
+import co.edu.uniajc.estudiante.opemay.dto.PageResponse;
 import co.edu.uniajc.estudiante.opemay.model.Cart;
 import co.edu.uniajc.estudiante.opemay.model.CartItem;
 import co.edu.uniajc.estudiante.opemay.model.Product;
@@ -37,6 +41,9 @@ class CartServiceTest {
     @Mock
     private ProductRepository productRepository;
 
+    @Spy
+    private OptimisticRetry optimisticRetry = new OptimisticRetry();
+
     @InjectMocks
     private CartService cartService;
 
@@ -77,20 +84,20 @@ class CartServiceTest {
         assertNotNull(result);
         assertEquals("cart-1", result.getId());
         assertEquals("user-1", result.getUserId());
-        verify(cartRepository, never()).save(any(Cart.class));
+        verify(cartRepository, never()).createActiveCart(any(Cart.class));
     }
 
     @Test
     void testGetOrCreateActiveCartWhenNotExists() throws ExecutionException, InterruptedException {
         when(cartRepository.getActiveCartByUserId("user-1")).thenReturn(null);
-        when(cartRepository.save(any(Cart.class))).thenReturn("timestamp");
+        when(cartRepository.createActiveCart(any(Cart.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         Cart result = cartService.getOrCreateActiveCart("user-1");
 
         assertNotNull(result);
         assertEquals("user-1", result.getUserId());
         assertEquals("ACTIVE", result.getStatus());
-        verify(cartRepository, times(1)).save(any(Cart.class));
+        verify(cartRepository, times(1)).createActiveCart(any(Cart.class));
     }
 
     @Test
@@ -111,7 +118,7 @@ class CartServiceTest {
 
     @Test
     void testAddProductToCartSuccess() throws ExecutionException, InterruptedException {
-        when(productRepository.getProductById("product-1")).thenReturn(testProduct);
+        when(productRepository.getProductByIdAsync("product-1")).thenReturn(CompletableFuture.completedFuture(testProduct));
         when(cartRepository.getActiveCartByUserId("user-1")).thenReturn(testCart);
         when(cartRepository.update(any(Cart.class))).thenReturn("timestamp");
 
@@ -124,6 +131,39 @@ class CartServiceTest {
         verify(cartRepository, times(1)).update(any(Cart.class));
     }
 
+    @Test
+    void testAddProductToCartCreatesCartWhenNoneActive() throws ExecutionException, InterruptedException {
+        when(productRepository.getProductByIdAsync("product-1")).thenReturn(CompletableFuture.completedFuture(testProduct));
+        when(cartRepository.getActiveCartByUserId("user-1")).thenReturn(null);
+        when(cartRepository.createActiveCart(any(Cart.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(cartRepository.update(any(Cart.class))).thenReturn("timestamp");
+
+        Cart result = cartService.addProductToCart("user-1", "product-1", 2);
+
+        assertEquals("user-1", result.getUserId());
+        assertEquals(2, result.getTotalItems());
+        verify(cartRepository, times(1)).createActiveCart(any(Cart.class));
+        verify(productRepository, never()).getProductById(anyString());
+    }
+
+    @Test
+    void testAddProductToCartRereadsCartOnConflict() throws ExecutionException, InterruptedException {
+        // Otra pestaña escribió el carrito entre la lectura y la escritura
+        Cart fresh = Cart.builder().id("cart-1").userId("user-1").status("ACTIVE").version(2L).build();
+        when(productRepository.getProductByIdAsync("product-1")).thenReturn(CompletableFuture.completedFuture(testProduct));
+        when(cartRepository.getActiveCartByUserId("user-1")).thenReturn(testCart, fresh);
+        when(cartRepository.update(any(Cart.class)))
+                .thenThrow(new ConcurrentUpdateException("carts", "cart-1", 1L, 2L))
+                .thenReturn("timestamp");
+
+        Cart result = cartService.addProductToCart("user-1", "product-1", 3);
+
+        assertEquals(2L, result.getVersion());
+        assertEquals(3, result.getTotalItems());
+        verify(cartRepository, times(2)).getActiveCartByUserId("user-1");
+        verify(cartRepository, times(2)).update(any(Cart.class));
+    }
+
     @Test
     void testAddProductToCartWithInvalidQuantity() {
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
@@ -142,7 +182,7 @@ class CartServiceTest {
 
     @Test
     void testAddProductToCartProductNotFound() throws ExecutionException, InterruptedException {
-        when(productRepository.getProductById("product-1")).thenReturn(null);
+        when(productRepository.getProductByIdAsync("product-1")).thenReturn(CompletableFuture.completedFuture(null));
 
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
                 () -> cartService.addProductToCart("user-1", "product-1", 3));
@@ -153,7 +193,7 @@ class CartServiceTest {
     @Test
     void testAddProductToCartProductNotActive() throws ExecutionException, InterruptedException {
         testProduct.setActive(false);
-        when(productRepository.getProductById("product-1")).thenReturn(testProduct);
+        when(productRepository.getProductByIdAsync("product-1")).thenReturn(CompletableFuture.completedFuture(testProduct));
 
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
                 () -> cartService.addProductToCart("user-1", "product-1", 3));
@@ -203,6 +243,7 @@ class CartServiceTest {
                 () -> cartService.updateProductQuantity("user-1", "product-1", 5));
 
         assertEquals("Producto no encontrado en el carrito", exception.getMessage());
+        verify(cartRepository, never()).update(any(Cart.class));
     }
 
     @Test
@@ -245,20 +286,24 @@ class CartServiceTest {
 
     @Test
     void testGetUserCarts() throws ExecutionException, InterruptedException {
-        List<Cart> cartList = List.of(testCart);
-        when(cartRepository.getCartsByUserId("user-1")).thenReturn(cartList);
+        PageResponse<Cart> page = PageResponse.<Cart>builder()
+                .items(List.of(testCart))
+                .size(20)
+                .hasMore(false)
+                .build();
+        when(cartRepository.getCartsByUserIdPage("user-1", null, null)).thenReturn(page);
 
-        List<Cart> result = cartService.getUserCarts("user-1");
+        PageResponse<Cart> result = cartService.getUserCarts("user-1", null, null);
 
         assertNotNull(result);
-        assertEquals(1, result.size());
-        assertEquals("cart-1", result.get(0).getId());
+        assertEquals(1, result.getItems().size());
+        assertEquals("cart-1", result.getItems().get(0).getId());
     }
 
     @Test
     void testGetUserCartsWithEmptyUserId() {
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
-                () -> cartService.getUserCarts(""));
+                () -> cartService.getUserCarts("", null, null));
 
         assertEquals("El ID del usuario no puede estar vacío", exception.getMessage());
     }
@@ -339,13 +384,19 @@ class CartServiceTest {
 
     @Test
     void testGetAllCarts() throws ExecutionException, InterruptedException {
-        List<Cart> cartList = List.of(testCart);
-        when(cartRepository.getAllCarts()).thenReturn(cartList);
+        PageResponse<Cart> page = PageResponse.<Cart>builder()
+                .items(List.of(testCart))
+                .size(1)
+                .nextCursor("cursor-2")
+                .hasMore(true)
+                .build();
+        when(cartRepository.getCartsPage("cursor-1", 1)).thenReturn(page);
 
-        List<Cart> result = cartService.getAllCarts();
+        PageResponse<Cart> result = cartService.getAllCarts("cursor-1", 1);
 
         assertNotNull(result);
-        assertEquals(1, result.size());
+        assertEquals(1, result.getItems().size());
+        assertEquals("cursor-2", result.getNextCursor());
     }
 
     @Test
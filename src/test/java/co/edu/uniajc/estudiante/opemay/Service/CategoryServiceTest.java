@@ -45,6 +45,7 @@ class CategoryServiceTest {
                 .sortOrder(1)
                 .active(true)
                 .build();
+        categoryService.invalidateSnapshot();
     }
 
     @Test
@@ -98,7 +99,7 @@ class CategoryServiceTest {
     @Test
     void testGetCategoryById_Success() throws ExecutionException, InterruptedException {
         // Arrange
-        when(categoryRepository.getCategoryById("cat-123")).thenReturn(testCategory);
+        when(categoryRepository.getAllCategories()).thenReturn(List.of(testCategory));
 
         // Act
         Category result = categoryService.getCategoryById("cat-123");
@@ -111,7 +112,7 @@ class CategoryServiceTest {
     @Test
     void testGetCategoryById_NotFound() throws ExecutionException, InterruptedException {
         // Arrange
-        when(categoryRepository.getCategoryById("nonexistent-id")).thenReturn(null);
+        when(categoryRepository.getAllCategories()).thenReturn(List.of(testCategory));
 
         // Act
         Category result = categoryService.getCategoryById("nonexistent-id");
@@ -141,7 +142,7 @@ class CategoryServiceTest {
     @Test
     void testGetCategoryByName_Success() throws ExecutionException, InterruptedException {
         // Arrange
-        when(categoryRepository.getCategoryByName("Test Category")).thenReturn(testCategory);
+        when(categoryRepository.getAllCategories()).thenReturn(List.of(testCategory));
 
         // Act
         Category result = categoryService.getCategoryByName("Test Category");
@@ -167,8 +168,13 @@ class CategoryServiceTest {
     @Test
     void testGetAllActiveCategories() throws ExecutionException, InterruptedException {
         // Arrange
-        List<Category> expectedCategories = Arrays.asList(testCategory);
-        when(categoryRepository.getAllActiveCategories()).thenReturn(expectedCategories);
+        Category inactiveCategory = Category.builder()
+                .id("cat-456")
+                .name("Inactive Category")
+                .sortOrder(2)
+                .active(false)
+                .build();
+        when(categoryRepository.getAllCategories()).thenReturn(Arrays.asList(testCategory, inactiveCategory));
 
         // Act
         List<Category> result = categoryService.getAllActiveCategories();
@@ -372,4 +378,25 @@ class CategoryServiceTest {
         assertEquals("Test Category", result.getName()); // Original name preserved
         assertEquals("New Description", result.getDescription());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testSnapshotIsReusedUntilCategoryChanges() throws ExecutionException, InterruptedException {
+        // Arrange
+        testCategory.setSlug("test-category");
+        when(categoryRepository.getAllCategories()).thenReturn(List.of(testCategory));
+        when(categoryRepository.getCategoryById("cat-123")).thenReturn(testCategory);
+        when(categoryRepository.update(any(Category.class))).thenReturn("success");
+
+        // Act
+        categoryService.getAllActiveCategories();
+        categoryService.getCategoryById("cat-123");
+        Category bySlug = categoryService.getCategoryBySlug("test-category");
+        categoryService.toggleCategoryStatus("cat-123");
+        List<Category> afterToggle = categoryService.getAllActiveCategories();
+
+        // Assert
+        assertEquals(testCategory, bySlug);
+        assertTrue(afterToggle.isEmpty());
+        verify(categoryRepository, times(2)).getAllCategories();
+    }
+}
@@ -0,0 +1,137 @@
+package co.edu.uniajc.estudiante.opemay.Service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.cloud.Timestamp;
+
+import co.edu.uniajc.estudiante.opemay.IRespository.CartRepository;
+import co.edu.uniajc.estudiante.opemay.IRespository.OrderRepository;
+import co.edu.uniajc.estudiante.opemay.IRespository.UserRepository;
+import co.edu.uniajc.estudiante.opemay.dto.ExportFormat;
+import co.edu.uniajc.estudiante.opemay.model.Cart;
+import co.edu.uniajc.estudiante.opemay.model.Order;
+import co.edu.uniajc.estudiante.opemay.model.OrderStatus;
+import co.edu.uniajc.estudiante.opemay.model.User;
+
+@ExtendWith(MockitoExtension.class)
+@SuppressWarnings("unchecked")
+class ExportServiceTest {
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private CartRepository cartRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    private ExportService exportService;
+
+    @BeforeEach
+    void setUp() {
+        exportService = new ExportService(orderRepository, cartRepository, userRepository, new ObjectMapper(), 50);
+    }
+
+    @Test
+    void testExportOrdersCsvWritesHeaderAndEscapedRows() throws Exception {
+        Order order = Order.builder()
+                .id("order-1")
+                .userId("user-1")
+                .userEmail("cliente,uno@example.com")
+                .status(OrderStatus.PENDING)
+                .totalAmount(12.5)
+                .createdAt(Timestamp.ofTimeSecondsAndNanos(0, 0))
+                .build();
+        doAnswer(invocation -> {
+            invocation.<Consumer<Order>>getArgument(4).accept(order);
+            return 1L;
+        }).when(orderRepository).streamOrders(eq("PENDING"), isNull(), isNull(), eq(50), any());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long rows = exportService.exportOrders(out, ExportFormat.CSV, "pending", null, null);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(1L, rows);
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("id,userId,userEmail,status"));
+        assertTrue(lines[1].startsWith("order-1,user-1,\"cliente,uno@example.com\",PENDING,"));
+        assertTrue(lines[1].endsWith(",1970-01-01T00:00:00Z,"));
+    }
+
+    @Test
+    void testExportCartsNdjsonWritesOneObjectPerLine() throws Exception {
+        Cart first = Cart.builder().id("cart-1").userId("user-1").build();
+        Cart second = Cart.builder().id("cart-2").userId("user-2").build();
+        doAnswer(invocation -> {
+            Consumer<Cart> consumer = invocation.getArgument(4);
+            List.of(first, second).forEach(consumer);
+            return 2L;
+        }).when(cartRepository).streamCarts(eq("ACTIVE"), isNull(), isNull(), anyInt(), any());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.exportCarts(out, ExportFormat.NDJSON, "active", null, null);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("\"id\":\"cart-1\""));
+        assertTrue(lines[1].contains("\"id\":\"cart-2\""));
+    }
+
+    @Test
+    void testExportUsersNeverIncludesPassword() throws Exception {
+        User user = User.builder().id("user-1").username("ana").email("ana@example.com").password("secreto").build();
+        doAnswer(invocation -> {
+            invocation.<Consumer<User>>getArgument(3).accept(user);
+            return 1L;
+        }).when(userRepository).streamUsers(isNull(), isNull(), anyInt(), any());
+
+        ByteArrayOutputStream ndjson = new ByteArrayOutputStream();
+        exportService.exportUsers(ndjson, ExportFormat.NDJSON, null, null);
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        exportService.exportUsers(csv, ExportFormat.CSV, null, null);
+
+        assertTrue(ndjson.toString(StandardCharsets.UTF_8).contains("\"username\":\"ana\""));
+        assertFalse(ndjson.toString(StandardCharsets.UTF_8).contains("secreto"));
+        assertFalse(csv.toString(StandardCharsets.UTF_8).contains("secreto"));
+    }
+
+    @Test
+    void testExportOrdersRejectsUnknownStatus() {
+        assertThrows(IllegalArgumentException.class,
+                () -> exportService.exportOrders(new ByteArrayOutputStream(), ExportFormat.CSV, "PERDIDO", null, null));
+        verifyNoInteractions(orderRepository);
+    }
+
+    @Test
+    void testExportOrdersPassesDateRange() throws Exception {
+        Timestamp from = Timestamp.ofTimeSecondsAndNanos(100, 0);
+        Timestamp to = Timestamp.ofTimeSecondsAndNanos(200, 0);
+
+        exportService.exportOrders(new ByteArrayOutputStream(), ExportFormat.NDJSON, null, from, to);
+
+        verify(orderRepository).streamOrders(isNull(), eq(from), eq(to), eq(50), any());
+    }
+}
@@ -1,6 +1,7 @@
 package co.edu.uniajc.estudiante.opemay.Service;
 
 import java.util.Date;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertFalse;
@@ -11,11 +12,12 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import co.edu.uniajc.estudiante.opemay.model.User;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.MalformedJwtException;
 
 /**
@@ -25,7 +27,8 @@ import io.jsonwebtoken.MalformedJwtException;
 @DisplayName("JwtService Tests")
 class JwtServiceTest {
 
-    @InjectMocks
+    private static final String SECRET = "opemaySecretKeyForJWTTokenGeneration2024SecureKeyLongEnough";
+
     private JwtService jwtService;
 
     private String validToken;
@@ -39,8 +42,7 @@ class JwtServiceTest {
         malformedToken = "invalid.jwt.token";
         
         // Configurar propiedades del servicio
-        ReflectionTestUtils.setField(jwtService, "jwtSecret", "opemaySecretKeyForJWTTokenGeneration2024SecureKeyLongEnough");
-        ReflectionTestUtils.setField(jwtService, "jwtExpirationMs", 3600000L); // 1 hora
+        jwtService = new JwtService(SECRET, 3600000L, 100); // 1 hora
 
         // Generar token válido
         validToken = jwtService.generateTokenFromUsername(testUsername);
@@ -212,9 +214,7 @@ class JwtServiceTest {
         @DisplayName("Debe rechazar token con firma incorrecta")
         void shouldRejectTokenWithWrongSignature() {
             // Arrange - crear un token con diferente clave
-            JwtService differentJwtService = new JwtService();
-            ReflectionTestUtils.setField(differentJwtService, "jwtSecret", "differentSecretKey123456789012345678901234567890");
-            ReflectionTestUtils.setField(differentJwtService, "jwtExpirationMs", 3600000L);
+            JwtService differentJwtService = new JwtService("differentSecretKey123456789012345678901234567890", 3600000L, 100);
             String tokenWithDifferentSignature = differentJwtService.generateTokenFromUsername(testUsername);
 
             // Act & Assert - Debe manejar la excepción SignatureException
@@ -333,4 +333,63 @@ class JwtServiceTest {
             assertThat(jwtService.getUsernameFromToken(token)).isEqualTo("multipleops");
         }
     }
-}
\ No newline at end of file
+
+    @Nested
+    @DisplayName("verifyToken Tests")
+    class VerifyTokenTests {
+
+        @Test
+        @DisplayName("Debe reutilizar la verificación de un token ya visto")
+        void shouldReuseVerificationForSameToken() {
+            // Act
+            JwtService.VerifiedToken first = jwtService.verifyToken(validToken);
+            JwtService.VerifiedToken second = jwtService.verifyToken(validToken);
+
+            // Assert
+            assertThat(first.subject()).isEqualTo(testUsername);
+            assertThat(second).isSameAs(first);
+        }
+
+        @Test
+        @DisplayName("Debe rechazar un token alterado aunque el original esté en caché")
+        void shouldRejectTamperedTokenAfterCachingOriginal() {
+            // Arrange
+            jwtService.verifyToken(validToken);
+            int position = validToken.length() - 10; // dentro de la firma
+            char original = validToken.charAt(position);
+            String tampered = validToken.substring(0, position) + (original == 'A' ? 'B' : 'A')
+                    + validToken.substring(position + 1);
+
+            // Act & Assert
+            assertThrows(JwtException.class, () -> jwtService.verifyToken(tampered));
+        }
+    }
+
+    @Nested
+    @DisplayName("User claims Tests")
+    class UserClaimsTests {
+
+        private User user() {
+            return User.builder()
+                    .id("user-123")
+                    .username(testUsername)
+                    .email("testuser@example.com")
+                    .roles(List.of("USER", "ADMIN"))
+                    .build();
+        }
+
+        @Test
+        @DisplayName("Debe incluir ID y roles del usuario en el token")
+        void shouldEmbedUserIdAndRoles() {
+            // Act
+            JwtService.VerifiedToken verified = jwtService.verifyToken(jwtService.generateTokenForUser(user()));
+
+            // Assert
+            assertThat(verified.subject()).isEqualTo("testuser@example.com");
+            assertThat(verified.userId()).isEqualTo("user-123");
+            assertThat(verified.username()).isEqualTo(testUsername);
+            assertThat(verified.roles()).containsExactly("USER", "ADMIN");
+            assertTrue(verified.hasUserClaims());
+        }
+    }
+}
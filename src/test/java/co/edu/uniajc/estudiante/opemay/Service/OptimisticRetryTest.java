@@ -0,0 +1,85 @@
+package co.edu.uniajc.estudiante.opemay.Service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import co.edu.uniajc.estudiante.opemay.IRespository.ConcurrentUpdateException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class OptimisticRetryTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private OptimisticRetry retry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        retry = new OptimisticRetry();
+        ReflectionTestUtils.setField(retry, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(retry, "baseBackoff", Duration.ofMillis(1));
+    }
+
+    private double conflicts(String outcome) {
+        return meterRegistry.get(OptimisticRetry.METRIC_CONFLICTS)
+                .tag("collection", "carts").tag("outcome", outcome).counter().count();
+    }
+
+    @Test
+    void testRetriesUntilWriteSucceeds() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = retry.run(() -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new ConcurrentUpdateException("carts", "cart-1", 1L, 2L);
+            }
+            return "ok";
+        });
+
+        assertThat(result).isEqualTo("ok");
+        assertThat(attempts).hasValue(3);
+        assertThat(conflicts("retried")).isEqualTo(2);
+    }
+
+    @Test
+    void testGivesUpAfterMaxAttempts() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThatThrownBy(() -> retry.run(() -> {
+            attempts.incrementAndGet();
+            throw new ConcurrentUpdateException("carts", "cart-1", 1L, 2L);
+        })).isInstanceOf(ConcurrentUpdateException.class);
+
+        assertThat(attempts).hasValue(4);
+        assertThat(conflicts("retried")).isEqualTo(3);
+        assertThat(conflicts("exhausted")).isEqualTo(1);
+    }
+
+    @Test
+    void testOtherErrorsAreNotRetried() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThatThrownBy(() -> retry.run(() -> {
+            attempts.incrementAndGet();
+            throw new IllegalArgumentException("Carrito no encontrado");
+        })).isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(attempts).hasValue(1);
+    }
+
+    @Test
+    void testBackoffStaysWithinExponentialCeiling() {
+        for (int attempt = 1; attempt <= 4; attempt++) {
+            long ceiling = Duration.ofMillis(1).toNanos() << (attempt - 1);
+            for (int i = 0; i < 50; i++) {
+                assertThat(retry.backoffNanos(attempt)).isBetween(0L, ceiling);
+            }
+        }
+    }
+}
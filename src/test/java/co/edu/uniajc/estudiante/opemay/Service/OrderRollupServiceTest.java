@@ -0,0 +1,108 @@
+package co.edu.uniajc.estudiante.opemay.Service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.google.cloud.Timestamp;
+
+import co.edu.uniajc.estudiante.opemay.IRespository.OrderRollupRepository;
+import co.edu.uniajc.estudiante.opemay.dto.RollupReport;
+import co.edu.uniajc.estudiante.opemay.model.OrderRollup;
+
+@ExtendWith(MockitoExtension.class)
+class OrderRollupServiceTest {
+
+    private static final Instant FROM = Instant.parse("2025-03-01T05:00:00Z");
+    private static final Instant TO = Instant.parse("2025-03-03T05:00:00Z");
+
+    @Mock
+    private OrderRollupRepository rollupRepository;
+
+    private OrderRollupService orderRollupService;
+
+    @BeforeEach
+    void setUp() {
+        orderRollupService = new OrderRollupService(rollupRepository, 7);
+    }
+
+    @Test
+    void testDailyGranularityMergesHoursIntoDays() throws ExecutionException, InterruptedException {
+        when(rollupRepository.getZone()).thenReturn(ZoneId.of("America/Bogota"));
+        when(rollupRepository.getRollups(FROM, TO)).thenReturn(List.of(
+                rollup("2025-03-01", OrderRollup.DAY, 10, 500.0, "frutas", 300.0),
+                rollup("2025-03-02", OrderRollup.HOUR, 1, 20.0, "frutas", 20.0),
+                rollup("2025-03-02", OrderRollup.HOUR, 2, 30.0, "verduras", 30.0)));
+
+        RollupReport report = orderRollupService.getRollups(FROM, TO, "day");
+
+        assertEquals(OrderRollup.DAY, report.getGranularity());
+        assertEquals(2, report.getBuckets().size());
+        OrderRollup secondDay = report.getBuckets().get(1);
+        assertEquals("2025-03-02", secondDay.getId());
+        assertEquals(3L, secondDay.getOrdersPlaced());
+        assertEquals(50.0, secondDay.getRevenue(), 0.001);
+        assertEquals(2, secondDay.getCategories().size());
+        assertEquals(13L, report.getTotals().getOrdersPlaced());
+        assertEquals(550.0, report.getTotals().getRevenue(), 0.001);
+        assertEquals(320.0, report.getTotals().getCategories().get("frutas").getRevenue(), 0.001);
+    }
+
+    @Test
+    void testHourlyGranularityKeepsBuckets() throws ExecutionException, InterruptedException {
+        when(rollupRepository.getRollups(FROM, TO)).thenReturn(List.of(
+                rollup("2025-03-02", OrderRollup.HOUR, 1, 20.0, "frutas", 20.0),
+                rollup("2025-03-02", OrderRollup.HOUR, 2, 30.0, "frutas", 30.0)));
+
+        RollupReport report = orderRollupService.getRollups(FROM, TO, "HOUR");
+
+        assertEquals(2, report.getBuckets().size());
+        assertEquals(3L, report.getTotals().getOrdersPlaced());
+    }
+
+    @Test
+    void testInvalidRangeIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> orderRollupService.getRollups(TO, FROM, "DAY"));
+        assertThrows(IllegalArgumentException.class, () -> orderRollupService.getRollups(FROM, TO, "WEEK"));
+        verifyNoInteractions(rollupRepository);
+    }
+
+    @Test
+    void testCompactionUsesRetentionWindow() throws ExecutionException, InterruptedException {
+        when(rollupRepository.compactHourlyBefore(any(Instant.class))).thenReturn(24);
+
+        assertEquals(24, orderRollupService.compactHourlyRollups());
+    }
+
+    private OrderRollup rollup(String dayId, String granularity, long orders, double revenue,
+                               String categoryId, double categoryRevenue) {
+        return OrderRollup.builder()
+                .id(dayId)
+                .dayId(dayId)
+                .granularity(granularity)
+                .bucketStart(Timestamp.now())
+                .ordersPlaced(orders)
+                .revenue(revenue)
+                .itemsSold(orders)
+                .categories(new HashMap<>(Map.of(categoryId, OrderRollup.CategoryTotals.builder()
+                        .revenue(categoryRevenue)
+                        .itemsSold(orders)
+                        .build())))
+                .build();
+    }
+}
@@ -1,8 +1,12 @@
 package co.edu.uniajc.estudiante.opemay.Service;
 
-import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -12,22 +16,39 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.Transaction;
 
 import co.edu.uniajc.estudiante.opemay.IRespository.CartRepository;
+import co.edu.uniajc.estudiante.opemay.IRespository.ConcurrentUpdateException;
 import co.edu.uniajc.estudiante.opemay.IRespository.OrderRepository;
 import co.edu.uniajc.estudiante.opemay.IRespository.ProductRepository;
+import co.edu.uniajc.estudiante.opemay.dto.PageResponse;
 import co.edu.uniajc.estudiante.opemay.model.Cart;
 import co.edu.uniajc.estudiante.opemay.model.CartItem;
 import co.edu.uniajc.estudiante.opemay.model.Order;
+import co.edu.uniajc.estudiante.opemay.model.OrderStatistics;
 import co.edu.uniajc.estudiante.opemay.model.OrderStatus;
+import co.edu.uniajc.estudiante.opemay.model.PaymentStatus;
 import co.edu.uniajc.estudiante.opemay.model.Product;
+import co.edu.uniajc.estudiante.opemay.model.User;
 
 @ExtendWith(MockitoExtension.class)
 class OrderServiceTest {
@@ -41,12 +62,19 @@ class OrderServiceTest {
     @Mock
     private ProductRepository productRepository;
 
+    @Mock
+    private UserService userService;
+
+    @Spy
+    private OptimisticRetry optimisticRetry = new OptimisticRetry();
+
     @InjectMocks
     private OrderService orderService;
 
     private Cart testCart;
     private Product testProduct;
     private Order testOrder;
+    private User testUser;
 
     @BeforeEach
     void setUp() {
@@ -76,6 +104,13 @@ class OrderServiceTest {
         testProduct.setActive(true);
         testProduct.setImageUrl("http://example.com/image.jpg");
 
+        // Setup test user
+        testUser = User.builder()
+                .id("user-123")
+                .username("testuser")
+                .email("test@example.com")
+                .build();
+
         // Setup test order
         testOrder = new Order();
         testOrder.setId("order-123");
@@ -88,9 +123,10 @@ class OrderServiceTest {
     @Test
     void testCreateOrderFromCart_Success() throws ExecutionException, InterruptedException {
         // Given
-        when(cartRepository.getCartById("cart-123")).thenReturn(testCart);
-        when(productRepository.getProductById("product-123")).thenReturn(testProduct);
-        when(orderRepository.save(any(Order.class))).thenReturn("saved");
+        when(cartRepository.getCartByIdAsync("cart-123")).thenReturn(CompletableFuture.completedFuture(testCart));
+        when(userService.getUserByIdAsync("user-123")).thenReturn(CompletableFuture.completedFuture(testUser));
+        when(productRepository.getProductsByIdsAsync(anyCollection()))
+                .thenReturn(CompletableFuture.completedFuture(Map.of("product-123", testProduct)));
 
         // When
         Order result = orderService.createOrderFromCart("cart-123", "123 Test Street", "CREDIT_CARD");
@@ -103,15 +139,24 @@ class OrderServiceTest {
         assertEquals("CREDIT_CARD", result.getPaymentMethod());
         assertEquals(1, result.getItems().size());
         
-        verify(orderRepository).save(any(Order.class));
-        verify(productRepository).save(testProduct);
-        verify(cartRepository).update(testCart);
+        verify(productRepository).decrementStock(Map.of("product-123", 2));
+        verify(productRepository, never()).save(any(Product.class));
+        assertEquals("COMPLETED", testCart.getStatus());
+
+        // La orden se guarda dentro de la transacción que cierra el carrito
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Consumer<Transaction>> sameTransaction = ArgumentCaptor.forClass(Consumer.class);
+        verify(cartRepository).checkout(eq(testCart), sameTransaction.capture());
+        Transaction transaction = mock(Transaction.class);
+        sameTransaction.getValue().accept(transaction);
+        verify(orderRepository).stageSave(transaction, result);
+        verify(cartRepository, never()).checkout(any(Cart.class), any());
     }
 
     @Test
     void testCreateOrderFromCart_CartNotFound() throws ExecutionException, InterruptedException {
         // Given
-        when(cartRepository.getCartById("cart-123")).thenReturn(null);
+        when(cartRepository.getCartByIdAsync("cart-123")).thenReturn(CompletableFuture.completedFuture(null));
 
         // When & Then
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
@@ -125,7 +170,7 @@ class OrderServiceTest {
     void testCreateOrderFromCart_InactiveCart() throws ExecutionException, InterruptedException {
         // Given
         testCart.setActive(false);
-        when(cartRepository.getCartById("cart-123")).thenReturn(testCart);
+        when(cartRepository.getCartByIdAsync("cart-123")).thenReturn(CompletableFuture.completedFuture(testCart));
 
         // When & Then
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
@@ -139,7 +184,7 @@ class OrderServiceTest {
     void testCreateOrderFromCart_EmptyCart() throws ExecutionException, InterruptedException {
         // Given
         testCart.getItems().clear();
-        when(cartRepository.getCartById("cart-123")).thenReturn(testCart);
+        when(cartRepository.getCartByIdAsync("cart-123")).thenReturn(CompletableFuture.completedFuture(testCart));
 
         // When & Then
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
@@ -153,8 +198,10 @@ class OrderServiceTest {
     void testCreateOrderFromCart_InsufficientStock() throws ExecutionException, InterruptedException {
         // Given
         testProduct.setStock(1); // Menos stock del requerido (2)
-        when(cartRepository.getCartById("cart-123")).thenReturn(testCart);
-        when(productRepository.getProductById("product-123")).thenReturn(testProduct);
+        when(cartRepository.getCartByIdAsync("cart-123")).thenReturn(CompletableFuture.completedFuture(testCart));
+        when(userService.getUserByIdAsync("user-123")).thenReturn(CompletableFuture.completedFuture(testUser));
+        when(productRepository.getProductsByIdsAsync(anyCollection()))
+                .thenReturn(CompletableFuture.completedFuture(Map.of("product-123", testProduct)));
 
         // When & Then
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
@@ -164,11 +211,176 @@ class OrderServiceTest {
         assertTrue(exception.getMessage().contains("Stock insuficiente"));
     }
 
+    @Test
+    void testCreateOrderFromCart_ResolvesProductsInSingleBatch() throws ExecutionException, InterruptedException {
+        // Given
+        for (int i = 0; i < 19; i++) {
+            testCart.getItems().add(CartItem.builder()
+                    .productId("product-extra-" + i)
+                    .productName("Extra " + i)
+                    .quantity(1)
+                    .price(1.0)
+                    .build());
+        }
+        Map<String, Product> products = new java.util.HashMap<>();
+        products.put("product-123", testProduct);
+        for (int i = 0; i < 19; i++) {
+            products.put("product-extra-" + i, Product.builder()
+                    .id("product-extra-" + i).name("Extra " + i).price(1.0).stock(5).active(true).build());
+        }
+        when(cartRepository.getCartByIdAsync("cart-123")).thenReturn(CompletableFuture.completedFuture(testCart));
+        when(userService.getUserByIdAsync("user-123")).thenReturn(CompletableFuture.completedFuture(testUser));
+        when(productRepository.getProductsByIdsAsync(anyCollection()))
+                .thenReturn(CompletableFuture.completedFuture(products));
+
+        // When
+        Order result = orderService.createOrderFromCart("cart-123", "123 Test Street", "CREDIT_CARD");
+
+        // Then
+        assertEquals(20, result.getItems().size());
+        verify(productRepository, times(1)).getProductsByIdsAsync(anyCollection());
+        verify(productRepository, never()).getProductById(anyString());
+    }
+
+    @Test
+    void testCreateOrderFromCart_ProductMissingFromBatch() throws ExecutionException, InterruptedException {
+        // Given
+        when(cartRepository.getCartByIdAsync("cart-123")).thenReturn(CompletableFuture.completedFuture(testCart));
+        when(userService.getUserByIdAsync("user-123")).thenReturn(CompletableFuture.completedFuture(testUser));
+        when(productRepository.getProductsByIdsAsync(anyCollection()))
+                .thenReturn(CompletableFuture.completedFuture(Map.of()));
+
+        // When & Then
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
+            orderService.createOrderFromCart("cart-123", "123 Test Street", "CREDIT_CARD");
+        });
+
+        assertTrue(exception.getMessage().contains("Producto no encontrado o inactivo"));
+        verify(cartRepository, never()).checkout(any(Cart.class), any());
+    }
+
+    @Test
+    void testCreateOrderFromCart_StockTakenConcurrently() throws ExecutionException, InterruptedException {
+        // Given: la validación previa pasa pero la transacción detecta stock insuficiente
+        when(cartRepository.getCartByIdAsync("cart-123")).thenReturn(CompletableFuture.completedFuture(testCart));
+        when(userService.getUserByIdAsync("user-123")).thenReturn(CompletableFuture.completedFuture(testUser));
+        when(productRepository.getProductsByIdsAsync(anyCollection()))
+                .thenReturn(CompletableFuture.completedFuture(Map.of("product-123", testProduct)));
+        doThrow(new IllegalArgumentException("Stock insuficiente para: Test Product"))
+                .when(productRepository).decrementStock(anyMap());
+
+        // When & Then
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
+            orderService.createOrderFromCart("cart-123", "123 Test Street", "CREDIT_CARD");
+        });
+
+        assertTrue(exception.getMessage().contains("Stock insuficiente"));
+        verify(cartRepository, never()).checkout(any(Cart.class), any());
+    }
+
+    @Test
+    void testCreateOrderFromCart_RestoresStockWhenSaveFails() throws ExecutionException, InterruptedException {
+        // Given
+        when(cartRepository.getCartByIdAsync("cart-123")).thenReturn(CompletableFuture.completedFuture(testCart));
+        when(userService.getUserByIdAsync("user-123")).thenReturn(CompletableFuture.completedFuture(testUser));
+        when(productRepository.getProductsByIdsAsync(anyCollection()))
+                .thenReturn(CompletableFuture.completedFuture(Map.of("product-123", testProduct)));
+        doThrow(new RuntimeException("Firestore caído")).when(cartRepository).checkout(eq(testCart), any());
+
+        // When & Then
+        assertThrows(RuntimeException.class, () -> {
+            orderService.createOrderFromCart("cart-123", "123 Test Street", "CREDIT_CARD");
+        });
+
+        verify(productRepository).decrementStock(Map.of("product-123", 2));
+        verify(productRepository).restoreStock(Map.of("product-123", 2));
+    }
+
+    @Test
+    void testCreateOrderFromCart_CartChangedDuringCheckoutAbortsAndRestoresStock()
+            throws ExecutionException, InterruptedException {
+        // Given: otra pestaña agregó un producto, u otro checkout cerró el carrito, tras la lectura
+        when(cartRepository.getCartByIdAsync("cart-123")).thenReturn(CompletableFuture.completedFuture(testCart));
+        when(userService.getUserByIdAsync("user-123")).thenReturn(CompletableFuture.completedFuture(testUser));
+        when(productRepository.getProductsByIdsAsync(anyCollection()))
+                .thenReturn(CompletableFuture.completedFuture(Map.of("product-123", testProduct)));
+        doThrow(new ConcurrentUpdateException("carts", "cart-123", 1L, 2L))
+                .when(cartRepository).checkout(eq(testCart), any());
+
+        // When & Then: no se relee ni se cierra el carrito igual
+        assertThrows(ConcurrentUpdateException.class, () -> {
+            orderService.createOrderFromCart("cart-123", "123 Test Street", "CREDIT_CARD");
+        });
+
+        verify(cartRepository, times(1)).checkout(eq(testCart), any());
+        verify(cartRepository, never()).getCartById(anyString());
+        verify(productRepository).restoreStock(Map.of("product-123", 2));
+    }
+
+    @Test
+    void testCreateOrder_ReadsKnownUserAlongsideCart() throws ExecutionException, InterruptedException {
+        // Given: el carrito aún no responde cuando ya se pidió el usuario
+        CompletableFuture<Cart> cartRead = new CompletableFuture<>();
+        when(cartRepository.getCartByIdAsync("cart-123")).thenReturn(cartRead);
+        when(userService.getUserByIdAsync("user-123")).thenAnswer(invocation -> {
+            cartRead.complete(testCart);
+            return CompletableFuture.completedFuture(testUser);
+        });
+        when(productRepository.getProductsByIdsAsync(anyCollection()))
+                .thenReturn(CompletableFuture.completedFuture(Map.of("product-123", testProduct)));
+
+        // When
+        Order result = orderService.createOrder("cart-123", "user-123", "123 Test Street", "CREDIT_CARD");
+
+        // Then
+        assertEquals("user-123", result.getUserId());
+        verify(userService, times(1)).getUserByIdAsync("user-123");
+    }
+
+    @Test
+    void testCreateOrderFromCart_FailedReadCancelsSiblings() throws ExecutionException, InterruptedException {
+        // Given: la lectura de productos falla mientras la del usuario sigue en curso
+        CompletableFuture<User> userRead = new CompletableFuture<>();
+        when(cartRepository.getCartByIdAsync("cart-123")).thenReturn(CompletableFuture.completedFuture(testCart));
+        when(userService.getUserByIdAsync("user-123")).thenReturn(userRead);
+        when(productRepository.getProductsByIdsAsync(anyCollection()))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Firestore caído")));
+
+        // When & Then
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> {
+            orderService.createOrderFromCart("cart-123", "123 Test Street", "CREDIT_CARD");
+        });
+
+        assertEquals("Firestore caído", exception.getCause().getMessage());
+        assertTrue(userRead.isCancelled());
+        verify(productRepository, never()).decrementStock(anyMap());
+    }
+
+    @Test
+    void testCreateOrderFromCart_DeadlineCancelsPendingReads() throws ExecutionException, InterruptedException {
+        // Given: el usuario nunca responde
+        ReflectionTestUtils.setField(orderService, "checkoutDeadline", Duration.ofMillis(50));
+        CompletableFuture<User> userRead = new CompletableFuture<>();
+        when(cartRepository.getCartByIdAsync("cart-123")).thenReturn(CompletableFuture.completedFuture(testCart));
+        when(userService.getUserByIdAsync("user-123")).thenReturn(userRead);
+        when(productRepository.getProductsByIdsAsync(anyCollection()))
+                .thenReturn(CompletableFuture.completedFuture(Map.of("product-123", testProduct)));
+
+        // When & Then
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> {
+            orderService.createOrderFromCart("cart-123", "123 Test Street", "CREDIT_CARD");
+        });
+
+        assertTrue(exception.getCause() instanceof TimeoutException);
+        assertTrue(userRead.isCancelled());
+        verify(productRepository, never()).decrementStock(anyMap());
+        verify(cartRepository, never()).checkout(any(Cart.class), any());
+    }
+
     @Test
     void testUpdateOrderStatus_Success() throws ExecutionException, InterruptedException {
         // Given
         when(orderRepository.getOrderById("order-123")).thenReturn(testOrder);
-        when(orderRepository.update(testOrder)).thenReturn("updated");
 
         // When
         Order result = orderService.updateOrderStatus("order-123", "CONFIRMED");
@@ -176,7 +388,50 @@ class OrderServiceTest {
         // Then
         assertEquals(OrderStatus.CONFIRMED, result.getStatus());
         assertNotNull(result.getConfirmedAt());
-        verify(orderRepository).update(testOrder);
+        verify(orderRepository).updateStatus(testOrder, OrderStatus.PENDING);
+        verify(productRepository, never()).restoreStock(anyMap());
+    }
+
+    @Test
+    void testUpdateOrderStatus_CancelRestoresStock() throws ExecutionException, InterruptedException {
+        // Given
+        when(orderRepository.getOrderById("order-123")).thenReturn(testOrder);
+
+        // When
+        Order result = orderService.updateOrderStatus("order-123", "CANCELLED");
+
+        // Then
+        assertEquals(OrderStatus.CANCELLED, result.getStatus());
+        verify(orderRepository).updateStatus(testOrder, OrderStatus.PENDING);
+        verify(productRepository).restoreStock(anyMap());
+    }
+
+    @Test
+    void testUpdateOrderStatus_ConcurrentTransitionKeepsStock() throws ExecutionException, InterruptedException {
+        // Given
+        when(orderRepository.getOrderById("order-123")).thenReturn(testOrder);
+        doThrow(new IllegalStateException("La orden order-123 cambió de estado concurrentemente"))
+                .when(orderRepository).updateStatus(testOrder, OrderStatus.PENDING);
+
+        // When & Then
+        assertThrows(IllegalStateException.class, () -> orderService.updateOrderStatus("order-123", "CANCELLED"));
+        verify(productRepository, never()).restoreStock(anyMap());
+    }
+
+    @Test
+    void testUpdatePaymentStatus_RetriesWithFreshOrderOnConflict() throws ExecutionException, InterruptedException {
+        // Given: un cambio de estado concurrente hace fallar la primera escritura
+        when(orderRepository.getOrderById("order-123")).thenReturn(testOrder);
+        when(orderRepository.update(testOrder))
+                .thenThrow(new ConcurrentUpdateException("orders", "order-123", 1L, 2L))
+                .thenReturn("saved");
+
+        // When
+        Order result = orderService.updatePaymentStatus("order-123", PaymentStatus.PAID);
+
+        // Then
+        assertEquals(PaymentStatus.PAID, result.getPaymentStatus());
+        verify(orderRepository, times(2)).getOrderById("order-123");
     }
 
     @Test
@@ -197,16 +452,16 @@ class OrderServiceTest {
     void testCancelOrder_Success() throws ExecutionException, InterruptedException {
         // Given
         when(orderRepository.getOrderById("order-123")).thenReturn(testOrder);
-        when(orderRepository.update(testOrder)).thenReturn("updated");
 
         // When
         Order result = orderService.cancelOrder("order-123", "Usuario cambió de opinión");
 
         // Then
         assertEquals(OrderStatus.CANCELLED, result.getStatus());
-        // Verificar que la orden fue actualizada
+        // Verificar que la orden fue actualizada junto con las estadísticas
         assertNotNull(result.getUpdatedAt());
-        verify(orderRepository).update(testOrder);
+        verify(orderRepository).updateStatus(testOrder, OrderStatus.PENDING);
+        verify(productRepository).restoreStock(anyMap());
     }
 
     @Test
@@ -226,18 +481,13 @@ class OrderServiceTest {
     @Test
     void testGetOrderStats() throws ExecutionException, InterruptedException {
         // Given
-        Order order1 = new Order();
-        order1.updateStatus("PENDING");
-        
-        Order order2 = new Order();
-        order2.updateStatus("DELIVERED");
-        order2.setTotalAmount(100.0);
-        
-        Order order3 = new Order();
-        order3.updateStatus("CANCELLED");
-        
-        List<Order> orders = Arrays.asList(order1, order2, order3);
-        when(orderRepository.getAllOrders()).thenReturn(orders);
+        OrderStatistics statistics = OrderStatistics.builder()
+                .statusCounts(Map.of("PENDING", 1L, "DELIVERED", 1L, "CANCELLED", 1L))
+                .totalOrders(3L)
+                .totalRevenue(100.0)
+                .rebuiltAt(Timestamp.now())
+                .build();
+        when(orderRepository.getOrderStatistics()).thenReturn(statistics);
 
         // When
         OrderService.OrderStats stats = orderService.getOrderStats();
@@ -245,8 +495,73 @@ class OrderServiceTest {
         // Then
         assertEquals(3, stats.getTotalOrders());
         assertEquals(1, stats.getPendingOrders());
+        assertEquals(0, stats.getConfirmedOrders());
         assertEquals(1, stats.getDeliveredOrders());
         assertEquals(1, stats.getCancelledOrders());
         assertEquals(100.0, stats.getTotalRevenue(), 0.01);
+        verify(orderRepository, never()).rebuildOrderStatistics();
+    }
+
+    @Test
+    void testGetOrderStats_RebuildsWhenMissing() throws ExecutionException, InterruptedException {
+        // Given
+        when(orderRepository.getOrderStatistics()).thenReturn(null);
+        when(orderRepository.rebuildOrderStatistics()).thenReturn(OrderStatistics.builder()
+                .statusCounts(Map.of("SHIPPED", 2L))
+                .totalOrders(2L)
+                .build());
+
+        // When
+        OrderService.OrderStats stats = orderService.getOrderStats();
+
+        // Then
+        assertEquals(2, stats.getTotalOrders());
+        assertEquals(2, stats.getShippedOrders());
+        verify(orderRepository).rebuildOrderStatistics();
+    }
+
+    @Test
+    void testGetOrderStats_RebuildsWhenOnlyIncrementsExist() throws ExecutionException, InterruptedException {
+        // Given: la primera orden creó el documento con sus incrementos, sin contar las anteriores
+        when(orderRepository.getOrderStatistics()).thenReturn(OrderStatistics.builder()
+                .statusCounts(Map.of("PENDING", 1L))
+                .totalOrders(1L)
+                .build());
+        when(orderRepository.rebuildOrderStatistics()).thenReturn(OrderStatistics.builder()
+                .statusCounts(Map.of("PENDING", 1L, "DELIVERED", 4L))
+                .totalOrders(5L)
+                .rebuiltAt(Timestamp.now())
+                .build());
+
+        // When
+        OrderService.OrderStats stats = orderService.getOrderStats();
+
+        // Then
+        assertEquals(5, stats.getTotalOrders());
+        assertEquals(4, stats.getDeliveredOrders());
+    }
+
+    @Test
+    void testGetOrdersByStatus_PushesFilterToRepository() throws ExecutionException, InterruptedException {
+        // Given
+        PageResponse<Order> page = PageResponse.<Order>builder()
+                .items(List.of(testOrder))
+                .size(10)
+                .hasMore(false)
+                .build();
+        when(orderRepository.getOrdersByStatusPage("PENDING", null, 10)).thenReturn(page);
+
+        // When
+        PageResponse<Order> result = orderService.getOrdersByStatus("pending", null, 10);
+
+        // Then
+        assertEquals(1, result.getItems().size());
+        verify(orderRepository).getOrdersByStatusPage("PENDING", null, 10);
+    }
+
+    @Test
+    void testGetOrdersByStatus_InvalidStatus() {
+        // When & Then
+        assertThrows(IllegalArgumentException.class, () -> orderService.getOrdersByStatus("PERDIDA", null, null));
     }
-}
\ No newline at end of file
+}
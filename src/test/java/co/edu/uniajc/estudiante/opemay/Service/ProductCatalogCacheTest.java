@@ -0,0 +1,162 @@
+package co.edu.uniajc.estudiante.opemay.Service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import co.edu.uniajc.estudiante.opemay.model.Product;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ProductCatalogCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private SimpleMeterRegistry meterRegistry;
+    private ProductCatalogCache cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new ProductCatalogCache(2, Duration.ofSeconds(10), meterRegistry, now::get);
+        cache.markLive();
+    }
+
+    private static Product product(String id) {
+        return Product.builder().id(id).name("Producto " + id).price(1.0).build();
+    }
+
+    private double requests(String view, String result) {
+        return meterRegistry.get(ProductCatalogCache.METRIC_REQUESTS)
+                .tag("view", view).tag("result", result).counter().count();
+    }
+
+    @Test
+    void testGetCountsHitsAndMisses() {
+        cache.put(product("a"));
+
+        assertThat(cache.get("a")).isNotNull();
+        assertThat(cache.get("b")).isNull();
+
+        assertThat(requests("product", "hit")).isEqualTo(1.0);
+        assertThat(requests("product", "miss")).isEqualTo(1.0);
+    }
+
+    @Test
+    void testEntriesExpireAfterTtl() {
+        cache.putCatalog(List.of(product("a")));
+
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+
+        assertThat(cache.get("a")).isNull();
+        assertThat(cache.getCatalog()).isNull();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void testLeastRecentlyUsedEntryIsEvicted() {
+        cache.put(product("a"));
+        cache.put(product("b"));
+        cache.get("a");
+        cache.put(product("c"));
+
+        assertThat(cache.get("a")).isNotNull();
+        assertThat(cache.get("b")).isNull();
+        assertThat(cache.size()).isEqualTo(2);
+    }
+
+    @Test
+    void testCatalogLargerThanMaxSizeIsNotKeptAsList() {
+        cache.putCatalog(List.of(product("a"), product("b"), product("c")));
+
+        assertThat(cache.getCatalog()).isNull();
+        assertThat(cache.size()).isEqualTo(2);
+    }
+
+    @Test
+    void testStaleCacheDoesNotAnswer() {
+        cache.put(product("a"));
+
+        cache.markStale();
+        cache.put(product("a"));
+
+        assertThat(cache.get("a")).isNull();
+        assertThat(requests("product", "miss")).isZero();
+    }
+
+    @Test
+    void testVersionDependsOnContentNotOrder() {
+        Product a = product("a");
+        Product b = product("b");
+        cache.putCatalog(List.of(a, b));
+        CatalogVersion version = cache.getVersion();
+
+        cache.putCatalog(List.of(b, a));
+        assertThat(cache.getVersion()).isEqualTo(version);
+
+        b.setPrice(2.0);
+        cache.putCatalog(List.of(a, b));
+        assertThat(cache.getVersion().etag()).isNotEqualTo(version.etag());
+    }
+
+    @Test
+    void testLocalWriteDropsVersionUntilNextSnapshot() {
+        cache.putCatalog(List.of(product("a")));
+
+        cache.invalidateCatalog();
+
+        assertThat(cache.getVersion()).isNull();
+    }
+
+    @Test
+    void testVersionedCatalogPairsVersionWithItsProducts() {
+        Product a = product("a");
+        cache.putCatalog(List.of(a));
+        VersionedCatalog<Product> first = cache.getVersionedCatalog();
+
+        a.setPrice(2.0);
+        cache.putCatalog(List.of(a));
+        VersionedCatalog<Product> second = cache.getVersionedCatalog();
+
+        // Cada versión se entrega con la lista de la que se calculó
+        assertThat(first.version()).isEqualTo(CatalogVersion.of(first.items(), Product::getUpdatedAt));
+        assertThat(second.version()).isEqualTo(CatalogVersion.of(second.items(), Product::getUpdatedAt));
+        assertThat(first.version()).isNotEqualTo(second.version());
+    }
+
+    @Test
+    void testVersionedCatalogIsNullWhenTheListDoesNotFit() {
+        cache.putCatalog(List.of(product("a"), product("b"), product("c")));
+
+        assertThat(cache.getVersion()).isNotNull();
+        assertThat(cache.getVersionedCatalog()).isNull();
+    }
+
+    @Test
+    void testReadStartedBeforeAListenerChangeIsNotStored() {
+        long readGeneration = cache.generation();
+        Product fromListener = product("a");
+        fromListener.setPrice(2.0);
+        cache.putCatalog(List.of(fromListener));
+        CatalogVersion listenerVersion = cache.getVersion();
+
+        cache.put(product("a"), readGeneration);
+        cache.putCatalog(List.of(product("a")), readGeneration);
+
+        assertThat(cache.get("a").getPrice()).isEqualTo(2.0);
+        assertThat(cache.getVersion()).isEqualTo(listenerVersion);
+    }
+
+    @Test
+    void testReadIsStoredWhenNothingChangedMeanwhile() {
+        long readGeneration = cache.generation();
+
+        cache.putCatalog(List.of(product("a")), readGeneration);
+
+        assertThat(cache.getCatalog()).extracting(Product::getId).containsExactly("a");
+        assertThat(cache.getVersion()).isNotNull();
+    }
+}
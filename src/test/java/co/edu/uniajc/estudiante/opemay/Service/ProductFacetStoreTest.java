@@ -0,0 +1,110 @@
+package co.edu.uniajc.estudiante.opemay.Service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.cloud.Timestamp;
+
+import co.edu.uniajc.estudiante.opemay.dto.FacetedProductPage;
+import co.edu.uniajc.estudiante.opemay.dto.ProductFilter;
+import co.edu.uniajc.estudiante.opemay.model.Product;
+
+class ProductFacetStoreTest {
+
+    private ProductFacetStore store;
+
+    @BeforeEach
+    void setUp() {
+        Product inactive = product("5", "Empanada", 1500.0, null, "frutas", "Colombia", "unidad", 8, 400L);
+        inactive.setActive(false);
+        store = new ProductFacetStore(List.of(
+                product("3", "Cebolla", 3000.0, null, "verduras", "Perú", "unidad", 5, 200L),
+                product("1", "Arroz", 4000.0, 500.0, "granos", "Colombia", "kg", 10, 100L),
+                product("4", "Durazno", null, null, "frutas", "Chile", "kg", 3, null),
+                product("2", "Banano", 2000.0, 400.0, "frutas", "Colombia", "kg", 0, 300L),
+                inactive));
+    }
+
+    private static Product product(String id, String name, Double price, Double weight, String categoryId,
+            String origin, String unit, Integer stock, Long createdSeconds) {
+        return Product.builder().id(id).name(name).price(price).weight(weight).categoryId(categoryId)
+                .origin(origin).unit(unit).stock(stock).active(true)
+                .createdAt(createdSeconds == null ? null : Timestamp.ofTimeSecondsAndNanos(createdSeconds, 0))
+                .build();
+    }
+
+    private FacetedProductPage query(ProductFilter filter, String sort) {
+        return store.query(filter, ProductFacetStore.Sort.parse(sort), 0, 20);
+    }
+
+    private static List<String> ids(FacetedProductPage page) {
+        return page.getItems().stream().map(Product::getId).toList();
+    }
+
+    @Test
+    void testOnlyActiveProductsSortedByNameByDefault() {
+        FacetedProductPage page = query(new ProductFilter(), null);
+
+        assertThat(ids(page)).containsExactly("1", "2", "3", "4");
+        assertThat(page.getTotal()).isEqualTo(4);
+        assertThat(page.getFacets().get(ProductFacetStore.FACET_CATEGORY))
+                .containsExactly(Map.entry("frutas", 2), Map.entry("granos", 1), Map.entry("verduras", 1));
+        assertThat(page.getFacets().get(ProductFacetStore.FACET_IN_STOCK)).containsEntry("true", 3);
+    }
+
+    @Test
+    void testSortOrdersKeepProductsWithoutValueLast() {
+        assertThat(ids(query(new ProductFilter(), "price"))).containsExactly("2", "3", "1", "4");
+        assertThat(ids(query(new ProductFilter(), "-price"))).containsExactly("1", "3", "2", "4");
+        assertThat(ids(query(new ProductFilter(), "pricePerWeight"))).containsExactly("2", "1", "3", "4");
+        assertThat(ids(query(new ProductFilter(), "newest"))).containsExactly("2", "3", "1", "4");
+        assertThatThrownBy(() -> ProductFacetStore.Sort.parse("rating"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testPriceRangeIsInclusive() {
+        ProductFilter filter = ProductFilter.builder().minPrice(2000.0).maxPrice(3000.0).build();
+
+        assertThat(ids(query(filter, null))).containsExactly("2", "3");
+    }
+
+    @Test
+    void testFacetCountsIgnoreTheirOwnFilter() {
+        ProductFilter filter = ProductFilter.builder()
+                .categoryIds(List.of("frutas"))
+                .inStock(true)
+                .build();
+
+        FacetedProductPage page = query(filter, null);
+
+        assertThat(ids(page)).containsExactly("4");
+        // Categorías contadas sólo con el filtro de stock; stock contado sólo con el de categoría
+        assertThat(page.getFacets().get(ProductFacetStore.FACET_CATEGORY))
+                .containsOnly(Map.entry("frutas", 1), Map.entry("granos", 1), Map.entry("verduras", 1));
+        assertThat(page.getFacets().get(ProductFacetStore.FACET_IN_STOCK)).containsEntry("true", 1);
+        assertThat(page.getFacets().get(ProductFacetStore.FACET_ORIGIN)).containsOnly(Map.entry("Chile", 1));
+    }
+
+    @Test
+    void testPagination() {
+        FacetedProductPage page = store.query(new ProductFilter(), ProductFacetStore.Sort.NAME, 1, 2);
+
+        assertThat(ids(page)).containsExactly("3", "4");
+        assertThat(page.getTotal()).isEqualTo(4);
+        assertThat(store.query(new ProductFilter(), ProductFacetStore.Sort.NAME, 5, 2).getItems()).isEmpty();
+    }
+
+    @Test
+    void testUnknownFacetValueMatchesNothing() {
+        ProductFilter filter = ProductFilter.builder().origins(List.of("Marte")).build();
+
+        assertThat(query(filter, null).getTotal()).isZero();
+    }
+}
@@ -0,0 +1,67 @@
+package co.edu.uniajc.estudiante.opemay.Service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import co.edu.uniajc.estudiante.opemay.model.Product;
+
+class ProductSearchIndexTest {
+
+    private ProductSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ProductSearchIndex();
+        index.rebuild(List.of(
+                product("1", "Manzana roja", "Frutas", "Manzana dulce del Valle"),
+                product("2", "Limón Tahití", "Frutas", "Limones jugosos para bebidas"),
+                product("3", "Jugo de manzana", "Bebidas", "Jugo natural"),
+                product("4", "Nueces de nogal", "Frutos secos", "Nuez pelada")));
+    }
+
+    private static Product product(String id, String name, String category, String description) {
+        return Product.builder().id(id).name(name).categoryName(category).description(description)
+                .origin("Colombia").active(true).build();
+    }
+
+    private List<String> ids(String query) {
+        return index.search(query, 10).stream().map(hit -> hit.product().getId()).toList();
+    }
+
+    @Test
+    void testAnalyzerFoldsAccentsAndPlurals() {
+        assertThat(SpanishTextAnalyzer.analyze("Manzanas y LIMONES")).containsExactly("manzan", "limon");
+        assertThat(SpanishTextAnalyzer.analyze("limón")).containsExactly("limon");
+        assertThat(SpanishTextAnalyzer.stem("nueces")).isEqualTo(SpanishTextAnalyzer.stem("nuez"));
+        assertThat(SpanishTextAnalyzer.fold("Piña Ácida")).isEqualTo("piña acida");
+    }
+
+    @Test
+    void testPluralQueryMatchesSingularAndRanksNameFirst() {
+        assertThat(ids("manzanas")).containsExactly("1", "3");
+        assertThat(ids("limon")).containsExactly("2");
+        assertThat(ids("nuez")).containsExactly("4");
+    }
+
+    @Test
+    void testIndexIsUpdatedIncrementally() {
+        index.index(product("5", "Manzana verde", "Frutas", null));
+        Product inactive = product("1", "Manzana roja", "Frutas", null);
+        inactive.setActive(false);
+        index.index(inactive);
+        index.remove("3");
+
+        assertThat(ids("manzana")).containsExactly("5");
+        assertThat(index.size()).isEqualTo(3);
+    }
+
+    @Test
+    void testUnknownOrEmptyQueryReturnsNothing() {
+        assertThat(ids("pescado")).isEmpty();
+        assertThat(ids("de la")).isEmpty();
+    }
+}
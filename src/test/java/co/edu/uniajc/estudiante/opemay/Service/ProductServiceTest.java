@@ -1,7 +1,10 @@
 package co.edu.uniajc.estudiante.opemay.Service;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -12,23 +15,34 @@ import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import static org.mockito.ArgumentMatchers.any;
-import org.mockito.InjectMocks;
+import static org.mockito.ArgumentMatchers.eq;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
 import com.google.cloud.Timestamp;
 import com.google.cloud.firestore.CollectionReference;
 import com.google.cloud.firestore.DocumentReference;
 import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FirestoreException;
+import com.google.cloud.firestore.ListenerRegistration;
 import com.google.cloud.firestore.Firestore;
 import com.google.cloud.firestore.Query;
 import com.google.cloud.firestore.QueryDocumentSnapshot;
 import com.google.cloud.firestore.QuerySnapshot;
+import com.google.cloud.firestore.Transaction;
 import com.google.cloud.firestore.WriteResult;
 
+import co.edu.uniajc.estudiante.opemay.IRespository.ConcurrentUpdateException;
 import co.edu.uniajc.estudiante.opemay.model.Product;
 
 @ExtendWith(MockitoExtension.class)
@@ -68,13 +82,17 @@ class ProductServiceTest {
     @Mock
     private WriteResult writeResult;
 
-    @InjectMocks
+    private ProductCatalogCache catalogCache;
+
     private ProductService productService;
 
     private Product testProduct;
 
     @BeforeEach
     void setUp() {
+        catalogCache = new ProductCatalogCache(100, Duration.ofMinutes(5), null);
+        productService = new ProductService(firestore, catalogCache, new ProductSearchIndex());
+
         testProduct = Product.builder()
                 .id("test-id")
                 .name("Test Product")
@@ -353,4 +371,267 @@ class ProductServiceTest {
             assertThat(fallbackResult.getName()).isEqualTo("Producto no disponible");
         }
     }
-}
\ No newline at end of file
+
+    @Nested
+    @DisplayName("Catalog cache Tests")
+    class CatalogCacheTests {
+
+        private void stubCatalogDocument() {
+            when(querySnapshot.getDocumentChanges()).thenReturn(List.of());
+            when(querySnapshot.getDocuments()).thenReturn(List.of(queryDocumentSnapshot));
+            when(queryDocumentSnapshot.getId()).thenReturn("test-id");
+            when(queryDocumentSnapshot.getString("name")).thenReturn("Test Product");
+            when(queryDocumentSnapshot.getDouble("price")).thenReturn(99.99);
+            when(queryDocumentSnapshot.getBoolean("active")).thenReturn(true);
+            when(queryDocumentSnapshot.getString("categoryId")).thenReturn("CAT-001");
+            when(queryDocumentSnapshot.getString("description")).thenReturn(null);
+            when(queryDocumentSnapshot.getString("categoryName")).thenReturn(null);
+            when(queryDocumentSnapshot.getString("imageUrl")).thenReturn(null);
+            when(queryDocumentSnapshot.getString("unit")).thenReturn(null);
+            when(queryDocumentSnapshot.getString("origin")).thenReturn(null);
+            when(queryDocumentSnapshot.getDouble("weight")).thenReturn(null);
+        }
+
+        @Test
+        @DisplayName("Debe servir lecturas desde memoria tras el snapshot del listener")
+        void shouldServeReadsFromMemoryAfterSnapshot() {
+            // Arrange
+            stubCatalogDocument();
+
+            // Act
+            productService.onCatalogSnapshot(querySnapshot, null);
+            Product byId = productService.getProductById("test-id");
+            List<Product> all = productService.getAllProducts();
+            List<Product> byCategory = productService.getProductsByCategory("CAT-001");
+
+            // Assert
+            assertThat(byId.getName()).isEqualTo("Test Product");
+            assertThat(all).hasSize(1);
+            assertThat(byCategory).extracting(Product::getId).containsExactly("test-id");
+            verify(firestore, never()).collection("products");
+        }
+
+        @Test
+        @DisplayName("Debe buscar en el índice construido por el listener sin consultar Firestore")
+        void shouldSearchIndexBuiltFromSnapshot() {
+            // Arrange
+            stubCatalogDocument();
+            productService.onCatalogSnapshot(querySnapshot, null);
+
+            // Act
+            List<Product> results = productService.searchProducts("PRODUCTOS test", null);
+
+            // Assert
+            assertThat(results).extracting(Product::getId).containsExactly("test-id");
+            assertThrows(IllegalArgumentException.class, () -> productService.searchProducts("  ", 10));
+            verify(firestore, never()).collection("products");
+        }
+
+        @Test
+        @DisplayName("Debe entregar copias que no alteran la caché")
+        void shouldReturnDefensiveCopies() {
+            // Arrange
+            stubCatalogDocument();
+            productService.onCatalogSnapshot(querySnapshot, null);
+
+            // Act
+            productService.getProductById("test-id").setActive(false);
+
+            // Assert
+            assertThat(productService.getProductById("test-id").getActive()).isTrue();
+        }
+
+        @Test
+        @DisplayName("Debe volver a Firestore cuando el listener falla")
+        void shouldFallBackToFirestoreWhenListenerFails() throws InterruptedException, ExecutionException {
+            // Arrange
+            stubCatalogDocument();
+            productService.onCatalogSnapshot(querySnapshot, null);
+            when(firestore.collection("products")).thenReturn(collectionReference);
+            when(collectionReference.document("test-id")).thenReturn(documentReference);
+            when(documentReference.get()).thenReturn(documentSnapshotFuture);
+            when(documentSnapshotFuture.get()).thenReturn(documentSnapshot);
+            when(documentSnapshot.exists()).thenReturn(false);
+
+            // Act
+            productService.onCatalogSnapshot(null, mock(FirestoreException.class));
+            Product result = productService.getProductById("test-id");
+
+            // Assert
+            assertThat(result).isNull();
+            assertThat(catalogCache.isLive()).isFalse();
+            verify(documentReference).get();
+        }
+
+        @Test
+        @DisplayName("Debe volver a registrar el listener tras un error y recuperar la caché con su primer snapshot")
+        void shouldResubscribeAfterListenerError() {
+            // Arrange
+            TaskScheduler taskScheduler = mock(TaskScheduler.class);
+            ReflectionTestUtils.setField(productService, "taskScheduler", taskScheduler);
+            ListenerRegistration failed = mock(ListenerRegistration.class);
+            ListenerRegistration resubscribed = mock(ListenerRegistration.class);
+            when(firestore.collection("products")).thenReturn(collectionReference);
+            when(collectionReference.addSnapshotListener(any())).thenReturn(failed, resubscribed);
+            productService.startCatalogListener();
+
+            // Act
+            productService.onCatalogSnapshot(null, mock(FirestoreException.class));
+            ArgumentCaptor<Runnable> resubscribe = ArgumentCaptor.forClass(Runnable.class);
+            verify(taskScheduler).schedule(resubscribe.capture(), any(Instant.class));
+            resubscribe.getValue().run();
+            stubCatalogDocument();
+            productService.onCatalogSnapshot(querySnapshot, null);
+
+            // Assert
+            verify(failed).remove();
+            verify(collectionReference, times(2)).addSnapshotListener(any());
+            assertThat(catalogCache.isLive()).isTrue();
+            assertThat(productService.getProductById("test-id").getName()).isEqualTo("Test Product");
+        }
+
+        @Test
+        @DisplayName("Una lectura a Firestore no debe pisar lo que el listener guardó mientras tanto")
+        void shouldNotWriteBackReadOlderThanListenerUpdate() throws InterruptedException, ExecutionException {
+            // Arrange
+            catalogCache.markLive();
+            when(firestore.collection("products")).thenReturn(collectionReference);
+            when(collectionReference.document("test-id")).thenReturn(documentReference);
+            when(documentReference.get()).thenReturn(documentSnapshotFuture);
+            when(documentSnapshotFuture.get()).thenAnswer(invocation -> {
+                // El listener entrega el cambio mientras la lectura sigue en curso
+                catalogCache.put(Product.builder().id("test-id").name("Nombre nuevo").build());
+                return documentSnapshot;
+            });
+            when(documentSnapshot.exists()).thenReturn(true);
+            when(documentSnapshot.getId()).thenReturn("test-id");
+            when(documentSnapshot.getString("name")).thenReturn("Nombre viejo");
+
+            // Act
+            Product read = productService.getProductById("test-id");
+
+            // Assert
+            assertThat(read.getName()).isEqualTo("Nombre viejo");
+            assertThat(catalogCache.get("test-id").getName()).isEqualTo("Nombre nuevo");
+        }
+
+        @Test
+        @DisplayName("La espera entre registros debe duplicarse hasta el máximo")
+        void shouldBackOffExponentiallyUpToMax() {
+            assertThat(productService.catalogListenerRetryDelay(1)).isEqualTo(Duration.ofSeconds(1));
+            assertThat(productService.catalogListenerRetryDelay(3)).isEqualTo(Duration.ofSeconds(4));
+            assertThat(productService.catalogListenerRetryDelay(30)).isEqualTo(Duration.ofMinutes(1));
+        }
+    }
+
+    @Nested
+    @DisplayName("updateProduct y deleteProduct Tests")
+    class VersionedWriteTests {
+
+        @Mock
+        private Transaction transaction;
+
+        /**
+         * Documento guardado en versión 3
+         */
+        private void stubStoredDocument() throws InterruptedException, ExecutionException {
+            when(firestore.collection("products")).thenReturn(collectionReference);
+            when(collectionReference.document("test-id")).thenReturn(documentReference);
+            when(firestore.runTransaction(any())).thenAnswer(invocation -> {
+                Transaction.Function<?> function = invocation.getArgument(0);
+                try {
+                    return ApiFutures.immediateFuture(function.updateCallback(transaction));
+                } catch (Exception e) {
+                    return ApiFutures.immediateFailedFuture(e);
+                }
+            });
+            when(transaction.get(documentReference)).thenReturn(documentSnapshotFuture);
+            when(documentSnapshotFuture.get()).thenReturn(documentSnapshot);
+            when(documentSnapshot.exists()).thenReturn(true);
+            when(documentSnapshot.getLong("version")).thenReturn(3L);
+        }
+
+        @Test
+        @DisplayName("Debe actualizar con la versión del cliente conservando el stock guardado")
+        void shouldUpdateWithClientVersionKeepingStoredStock() throws InterruptedException, ExecutionException {
+            // Arrange
+            stubStoredDocument();
+            // Una compra ya descontó stock: 10 en lo que leyó el admin, 4 guardado
+            when(documentSnapshot.getLong("stock")).thenReturn(4L);
+            when(documentSnapshot.getReference()).thenReturn(documentReference);
+            testProduct.setVersion(3L);
+
+            // Act
+            Product result = productService.updateProduct("test-id", testProduct);
+
+            // Assert
+            assertThat(result.getVersion()).isEqualTo(4L);
+            assertThat(result.getStock()).isEqualTo(4);
+            verify(transaction).set(documentReference, testProduct);
+        }
+
+        @Test
+        @DisplayName("Debe rechazar la edición hecha sobre una versión vieja")
+        void shouldRejectUpdateFromStaleVersion() throws InterruptedException, ExecutionException {
+            // Arrange: el admin leyó la versión 2
+            stubStoredDocument();
+            when(documentSnapshot.getReference()).thenReturn(documentReference);
+            when(documentReference.getParent()).thenReturn(collectionReference);
+            when(collectionReference.getId()).thenReturn("products");
+            when(documentReference.getId()).thenReturn("test-id");
+            testProduct.setVersion(2L);
+            // buildProductFromDocument lee el stock antes de comparar versiones
+            when(documentSnapshot.getLong("stock")).thenReturn(4L);
+
+            // Act & Assert
+            assertThrows(ConcurrentUpdateException.class, () -> productService.updateProduct("test-id", testProduct));
+            verify(transaction, never()).set(any(DocumentReference.class), any(Product.class));
+        }
+
+        @Test
+        @DisplayName("Debe exigir la versión para editar un producto versionado")
+        void shouldRequireVersionForUpdate() throws InterruptedException, ExecutionException {
+            // Arrange
+            stubStoredDocument();
+            testProduct.setVersion(null);
+
+            // Act & Assert
+            assertThrows(IllegalArgumentException.class, () -> productService.updateProduct("test-id", testProduct));
+        }
+
+        @Test
+        @DisplayName("Debe desactivar sin reescribir el stock")
+        void shouldSoftDeleteWithoutRewritingStock() throws InterruptedException, ExecutionException {
+            // Arrange
+            stubStoredDocument();
+
+            // Act
+            boolean deleted = productService.deleteProduct("test-id");
+
+            // Assert
+            assertThat(deleted).isTrue();
+            @SuppressWarnings("unchecked")
+            ArgumentCaptor<Map<String, Object>> fields = ArgumentCaptor.forClass(Map.class);
+            verify(transaction).update(eq(documentReference), fields.capture());
+            assertThat(fields.getValue())
+                    .containsOnlyKeys("active", "updatedAt", "version")
+                    .containsEntry("active", false)
+                    .containsEntry("version", 4L);
+            verify(transaction, never()).set(any(DocumentReference.class), any(Product.class));
+        }
+
+        @Test
+        @DisplayName("Los fallbacks deben propagar conflictos y datos inválidos")
+        void fallbacksShouldRethrowClientErrors() {
+            ConcurrentUpdateException conflict = new ConcurrentUpdateException("products", "test-id", 3L, 4L);
+            IllegalArgumentException invalid = new IllegalArgumentException("Producto no encontrado");
+
+            assertThat(assertThrows(ConcurrentUpdateException.class,
+                    () -> productService.updateProductFallback("test-id", testProduct, conflict))).isSameAs(conflict);
+            assertThat(assertThrows(IllegalArgumentException.class,
+                    () -> productService.deleteProductFallback("test-id", invalid))).isSameAs(invalid);
+            assertThat(productService.deleteProductFallback("test-id", new RuntimeException("Firestore caído")))
+                    .isFalse();
+        }
+    }
+}
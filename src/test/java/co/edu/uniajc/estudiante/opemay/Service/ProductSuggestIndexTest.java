@@ -0,0 +1,71 @@
+package co.edu.uniajc.estudiante.opemay.Service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ProductSuggestIndexTest {
+
+    private ProductSuggestIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = ProductSuggestIndex.build(List.of(
+                product("1", "Plátano maduro", 40),
+                product("2", "Plátano verde", 90),
+                product("3", "Platillo de cerámica", 5),
+                product("4", "Limón Tahití", 70),
+                product("5", "Piña oro miel", 10),
+                new ProductSuggestIndex.Entry("Frutas", ProductSuggestIndex.TYPE_CATEGORY, "cat-1", 120)), 20);
+    }
+
+    private static ProductSuggestIndex.Entry product(String id, String name, long sold) {
+        return new ProductSuggestIndex.Entry(name, ProductSuggestIndex.TYPE_PRODUCT, id, sold);
+    }
+
+    private List<String> ids(String prefix, int maxDistance) {
+        return index.suggest(prefix, maxDistance, 10).stream().map(match -> match.entry().id()).toList();
+    }
+
+    @Test
+    void testExactPrefixRankedByPopularity() {
+        assertThat(ids("pla", 0)).containsExactly("2", "1", "3");
+        assertThat(ids("PLÁTANO", 0)).containsExactly("2", "1");
+        assertThat(ids("fru", 0)).containsExactly("cat-1");
+    }
+
+    @Test
+    void testMatchesFromAnyWordOfTheName() {
+        assertThat(ids("tahi", 0)).containsExactly("4");
+        assertThat(ids("miel", 0)).containsExactly("5");
+        assertThat(ids("plátano ver", 0)).containsExactly("2");
+    }
+
+    @Test
+    void testToleratesTyposAndPrefersFewerErrors() {
+        assertThat(ids("platno", 2)).startsWith("2", "1");
+        assertThat(ids("limno", 1)).containsExactly("4");
+        // Con distancia 0 la errata no coincide
+        assertThat(ids("platno", 0)).isEmpty();
+
+        List<ProductSuggestIndex.Match> matches = index.suggest("platn", 1, 10);
+        assertThat(matches).extracting(ProductSuggestIndex.Match::distance).isSorted();
+    }
+
+    @Test
+    void testLimitAndEmptyPrefix() {
+        assertThat(index.suggest("p", 0, 2)).hasSize(2);
+        assertThat(index.suggest("  ", 2, 10)).isEmpty();
+        assertThat(ProductSuggestIndex.build(List.of(), 20).suggest("pla", 1, 10)).isEmpty();
+    }
+
+    @Test
+    void testMaxDistanceGrowsWithPrefixLength() {
+        assertThat(ProductSuggestService.maxDistance(2)).isZero();
+        assertThat(ProductSuggestService.maxDistance(4)).isEqualTo(1);
+        assertThat(ProductSuggestService.maxDistance(6)).isEqualTo(2);
+    }
+}
@@ -0,0 +1,76 @@
+package co.edu.uniajc.estudiante.opemay.Service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import co.edu.uniajc.estudiante.opemay.IRespository.ProductRepository;
+import co.edu.uniajc.estudiante.opemay.dto.Suggestion;
+import co.edu.uniajc.estudiante.opemay.model.Product;
+
+@ExtendWith(MockitoExtension.class)
+class ProductSuggestServiceTest {
+
+    @Mock
+    private ProductService productService;
+
+    @Mock
+    private CategoryService categoryService;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    private ProductSuggestService suggestService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        suggestService = new ProductSuggestService(productService, categoryService, productRepository);
+        when(categoryService.getVersion()).thenReturn(new CatalogVersion("categories-v1", -1));
+        when(categoryService.getAllActiveCategories()).thenReturn(List.of());
+    }
+
+    private static Product banano(String name, int stock) {
+        return Product.builder().id("p-1").name(name).active(true).categoryId("cat-1").stock(stock).build();
+    }
+
+    @Test
+    void testStockChangeDoesNotRebuildIndex() throws Exception {
+        when(productService.getCatalogVersion())
+                .thenReturn(new CatalogVersion("v1", -1), new CatalogVersion("v1", -1), new CatalogVersion("v2", -1));
+        when(productService.getAllProducts()).thenReturn(List.of(banano("Banano", 10)), List.of(banano("Banano", 10)),
+                List.of(banano("Banano", 9)));
+
+        suggestService.suggest("ban", null);
+        // Una compra cambia el stock y con él la versión del catálogo, pero no los campos indexados
+        List<Suggestion> suggestions = suggestService.suggest("ban", null);
+
+        assertThat(suggestions).extracting(Suggestion::getId).containsExactly("p-1");
+        // Resumen de v1, construcción del índice y resumen de v2; ninguna reconstrucción
+        verify(productService, times(3)).getAllProducts();
+        verify(categoryService, times(1)).getAllActiveCategories();
+    }
+
+    @Test
+    void testRenameRebuildsIndex() throws Exception {
+        when(productService.getCatalogVersion())
+                .thenReturn(new CatalogVersion("v1", -1), new CatalogVersion("v1", -1), new CatalogVersion("v2", -1),
+                        new CatalogVersion("v2", -1));
+        when(productService.getAllProducts()).thenReturn(List.of(banano("Banano", 10)), List.of(banano("Banano", 10)),
+                List.of(banano("Guineo", 10)));
+
+        suggestService.suggest("ban", null);
+        List<Suggestion> suggestions = suggestService.suggest("gui", null);
+
+        assertThat(suggestions).extracting(Suggestion::getText).containsExactly("Guineo");
+        verify(categoryService, times(2)).getAllActiveCategories();
+    }
+}
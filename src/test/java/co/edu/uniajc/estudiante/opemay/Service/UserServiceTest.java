@@ -1,6 +1,8 @@
 package co.edu.uniajc.estudiante.opemay.Service;
 
+import java.time.Duration;
 import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
 
@@ -12,8 +14,9 @@ import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import static org.mockito.ArgumentMatchers.any;
-import org.mockito.InjectMocks;
+import static org.mockito.ArgumentMatchers.eq;
 import org.mockito.Mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -22,6 +25,7 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import com.google.cloud.Timestamp;
 
 import co.edu.uniajc.estudiante.opemay.IRespository.UserRepository;
+import co.edu.uniajc.estudiante.opemay.dto.PageResponse;
 import co.edu.uniajc.estudiante.opemay.model.User;
 
 /**
@@ -37,13 +41,18 @@ class UserServiceTest {
     @Mock
     private PasswordEncoder passwordEncoder;
 
-    @InjectMocks
+    @Mock
+    private JwtService jwtService;
+
     private UserService userService;
 
     private User testUser;
 
     @BeforeEach
     void setUp() {
+        UserLookupCache userCache = new UserLookupCache(100, Duration.ofMinutes(5), Duration.ofSeconds(30),
+                Duration.ofSeconds(30), null);
+        userService = new UserService(userRepository, passwordEncoder, jwtService, userCache);
         testUser = User.builder()
                 .id("test-id")
                 .username("testuser")
@@ -339,29 +348,36 @@ class UserServiceTest {
             User user2 = User.builder().id("2").username("user2").email("user2@example.com").build();
             List<User> users = Arrays.asList(user1, user2);
             
-            when(userRepository.getAllUsers()).thenReturn(users);
+            PageResponse<User> page = PageResponse.<User>builder()
+                    .items(users)
+                    .size(20)
+                    .hasMore(false)
+                    .build();
+            when(userRepository.getUsersPage(null, 20)).thenReturn(page);
 
             // Act
-            List<User> result = userService.getAllUsers();
+            PageResponse<User> result = userService.getAllUsers(null, 20);
 
             // Assert
             assertThat(result).isNotNull();
-            assertThat(result).hasSize(2);
-            verify(userRepository).getAllUsers();
+            assertThat(result.getItems()).hasSize(2);
+            assertThat(result.getNextCursor()).isNull();
+            verify(userRepository).getUsersPage(null, 20);
         }
 
         @Test
         @DisplayName("Debe retornar lista vacía en caso de excepción")
         void shouldReturnEmptyListOnException() throws Exception {
             // Arrange
-            when(userRepository.getAllUsers()).thenThrow(new ExecutionException("Error", new RuntimeException()));
+            when(userRepository.getUsersPage(null, null)).thenThrow(new ExecutionException("Error", new RuntimeException()));
 
             // Act
-            List<User> result = userService.getAllUsers();
+            PageResponse<User> result = userService.getAllUsers(null, null);
 
             // Assert
             assertThat(result).isNotNull();
-            assertThat(result).isEmpty();
+            assertThat(result.getItems()).isEmpty();
+            assertThat(result.getHasMore()).isFalse();
         }
     }
 
@@ -393,6 +409,19 @@ class UserServiceTest {
             // Act & Assert
             assertThrows(RuntimeException.class, () -> userService.updateUser(testUser));
         }
+
+        @Test
+        @DisplayName("Debe revocar los tokens al deshabilitar el usuario")
+        void shouldRevokeTokensWhenUserIsDisabled() throws Exception {
+            // Arrange
+            testUser.setEnabled(false);
+
+            // Act
+            userService.updateUser(testUser);
+
+            // Assert
+            verify(userRepository).revokeTokens(eq("test-id"), any(Timestamp.class));
+        }
     }
 
     @Nested
@@ -465,4 +494,151 @@ class UserServiceTest {
             userService.updateLastLogin(username);
         }
     }
-}
\ No newline at end of file
+
+    @Nested
+    @DisplayName("Caché de búsquedas Tests")
+    class UserLookupCacheTests {
+
+        @Test
+        @DisplayName("Debe consultar Firestore una sola vez para búsquedas repetidas")
+        void shouldServeRepeatedLookupsFromCache() throws Exception {
+            when(userRepository.getUserByEmail("test@example.com")).thenReturn(testUser);
+
+            User first = userService.getUserByEmail("test@example.com");
+            User second = userService.getUserByEmail("test@example.com");
+
+            assertThat(second).isEqualTo(first);
+            assertThat(second).isNotSameAs(first);
+            verify(userRepository, times(1)).getUserByEmail("test@example.com");
+        }
+
+        @Test
+        @DisplayName("Debe recordar los usuarios inexistentes")
+        void shouldCacheMisses() throws Exception {
+            when(userRepository.getUserByEmail("nobody@example.com")).thenReturn(null);
+
+            assertThat(userService.getUserByEmail("nobody@example.com")).isNull();
+            assertThat(userService.getUserByEmail("nobody@example.com")).isNull();
+
+            verify(userRepository, times(1)).getUserByEmail("nobody@example.com");
+        }
+
+        @Test
+        @DisplayName("No debe guardar errores de Firestore")
+        void shouldNotCacheErrors() throws Exception {
+            when(userRepository.getUserById("test-id"))
+                    .thenThrow(new ExecutionException("Error", new RuntimeException()))
+                    .thenReturn(testUser);
+
+            assertThat(userService.getUserById("test-id")).isNull();
+            assertThat(userService.getUserById("test-id")).isNotNull();
+        }
+
+        @Test
+        @DisplayName("createUser debe descartar el 'no existe' guardado")
+        void shouldInvalidateMissOnCreate() throws Exception {
+            when(userRepository.getUserByEmail("test@example.com")).thenReturn(null);
+            when(userRepository.getUserByUsername("testuser")).thenReturn(null);
+            when(passwordEncoder.encode("rawPassword")).thenReturn("encoded");
+            assertThat(userService.getUserByEmail("test@example.com")).isNull();
+
+            userService.createUser(testUser);
+            when(userRepository.getUserByEmail("test@example.com")).thenReturn(testUser);
+
+            assertThat(userService.getUserByEmail("test@example.com")).isNotNull();
+        }
+
+        @Test
+        @DisplayName("updateUser debe descartar las entradas del email anterior")
+        void shouldInvalidateOldEmailOnUpdate() throws Exception {
+            when(userRepository.getUserByEmail("test@example.com")).thenReturn(testUser).thenReturn(null);
+            User user = userService.getUserByEmail("test@example.com");
+
+            user.setEmail("new@example.com");
+            userService.updateUser(user);
+
+            assertThat(userService.getUserByEmail("test@example.com")).isNull();
+            verify(userRepository, times(2)).getUserByEmail("test@example.com");
+        }
+
+        @Test
+        @DisplayName("deleteUser debe descartar el usuario guardado")
+        void shouldInvalidateOnDelete() throws Exception {
+            when(userRepository.getUserById("test-id")).thenReturn(testUser).thenReturn(null);
+            assertThat(userService.getUserById("test-id")).isNotNull();
+
+            userService.deleteUser("test-id");
+
+            assertThat(userService.getUserById("test-id")).isNull();
+        }
+    }
+
+    @Nested
+    @DisplayName("isSessionCurrent Tests")
+    class SessionTests {
+
+        private JwtService.VerifiedToken tokenIssuedAt(long issuedAtMillis) {
+            return new JwtService.VerifiedToken("test@example.com", "test-id", "testuser", List.of("ADMIN"),
+                    new Date(issuedAtMillis), null, null);
+        }
+
+        @Test
+        @DisplayName("Debe rechazar tokens emitidos antes de la revocación guardada en el usuario")
+        void shouldRejectTokensIssuedBeforeRevocation() throws Exception {
+            long revokedAt = System.currentTimeMillis();
+            testUser.setTokensValidAfter(Timestamp.ofTimeMicroseconds(revokedAt * 1000));
+            when(userRepository.getUserById("test-id")).thenReturn(testUser);
+
+            assertThat(userService.isSessionCurrent(tokenIssuedAt(revokedAt - 60_000))).isFalse();
+            assertThat(userService.isSessionCurrent(tokenIssuedAt(revokedAt + 1_000))).isTrue();
+            // Ambas consultas se resuelven con una sola lectura desde la caché de sesiones
+            verify(userRepository, times(1)).getUserById("test-id");
+        }
+
+        @Test
+        @DisplayName("Debe aceptar el token de un login en el mismo segundo de la revocación")
+        void shouldAcceptLoginInTheSameSecondAsRevocation() throws Exception {
+            long revokedAtSecond = System.currentTimeMillis() / 1000;
+            testUser.setTokensValidAfter(Timestamp.ofTimeSecondsAndNanos(revokedAtSecond, 0));
+            when(userRepository.getUserById("test-id")).thenReturn(testUser);
+
+            // El JWT guarda iat en segundos: el login 300 ms después de revocar llega con el mismo segundo
+            assertThat(userService.isSessionCurrent(tokenIssuedAt(revokedAtSecond * 1000))).isTrue();
+            assertThat(userService.isSessionCurrent(tokenIssuedAt((revokedAtSecond - 1) * 1000))).isFalse();
+        }
+
+        @Test
+        @DisplayName("Debe rechazar tokens de usuarios eliminados o deshabilitados")
+        void shouldRejectDeletedOrDisabledUsers() throws Exception {
+            testUser.setEnabled(false);
+            when(userRepository.getUserById("test-id")).thenReturn(testUser);
+            when(userRepository.getUserById("missing-id")).thenReturn(null);
+
+            assertThat(userService.isSessionCurrent(tokenIssuedAt(System.currentTimeMillis()))).isFalse();
+            assertThat(userService.isSessionCurrent(new JwtService.VerifiedToken("x@example.com", "missing-id",
+                    "x", List.of("USER"), new Date(), null, null))).isFalse();
+        }
+
+        @Test
+        @DisplayName("revokeSessions debe guardar la revocación y descartar la sesión en caché")
+        void shouldPersistRevocationAndDropCachedSession() throws Exception {
+            long issuedAt = System.currentTimeMillis() - 60_000;
+            when(userRepository.getUserById("test-id")).thenReturn(testUser);
+            assertThat(userService.isSessionCurrent(tokenIssuedAt(issuedAt))).isTrue();
+
+            userService.revokeSessions("test-id");
+            testUser.setTokensValidAfter(Timestamp.now());
+
+            verify(userRepository).revokeTokens(eq("test-id"), any(Timestamp.class));
+            assertThat(userService.isSessionCurrent(tokenIssuedAt(issuedAt))).isFalse();
+        }
+
+        @Test
+        @DisplayName("Debe rechazar el token si Firestore no responde")
+        void shouldRejectWhenLookupFails() throws Exception {
+            when(userRepository.getUserById("test-id")).thenThrow(new ExecutionException("Error", new RuntimeException()));
+
+            assertThat(userService.isSessionCurrent(tokenIssuedAt(System.currentTimeMillis()))).isFalse();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package co.edu.uniajc.estudiante.opemay.config;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import com.google.api.core.SettableApiFuture;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Compara el throughput del pool de plataforma de Tomcat (200 hilos por defecto) con un hilo
+ * virtual por petición, cuando cada petición se estaciona en ApiFuture.get() como lo hacen los
+ * repositorios mientras esperan a Firestore. La latencia de Firestore se simula completando
+ * el future desde un scheduler.
+ *
+ * RUN_BENCHMARKS=true ./gradlew test --tests '*VirtualThreadThroughputBenchmarkTest'
+ */
+@Tag("benchmark")
+@Slf4j
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@EnabledIfEnvironmentVariable(named = "RUN_BENCHMARKS", matches = "true")
+class VirtualThreadThroughputBenchmarkTest {
+
+    private static final int TOMCAT_MAX_THREADS = 200;
+    private static final int CONCURRENT_REQUESTS = 2_000;
+    private static final int FIRESTORE_CALLS_PER_REQUEST = 2;
+    private static final long FIRESTORE_LATENCY_MILLIS = 40;
+
+    private ScheduledExecutorService firestore;
+
+    @BeforeAll
+    void start() {
+        firestore = Executors.newScheduledThreadPool(4);
+    }
+
+    @AfterAll
+    void stop() {
+        firestore.shutdownNow();
+    }
+
+    @Test
+    void virtualThreadsOutperformPlatformPoolAtHighConcurrency() throws Exception {
+        // Calentamiento de ambos modos
+        run(Executors.newFixedThreadPool(TOMCAT_MAX_THREADS), CONCURRENT_REQUESTS / 4);
+        run(Executors.newVirtualThreadPerTaskExecutor(), CONCURRENT_REQUESTS / 4);
+
+        double platform = run(Executors.newFixedThreadPool(TOMCAT_MAX_THREADS), CONCURRENT_REQUESTS);
+        double virtual = run(Executors.newVirtualThreadPerTaskExecutor(), CONCURRENT_REQUESTS);
+
+        log.info("Benchmark de {} peticiones concurrentes, {} lecturas de {} ms por petición:",
+                CONCURRENT_REQUESTS, FIRESTORE_CALLS_PER_REQUEST, FIRESTORE_LATENCY_MILLIS);
+        log.info("  pool de plataforma ({} hilos): {} peticiones/s", TOMCAT_MAX_THREADS, Math.round(platform));
+        log.info("  hilos virtuales: {} peticiones/s", Math.round(virtual));
+        assertTrue(virtual > platform * 2,
+                "Se esperaba que los hilos virtuales al menos duplicaran el throughput del pool de plataforma");
+    }
+
+    /**
+     * Atiende las peticiones con el executor dado y devuelve el throughput en peticiones por segundo
+     */
+    private double run(ExecutorService executor, int requests) throws Exception {
+        try (executor) {
+            long start = System.nanoTime();
+            List<Future<?>> responses = new ArrayList<>(requests);
+            for (int i = 0; i < requests; i++) {
+                responses.add(executor.submit(this::handleRequest));
+            }
+            for (Future<?> response : responses) {
+                response.get();
+            }
+            return requests / ((System.nanoTime() - start) / 1e9);
+        }
+    }
+
+    private Void handleRequest() throws Exception {
+        for (int call = 0; call < FIRESTORE_CALLS_PER_REQUEST; call++) {
+            SettableApiFuture<String> future = SettableApiFuture.create();
+            firestore.schedule(() -> future.set("documento"), FIRESTORE_LATENCY_MILLIS, TimeUnit.MILLISECONDS);
+            future.get();
+        }
+        return null;
+    }
+}
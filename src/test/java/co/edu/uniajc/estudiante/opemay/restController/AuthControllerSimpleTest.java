@@ -1,10 +1,13 @@
 package co.edu.uniajc.estudiante.opemay.restController;
 
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
+import java.util.List;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -73,7 +76,7 @@ class AuthControllerSimpleTest {
         // Arrange
         when(userService.getUserByEmail("testuser@example.com")).thenReturn(testUser);
         when(passwordEncoder.matches("password123", "encodedPassword")).thenReturn(true);
-        when(jwtService.generateTokenFromUsername("testuser")).thenReturn("jwt-token");
+        when(jwtService.generateTokenForUser(testUser)).thenReturn("jwt-token");
 
         // Act & Assert
         mockMvc.perform(post("/api/auth/login")
@@ -86,7 +89,7 @@ class AuthControllerSimpleTest {
 
         verify(userService).getUserByEmail("testuser@example.com");
         verify(passwordEncoder).matches("password123", "encodedPassword");
-        verify(jwtService).generateTokenFromUsername("testuser");
+        verify(jwtService).generateTokenForUser(testUser);
     }
 
     @Test
@@ -123,14 +126,35 @@ class AuthControllerSimpleTest {
         verify(passwordEncoder).matches("password123", "encodedPassword");
     }
 
+    @Test
+    @WithMockUser
+    void testLogin_DisabledUser() throws Exception {
+        // Arrange
+        testUser.setEnabled(false);
+        when(userService.getUserByEmail("testuser@example.com")).thenReturn(testUser);
+        when(passwordEncoder.matches("password123", "encodedPassword")).thenReturn(true);
+
+        // Act & Assert
+        mockMvc.perform(post("/api/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(loginRequest)))
+                .andExpect(status().isUnauthorized())
+                .andExpect(jsonPath("$.error").value("Cuenta deshabilitada o bloqueada"));
+
+        verify(jwtService, never()).generateTokenForUser(any());
+    }
+
     @Test
     @WithMockUser
     void testRefreshToken_Success() throws Exception {
         // Arrange
         String token = "valid-jwt-token";
+        JwtService.VerifiedToken verified = new JwtService.VerifiedToken(
+                "testuser", "user-123", "testuser", List.of("USER"), null, null, null);
         when(jwtService.validateToken(anyString())).thenReturn(true);
-        when(jwtService.getUsernameFromToken(anyString())).thenReturn("testuser");
-        when(jwtService.generateTokenFromUsername(anyString())).thenReturn("new-jwt-token");
+        when(jwtService.verifyToken(anyString())).thenReturn(verified);
+        when(jwtService.refreshToken(verified)).thenReturn("new-jwt-token");
+        when(userService.isSessionCurrent(verified)).thenReturn(true);
 
         // Act & Assert
         mockMvc.perform(post("/api/auth/refresh")
@@ -141,6 +165,24 @@ class AuthControllerSimpleTest {
                 .andExpect(jsonPath("$.username").value("testuser"));
     }
 
+    @Test
+    @WithMockUser
+    void testRefreshToken_RevokedSession() throws Exception {
+        // Arrange
+        JwtService.VerifiedToken verified = new JwtService.VerifiedToken(
+                "testuser", "user-123", "testuser", List.of("ADMIN"), null, null, null);
+        when(jwtService.validateToken(anyString())).thenReturn(true);
+        when(jwtService.verifyToken(anyString())).thenReturn(verified);
+        when(userService.isSessionCurrent(verified)).thenReturn(false);
+
+        // Act & Assert
+        mockMvc.perform(post("/api/auth/refresh")
+                .header("Authorization", "Bearer revoked-jwt-token"))
+                .andExpect(status().isUnauthorized());
+
+        verify(jwtService, never()).refreshToken(any());
+    }
+
     @Test
     @WithMockUser
     void testGetCurrentUser_Success() throws Exception {
@@ -24,8 +24,11 @@ import org.springframework.test.web.servlet.MockMvc;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import co.edu.uniajc.estudiante.opemay.Service.CatalogVersion;
 import co.edu.uniajc.estudiante.opemay.Service.CategoryService;
 import co.edu.uniajc.estudiante.opemay.Service.JwtService;
+import co.edu.uniajc.estudiante.opemay.Service.UserService;
+import co.edu.uniajc.estudiante.opemay.Service.VersionedCatalog;
 import co.edu.uniajc.estudiante.opemay.config.TestFirebaseConfig;
 import co.edu.uniajc.estudiante.opemay.config.TestSecurityConfig;
 import co.edu.uniajc.estudiante.opemay.dto.CategoryCreateDTO;
@@ -36,7 +39,7 @@ import co.edu.uniajc.estudiante.opemay.model.Category;
 
 @WebMvcTest(CategoryController.class)
 @ActiveProfiles("test")
-@Import({TestFirebaseConfig.class, TestSecurityConfig.class})
+@Import({TestFirebaseConfig.class, TestSecurityConfig.class, PrecompressedCatalog.class})
 @SuppressWarnings("deprecation") // Suppress MockBean deprecation warnings
 class CategoryControllerTest {
 
@@ -49,6 +52,9 @@ class CategoryControllerTest {
     @MockBean
     private JwtService jwtService;
 
+    @MockBean
+    private UserService userService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -114,6 +120,20 @@ class CategoryControllerTest {
         verify(categoryService).getAllActiveCategories();
     }
 
+    @Test
+    @WithMockUser
+    void testGetAllActiveCategories_NotModified() throws Exception {
+        when(categoryService.getActiveCatalog())
+                .thenReturn(new VersionedCatalog<>(new CatalogVersion("c1", 1700000000000L), testCategories));
+
+        mockMvc.perform(get("/api/categories")
+                .header("If-None-Match", "\"c1\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"c1\""));
+
+        verify(categoryService, never()).getAllActiveCategories();
+    }
+
     @Test
     @WithMockUser
     void testGetAllActiveCategories_ExecutionException() throws Exception {
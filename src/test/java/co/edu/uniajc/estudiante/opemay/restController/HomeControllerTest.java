@@ -29,6 +29,9 @@ class HomeControllerTest {
     @org.springframework.boot.test.mock.mockito.MockBean  
     private co.edu.uniajc.estudiante.opemay.Service.JwtService jwtService;
 
+    @org.springframework.boot.test.mock.mockito.MockBean
+    private co.edu.uniajc.estudiante.opemay.Service.UserService userService;
+
     @Test
     @WithMockUser
     void testHome() throws Exception {
@@ -0,0 +1,126 @@
+package co.edu.uniajc.estudiante.opemay.restController;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import co.edu.uniajc.estudiante.opemay.IRespository.InMemoryIdempotencyStore;
+import co.edu.uniajc.estudiante.opemay.dto.AddToCartRequest;
+
+class IdempotentRequestsTest {
+
+    private IdempotentRequests idempotentRequests;
+    private final AtomicInteger executions = new AtomicInteger();
+    private AddToCartRequest request;
+
+    @BeforeEach
+    void setUp() {
+        idempotentRequests = new IdempotentRequests(new InMemoryIdempotencyStore(100), new ObjectMapper());
+        request = new AddToCartRequest();
+        request.setProductId("product-1");
+        request.setQuantity(2);
+    }
+
+    private ResponseEntity<?> addToCart() {
+        int execution = executions.incrementAndGet();
+        return ResponseEntity.ok(Map.of("execution", execution));
+    }
+
+    @Test
+    void testRepeatReturnsStoredResponseWithoutRunningAgain() {
+        ResponseEntity<?> first = idempotentRequests.execute("key-1", "user-1", "cart.addItem", request,
+                this::addToCart);
+        ResponseEntity<?> repeat = idempotentRequests.execute("key-1", "user-1", "cart.addItem", request,
+                this::addToCart);
+
+        assertThat(executions.get()).isEqualTo(1);
+        assertThat(first.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(repeat.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(repeat.getBody()).isEqualTo("{\"execution\":1}");
+        assertThat(repeat.getHeaders().getFirst(IdempotentRequests.REPLAYED_HEADER)).isEqualTo("true");
+    }
+
+    @Test
+    void testWithoutKeyEveryRequestRuns() {
+        idempotentRequests.execute(null, "user-1", "cart.addItem", request, this::addToCart);
+        idempotentRequests.execute(null, "user-1", "cart.addItem", request, this::addToCart);
+
+        assertThat(executions.get()).isEqualTo(2);
+    }
+
+    @Test
+    void testSameKeyFromAnotherUserOrEndpointIsAnotherRequest() {
+        idempotentRequests.execute("key-1", "user-1", "cart.addItem", request, this::addToCart);
+        idempotentRequests.execute("key-1", "user-2", "cart.addItem", request, this::addToCart);
+        idempotentRequests.execute("key-1", "user-1", "orders.create", request, this::addToCart);
+
+        assertThat(executions.get()).isEqualTo(3);
+    }
+
+    @Test
+    void testKeyReusedWithAnotherBodyIsRejected() {
+        idempotentRequests.execute("key-1", "user-1", "cart.addItem", request, this::addToCart);
+        request.setQuantity(5);
+
+        ResponseEntity<?> response = idempotentRequests.execute("key-1", "user-1", "cart.addItem", request,
+                this::addToCart);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+        assertThat(executions.get()).isEqualTo(1);
+    }
+
+    @Test
+    void testRequestInProgressIsNotRunTwice() {
+        // Otra instancia o hilo ya reservó la clave y aún no termina
+        ResponseEntity<?> reserver = idempotentRequests.execute("key-1", "user-1", "cart.addItem", request, () -> {
+            ResponseEntity<?> concurrent = idempotentRequests.execute("key-1", "user-1", "cart.addItem", request,
+                    this::addToCart);
+            assertThat(concurrent.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+            return addToCart();
+        });
+
+        assertThat(reserver.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(executions.get()).isEqualTo(1);
+    }
+
+    @Test
+    void testErrorResponsesAreNotStored() {
+        ResponseEntity<?> failed = idempotentRequests.execute("key-1", "user-1", "cart.addItem", request,
+                () -> ResponseEntity.status(HttpStatus.CONFLICT).build());
+        ResponseEntity<?> retry = idempotentRequests.execute("key-1", "user-1", "cart.addItem", request,
+                this::addToCart);
+
+        assertThat(failed.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+        assertThat(retry.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(retry.getHeaders().containsKey(IdempotentRequests.REPLAYED_HEADER)).isFalse();
+        assertThat(executions.get()).isEqualTo(1);
+    }
+
+    @Test
+    void testExceptionReleasesKey() {
+        assertThatThrownBy(() -> idempotentRequests.execute("key-1", "user-1", "cart.addItem", request, () -> {
+            throw new IllegalStateException("fallo");
+        })).isInstanceOf(IllegalStateException.class);
+
+        idempotentRequests.execute("key-1", "user-1", "cart.addItem", request, this::addToCart);
+        assertThat(executions.get()).isEqualTo(1);
+    }
+
+    @Test
+    void testInvalidKeyIsBadRequest() {
+        ResponseEntity<?> response = idempotentRequests.execute(" ", "user-1", "cart.addItem", request,
+                this::addToCart);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(executions.get()).isZero();
+    }
+}
@@ -31,6 +31,7 @@ import co.edu.uniajc.estudiante.opemay.config.TestFirebaseConfig;
 import co.edu.uniajc.estudiante.opemay.config.TestSecurityConfig;
 import co.edu.uniajc.estudiante.opemay.dto.CreateOrderRequest;
 import co.edu.uniajc.estudiante.opemay.dto.OrderCreateDTO;
+import co.edu.uniajc.estudiante.opemay.dto.PageResponse;
 import co.edu.uniajc.estudiante.opemay.dto.UpdateOrderStatusRequest;
 import co.edu.uniajc.estudiante.opemay.dto.UpdatePaymentStatusRequest;
 import co.edu.uniajc.estudiante.opemay.model.Order;
@@ -246,16 +247,24 @@ class OrderControllerTest {
     @WithMockUser(roles = "ADMIN")
     void testGetAllOrders_Success() throws Exception {
         // Arrange
-        when(orderService.getAllOrders()).thenReturn(testOrders);
+        when(orderService.getAllOrders("cursor-1", 2)).thenReturn(PageResponse.<Order>builder()
+                .items(testOrders)
+                .size(2)
+                .nextCursor("cursor-2")
+                .hasMore(true)
+                .build());
 
         // Act & Assert
         mockMvc.perform(get("/api/orders/admin/all")
+                .param("cursor", "cursor-1")
+                .param("size", "2")
                 .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$").isArray())
-                .andExpect(jsonPath("$.length()").value(2));
+                .andExpect(jsonPath("$.items").isArray())
+                .andExpect(jsonPath("$.items.length()").value(2))
+                .andExpect(jsonPath("$.nextCursor").value("cursor-2"));
 
-        verify(orderService).getAllOrders();
+        verify(orderService).getAllOrders("cursor-1", 2);
     }
 
     @Test
@@ -265,7 +274,7 @@ class OrderControllerTest {
         mockMvc.perform(get("/api/orders/admin/all"))
                 .andExpect(status().isForbidden());
 
-        verify(orderService, never()).getAllOrders();
+        verify(orderService, never()).getAllOrders(any(), any());
     }
 
     @Test
@@ -379,17 +388,34 @@ class OrderControllerTest {
     @WithMockUser(roles = "ADMIN")
     void testGetOrdersByStatus_Success() throws Exception {
         // Arrange
-        List<Order> pendingOrders = Arrays.asList(testOrder);
-        when(orderService.getOrdersByStatus("PENDING")).thenReturn(pendingOrders);
+        PageResponse<Order> pendingOrders = PageResponse.<Order>builder()
+                .items(Arrays.asList(testOrder))
+                .size(20)
+                .hasMore(false)
+                .build();
+        when(orderService.getOrdersByStatus("PENDING", null, null)).thenReturn(pendingOrders);
 
         // Act & Assert
         mockMvc.perform(get("/api/orders/admin/status/PENDING")
                 .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$").isArray())
-                .andExpect(jsonPath("$.length()").value(1))
-                .andExpect(jsonPath("$[0].status").value("PENDING"));
+                .andExpect(jsonPath("$.items").isArray())
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.items[0].status").value("PENDING"));
+
+        verify(orderService).getOrdersByStatus("PENDING", null, null);
+    }
 
-        verify(orderService).getOrdersByStatus("PENDING");
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void testGetOrdersByStatus_InvalidStatus() throws Exception {
+        // Arrange
+        when(orderService.getOrdersByStatus("PERDIDA", null, null))
+                .thenThrow(new IllegalArgumentException("Estado de orden inválido: PERDIDA"));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/orders/admin/status/PERDIDA"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Estado de orden inválido: PERDIDA"));
     }
 }
@@ -0,0 +1,24 @@
+package co.edu.uniajc.estudiante.opemay.restController;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class PrecompressedCatalogTest {
+
+    @Test
+    void testAcceptsGzip() {
+        assertTrue(PrecompressedCatalog.acceptsGzip("gzip, deflate, br"));
+        assertTrue(PrecompressedCatalog.acceptsGzip("br;q=1.0, GZIP;q=0.5"));
+        assertTrue(PrecompressedCatalog.acceptsGzip("*"));
+    }
+
+    @Test
+    void testRejectsGzip() {
+        assertFalse(PrecompressedCatalog.acceptsGzip(null));
+        assertFalse(PrecompressedCatalog.acceptsGzip("identity"));
+        assertFalse(PrecompressedCatalog.acceptsGzip("gzip;q=0"));
+        assertFalse(PrecompressedCatalog.acceptsGzip("*, gzip;q=0"));
+    }
+}
@@ -7,8 +7,12 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.*;
 
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -23,14 +27,22 @@ import org.springframework.test.web.servlet.MockMvc;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import co.edu.uniajc.estudiante.opemay.IRespository.ConcurrentUpdateException;
+import co.edu.uniajc.estudiante.opemay.Service.CatalogVersion;
+import co.edu.uniajc.estudiante.opemay.Service.ProductFacetService;
 import co.edu.uniajc.estudiante.opemay.Service.ProductService;
+import co.edu.uniajc.estudiante.opemay.Service.ProductSuggestService;
+import co.edu.uniajc.estudiante.opemay.Service.VersionedCatalog;
 import co.edu.uniajc.estudiante.opemay.config.TestFirebaseConfig;
 import co.edu.uniajc.estudiante.opemay.config.TestSecurityConfig;
+import co.edu.uniajc.estudiante.opemay.dto.FacetedProductPage;
+import co.edu.uniajc.estudiante.opemay.dto.ProductFilter;
+import co.edu.uniajc.estudiante.opemay.dto.Suggestion;
 import co.edu.uniajc.estudiante.opemay.model.Product;
 
 @WebMvcTest(ProductController.class)
 @ActiveProfiles("test")
-@Import({TestFirebaseConfig.class, TestSecurityConfig.class})
+@Import({TestFirebaseConfig.class, TestSecurityConfig.class, PrecompressedCatalog.class})
 @SuppressWarnings("deprecation") // Suppress MockBean deprecation warnings
 class ProductControllerTest {
 
@@ -40,12 +52,24 @@ class ProductControllerTest {
     @MockBean
     private ProductService productService;
 
+    @MockBean
+    private ProductSuggestService productSuggestService;
+
+    @MockBean
+    private ProductFacetService productFacetService;
+
     @MockBean  
     private co.edu.uniajc.estudiante.opemay.Service.JwtService jwtService;
 
+    @MockBean
+    private co.edu.uniajc.estudiante.opemay.Service.UserService userService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private PrecompressedCatalog precompressedCatalog;
+
     private Product testProduct;
     private List<Product> testProducts;
 
@@ -156,6 +180,153 @@ class ProductControllerTest {
         verify(productService).getAllProducts();
     }
 
+    @Test
+    @WithMockUser
+    void testGetAllProducts_SetsValidators() throws Exception {
+        when(productService.getVersionedCatalog())
+                .thenReturn(new VersionedCatalog<>(new CatalogVersion("v1", 1700000000000L), testProducts));
+
+        mockMvc.perform(get("/api/products/all"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"v1\""))
+                .andExpect(header().exists("Last-Modified"))
+                .andExpect(header().string("Cache-Control", "max-age=60, public"));
+    }
+
+    @Test
+    @WithMockUser
+    void testGetAllProducts_NotModified() throws Exception {
+        when(productService.getVersionedCatalog())
+                .thenReturn(new VersionedCatalog<>(new CatalogVersion("v1", 1700000000000L), testProducts));
+
+        mockMvc.perform(get("/api/products/all")
+                .header("If-None-Match", "\"v1\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        verify(productService, never()).getAllProducts();
+    }
+
+    @Test
+    @WithMockUser
+    void testGetAllProducts_GzipSerializedOncePerVersion() throws Exception {
+        List<Product> items = new ArrayList<>(testProducts);
+        when(productService.getVersionedCatalog())
+                .thenReturn(new VersionedCatalog<>(new CatalogVersion("v2", 1700000000000L), items));
+
+        byte[] first = mockMvc.perform(get("/api/products/all")
+                .header("Accept-Encoding", "gzip, deflate, br"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().string("ETag", "\"v2-gzip\""))
+                .andExpect(header().string("Vary", "Accept-Encoding"))
+                .andReturn().getResponse().getContentAsByteArray();
+        // Misma versión: se sirven los bytes ya serializados, no la lista otra vez
+        items.clear();
+
+        mockMvc.perform(get("/api/products/all"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].id").value("product-123"));
+
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(first))) {
+            assertEquals(2, objectMapper.readTree(in.readAllBytes()).size());
+        }
+        verify(productService, never()).getAllProducts();
+    }
+
+    @Test
+    @WithMockUser
+    void testGetAllProducts_NotModifiedWithoutListener() throws Exception {
+        when(productService.getAllProducts()).thenReturn(testProducts);
+        String etag = mockMvc.perform(get("/api/products/all"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/products/all")
+                .header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    @WithMockUser
+    void testSearchProducts() throws Exception {
+        when(productService.searchProducts("manzanas", null)).thenReturn(List.of(testProduct));
+
+        mockMvc.perform(get("/api/products/search").param("q", "manzanas"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value("product-123"));
+    }
+
+    @Test
+    @WithMockUser
+    void testSearchProducts_BlankQuery() throws Exception {
+        when(productService.searchProducts(anyString(), isNull())).thenThrow(new IllegalArgumentException("vacía"));
+
+        mockMvc.perform(get("/api/products/search").param("q", " "))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser
+    void testFilterProducts() throws Exception {
+        when(productFacetService.filterProducts(any(ProductFilter.class))).thenReturn(FacetedProductPage.builder()
+                .items(List.of(testProduct))
+                .total(1)
+                .page(0)
+                .size(20)
+                .facets(Map.of("origin", Map.of("Test Origin", 1)))
+                .build());
+
+        mockMvc.perform(get("/api/products")
+                .param("categoryId", "cat-1", "cat-2")
+                .param("minPrice", "5")
+                .param("inStock", "true")
+                .param("sort", "-price"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value("product-123"))
+                .andExpect(jsonPath("$.total").value(1))
+                .andExpect(jsonPath("$.facets.origin['Test Origin']").value(1));
+
+        verify(productFacetService).filterProducts(argThat(filter ->
+                filter.getCategoryIds().equals(List.of("cat-1", "cat-2"))
+                        && filter.getMinPrice() == 5.0
+                        && Boolean.TRUE.equals(filter.getInStock())
+                        && "-price".equals(filter.getSort())));
+    }
+
+    @Test
+    @WithMockUser
+    void testFilterProducts_InvalidSort() throws Exception {
+        when(productFacetService.filterProducts(any(ProductFilter.class)))
+                .thenThrow(new IllegalArgumentException("Orden no soportado"));
+
+        mockMvc.perform(get("/api/products").param("sort", "rating"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser
+    void testSuggest() throws Exception {
+        when(productSuggestService.suggest("platno", 5)).thenReturn(List.of(
+                Suggestion.builder().text("Plátano").type("product").id("product-123").build()));
+
+        mockMvc.perform(get("/api/products/suggest").param("prefix", "platno").param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].text").value("Plátano"))
+                .andExpect(jsonPath("$[0].type").value("product"));
+    }
+
+    @Test
+    @WithMockUser
+    void testSuggest_BlankPrefix() throws Exception {
+        when(productSuggestService.suggest(anyString(), isNull())).thenThrow(new IllegalArgumentException("vacío"));
+
+        mockMvc.perform(get("/api/products/suggest").param("prefix", " "))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     @WithMockUser
     void testGetAllProducts_ServiceException() throws Exception {
@@ -263,9 +434,34 @@ class ProductControllerTest {
         verify(productService).getProductsByCategory("cat-1");
     }
 
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void testUpdateProduct_ConcurrentUpdate() throws Exception {
+        when(productService.updateProduct(eq("product-123"), any(Product.class)))
+                .thenThrow(new ConcurrentUpdateException("products", "product-123", 3L, 4L));
+
+        mockMvc.perform(put("/api/products/product-123")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(testProduct)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.error").exists());
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void testDeleteProduct_ConcurrentUpdate() throws Exception {
+        when(productService.deleteProduct("product-123"))
+                .thenThrow(new ConcurrentUpdateException("products", "product-123", 3L, 4L));
+
+        mockMvc.perform(delete("/api/products/product-123"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.error").exists());
+    }
+
     @Test
     void testControllerExists() {
-        ProductController controller = new ProductController(productService);
+        ProductController controller = new ProductController(productService, precompressedCatalog, productSuggestService,
+                productFacetService);
         assertNotNull(controller);
     }
 
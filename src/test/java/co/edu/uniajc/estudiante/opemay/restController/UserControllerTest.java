@@ -30,6 +30,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import co.edu.uniajc.estudiante.opemay.Service.UserService;
 import co.edu.uniajc.estudiante.opemay.config.TestFirebaseConfig;
 import co.edu.uniajc.estudiante.opemay.config.TestSecurityConfig;
+import co.edu.uniajc.estudiante.opemay.dto.PageResponse;
 import co.edu.uniajc.estudiante.opemay.model.User;
 
 @WebMvcTest(UserController.class)
@@ -171,20 +172,27 @@ class UserControllerTest {
     @WithMockUser
     void testGetAllUsers_Success() throws Exception {
         // Arrange
-        when(userService.getAllUsers()).thenReturn(testUsers);
+        when(userService.getAllUsers(null, null)).thenReturn(PageResponse.<User>builder()
+                .items(testUsers)
+                .size(20)
+                .nextCursor("next-cursor")
+                .hasMore(true)
+                .build());
 
         // Act & Assert
         mockMvc.perform(get("/api/users/all")
                 .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$").isArray())
-                .andExpect(jsonPath("$.length()").value(2))
-                .andExpect(jsonPath("$[0].id").value("testuser"))
-                .andExpect(jsonPath("$[0].username").value("testuser"))
-                .andExpect(jsonPath("$[1].id").value("user-456"))
-                .andExpect(jsonPath("$[1].username").value("anotheruser"));
-
-        verify(userService).getAllUsers();
+                .andExpect(jsonPath("$.items").isArray())
+                .andExpect(jsonPath("$.items.length()").value(2))
+                .andExpect(jsonPath("$.items[0].id").value("testuser"))
+                .andExpect(jsonPath("$.items[0].username").value("testuser"))
+                .andExpect(jsonPath("$.items[1].id").value("user-456"))
+                .andExpect(jsonPath("$.items[1].username").value("anotheruser"))
+                .andExpect(jsonPath("$.nextCursor").value("next-cursor"))
+                .andExpect(jsonPath("$.hasMore").value(true));
+
+        verify(userService).getAllUsers(null, null);
     }
 
     @Test
@@ -282,7 +290,7 @@ class UserControllerTest {
     @WithMockUser
     void testServiceException_GetAll() throws Exception {
         // Arrange
-        when(userService.getAllUsers()).thenThrow(new RuntimeException("Database error"));
+        when(userService.getAllUsers(null, null)).thenThrow(new RuntimeException("Database error"));
 
         // Act & Assert
         mockMvc.perform(get("/api/users/all"))
@@ -342,12 +350,17 @@ class UserControllerTest {
     @WithMockUser
     void testGetAllUsers_EmptyList() throws Exception {
         // Arrange
-        when(userService.getAllUsers()).thenReturn(Arrays.asList());
+        when(userService.getAllUsers(null, null)).thenReturn(PageResponse.<User>builder()
+                .items(Arrays.asList())
+                .size(20)
+                .hasMore(false)
+                .build());
 
         // Act & Assert
         mockMvc.perform(get("/api/users/all"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$").isArray())
-                .andExpect(jsonPath("$.length()").value(0));
+                .andExpect(jsonPath("$.items").isArray())
+                .andExpect(jsonPath("$.items.length()").value(0))
+                .andExpect(jsonPath("$.hasMore").value(false));
     }
 }
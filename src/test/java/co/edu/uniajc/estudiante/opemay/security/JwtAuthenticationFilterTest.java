@@ -5,6 +5,7 @@ import static org.mockito.Mockito.*;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.IOException;
+import java.util.List;
 
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -24,6 +25,8 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetailsService;
 
 import co.edu.uniajc.estudiante.opemay.Service.JwtService;
+import co.edu.uniajc.estudiante.opemay.Service.UserService;
+import io.jsonwebtoken.JwtException;
 
 @ExtendWith(MockitoExtension.class)
 class JwtAuthenticationFilterTest {
@@ -33,6 +36,9 @@ class JwtAuthenticationFilterTest {
     
     @Mock
     private UserDetailsService userDetailsService;
+
+    @Mock
+    private UserService userService;
     
     @Mock
     private HttpServletRequest request;
@@ -51,6 +57,10 @@ class JwtAuthenticationFilterTest {
         SecurityContextHolder.clearContext();
     }
 
+    private static JwtService.VerifiedToken verified(String username) {
+        return new JwtService.VerifiedToken(username, null, null, null, null, null, null);
+    }
+
     @Test
     void testDoFilterInternal_NoAuthorizationHeader() throws ServletException, IOException {
         // Arrange
@@ -61,7 +71,7 @@ class JwtAuthenticationFilterTest {
         
         // Assert
         verify(filterChain).doFilter(request, response);
-        verify(jwtService, never()).getUsernameFromToken(anyString());
+        verify(jwtService, never()).verifyToken(anyString());
         verify(userDetailsService, never()).loadUserByUsername(anyString());
     }
 
@@ -75,7 +85,7 @@ class JwtAuthenticationFilterTest {
         
         // Assert
         verify(filterChain).doFilter(request, response);
-        verify(jwtService, never()).getUsernameFromToken(anyString());
+        verify(jwtService, never()).verifyToken(anyString());
     }
 
     @Test
@@ -88,7 +98,7 @@ class JwtAuthenticationFilterTest {
         
         // Assert
         verify(filterChain).doFilter(request, response);
-        // No verificar que NUNCA se llama getUsernameFromToken porque puede llamarse con token vacío
+        // No verificar que NUNCA se llama verifyToken porque puede llamarse con token vacío
     }
 
     @Test
@@ -98,7 +108,7 @@ class JwtAuthenticationFilterTest {
         String username = "testuser";
         
         when(request.getHeader("Authorization")).thenReturn("Bearer " + token);
-        when(jwtService.getUsernameFromToken(token)).thenReturn(username);
+        when(jwtService.verifyToken(token)).thenReturn(verified(username));
         
         // Simular que ya hay autenticación en el contexto
         Authentication existingAuth = mock(Authentication.class);
@@ -120,9 +130,8 @@ class JwtAuthenticationFilterTest {
         UserPrincipal userPrincipal = mock(UserPrincipal.class);
         
         when(request.getHeader("Authorization")).thenReturn("Bearer " + token);
-        when(jwtService.getUsernameFromToken(token)).thenReturn(username);
+        when(jwtService.verifyToken(token)).thenReturn(verified(username));
         when(userDetailsService.loadUserByUsername(username)).thenReturn(userPrincipal);
-        when(jwtService.validateToken(token)).thenReturn(true);
         
         // Act
         jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
@@ -141,20 +150,17 @@ class JwtAuthenticationFilterTest {
     @Test
     void testDoFilterInternal_ValidTokenButInvalidAuthentication() throws ServletException, IOException {
         // Arrange
-        String token = "valid.jwt.token";
-        String username = "testuser";
-        UserPrincipal userPrincipal = mock(UserPrincipal.class);
+        String token = "expired.jwt.token";
         
         when(request.getHeader("Authorization")).thenReturn("Bearer " + token);
-        when(jwtService.getUsernameFromToken(token)).thenReturn(username);
-        when(userDetailsService.loadUserByUsername(username)).thenReturn(userPrincipal);
-        when(jwtService.validateToken(token)).thenReturn(false);
+        when(jwtService.verifyToken(token)).thenThrow(new JwtException("JWT expired"));
         
         // Act
         jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
         
         // Assert
         verify(filterChain).doFilter(request, response);
+        verify(userDetailsService, never()).loadUserByUsername(anyString());
         
         // Verificar que NO se estableció la autenticación
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
@@ -167,7 +173,7 @@ class JwtAuthenticationFilterTest {
         String token = "invalid.jwt.token";
         
         when(request.getHeader("Authorization")).thenReturn("Bearer " + token);
-        when(jwtService.getUsernameFromToken(token)).thenThrow(new RuntimeException("Token processing error"));
+        when(jwtService.verifyToken(token)).thenThrow(new RuntimeException("Token processing error"));
         
         // Act
         jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
@@ -188,7 +194,7 @@ class JwtAuthenticationFilterTest {
         String username = "testuser";
         
         when(request.getHeader("Authorization")).thenReturn("Bearer " + token);
-        when(jwtService.getUsernameFromToken(token)).thenReturn(username);
+        when(jwtService.verifyToken(token)).thenReturn(verified(username));
         when(userDetailsService.loadUserByUsername(username)).thenThrow(new RuntimeException("User not found"));
         
         // Act
@@ -208,7 +214,7 @@ class JwtAuthenticationFilterTest {
         String token = "valid.jwt.token";
         
         when(request.getHeader("Authorization")).thenReturn("Bearer " + token);
-        when(jwtService.getUsernameFromToken(token)).thenReturn("");
+        when(jwtService.verifyToken(token)).thenReturn(verified(""));
         
         // Act
         jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
@@ -224,7 +230,7 @@ class JwtAuthenticationFilterTest {
         String token = "valid.jwt.token";
         
         when(request.getHeader("Authorization")).thenReturn("Bearer " + token);
-        when(jwtService.getUsernameFromToken(token)).thenReturn(null);
+        when(jwtService.verifyToken(token)).thenReturn(verified(null));
         
         // Act
         jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
@@ -234,6 +240,49 @@ class JwtAuthenticationFilterTest {
         verify(userDetailsService, never()).loadUserByUsername(anyString());
     }
 
+    @Test
+    void testDoFilterInternal_TokenWithUserClaimsSkipsUserLookup() throws ServletException, IOException {
+        // Arrange
+        String token = "claims.jwt.token";
+        JwtService.VerifiedToken verified = new JwtService.VerifiedToken(
+                "testuser@example.com", "user-123", "testuser", List.of("ADMIN"), null, null, null);
+        
+        when(request.getHeader("Authorization")).thenReturn("Bearer " + token);
+        when(jwtService.verifyToken(token)).thenReturn(verified);
+        when(userService.isSessionCurrent(verified)).thenReturn(true);
+        
+        // Act
+        jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
+        
+        // Assert
+        verify(filterChain).doFilter(request, response);
+        verifyNoInteractions(userDetailsService);
+        
+        UserPrincipal principal = (UserPrincipal) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        assertEquals("user-123", principal.getId());
+        assertEquals("testuser@example.com", principal.getEmail());
+        assertTrue(principal.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN")));
+    }
+
+    @Test
+    void testDoFilterInternal_RevokedSessionIsNotAuthenticated() throws ServletException, IOException {
+        // Arrange
+        String token = "revoked.jwt.token";
+        JwtService.VerifiedToken verified = new JwtService.VerifiedToken(
+                "testuser@example.com", "user-123", "testuser", List.of("ADMIN"), null, null, null);
+        
+        when(request.getHeader("Authorization")).thenReturn("Bearer " + token);
+        when(jwtService.verifyToken(token)).thenReturn(verified);
+        when(userService.isSessionCurrent(verified)).thenReturn(false);
+        
+        // Act
+        jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
+        
+        // Assert
+        verify(filterChain).doFilter(request, response);
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
     @Test
     void testSecurityContextCleanup() throws ServletException, IOException {
         // Arrange
@@ -87,8 +87,7 @@ class JwtAuthenticationFilterTestFixed {
         UserDetails userDetails = mock(UserDetails.class);
         
         when(request.getHeader("Authorization")).thenReturn("Bearer " + token);
-        when(jwtService.getUsernameFromToken(token)).thenReturn(username);
-        when(jwtService.validateToken(token)).thenReturn(true);
+        when(jwtService.verifyToken(token)).thenReturn(new JwtService.VerifiedToken(username, null, null, null, null, null, null));
         when(userDetailsService.loadUserByUsername(username)).thenReturn(userDetails);
         // Remover stubbing innecesario de userDetails.getUsername()
 
@@ -97,8 +96,7 @@ class JwtAuthenticationFilterTestFixed {
 
         // Assert
         verify(filterChain).doFilter(request, response);
-        verify(jwtService).getUsernameFromToken(token);
-        verify(jwtService).validateToken(token);
+        verify(jwtService).verifyToken(token);
         verify(userDetailsService).loadUserByUsername(username);
         assertNotNull(SecurityContextHolder.getContext().getAuthentication());
     }
@@ -109,14 +107,14 @@ class JwtAuthenticationFilterTestFixed {
         String token = "error.jwt.token";
         
         when(request.getHeader("Authorization")).thenReturn("Bearer " + token);
-        when(jwtService.getUsernameFromToken(token)).thenThrow(new RuntimeException("Token processing error"));
+        when(jwtService.verifyToken(token)).thenThrow(new RuntimeException("Token processing error"));
 
         // Act
         jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
 
         // Assert
         verify(filterChain).doFilter(request, response);
-        verify(jwtService).getUsernameFromToken(token);
+        verify(jwtService).verifyToken(token);
         verifyNoInteractions(userDetailsService);
         assertNull(SecurityContextHolder.getContext().getAuthentication());
     }